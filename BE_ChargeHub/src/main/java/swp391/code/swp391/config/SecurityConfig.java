@@ -3,6 +3,7 @@ package swp391.code.swp391.config;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -68,6 +69,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/admin/**").hasRole(User.UserRole.ADMIN.name())
                         .requestMatchers("/api/staff/**").hasAnyRole( "STAFF", "ADMIN")
                         .requestMatchers("/api/issue-reports/**").hasAnyRole( "STAFF", "ADMIN")
+                        // Giá trị đồng hồ quyết định tiền của phiên: chỉ trụ sạc (tài khoản staff) hoặc admin
+                        .requestMatchers(HttpMethod.POST, "/api/sessions/*/meter-values").hasAnyRole("STAFF", "ADMIN")
                         .anyRequest().authenticated()
                 );
         return http.build();
@@ -7,6 +7,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import swp391.code.swp391.dto.ChargingPointDTO;
 import swp391.code.swp391.dto.ChargingStationDTO;
+import swp391.code.swp391.dto.NearbyStationDTO;
 import swp391.code.swp391.entity.ChargingStation.ChargingStationStatus;
 import swp391.code.swp391.service.ChargingStationService;
 
@@ -57,6 +58,36 @@ public class ChargingStationController {
         return new ResponseEntity<>(chargingStations, HttpStatus.OK);
     }
 
+    // Tìm stations trong bán kính (km) quanh vị trí
+    @GetMapping("/nearby")
+    public ResponseEntity<?> getStationsNearby(@RequestParam double lat,
+                                               @RequestParam double lng,
+                                               @RequestParam(defaultValue = "5") double radiusKm) {
+        if (!isValidCoordinate(lat, lng)) {
+            return new ResponseEntity<>("Invalid latitude/longitude", HttpStatus.BAD_REQUEST);
+        }
+        if (radiusKm <= 0 || radiusKm > 200) {
+            return new ResponseEntity<>("Radius must be between 0 and 200 km", HttpStatus.BAD_REQUEST);
+        }
+        List<NearbyStationDTO> stations = chargingStationService.findStationsWithinRadius(lat, lng, radiusKm);
+        return new ResponseEntity<>(stations, HttpStatus.OK);
+    }
+
+    // Tìm k stations gần nhất
+    @GetMapping("/nearest")
+    public ResponseEntity<?> getNearestStations(@RequestParam double lat,
+                                                @RequestParam double lng,
+                                                @RequestParam(defaultValue = "10") int k) {
+        if (!isValidCoordinate(lat, lng)) {
+            return new ResponseEntity<>("Invalid latitude/longitude", HttpStatus.BAD_REQUEST);
+        }
+        if (k < 1 || k > 100) {
+            return new ResponseEntity<>("k must be between 1 and 100", HttpStatus.BAD_REQUEST);
+        }
+        List<NearbyStationDTO> stations = chargingStationService.findNearestStations(lat, lng, k);
+        return new ResponseEntity<>(stations, HttpStatus.OK);
+    }
+
     // Cập nhật charging station
     @PutMapping("/{stationId}")
     public ResponseEntity<?> updateChargingStation(@PathVariable Long stationId,
@@ -172,4 +203,8 @@ public class ChargingStationController {
         boolean exists = chargingStationService.isStationNameExists(stationName);
         return new ResponseEntity<>(exists, HttpStatus.OK);
     }
-}
\ No newline at end of file
+
+    private boolean isValidCoordinate(double lat, double lng) {
+        return lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+    }
+}
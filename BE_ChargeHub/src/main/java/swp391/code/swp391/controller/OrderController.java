@@ -1,15 +1,32 @@
 package swp391.code.swp391.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import swp391.code.swp391.dto.*;
 import swp391.code.swp391.entity.Order;
 import swp391.code.swp391.service.CarModelServiceImpl;
 import swp391.code.swp391.service.ChargingStationServiceImpl;
+import swp391.code.swp391.service.FleetBookingService;
+import swp391.code.swp391.service.NearbySlotSearchService;
+import swp391.code.swp391.service.RecurringBookingService;
+import swp391.code.swp391.service.SlotHoldService;
+import swp391.code.swp391.service.WaitlistService;
 import swp391.code.swp391.service.OrderServiceImpl;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -23,6 +40,12 @@ public class OrderController {
     private final OrderServiceImpl orderServiceImpl;
     private final ChargingStationServiceImpl chargingStationServiceImpl;
     private final CarModelServiceImpl carModelServiceImpl;
+    private final NearbySlotSearchService nearbySlotSearchService;
+    private final SlotHoldService slotHoldService;
+    private final FleetBookingService fleetBookingService;
+    private final WaitlistService waitlistService;
+    private final RecurringBookingService recurringBookingService;
+    private final ObjectMapper objectMapper;
 
     /**
      * API 1: Find available slots - Tìm các khung giờ trống có đủ thời gian sạc
@@ -46,6 +69,127 @@ public class OrderController {
         );
     }
 
+    /**
+     * Biến thể stream (NDJSON) của find-available-slots: mỗi charging point được gửi ngay khi tính xong,
+     * không dựng toàn bộ response trong bộ nhớ. Lỗi đầu vào (xe, trạm, connector) vẫn trả về như API thường.
+     */
+    @PostMapping(value = "/find-available-slots/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAvailableSlots(
+            @Valid @RequestBody OrderRequestDTO request) {
+
+        OrderServiceImpl.SlotSearch search = orderServiceImpl.prepareSlotSearch(request);
+        AvailableSlotsResponseDTO header = orderServiceImpl.buildSlotsHeader(search, request);
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        StreamingResponseBody body = out -> {
+            writeLine(writer, out, AvailableSlotsStreamEventDTO.builder()
+                    .type(AvailableSlotsStreamEventDTO.Type.HEADER)
+                    .station(header)
+                    .build());
+
+            int[] totals = new int[2]; // points, slots
+            List<RankedSlotDTO> recommended;
+            try {
+                recommended = orderServiceImpl.streamAvailableSlots(search, request.getUserId(), point -> {
+                    totals[0]++;
+                    totals[1] += point.getAvailableSlots().size();
+                    try {
+                        writeLine(writer, out, AvailableSlotsStreamEventDTO.builder()
+                                .type(AvailableSlotsStreamEventDTO.Type.CHARGING_POINT)
+                                .chargingPoint(point)
+                                .build());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // Client đã ngắt kết nối
+            } catch (RuntimeException e) {
+                writeLine(writer, out, AvailableSlotsStreamEventDTO.builder()
+                        .type(AvailableSlotsStreamEventDTO.Type.ERROR)
+                        .message(e.getMessage())
+                        .build());
+                return;
+            }
+
+            writeLine(writer, out, AvailableSlotsStreamEventDTO.builder()
+                    .type(AvailableSlotsStreamEventDTO.Type.SUMMARY)
+                    .totalPoints(totals[0])
+                    .totalSlots(totals[1])
+                    .recommendedSlots(recommended)
+                    .message(totals[0] == 0
+                            ? orderServiceImpl.noGapMessage(search.getHorizonDays())
+                            : "Tìm thấy " + totals[1] + " khung giờ khả dụng")
+                    .build());
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static void writeLine(ObjectWriter writer, OutputStream out, Object value) throws IOException {
+        writer.writeValue(out, value);
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Tìm slot sớm nhất ở các trạm gần vị trí người dùng.
+     * Trạm chưa trả lời kịp deadline được trả về trong pendingStations.
+     */
+    @PostMapping("/find-nearby-slots")
+    public ResponseEntity<APIResponse<NearbySlotsResponseDTO>> findNearbySlots(
+            @Valid @RequestBody NearbySlotsRequestDTO request) {
+
+        NearbySlotsResponseDTO response = nearbySlotSearchService.findNearbySlots(request);
+
+        return ResponseEntity.ok(
+                APIResponse.<NearbySlotsResponseDTO>builder()
+                        .success(true)
+                        .message("Tìm thấy " + response.getSlots().size() + " khung giờ khả dụng tại "
+                                + response.getSearchedStations() + " trạm gần bạn")
+                        .data(response)
+                        .build()
+        );
+    }
+
+    /**
+     * Giữ chỗ tạm thời một khung giờ trước khi xác nhận (hết hạn sau vài phút)
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<APIResponse<SlotHoldResponseDTO>> createHold(
+            @Valid @RequestBody SlotHoldRequestDTO request) {
+
+        SlotHoldResponseDTO hold = slotHoldService.createHold(request);
+
+        return ResponseEntity.ok(
+                APIResponse.<SlotHoldResponseDTO>builder()
+                        .success(true)
+                        .message("Đã giữ chỗ đến " + hold.getExpiresAt())
+                        .data(hold)
+                        .build()
+        );
+    }
+
+    /**
+     * Bỏ giữ chỗ
+     */
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<APIResponse<Void>> releaseHold(
+            @PathVariable Long holdId,
+            @RequestParam Long userId) {
+
+        slotHoldService.releaseHold(holdId, userId);
+
+        return ResponseEntity.ok(
+                APIResponse.<Void>builder()
+                        .success(true)
+                        .message("Đã bỏ giữ chỗ")
+                        .build()
+        );
+    }
+
     /**
      * API 2: Confirm order - Xác nhận đặt chỗ
      */
@@ -64,6 +208,115 @@ public class OrderController {
         );
     }
 
+    /**
+     * Đặt chỗ hàng loạt cho đội xe, trả về kết quả từng xe
+     */
+    @PostMapping("/fleet/confirm")
+    public ResponseEntity<APIResponse<FleetBookingResponseDTO>> confirmFleetBooking(
+            @Valid @RequestBody FleetBookingRequestDTO request) {
+
+        FleetBookingResponseDTO response = fleetBookingService.bookFleet(request);
+
+        return ResponseEntity.ok(
+                APIResponse.<FleetBookingResponseDTO>builder()
+                        .success(response.getBooked() > 0)
+                        .message("Đặt thành công " + response.getBooked() + "/" + response.getRequested() + " xe")
+                        .data(response)
+                        .build()
+        );
+    }
+
+    /**
+     * Đặt chỗ định kỳ (vd: thứ 2-6, 08:00-09:00), trả về kết quả từng lần lặp
+     */
+    @PostMapping("/recurring")
+    public ResponseEntity<APIResponse<RecurringBookingResponseDTO>> createRecurringBooking(
+            @Valid @RequestBody RecurringBookingRequestDTO request) {
+
+        RecurringBookingResponseDTO response = recurringBookingService.createRecurringBooking(request);
+
+        return ResponseEntity.ok(
+                APIResponse.<RecurringBookingResponseDTO>builder()
+                        .success(response.getBooked() > 0)
+                        .message("Đặt thành công " + response.getBooked() + "/" + response.getRequested() + " lần")
+                        .data(response)
+                        .build()
+        );
+    }
+
+    /**
+     * Hủy lịch định kỳ và các đơn sắp tới còn có thể hủy
+     */
+    @DeleteMapping("/recurring/{recurringBookingId}")
+    public ResponseEntity<APIResponse<Integer>> cancelRecurringBooking(
+            @PathVariable Long recurringBookingId,
+            @RequestParam Long userId) {
+
+        int cancelled = recurringBookingService.cancelRecurringBooking(recurringBookingId, userId);
+
+        return ResponseEntity.ok(
+                APIResponse.<Integer>builder()
+                        .success(true)
+                        .message("Đã hủy lịch định kỳ và " + cancelled + " đơn sắp tới")
+                        .data(cancelled)
+                        .build()
+        );
+    }
+
+    /**
+     * Đăng ký chờ khi trạm hết slot. Khi có slot được giải phóng sẽ tự đặt hoặc giữ chỗ và thông báo.
+     */
+    @PostMapping("/waitlist")
+    public ResponseEntity<APIResponse<WaitlistResponseDTO>> joinWaitlist(
+            @Valid @RequestBody WaitlistRequestDTO request) {
+
+        WaitlistResponseDTO entry = waitlistService.join(request);
+
+        return ResponseEntity.ok(
+                APIResponse.<WaitlistResponseDTO>builder()
+                        .success(true)
+                        .message("Đã đăng ký chờ slot")
+                        .data(entry)
+                        .build()
+        );
+    }
+
+    /**
+     * Rời danh sách chờ
+     */
+    @DeleteMapping("/waitlist/{waitlistId}")
+    public ResponseEntity<APIResponse<Void>> leaveWaitlist(
+            @PathVariable Long waitlistId,
+            @RequestParam Long userId) {
+
+        waitlistService.leave(waitlistId, userId);
+
+        return ResponseEntity.ok(
+                APIResponse.<Void>builder()
+                        .success(true)
+                        .message("Đã rời danh sách chờ")
+                        .build()
+        );
+    }
+
+    /**
+     * Các đăng ký chờ của user
+     */
+    @GetMapping("/waitlist")
+    public ResponseEntity<APIResponse<List<WaitlistResponseDTO>>> getMyWaitlist(
+            @RequestParam Long userId) {
+
+        List<WaitlistResponseDTO> entries = waitlistService.getUserEntries(userId);
+
+        return ResponseEntity.ok(
+                APIResponse.<List<WaitlistResponseDTO>>builder()
+                        .success(true)
+                        .message("Có " + entries.size() + " đăng ký chờ")
+                        .data(entries)
+                        .build()
+        );
+    }
+
     /**
      * API 3: Get fake battery level - Giả lập lấy % pin hiện tại
      */
@@ -110,6 +363,27 @@ public class OrderController {
         );
     }
 
+    /**
+     * API 4b: Danh sách đơn đặt chỗ theo trang (phân trang bằng con trỏ nextCursor)
+     */
+    @GetMapping("/my-orders/page")
+    public ResponseEntity<APIResponse<OrderPageDTO>> getMyOrderPage(
+            @RequestParam Long userId,
+            @RequestParam(required = false) Order.Status status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        OrderPageDTO page = orderServiceImpl.getUserOrderPage(userId, status, cursor, size);
+
+        return ResponseEntity.ok(
+                APIResponse.<OrderPageDTO>builder()
+                        .success(true)
+                        .message("Tìm thấy " + page.getOrders().size() + " đơn đặt chỗ")
+                        .data(page)
+                        .build()
+        );
+    }
+
     /**
      * API 5: HỦY ĐƠN ĐẶT CHỖ
      */
@@ -141,6 +415,39 @@ public class OrderController {
         );
     }
 
+    /**
+     * Feed đơn của trạm cho nhân viên (NDJSON, mỗi dòng một đơn theo giờ bắt đầu):
+     * cả ngày date, hoặc hours giờ tới (mặc định 24). Đọc dần từ DB nên không phụ thuộc độ dài lịch sử của trạm.
+     */
+    @GetMapping(value = "/station/{stationId}/feed", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStationOrders(
+            @PathVariable Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Integer hours,
+            @RequestParam(required = false) Order.Status status) {
+
+        LocalDateTime[] window = orderServiceImpl.stationFeedWindow(stationId, date, hours);
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        StreamingResponseBody body = out -> {
+            try {
+                orderServiceImpl.streamStationOrders(stationId, status, window[0], window[1], order -> {
+                    try {
+                        writeLine(writer, out, order);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // Client đã ngắt kết nối
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
 
     // Helper method
     private String getBatteryStatus(double batteryLevel) {
@@ -5,12 +5,18 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import swp391.code.swp391.dto.APIResponse;
+import swp391.code.swp391.dto.MeterValuesRequestDTO;
 import swp391.code.swp391.dto.SessionProgressDTO;
 import swp391.code.swp391.dto.StartSessionRequestDTO;
 import swp391.code.swp391.util.JwtUtil;
+import swp391.code.swp391.service.MeterReadingIngestService;
+import swp391.code.swp391.service.SessionProgressStreamService;
 import swp391.code.swp391.service.SessionService;
 
 import java.text.ParseException;
@@ -23,6 +29,8 @@ public class SessionController {
 
     private final SessionService sessionService;
     private final JwtUtil jwtUtil;
+    private final SessionProgressStreamService sessionProgressStreamService;
+    private final MeterReadingIngestService meterReadingIngestService;
 
     // US10: POST /api/sessions/start
     @PostMapping("/start")
@@ -67,6 +75,48 @@ public class SessionController {
         return ResponseEntity.ok(APIResponse.success("Session progress updated successfully", progress));
     }
 
+    // US11: GET /api/sessions/{sessionId}/stream - Tiến trình sạc đẩy qua SSE (thay cho poll /monitor)
+    @GetMapping(value = "/{sessionId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamSession(@PathVariable Long sessionId,
+                                           HttpServletRequest httpServletRequest) {
+        String header = httpServletRequest.getHeader("Authorization");
+        String token = jwtUtil.getTokenFromHeader(header);
+        try {
+            Long userId = jwtUtil.getUserIdByTokenDecode(token);
+            SseEmitter emitter = sessionProgressStreamService.subscribe(sessionId, userId);
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+        } catch (ParseException | JOSEException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(APIResponse.error("Token parsing error"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(APIResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(APIResponse.error(e.getMessage()));
+        }
+    }
+
+    // POST /api/sessions/{sessionId}/meter-values - Trụ sạc gửi giá trị đồng hồ (kiểu OCPP MeterValues)
+    // Chỉ tài khoản staff của trạm (trụ sạc) hoặc admin
+    @PostMapping("/{sessionId}/meter-values")
+    public ResponseEntity<APIResponse<Integer>> meterValues(@PathVariable Long sessionId,
+                                                            @Valid @RequestBody MeterValuesRequestDTO request,
+                                                            HttpServletRequest httpServletRequest) {
+        String header = httpServletRequest.getHeader("Authorization");
+        try {
+            Long userId = jwtUtil.getUserIdByTokenDecode(jwtUtil.getTokenFromHeader(header));
+            int accepted = meterReadingIngestService.ingest(sessionId, userId, request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(APIResponse.success("Accepted " + accepted + "/" + request.getSamples().size() + " meter values", accepted));
+        } catch (ParseException | JOSEException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(APIResponse.error("Token parsing error"));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(APIResponse.error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(APIResponse.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(APIResponse.error(e.getMessage()));
+        }
+    }
+
     // US11: End charging session
     @PostMapping("/{sessionId}/end")
     public ResponseEntity<APIResponse<Long>> endSession(@PathVariable Long sessionId,
@@ -30,6 +30,9 @@ public class AvailableSlotsResponseDTO {
     // danh sách slot khả dụng của 1 point
     private List<AvailableTimeSlotDTO> availableSlots;
 
+    // Top-K slot đề xuất theo chi phí thực tế, thời gian sạc và thời gian chờ
+    private List<RankedSlotDTO> recommendedSlots;
+
 
     @Data
     @NoArgsConstructor
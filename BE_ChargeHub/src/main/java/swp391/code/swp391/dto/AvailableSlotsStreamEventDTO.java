@@ -0,0 +1,42 @@
+package swp391.code.swp391.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Một dòng NDJSON của API tìm slot dạng stream.
+ * Thứ tự: HEADER -> các CHARGING_POINT (ngay khi tính xong) -> SUMMARY (hoặc ERROR nếu lỗi giữa chừng).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AvailableSlotsStreamEventDTO {
+
+    public enum Type {
+        HEADER,
+        CHARGING_POINT,
+        SUMMARY,
+        ERROR
+    }
+
+    private Type type;
+
+    private AvailableSlotsResponseDTO station; // HEADER: thông tin trạm, xe, sạc (không có chargingPoints)
+
+    private ChargingPointAvailabilityDTO chargingPoint; // CHARGING_POINT
+
+    private List<RankedSlotDTO> recommendedSlots; // SUMMARY
+
+    private Integer totalPoints; // SUMMARY: số point có slot
+
+    private Integer totalSlots; // SUMMARY
+
+    private String message; // SUMMARY / ERROR
+}
@@ -26,4 +26,12 @@ public class AvailableTimeSlotDTO {
 
     // Chi phí ước tính
     private Double estimatedCost; // VND (energyToCharge × pricePerKwh)
+
+    // true = slot đặt chồng lên đơn có khả năng không đến (đơn bị hủy nếu chủ đơn trước đến)
+    private Boolean overbooked;
+
+    // Theo chính sách xếp chỗ (placementPolicy): giờ bắt đầu đề xuất sát một đầu khoảng trống
+    private LocalDateTime proposedStart;
+    private Integer leftoverMinutes;   // Phần còn trống sau khi đặt (một mảnh liền)
+    private Integer fragmentedMinutes; // Phần còn trống quá ngắn để người khác dùng được (0 nếu không có)
 }
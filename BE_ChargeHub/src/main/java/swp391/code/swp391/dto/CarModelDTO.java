@@ -16,6 +16,8 @@ public class CarModelDTO {
     private String brand;
     private String model;
     private double capacity;
+    private Double maxChargePowerKw;
+    private Double taperStartSoc;
     private int productYear;
     private List<Long> connectorTypeIds; // Để gửi danh sách ID của ConnectorType
     private String carModelImage;
@@ -3,6 +3,7 @@ package swp391.code.swp391.dto;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -11,6 +12,7 @@ import swp391.code.swp391.entity.ChargingPoint;
 import swp391.code.swp391.entity.ChargingStation.ChargingStationStatus;
 import swp391.code.swp391.entity.User;
 
+import java.time.LocalTime;
 import java.util.List;
 
 @Data
@@ -36,6 +38,12 @@ public class ChargingStationDTO {
     private Double latitude;
     private Double longitude;
 
+    private LocalTime openingTime;
+    private LocalTime closingTime;
+
+    @Positive(message = "Power budget must be positive")
+    private Double powerBudgetKw;
+
     @NotNull(message = "At least one charging point is required")
     private List<ChargingPointDTO> chargingPoints;
 
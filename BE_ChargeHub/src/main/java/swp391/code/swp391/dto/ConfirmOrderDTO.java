@@ -48,4 +48,6 @@ public class ConfirmOrderDTO {
 
     @NotNull(message = "Loại kết nối không được để trống")
     private Long connectorTypeId;
+
+    private Long holdId; // Giữ chỗ đã tạo trước đó (không bắt buộc)
 }
\ No newline at end of file
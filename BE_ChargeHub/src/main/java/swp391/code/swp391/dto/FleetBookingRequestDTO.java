@@ -0,0 +1,59 @@
+package swp391.code.swp391.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Đặt chỗ hàng loạt cho đội xe: mỗi item là (xe, trạm, khung thời gian mong muốn),
+ * hệ thống tự chọn trụ và giờ bắt đầu sớm nhất trong khung
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FleetBookingRequestDTO {
+
+    @NotNull(message = "User ID không được để trống")
+    private Long userId;
+
+    @NotEmpty(message = "Danh sách đặt chỗ không được để trống")
+    @Size(max = 200, message = "Tối đa 200 xe mỗi lần đặt")
+    @Valid
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+
+        @NotNull(message = "Vehicle ID không được để trống")
+        private Long vehicleId;
+
+        @NotNull(message = "Station ID không được để trống")
+        private Long stationId;
+
+        @NotNull(message = "Thời gian bắt đầu khung không được để trống")
+        private LocalDateTime windowStart; // Sớm nhất có thể bắt đầu sạc
+
+        @NotNull(message = "Thời gian kết thúc khung không được để trống")
+        private LocalDateTime windowEnd; // Phải sạc xong trước thời điểm này
+
+        @NotNull(message = "Dung lượng pin hiện tại không được để trống")
+        @DecimalMin(value = "0.0", message = "Pin hiện tại phải >= 0%")
+        @DecimalMax(value = "100.0", message = "Pin hiện tại phải <= 100%")
+        private Double currentBattery;
+
+        @NotNull(message = "Dung lượng pin mong muốn không được để trống")
+        @DecimalMin(value = "0.0", message = "Pin mong muốn phải >= 0%")
+        @DecimalMax(value = "100.0", message = "Pin mong muốn phải <= 100%")
+        private Double targetBattery;
+    }
+}
@@ -0,0 +1,41 @@
+package swp391.code.swp391.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Kết quả đặt chỗ hàng loạt, mỗi item một kết quả theo đúng thứ tự request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FleetBookingResponseDTO {
+
+    private Integer requested;
+    private Integer booked;
+    private Integer failed;
+    private List<ItemResult> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ItemResult {
+        private Integer index; // Vị trí item trong request
+        private Long vehicleId;
+        private Long stationId;
+        private Boolean success;
+        private Long orderId;
+        private Long chargingPointId;
+        private String connectorTypeName;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private String message; // Lý do thất bại
+    }
+}
@@ -0,0 +1,40 @@
+package swp391.code.swp391.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MeterValuesRequestDTO {
+
+    @NotEmpty(message = "Samples are required")
+    @Valid
+    private List<Sample> samples; // Theo thứ tự thời gian tăng dần
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Sample {
+        @NotNull(message = "Timestamp is required")
+        private LocalDateTime timestamp;
+
+        @NotNull(message = "Energy is required")
+        @PositiveOrZero
+        private Double energyKwh; // Cộng dồn từ đầu phiên
+
+        private Double powerKw;
+        private Double socPercent;
+    }
+}
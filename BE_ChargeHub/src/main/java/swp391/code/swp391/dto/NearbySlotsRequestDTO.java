@@ -0,0 +1,55 @@
+package swp391.code.swp391.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request tìm slot sớm nhất ở các trạm gần vị trí người dùng
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NearbySlotsRequestDTO {
+
+    @NotNull(message = "User ID không được để trống")
+    private Long userId;
+
+    @NotNull(message = "Vehicle ID không được để trống")
+    private Long vehicleId;
+
+    @NotNull(message = "Vĩ độ không được để trống")
+    @DecimalMin(value = "-90.0", message = "Vĩ độ không hợp lệ")
+    @DecimalMax(value = "90.0", message = "Vĩ độ không hợp lệ")
+    private Double latitude;
+
+    @NotNull(message = "Kinh độ không được để trống")
+    @DecimalMin(value = "-180.0", message = "Kinh độ không hợp lệ")
+    @DecimalMax(value = "180.0", message = "Kinh độ không hợp lệ")
+    private Double longitude;
+
+    @NotNull(message = "Dung lượng pin hiện tại không được để trống")
+    @DecimalMin(value = "0.0", message = "Pin hiện tại phải >= 0%")
+    @DecimalMax(value = "100.0", message = "Pin hiện tại phải <= 100%")
+    private Double currentBattery;
+
+    @NotNull(message = "Dung lượng pin mong muốn không được để trống")
+    @DecimalMin(value = "0.0", message = "Pin mong muốn phải >= 0%")
+    @DecimalMax(value = "100.0", message = "Pin mong muốn phải <= 100%")
+    private Double targetBattery;
+
+    @Min(value = 1, message = "Số ngày tìm kiếm phải >= 1")
+    @Max(value = 7, message = "Số ngày tìm kiếm phải <= 7")
+    private Integer horizonDays;
+
+    @Min(value = 1, message = "Số trạm tìm kiếm phải >= 1")
+    @Max(value = 20, message = "Số trạm tìm kiếm phải <= 20")
+    private Integer stationLimit; // Số trạm gần nhất cần tìm, mặc định 5
+
+    @Min(value = 1, message = "Số kết quả phải >= 1")
+    @Max(value = 100, message = "Số kết quả phải <= 100")
+    private Integer maxResults; // Số slot trả về, mặc định 20
+}
@@ -0,0 +1,58 @@
+package swp391.code.swp391.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Kết quả tìm slot ở các trạm gần, sắp xếp theo thời gian trống sớm nhất.
+ * Các trạm chưa trả lời kịp deadline nằm trong pendingStations.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NearbySlotsResponseDTO {
+
+    private List<NearbySlot> slots;
+
+    // Trạm chưa tính xong trước deadline
+    private List<StationRef> pendingStations;
+
+    // Trạm gặp lỗi khi tìm kiếm
+    private List<StationRef> failedStations;
+
+    private Integer searchedStations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class NearbySlot {
+        private Long stationId;
+        private String stationName;
+        private String address;
+        private Double distanceKm;
+        private Long chargingPointId;
+        private String connectorTypeName;
+        private Double chargingPower; // kW
+        private LocalDateTime freeFrom;
+        private LocalDateTime freeTo;
+        private Integer requiredMinutes;
+        private Double estimatedCost;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class StationRef {
+        private Long stationId;
+        private String stationName;
+        private Double distanceKm;
+    }
+}
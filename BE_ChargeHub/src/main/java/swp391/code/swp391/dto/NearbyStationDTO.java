@@ -0,0 +1,24 @@
+package swp391.code.swp391.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import swp391.code.swp391.entity.ChargingStation.ChargingStationStatus;
+
+/**
+ * Trạm sạc kèm khoảng cách tới vị trí tìm kiếm
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NearbyStationDTO {
+    private Long stationId;
+    private String stationName;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+    private ChargingStationStatus status;
+    private Double distanceKm;
+}
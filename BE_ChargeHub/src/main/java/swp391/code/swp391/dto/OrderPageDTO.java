@@ -0,0 +1,18 @@
+package swp391.code.swp391.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderPageDTO {
+    private List<OrderResponseDTO> orders;
+    private String nextCursor; // Truyền lại để lấy trang kế tiếp, null nếu đã hết
+    private Boolean hasMore;
+}
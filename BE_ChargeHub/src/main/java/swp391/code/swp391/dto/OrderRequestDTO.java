@@ -33,5 +33,21 @@ public class OrderRequestDTO {
     @DecimalMax(value = "100.0", message = "Pin mong muốn phải <= 100%")
     private Double targetBattery; // % pin mong muốn
 
-
+    @Min(value = 1, message = "Số ngày tìm kiếm phải >= 1")
+    @Max(value = 7, message = "Số ngày tìm kiếm phải <= 7")
+    private Integer horizonDays; // Số ngày tìm kiếm kể từ hôm nay, mặc định 1
+
+    @Min(value = 1, message = "Số slot đề xuất phải >= 1")
+    @Max(value = 50, message = "Số slot đề xuất phải <= 50")
+    private Integer topK; // Số slot đề xuất, mặc định 5
+
+    private PlacementPolicy placementPolicy; // null = xếp theo chi phí/thời gian chờ, bắt đầu ở bất kỳ đâu trong khoảng trống
+
+    /**
+     * Chính sách đề xuất giờ bắt đầu để giảm phân mảnh lịch của trụ
+     */
+    public enum PlacementPolicy {
+        BEST_FIT,     // Ưu tiên không để lại mảnh thừa quá ngắn, sau đó mảnh thừa nhỏ nhất
+        TIGHTEST_GAP  // Ưu tiên khoảng trống ngắn nhất vẫn đủ sạc
+    }
 }
\ No newline at end of file
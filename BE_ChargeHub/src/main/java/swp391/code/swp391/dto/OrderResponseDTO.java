@@ -28,6 +28,7 @@ public class OrderResponseDTO {
 
     // Trạng thái
     private String status;
+    private Boolean overbooked; // true = đặt chồng, có thể bị hủy nếu chủ đơn trước đến
 
     // Thời gian tạo đơn
     private LocalDateTime createdAt;
@@ -0,0 +1,36 @@
+package swp391.code.swp391.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Slot đề xuất sau khi chấm điểm (điểm càng thấp càng tốt)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RankedSlotDTO {
+    private Long chargingPointId;
+    private String connectorTypeName;
+    private Double chargingPower; // kW
+
+    private LocalDateTime startTime; // Thời điểm bắt đầu đề xuất
+    private LocalDateTime endTime;
+    private Integer requiredMinutes;
+    private Long waitMinutes; // Số phút chờ kể từ bây giờ
+
+    private Double priceFactor; // Hệ số giá theo khung giờ
+    private Double subscriptionDiscount; // Mức giảm theo gói đăng ký (0.1 = 10%)
+    private Double estimatedCost; // VND sau hệ số và giảm giá
+
+    private Double score;
+
+    // Chỉ có khi tìm với placementPolicy
+    private Integer leftoverMinutes;
+    private Integer fragmentedMinutes;
+}
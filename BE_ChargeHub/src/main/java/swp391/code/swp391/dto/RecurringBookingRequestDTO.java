@@ -0,0 +1,58 @@
+package swp391.code.swp391.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+/**
+ * Đặt chỗ định kỳ: các ngày trong tuần, cùng khung giờ, trong khoảng [fromDate, untilDate]
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecurringBookingRequestDTO {
+
+    @NotNull(message = "User ID không được để trống")
+    private Long userId;
+
+    @NotNull(message = "Vehicle ID không được để trống")
+    private Long vehicleId;
+
+    @NotNull(message = "Station ID không được để trống")
+    private Long stationId;
+
+    private Long chargingPointId; // Không bắt buộc: để trống thì hệ thống tự chọn trụ cho từng lần
+
+    @NotEmpty(message = "Phải chọn ít nhất một ngày trong tuần")
+    private Set<DayOfWeek> daysOfWeek;
+
+    @NotNull(message = "Giờ bắt đầu không được để trống")
+    private LocalTime startTime;
+
+    @NotNull(message = "Giờ kết thúc không được để trống")
+    private LocalTime endTime;
+
+    @NotNull(message = "Ngày bắt đầu không được để trống")
+    private LocalDate fromDate;
+
+    @NotNull(message = "Ngày kết thúc không được để trống")
+    private LocalDate untilDate;
+
+    @NotNull(message = "Dung lượng pin hiện tại không được để trống")
+    @DecimalMin(value = "0.0", message = "Pin hiện tại phải >= 0%")
+    @DecimalMax(value = "100.0", message = "Pin hiện tại phải <= 100%")
+    private Double currentBattery;
+
+    @NotNull(message = "Dung lượng pin mong muốn không được để trống")
+    @DecimalMin(value = "0.0", message = "Pin mong muốn phải >= 0%")
+    @DecimalMax(value = "100.0", message = "Pin mong muốn phải <= 100%")
+    private Double targetBattery;
+}
@@ -0,0 +1,35 @@
+package swp391.code.swp391.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecurringBookingResponseDTO {
+    private Long recurringBookingId;
+    private Integer requested; // Số lần lặp trong khoảng ngày
+    private Integer booked;
+    private Integer conflicted;
+    private List<Occurrence> occurrences;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Occurrence {
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private Boolean success;
+        private Long orderId;
+        private Long chargingPointId;
+        private String connectorTypeName;
+        private String reason; // Lý do không đặt được
+    }
+}
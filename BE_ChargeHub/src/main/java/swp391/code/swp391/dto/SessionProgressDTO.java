@@ -13,4 +13,5 @@ public class SessionProgressDTO {
     private Double currentBattery; //(%)
     private Double powerConsumed; //(kWh)
     private Double cost; //(VND)
+    private Integer remainingMinutes; // Thời gian còn lại tới mức pin mong muốn (ETA)
 }
@@ -0,0 +1,28 @@
+package swp391.code.swp391.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SlotHoldRequestDTO {
+
+    @NotNull(message = "User ID không được để trống")
+    private Long userId;
+
+    @NotNull(message = "Charging Point ID không được để trống")
+    private Long chargingPointId;
+
+    @NotNull(message = "Thời gian bắt đầu không được để trống")
+    private LocalDateTime startTime;
+
+    @NotNull(message = "Thời gian kết thúc không được để trống")
+    private LocalDateTime endTime;
+}
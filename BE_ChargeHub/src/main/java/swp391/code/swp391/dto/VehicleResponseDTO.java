@@ -39,6 +39,8 @@ public class VehicleResponseDTO {
                     cm.getBrand(),
                     cm.getModel(),
                     cm.getCapacity(),
+                    cm.getMaxChargePowerKw(),
+                    cm.getTaperStartSoc(),
                     cm.getProductYear(),
                     connectorTypeIds,
                     cm.getImg_url()
@@ -0,0 +1,48 @@
+package swp391.code.swp391.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaitlistRequestDTO {
+
+    @NotNull(message = "User ID không được để trống")
+    private Long userId;
+
+    @NotNull(message = "Vehicle ID không được để trống")
+    private Long vehicleId;
+
+    @NotNull(message = "Station ID không được để trống")
+    private Long stationId;
+
+    @NotNull(message = "Loại kết nối không được để trống")
+    private Long connectorTypeId;
+
+    @NotNull(message = "Thời gian sớm nhất không được để trống")
+    private LocalDateTime earliestStart;
+
+    @NotNull(message = "Thời gian muộn nhất không được để trống")
+    private LocalDateTime latestEnd; // Phải sạc xong trước thời điểm này
+
+    @NotNull(message = "Dung lượng pin hiện tại không được để trống")
+    @DecimalMin(value = "0.0", message = "Pin hiện tại phải >= 0%")
+    @DecimalMax(value = "100.0", message = "Pin hiện tại phải <= 100%")
+    private Double currentBattery;
+
+    @NotNull(message = "Dung lượng pin mong muốn không được để trống")
+    @DecimalMin(value = "0.0", message = "Pin mong muốn phải >= 0%")
+    @DecimalMax(value = "100.0", message = "Pin mong muốn phải <= 100%")
+    private Double targetBattery;
+
+    private Boolean autoBook; // Mặc định false: chỉ giữ chỗ tạm và thông báo
+}
@@ -0,0 +1,27 @@
+package swp391.code.swp391.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaitlistResponseDTO {
+    private Long waitlistId;
+    private Long vehicleId;
+    private Long stationId;
+    private Long connectorTypeId;
+    private LocalDateTime earliestStart;
+    private LocalDateTime latestEnd;
+    private Double energyToCharge;
+    private Boolean autoBook;
+    private String status;
+    private Long holdId; // Khi status = OFFERED: dùng holdId này để xác nhận đặt chỗ
+    private LocalDateTime offerExpiresAt;
+    private Long orderId; // Khi status = BOOKED
+}
@@ -23,6 +23,10 @@ public class CarModel {
     private String model;
     @Column(name = "capacity")
     private double capacity; //kWh
+    @Column(name = "max_charge_power_kw")
+    private Double maxChargePowerKw; // Công suất DC tối đa xe nhận (null = theo connector)
+    @Column(name = "taper_start_soc")
+    private Double taperStartSoc; // % pin bắt đầu giảm công suất sạc (null = 80)
     @Column(name = "product_year")
     private int productYear;
     @Column(name= "img_url")
@@ -31,6 +31,10 @@ public class ChargingPoint {
     @Column(name = "status", nullable = false)
     private ChargingPointStatus status = ChargingPointStatus.AVAILABLE;
 
+    // RESERVED do job đồng bộ đặt chỗ gán (không phải admin), chỉ các point này được job trả về AVAILABLE
+    @Column(name = "reserved_by_booking")
+    private Boolean reservedByBooking;
+
     public enum ChargingPointStatus {
         AVAILABLE,
         OCCUPIED,
@@ -38,4 +42,21 @@ public class ChargingPoint {
         MAINTENANCE,
         RESERVED
     }
+
+    /**
+     * Đổi trạng thái thủ công (admin, phiên sạc): trạng thái không còn do job đồng bộ đặt chỗ quản lý
+     */
+    public void setStatus(ChargingPointStatus status) {
+        this.status = status;
+        this.reservedByBooking = null;
+    }
+
+    /**
+     * Point nhận đặt chỗ / bắt đầu phiên: RESERVED do đặt chỗ chỉ báo có người sắp đến, các khung giờ khác vẫn đặt được;
+     * RESERVED do admin đặt thủ công thì không nhận đặt chỗ
+     */
+    public boolean isBookable() {
+        return status == ChargingPointStatus.AVAILABLE
+                || (status == ChargingPointStatus.RESERVED && Boolean.TRUE.equals(reservedByBooking));
+    }
 }
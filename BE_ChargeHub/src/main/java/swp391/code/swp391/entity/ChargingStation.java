@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalTime;
 import java.util.List;
 
 @Entity
@@ -28,6 +29,15 @@ public class ChargingStation {
     private double latitude; //Vi tri vi do
     private double longitude; //Vi tri kinh do
 
+    @Column(name = "opening_time")
+    private LocalTime openingTime; // Giờ mở cửa, null = 00:00
+
+    @Column(name = "closing_time")
+    private LocalTime closingTime; // Giờ đóng cửa, null = 23:30; nhỏ hơn openingTime = qua đêm
+
+    @Column(name = "power_budget_kw")
+    private Double powerBudgetKw; // Công suất tối đa cả trạm (kW), null = không giới hạn
+
     @OneToMany(mappedBy = "station", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
     private List<ChargingPoint> chargingPoint;
@@ -0,0 +1,52 @@
+package swp391.code.swp391.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Một giá trị đồng hồ do trụ sạc gửi lên trong phiên (kiểu OCPP MeterValues). Chỉ ghi thêm, không cập nhật.
+ * Khóa (session_id, measured_at) do trụ cung cấp nên ghi theo lô không cần sinh ID từ DB.
+ */
+@Data
+@Entity
+@Table(name = "meter_readings")
+@IdClass(MeterReading.Key.class)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeterReading {
+
+    @Id
+    @Column(name = "session_id")
+    private Long sessionId;
+
+    @Id
+    @Column(name = "measured_at")
+    private LocalDateTime measuredAt;
+
+    @Column(name = "energy_kwh", nullable = false)
+    private Double energyKwh; // Năng lượng đã sạc cộng dồn từ đầu phiên
+
+    @Column(name = "power_kw")
+    private Double powerKw; // Công suất tức thời
+
+    @Column(name = "soc_percent")
+    private Double socPercent;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long sessionId;
+        private LocalDateTime measuredAt;
+    }
+}
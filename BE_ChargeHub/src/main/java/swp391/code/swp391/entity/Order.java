@@ -10,7 +10,12 @@ import lombok.ToString;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_start", columnList = "status, start_time"),
+        @Index(name = "idx_orders_sweep_token", columnList = "sweep_token"),
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_at, order_id"),
+        @Index(name = "idx_orders_point_start", columnList = "charging_point_id, start_time")
+})
 @Data
 @Builder
 @AllArgsConstructor
@@ -61,6 +66,22 @@ public class Order {
     @Column(name = "cancellation_reason", columnDefinition = "TEXT")
     private String cancellationReason; // Lý do hủy
 
+    @Column(name = "recurring_booking_id")
+    private Long recurringBookingId; // Đơn sinh ra từ lịch đặt định kỳ (null nếu đặt lẻ)
+
+    @Column(name = "overbooked")
+    private Boolean overbooked; // true = đặt chồng lên đơn có khả năng không đến, chưa sở hữu khung giờ
+
+    @Column(name = "sweep_token", length = 36)
+    private String sweepToken; // Mã lượt quét đã hết hạn đơn này (OrderLifecycleService)
+
+    /**
+     * Đơn đặt chồng chưa được chuyển thành đơn thường
+     */
+    public boolean isOverbooked() {
+        return Boolean.TRUE.equals(overbooked);
+    }
+
     public enum Status {
         BOOKED,
         CANCELED,
@@ -0,0 +1,33 @@
+package swp391.code.swp391.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Bitmap chiếm dụng theo phút (1440 bit) của một charging point trong một ngày.
+ * Được cập nhật cùng transaction với bảng orders.
+ */
+@Data
+@Entity
+@Table(name = "point_occupancy",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"charging_point_id", "occupancy_date"}))
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointOccupancy {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long occupancyId;
+
+    @Column(name = "charging_point_id", nullable = false)
+    private Long chargingPointId;
+
+    @Column(name = "occupancy_date", nullable = false)
+    private LocalDate occupancyDate;
+
+    @Column(name = "bitmap", nullable = false, columnDefinition = "VARBINARY(180)")
+    private byte[] bitmap;
+}
@@ -0,0 +1,68 @@
+package swp391.code.swp391.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Lịch đặt chỗ định kỳ (ví dụ mỗi ngày trong tuần 08:00-09:00 tại một trạm).
+ * Mỗi lần lặp được tạo thành một Order có recurringBookingId trỏ về lịch này.
+ */
+@Entity
+@Table(name = "recurring_bookings")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecurringBooking {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "recurring_booking_id")
+    private Long recurringBookingId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "vehicle_id", nullable = false)
+    private Long vehicleId;
+
+    @Column(name = "station_id", nullable = false)
+    private Long stationId;
+
+    @Column(name = "days_of_week", nullable = false)
+    private String daysOfWeek; // Ví dụ "MONDAY,TUESDAY"
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    @Column(name = "from_date", nullable = false)
+    private LocalDate fromDate;
+
+    @Column(name = "until_date", nullable = false)
+    private LocalDate untilDate;
+
+    private Double currentBattery;
+
+    private Double targetBattery;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum Status {
+        ACTIVE,
+        CANCELLED
+    }
+}
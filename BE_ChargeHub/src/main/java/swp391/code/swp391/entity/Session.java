@@ -41,6 +41,10 @@ public class Session {
     @Column(nullable = false)
     private SessionStatus status = SessionStatus.CHARGING;
 
+    private LocalDateTime targetNotifiedAt; // Thời điểm đã gửi thông báo đạt mức pin mong muốn
+
+    private LocalDateTime overtimeChargedAt; // Thời điểm đã áp phí sạc quá giờ
+
     public enum SessionStatus {
         CHARGING, COMPLETED, OVERTIME
     }
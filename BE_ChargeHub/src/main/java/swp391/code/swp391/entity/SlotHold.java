@@ -0,0 +1,48 @@
+package swp391.code.swp391.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Giữ chỗ tạm thời (có thời hạn) trên một khoảng thời gian của charging point,
+ * được tiêu thụ khi user xác nhận đặt chỗ. Bảng này là bản lưu dự phòng
+ * để các node khác nhìn thấy hold; truy vấn thường đọc từ bộ nhớ.
+ */
+@Entity
+@Table(name = "slot_holds", indexes = {
+        @Index(name = "idx_slot_hold_point_expires", columnList = "charging_point_id, expires_at"),
+        @Index(name = "idx_slot_hold_expires", columnList = "expires_at")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlotHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "hold_id")
+    private Long holdId;
+
+    @Column(name = "charging_point_id", nullable = false)
+    private Long chargingPointId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalDateTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalDateTime endTime;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,79 @@
+package swp391.code.swp391.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Đăng ký chờ slot tại một trạm với một loại connector.
+ * Khi có khoảng trống được giải phóng, người chờ phù hợp nhất được đặt tự động hoặc được giữ chỗ tạm.
+ */
+@Entity
+@Table(name = "waitlist_entries", indexes = {
+        @Index(name = "idx_waitlist_status_end", columnList = "status, latest_end"),
+        @Index(name = "idx_waitlist_user", columnList = "user_id"),
+        @Index(name = "idx_waitlist_hold", columnList = "hold_id")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WaitlistEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "waitlist_id")
+    private Long waitlistId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "vehicle_id", nullable = false)
+    private Long vehicleId;
+
+    @Column(name = "station_id", nullable = false)
+    private Long stationId;
+
+    @Column(name = "connector_type_id", nullable = false)
+    private Long connectorTypeId;
+
+    @Column(name = "earliest_start", nullable = false)
+    private LocalDateTime earliestStart;
+
+    @Column(name = "latest_end", nullable = false)
+    private LocalDateTime latestEnd;
+
+    private Double currentBattery;
+
+    private Double targetBattery;
+
+    @Column(name = "energy_to_charge", nullable = false)
+    private Double energyToCharge; // kWh
+
+    @Column(name = "auto_book", nullable = false)
+    private Boolean autoBook; // true = tự đặt, false = giữ chỗ tạm và thông báo
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    private Long holdId; // Hold của lời mời gần nhất (giữ lại khi lời mời hết hạn)
+
+    private LocalDateTime offerExpiresAt;
+
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum Status {
+        WAITING,
+        OFFERED,
+        BOOKED,
+        CANCELLED,
+        EXPIRED
+    }
+}
@@ -0,0 +1,22 @@
+package swp391.code.swp391.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import swp391.code.swp391.entity.ChargingPoint;
+
+/**
+ * Sự kiện phát ra khi charging point được tạo, đổi trạng thái/cấu hình hoặc bị xóa.
+ * Các cache trong bộ nhớ lắng nghe sự kiện này sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class ChargingPointChangedEvent {
+
+    private final Long chargingPointId;
+    private final Long stationId;
+
+    public static ChargingPointChangedEvent of(ChargingPoint point) {
+        return new ChargingPointChangedEvent(point.getChargingPointId(),
+                point.getStation() != null ? point.getStation().getStationId() : null);
+    }
+}
@@ -0,0 +1,16 @@
+package swp391.code.swp391.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi một hold được tiêu thụ để tạo order (xác nhận đặt chỗ bằng mã giữ chỗ).
+ */
+@Getter
+@AllArgsConstructor
+public class HoldConsumedEvent {
+
+    private final Long holdId;
+    private final Long userId;
+    private final Long orderId;
+}
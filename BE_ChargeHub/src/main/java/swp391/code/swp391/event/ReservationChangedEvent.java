@@ -0,0 +1,61 @@
+package swp391.code.swp391.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import swp391.code.swp391.entity.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện phát ra khi một khoảng thời gian trên charging point bị chiếm (đặt chỗ)
+ * hoặc được giải phóng (hủy, kết thúc sớm...).
+ * Các index/cache trong bộ nhớ lắng nghe sự kiện này sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class ReservationChangedEvent {
+
+    public enum Type {
+        BOOKED,
+        RELEASED
+    }
+
+    private final Type type;
+    private final Long orderId;
+    private final Long chargingPointId;
+    private final Long stationId;
+    private final LocalDateTime startTime; // với RELEASED: thời điểm bắt đầu được giải phóng
+    private final LocalDateTime endTime;
+
+    public static ReservationChangedEvent booked(Order order) {
+        return of(Type.BOOKED, order, order.getStartTime());
+    }
+
+    /**
+     * Giải phóng toàn bộ khoảng thời gian của order
+     */
+    public static ReservationChangedEvent released(Order order) {
+        return of(Type.RELEASED, order, order.getStartTime());
+    }
+
+    /**
+     * Giải phóng phần còn lại của order kể từ thời điểm from (ví dụ kết thúc phiên sạc sớm)
+     */
+    public static ReservationChangedEvent releasedFrom(Order order, LocalDateTime from) {
+        LocalDateTime start = order.getStartTime() != null && from.isBefore(order.getStartTime())
+                ? order.getStartTime() : from;
+        return of(Type.RELEASED, order, start);
+    }
+
+    private static ReservationChangedEvent of(Type type, Order order, LocalDateTime start) {
+        Long pointId = null;
+        Long stationId = null;
+        if (order.getChargingPoint() != null) {
+            pointId = order.getChargingPoint().getChargingPointId();
+            if (order.getChargingPoint().getStation() != null) {
+                stationId = order.getChargingPoint().getStation().getStationId();
+            }
+        }
+        return new ReservationChangedEvent(type, order.getOrderId(), pointId, stationId, start, order.getEndTime());
+    }
+}
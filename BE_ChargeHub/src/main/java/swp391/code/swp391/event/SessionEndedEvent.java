@@ -0,0 +1,16 @@
+package swp391.code.swp391.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi một phiên sạc kết thúc.
+ * Các listener xử lý sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class SessionEndedEvent {
+
+    private final Long sessionId;
+    private final Long orderId;
+}
@@ -0,0 +1,36 @@
+package swp391.code.swp391.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import swp391.code.swp391.entity.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện phát ra khi phiên sạc của một order bắt đầu (chủ đơn đã đến).
+ * Các listener xử lý sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class SessionStartedEvent {
+
+    private final Long orderId;
+    private final Long chargingPointId;
+    private final Long stationId;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final boolean overbooked;
+
+    public static SessionStartedEvent of(Order order) {
+        Long pointId = null;
+        Long stationId = null;
+        if (order.getChargingPoint() != null) {
+            pointId = order.getChargingPoint().getChargingPointId();
+            if (order.getChargingPoint().getStation() != null) {
+                stationId = order.getChargingPoint().getStation().getStationId();
+            }
+        }
+        return new SessionStartedEvent(order.getOrderId(), pointId, stationId, order.getStartTime(),
+                order.getEndTime(), order.isOverbooked());
+    }
+}
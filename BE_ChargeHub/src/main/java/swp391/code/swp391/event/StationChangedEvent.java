@@ -0,0 +1,31 @@
+package swp391.code.swp391.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import swp391.code.swp391.entity.ChargingStation;
+
+/**
+ * Sự kiện phát ra khi thông tin trạm sạc (vị trí, trạng thái...) thay đổi hoặc trạm bị xóa.
+ * Các index trong bộ nhớ lắng nghe sự kiện này sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class StationChangedEvent {
+
+    public enum Type {
+        UPSERTED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Long stationId;
+    private final ChargingStation station; // null với DELETED
+
+    public static StationChangedEvent upserted(ChargingStation station) {
+        return new StationChangedEvent(Type.UPSERTED, station.getStationId(), station);
+    }
+
+    public static StationChangedEvent deleted(Long stationId) {
+        return new StationChangedEvent(Type.DELETED, stationId, null);
+    }
+}
@@ -1,12 +1,15 @@
 package swp391.code.swp391.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import swp391.code.swp391.entity.ChargingPoint;
 import swp391.code.swp391.entity.ChargingPoint.ChargingPointStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,12 +18,70 @@ public interface ChargingPointRepository extends JpaRepository<ChargingPoint, Lo
     // Tìm charging points theo station ID
     List<ChargingPoint> findByStationStationId(Long stationId);
 
+    // Tìm charging points của nhiều stations (một truy vấn)
+    List<ChargingPoint> findByStationStationIdIn(Collection<Long> stationIds);
+
     // Tìm charging points theo status
     List<ChargingPoint> findByStatus(ChargingPointStatus status);
 
     // Tìm charging points theo station ID và status
     List<ChargingPoint> findByStationStationIdAndStatus(Long stationId, ChargingPointStatus status);
 
+    /**
+     * Point AVAILABLE có đơn BOOKED sắp bắt đầu (startTime trong (graceCutoff, horizon])
+     *
+     * @return các dòng [chargingPointId, stationId]
+     */
+    @Query("""
+        SELECT DISTINCT cp.chargingPointId, cp.station.stationId FROM Order o JOIN o.chargingPoint cp
+        WHERE cp.status = 'AVAILABLE'
+        AND o.status = 'BOOKED'
+        AND o.startTime > :graceCutoff
+        AND o.startTime <= :horizon
+        """)
+    List<Object[]> findPointsToReserve(@Param("graceCutoff") LocalDateTime graceCutoff,
+                                       @Param("horizon") LocalDateTime horizon);
+
+    /**
+     * Point được job đánh RESERVED (không tính point admin đặt RESERVED) không còn đơn BOOKED nào sắp bắt đầu
+     *
+     * @return các dòng [chargingPointId, stationId]
+     */
+    @Query("""
+        SELECT cp.chargingPointId, cp.station.stationId FROM ChargingPoint cp
+        WHERE cp.status = 'RESERVED'
+        AND cp.reservedByBooking = true
+        AND NOT EXISTS (
+            SELECT 1 FROM Order o
+            WHERE o.chargingPoint = cp
+            AND o.status = 'BOOKED'
+            AND o.startTime > :graceCutoff
+            AND o.startTime <= :horizon
+        )
+        """)
+    List<Object[]> findPointsToRelease(@Param("graceCutoff") LocalDateTime graceCutoff,
+                                       @Param("horizon") LocalDateTime horizon);
+
+    /**
+     * AVAILABLE -> RESERVED cho người sắp đến, đánh dấu do job gán (chỉ các point còn AVAILABLE)
+     */
+    @Modifying
+    @Query("""
+        UPDATE ChargingPoint cp SET cp.status = 'RESERVED', cp.reservedByBooking = true
+        WHERE cp.chargingPointId IN :ids AND cp.status = 'AVAILABLE'
+        """)
+    int reserveForBookings(@Param("ids") Collection<Long> ids);
+
+    /**
+     * RESERVED -> AVAILABLE, chỉ các point còn RESERVED do job gán (admin đổi trạng thái giữa chừng thì giữ nguyên)
+     */
+    @Modifying
+    @Query("""
+        UPDATE ChargingPoint cp SET cp.status = 'AVAILABLE', cp.reservedByBooking = null
+        WHERE cp.chargingPointId IN :ids AND cp.status = 'RESERVED' AND cp.reservedByBooking = true
+        """)
+    int releaseBookingReservations(@Param("ids") Collection<Long> ids);
+
     // Kiểm tra charging point ID đã tồn tại
     boolean existsByChargingPointId(Long chargingPointId);
 
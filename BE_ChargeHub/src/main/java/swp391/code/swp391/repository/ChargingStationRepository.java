@@ -1,6 +1,8 @@
 package swp391.code.swp391.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -28,6 +30,11 @@ public interface ChargingStationRepository extends JpaRepository<ChargingStation
     // Tìm charging station theo id chính xác
     Optional<ChargingStation> findByStationId(Long stationId);
 
+    // Khóa dòng station (SELECT ... FOR UPDATE) để tuần tự hóa việc đặt chỗ theo giới hạn công suất giữa các node
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT cs FROM ChargingStation cs WHERE cs.stationId = :stationId")
+    Optional<ChargingStation> findForUpdate(@Param("stationId") Long stationId);
+
     // Kiểm tra station ID đã tồn tại
     boolean existsByStationId(Long stationId);
 
@@ -1,9 +1,14 @@
 package swp391.code.swp391.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import swp391.code.swp391.entity.Fee;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -28,4 +33,50 @@ public interface FeeRepository extends JpaRepository<Fee, Long> {
      * Tìm các khoản phí theo loại
      */
     List<Fee> findByType(Fee.Type type);
+
+    /**
+     * Đếm phí NO_SHOW theo trạm và giờ bắt đầu (0-23) của order trong [since, until)
+     *
+     * @return các dòng [stationId, hour, count]
+     */
+    @Query("""
+        SELECT f.order.chargingPoint.station.stationId, EXTRACT(HOUR FROM f.order.startTime), COUNT(f) FROM Fee f
+        WHERE f.type = 'NO_SHOW'
+        AND f.order.startTime >= :since
+        AND f.order.startTime < :until
+        GROUP BY f.order.chargingPoint.station.stationId, EXTRACT(HOUR FROM f.order.startTime)
+        """)
+    List<Object[]> countNoShowsByStationAndHour(
+            @Param("since") LocalDateTime since,
+            @Param("until") LocalDateTime until
+    );
+
+    /**
+     * Tạo phí NO_SHOW cho mọi đơn của một lượt quét bằng một câu INSERT ... SELECT.
+     * Công thức giống FeeCalculationServiceImpl.estimateOrderCost: 50% dung lượng pin (mặc định 30 kWh)
+     * × giá connector × 1.2, nhân với tỉ lệ phạt.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO fee (order_id, amount, type, description, is_paid, created_at)
+        SELECT o.order_id,
+               ROUND(COALESCE(cm.capacity * 0.5, 30) * ct.price_per_kwh * 1.2 * :rate, 2),
+               'NO_SHOW',
+               CONCAT('Phí không đến theo lịch: ', ROUND(:rate * 100), '% × ',
+                      ROUND(COALESCE(cm.capacity * 0.5, 30) * ct.price_per_kwh * 1.2, 2), ' VNĐ ước tính'),
+               false,
+               :now
+        FROM orders o
+        JOIN charging_points cp ON cp.charging_point_id = o.charging_point_id
+        JOIN connector_types ct ON ct.connector_type_id = cp.connector_type_id
+        LEFT JOIN vehicles v ON v.vehicle_id = o.vehicle_id
+        LEFT JOIN car_models cm ON cm.car_model_id = v.car_model_id
+        WHERE o.sweep_token = :token
+        AND NOT EXISTS (SELECT 1 FROM fee f WHERE f.order_id = o.order_id AND f.type = 'NO_SHOW')
+        """, nativeQuery = true)
+    int insertNoShowFees(
+            @Param("token") String token,
+            @Param("rate") BigDecimal rate,
+            @Param("now") LocalDateTime now
+    );
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package swp391.code.swp391.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import swp391.code.swp391.entity.MeterReading;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MeterReadingRepository extends JpaRepository<MeterReading, MeterReading.Key> {
+
+    /**
+     * Giá trị đồng hồ mới nhất của từng session
+     */
+    @Query("""
+        SELECT r FROM MeterReading r
+        WHERE r.sessionId IN :sessionIds
+        AND r.measuredAt = (
+            SELECT MAX(r2.measuredAt) FROM MeterReading r2 WHERE r2.sessionId = r.sessionId
+        )
+        """)
+    List<MeterReading> findLatestBySessionIds(@Param("sessionIds") Collection<Long> sessionIds);
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 import swp391.code.swp391.entity.Notification;
 import swp391.code.swp391.entity.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -28,4 +29,23 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true WHERE n.user = :user AND n.isRead = false")
     int markAllAsRead(@Param("user") User user);
+
+    /**
+     * Thông báo phạt no-show cho mọi đơn của một lượt quét (theo phí NO_SHOW vừa tạo)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO notification (user_id, title, content, sent_time, type, is_read)
+        SELECT o.user_id,
+               'Phạt không đến đúng giờ',
+               CONCAT('Bạn đã bị phạt ', ROUND(f.amount), ' VND vì không đến đúng giờ đặt chỗ\nOrder ID: ',
+                      o.order_id, '\nLý do: ', o.cancellation_reason),
+               :now,
+               'PENALTY',
+               false
+        FROM orders o
+        JOIN fee f ON f.order_id = o.order_id AND f.type = 'NO_SHOW'
+        WHERE o.sweep_token = :token
+        """, nativeQuery = true)
+    int insertNoShowNotifications(@Param("token") String token, @Param("now") LocalDateTime now);
 }
@@ -1,14 +1,21 @@
 package swp391.code.swp391.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import swp391.code.swp391.dto.OrderResponseDTO;
 import swp391.code.swp391.entity.Order;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -46,6 +53,60 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     List<Order> findByUser_UserIdAndStatus(Long userId, Order.Status status);
 
+    /**
+     * Một dòng của danh sách đơn (các cột OrderResponseDTO cần, không nạp entity liên quan)
+     */
+    interface OrderSummaryView {
+        Long getOrderId();
+        String getStationName();
+        String getStationAddress();
+        String getConnectorType();
+        LocalDateTime getStartTime();
+        LocalDateTime getEndTime();
+        Double getStartedBattery();
+        Double getExpectedBattery();
+        Double getBatteryCapacity();
+        Double getMaxChargePowerKw();
+        Double getTaperStartSoc();
+        Double getChargingPower();
+        Double getPricePerKwh();
+        Order.Status getStatus();
+        LocalDateTime getCreatedAt();
+        Boolean getOverbooked();
+    }
+
+    /**
+     * Một trang đơn của user, mới nhất trước, bắt đầu sau con trỏ (createdAt, orderId).
+     * Con trỏ null = trang đầu. Kích thước trang lấy từ pageable (không có truy vấn đếm).
+     */
+    @Query("""
+        SELECT o.orderId AS orderId, s.stationName AS stationName, s.address AS stationAddress,
+               ct.typeName AS connectorType, o.startTime AS startTime, o.endTime AS endTime,
+               o.startedBattery AS startedBattery, o.expectedBattery AS expectedBattery,
+               cm.capacity AS batteryCapacity, cm.maxChargePowerKw AS maxChargePowerKw, cm.taperStartSoc AS taperStartSoc,
+               ct.powerOutput AS chargingPower, ct.pricePerKWh AS pricePerKwh,
+               o.status AS status, o.createdAt AS createdAt, o.overbooked AS overbooked
+        FROM Order o
+        JOIN o.chargingPoint cp
+        LEFT JOIN cp.station s
+        LEFT JOIN cp.connectorType ct
+        LEFT JOIN o.vehicle v
+        LEFT JOIN v.carModel cm
+        WHERE o.user.userId = :userId
+        AND (:status IS NULL OR o.status = :status)
+        AND (:cursorCreatedAt IS NULL
+             OR o.createdAt < :cursorCreatedAt
+             OR (o.createdAt = :cursorCreatedAt AND o.orderId < :cursorOrderId))
+        ORDER BY o.createdAt DESC, o.orderId DESC
+        """)
+    List<OrderSummaryView> findUserOrderPage(
+            @Param("userId") Long userId,
+            @Param("status") Order.Status status,
+            @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @Param("cursorOrderId") Long cursorOrderId,
+            Pageable pageable
+    );
+
 
     /**
      * Tìm orders của một trạm trong khoảng thời gian
@@ -63,6 +124,42 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             @Param("endDate") LocalDateTime endDate
     );
 
+    /**
+     * Đơn của một trạm bắt đầu trong [from, to), đọc dần theo luồng (cùng cột với findUserOrderPage).
+     * Fetch size Integer.MIN_VALUE là cách MySQL Connector/J trả từng dòng thay vì nạp cả kết quả vào bộ nhớ;
+     * Stream phải được đóng và dùng trong transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+        SELECT o.orderId AS orderId, s.stationName AS stationName, s.address AS stationAddress,
+               ct.typeName AS connectorType, o.startTime AS startTime, o.endTime AS endTime,
+               o.startedBattery AS startedBattery, o.expectedBattery AS expectedBattery,
+               cm.capacity AS batteryCapacity, cm.maxChargePowerKw AS maxChargePowerKw, cm.taperStartSoc AS taperStartSoc,
+               ct.powerOutput AS chargingPower, ct.pricePerKWh AS pricePerKwh,
+               o.status AS status, o.createdAt AS createdAt, o.overbooked AS overbooked
+        FROM Order o
+        JOIN o.chargingPoint cp
+        JOIN cp.station s
+        LEFT JOIN cp.connectorType ct
+        LEFT JOIN o.vehicle v
+        LEFT JOIN v.carModel cm
+        WHERE s.stationId = :stationId
+        AND (:status IS NULL OR o.status = :status)
+        AND o.startTime >= :from
+        AND o.startTime < :to
+        ORDER BY o.startTime ASC, o.orderId ASC
+        """)
+    Stream<OrderSummaryView> streamStationOrders(
+            @Param("stationId") Long stationId,
+            @Param("status") Order.Status status,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
     /**
      * Tìm orders active của một charging point
      */
@@ -78,6 +175,153 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             @Param("currentTime") LocalDateTime currentTime
     );
 
+    /**
+     * Tìm các orders đang chiếm chỗ (BOOKED hoặc CHARGING) của nhiều charging points trong khoảng thời gian
+     */
+    @Query("""
+        SELECT o FROM Order o
+        WHERE o.chargingPoint.chargingPointId IN :chargingPointIds
+        AND o.status IN ('BOOKED', 'CHARGING')
+        AND o.startTime < :endTime
+        AND o.endTime > :startTime
+        ORDER BY o.startTime ASC
+        """)
+    List<Order> findOccupyingOrdersByChargingPoints(
+            @Param("chargingPointIds") Collection<Long> chargingPointIds,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime
+    );
+
+    /**
+     * Tìm các orders đang chiếm chỗ (BOOKED hoặc CHARGING) của nhiều xe trong khoảng thời gian
+     */
+    @Query("""
+        SELECT o FROM Order o
+        WHERE o.vehicle.id IN :vehicleIds
+        AND o.status IN ('BOOKED', 'CHARGING')
+        AND o.startTime < :endTime
+        AND o.endTime > :startTime
+        """)
+    List<Order> findOccupyingOrdersByVehicles(
+            @Param("vehicleIds") Collection<Long> vehicleIds,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime
+    );
+
+    /**
+     * Tìm các orders đang chiếm chỗ (BOOKED hoặc CHARGING) của user trong khoảng thời gian
+     */
+    @Query("""
+        SELECT o FROM Order o
+        WHERE o.user.userId = :userId
+        AND o.status IN ('BOOKED', 'CHARGING')
+        AND o.startTime < :endTime
+        AND o.endTime > :startTime
+        ORDER BY o.startTime ASC
+        """)
+    List<Order> findOccupyingOrdersByUser(
+            @Param("userId") Long userId,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime
+    );
+
+    List<Order> findByRecurringBookingIdAndStatus(Long recurringBookingId, Order.Status status);
+
+    /**
+     * Đơn đã được một lượt quét hết hạn (chỉ các cột cần để phát sự kiện)
+     */
+    interface SweptOrderView {
+        Long getOrderId();
+        Long getChargingPointId();
+        Long getStationId();
+        LocalDateTime getStartTime();
+        LocalDateTime getEndTime();
+        Boolean getOverbooked();
+    }
+
+    /**
+     * Nhận tối đa :limit đơn BOOKED đã quá thời gian cho phép bắt đầu và hủy (no-show) bằng một câu UPDATE.
+     * Điều kiện status = 'BOOKED' được kiểm lại dưới khóa dòng nên nhiều node chạy cùng lúc không nhận trùng đơn.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE orders
+        SET status = 'CANCELED', canceled_at = :now, cancellation_reason = :reason, sweep_token = :token
+        WHERE status = 'BOOKED'
+        AND start_time < :cutoff
+        ORDER BY start_time
+        LIMIT :limit
+        """, nativeQuery = true)
+    int claimNoShows(
+            @Param("token") String token,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("now") LocalDateTime now,
+            @Param("reason") String reason,
+            @Param("limit") int limit
+    );
+
+    @Query("""
+        SELECT o.orderId AS orderId, o.chargingPoint.chargingPointId AS chargingPointId,
+               o.chargingPoint.station.stationId AS stationId, o.startTime AS startTime,
+               o.endTime AS endTime, o.overbooked AS overbooked
+        FROM Order o
+        WHERE o.sweepToken = :token
+        """)
+    List<SweptOrderView> findSweptOrders(@Param("token") String token);
+
+    /**
+     * Đếm orders theo trạm và giờ bắt đầu (0-23) trong [since, until), dùng để ước lượng tỉ lệ no-show
+     *
+     * @return các dòng [stationId, hour, count]
+     */
+    @Query("""
+        SELECT o.chargingPoint.station.stationId, EXTRACT(HOUR FROM o.startTime), COUNT(o) FROM Order o
+        WHERE o.status IN :statuses
+        AND o.startTime >= :since
+        AND o.startTime < :until
+        GROUP BY o.chargingPoint.station.stationId, EXTRACT(HOUR FROM o.startTime)
+        """)
+    List<Object[]> countByStationAndHour(
+            @Param("statuses") Collection<Order.Status> statuses,
+            @Param("since") LocalDateTime since,
+            @Param("until") LocalDateTime until
+    );
+
+    /**
+     * Tìm các đơn đặt chồng (BOOKED/CHARGING, overbooked = true) trên point giao với khoảng thời gian
+     */
+    @Query("""
+        SELECT o FROM Order o
+        WHERE o.chargingPoint.chargingPointId = :chargingPointId
+        AND o.overbooked = true
+        AND o.status IN ('BOOKED', 'CHARGING')
+        AND o.startTime < :endTime
+        AND o.endTime > :startTime
+        ORDER BY o.startTime ASC
+        """)
+    List<Order> findOverbookedOrders(
+            @Param("chargingPointId") Long chargingPointId,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime
+    );
+
+    /**
+     * Đếm các đơn đặt chồng còn hiệu lực của trạm giao với khoảng thời gian
+     */
+    @Query("""
+        SELECT COUNT(o) FROM Order o
+        WHERE o.chargingPoint.station.stationId = :stationId
+        AND o.overbooked = true
+        AND o.status = 'BOOKED'
+        AND o.startTime < :endTime
+        AND o.endTime > :startTime
+        """)
+    long countOverbookedOrdersAtStation(
+            @Param("stationId") Long stationId,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime
+    );
+
     /**
      * Đếm số lượng orders của user trong tháng
      */
@@ -100,7 +344,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("""
         SELECT COUNT(o) > 0 FROM Order o 
         WHERE o.user.userId = :userId
-        AND o.status IN ('CONFIRMED', 'IN_PROGRESS')
+        AND o.status IN ('BOOKED', 'CHARGING')
         AND o.startTime < :endTime
         AND o.endTime > :startTime
         """)
@@ -0,0 +1,71 @@
+package swp391.code.swp391.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import swp391.code.swp391.entity.PointOccupancy;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PointOccupancyRepository extends JpaRepository<PointOccupancy, Long> {
+
+    /**
+     * Lấy bitmap của các charging points trong khoảng ngày (một truy vấn cho nhiều point/ngày)
+     */
+    List<PointOccupancy> findByChargingPointIdInAndOccupancyDateBetween(
+            Collection<Long> chargingPointIds, LocalDate fromDate, LocalDate toDate);
+
+    boolean existsByChargingPointIdAndOccupancyDate(Long chargingPointId, LocalDate occupancyDate);
+
+    /**
+     * Các (chargingPointId, occupancyDate) đã có dòng bitmap (chỉ đọc khóa, không nạp entity vào persistence context)
+     */
+    @Query("""
+        SELECT po.chargingPointId, po.occupancyDate FROM PointOccupancy po
+        WHERE po.chargingPointId IN :chargingPointIds
+        AND po.occupancyDate BETWEEN :fromDate AND :toDate
+        """)
+    List<Object[]> findExistingDays(
+            @Param("chargingPointIds") Collection<Long> chargingPointIds,
+            @Param("fromDate") LocalDate fromDate,
+            @Param("toDate") LocalDate toDate
+    );
+
+    /**
+     * Khóa dòng bitmap (SELECT ... FOR UPDATE) để cập nhật
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT po FROM PointOccupancy po
+        WHERE po.chargingPointId = :chargingPointId
+        AND po.occupancyDate = :occupancyDate
+        """)
+    Optional<PointOccupancy> findForUpdate(
+            @Param("chargingPointId") Long chargingPointId,
+            @Param("occupancyDate") LocalDate occupancyDate
+    );
+
+    /**
+     * Tạo dòng bitmap nếu chưa có (an toàn khi nhiều node cùng tạo)
+     *
+     * @return 1 nếu dòng mới được tạo, 0 nếu đã tồn tại
+     */
+    @Modifying
+    @Query(value = """
+        INSERT IGNORE INTO point_occupancy (charging_point_id, occupancy_date, bitmap)
+        VALUES (:chargingPointId, :occupancyDate, :bitmap)
+        """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("chargingPointId") Long chargingPointId,
+            @Param("occupancyDate") LocalDate occupancyDate,
+            @Param("bitmap") byte[] bitmap
+    );
+}
@@ -0,0 +1,13 @@
+package swp391.code.swp391.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import swp391.code.swp391.entity.RecurringBooking;
+
+import java.util.Optional;
+
+@Repository
+public interface RecurringBookingRepository extends JpaRepository<RecurringBooking, Long> {
+
+    Optional<RecurringBooking> findByRecurringBookingIdAndUserId(Long recurringBookingId, Long userId);
+}
@@ -1,9 +1,14 @@
 package swp391.code.swp391.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import swp391.code.swp391.entity.Session;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -14,8 +19,54 @@ public interface SessionRepository extends JpaRepository<Session, Long> {
      */
     List<Session> findByStatus(Session.SessionStatus status);
 
+    /**
+     * Tìm session theo trạng thái kèm order, user, connector và car model trong cùng một truy vấn
+     */
+    @EntityGraph(attributePaths = {"order.user", "order.chargingPoint.connectorType", "order.vehicle.carModel"})
+    @Query("SELECT s FROM Session s WHERE s.status = :status")
+    List<Session> findWithOrderByStatus(@Param("status") Session.SessionStatus status);
+
     /**
      * Tìm session theo order ID
      */
     Session findByOrderOrderId(Long orderId);
-}
\ No newline at end of file
+
+    /**
+     * Ghi tiến trình của phiên đang sạc (bỏ qua nếu phiên đã kết thúc để không ghi đè giá trị cuối của endSession)
+     */
+    @Modifying
+    @Query("""
+        UPDATE Session s SET s.powerConsumed = :powerConsumed, s.baseCost = :baseCost
+        WHERE s.sessionId = :sessionId
+        AND s.status = 'CHARGING'
+        """)
+    int updateProgress(
+            @Param("sessionId") Long sessionId,
+            @Param("powerConsumed") double powerConsumed,
+            @Param("baseCost") double baseCost
+    );
+
+    /**
+     * Nhận quyền gửi thông báo đạt mức pin (trả về 0 nếu đã gửi hoặc phiên đã kết thúc, kể cả trên node khác)
+     */
+    @Modifying
+    @Query("""
+        UPDATE Session s SET s.targetNotifiedAt = :now
+        WHERE s.sessionId = :sessionId
+        AND s.status = 'CHARGING'
+        AND s.targetNotifiedAt IS NULL
+        """)
+    int claimTargetNotice(@Param("sessionId") Long sessionId, @Param("now") LocalDateTime now);
+
+    /**
+     * Nhận quyền áp phí sạc quá giờ (trả về 0 nếu đã áp hoặc phiên đã kết thúc)
+     */
+    @Modifying
+    @Query("""
+        UPDATE Session s SET s.overtimeChargedAt = :now
+        WHERE s.sessionId = :sessionId
+        AND s.status = 'CHARGING'
+        AND s.overtimeChargedAt IS NULL
+        """)
+    int claimOvertimeCharge(@Param("sessionId") Long sessionId, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,47 @@
+package swp391.code.swp391.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import swp391.code.swp391.entity.SlotHold;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SlotHoldRepository extends JpaRepository<SlotHold, Long> {
+
+    // Tất cả hold còn hiệu lực (dùng để đồng bộ bộ nhớ giữa các node)
+    List<SlotHold> findByExpiresAtAfter(LocalDateTime now);
+
+    // Hold còn hiệu lực của user
+    List<SlotHold> findByUserIdAndExpiresAtAfter(Long userId, LocalDateTime now);
+
+    Optional<SlotHold> findByHoldIdAndUserId(Long holdId, Long userId);
+
+    /**
+     * Hold còn hiệu lực của người khác giao với [startTime, endTime) trên charging point
+     */
+    @Query("""
+        SELECT h FROM SlotHold h
+        WHERE h.chargingPointId = :chargingPointId
+        AND h.userId <> :userId
+        AND h.expiresAt > :now
+        AND h.startTime < :endTime
+        AND h.endTime > :startTime
+        """)
+    List<SlotHold> findOverlappingHoldsOfOthers(
+            @Param("chargingPointId") Long chargingPointId,
+            @Param("userId") Long userId,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            @Param("now") LocalDateTime now
+    );
+
+    @Modifying
+    @Query("DELETE FROM SlotHold h WHERE h.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
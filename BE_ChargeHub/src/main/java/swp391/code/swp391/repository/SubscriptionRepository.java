@@ -16,6 +16,11 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
      */
     List<Subscription> findByUserAndEndDateAfter(User user, LocalDateTime currentDate);
 
+    /**
+     * Tìm các gói đăng ký còn hiệu lực theo user ID (không cần tải User)
+     */
+    List<Subscription> findByUser_UserIdAndEndDateAfter(Long userId, LocalDateTime currentDate);
+
     /**
      * Tìm tất cả gói đăng ký của user
      */
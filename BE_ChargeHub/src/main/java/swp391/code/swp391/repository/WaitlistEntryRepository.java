@@ -0,0 +1,65 @@
+package swp391.code.swp391.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import swp391.code.swp391.entity.WaitlistEntry;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    // Các đăng ký đang chờ còn hạn (dựng lại index trong bộ nhớ)
+    List<WaitlistEntry> findByStatusAndLatestEndAfter(WaitlistEntry.Status status, LocalDateTime now);
+
+    List<WaitlistEntry> findByUserIdAndStatusInOrderByCreatedAtDesc(Long userId, Collection<WaitlistEntry.Status> statuses);
+
+    Optional<WaitlistEntry> findByWaitlistIdAndUserId(Long waitlistId, Long userId);
+
+    Optional<WaitlistEntry> findByHoldId(Long holdId);
+
+    // Các lời mời (giữ chỗ) đã hết hạn mà user chưa xác nhận
+    List<WaitlistEntry> findByStatusAndOfferExpiresAtBefore(WaitlistEntry.Status status, LocalDateTime now);
+
+    /**
+     * Chuyển trạng thái nếu đang ở trạng thái from (chỉ một node/luồng giành được đăng ký)
+     *
+     * @return 1 nếu chuyển thành công
+     */
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.status = :to WHERE w.waitlistId = :waitlistId AND w.status = :from")
+    int transition(@Param("waitlistId") Long waitlistId,
+                   @Param("from") WaitlistEntry.Status from,
+                   @Param("to") WaitlistEntry.Status to);
+
+    /**
+     * Đăng ký được mời bằng holdId đã đặt chỗ. Nhận cả WAITING vì lời mời có thể vừa bị maintain() trả về
+     * trạng thái chờ trong lúc transaction xác nhận đặt chỗ chưa commit.
+     *
+     * @return 1 nếu chuyển thành công
+     */
+    @Modifying
+    @Query("""
+        UPDATE WaitlistEntry w SET w.status = 'BOOKED', w.orderId = :orderId, w.offerExpiresAt = null
+        WHERE w.waitlistId = :waitlistId
+        AND w.holdId = :holdId
+        AND w.status IN ('OFFERED', 'WAITING')
+        """)
+    int markBooked(@Param("waitlistId") Long waitlistId,
+                   @Param("holdId") Long holdId,
+                   @Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("""
+        UPDATE WaitlistEntry w SET w.status = 'EXPIRED'
+        WHERE w.status IN ('WAITING', 'OFFERED')
+        AND w.latestEnd <= :now
+        """)
+    int expireEnded(@Param("now") LocalDateTime now);
+}
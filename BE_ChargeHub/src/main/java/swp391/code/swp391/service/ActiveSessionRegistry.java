@@ -0,0 +1,324 @@
+package swp391.code.swp391.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.dto.SessionProgressDTO;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.entity.ConnectorType;
+import swp391.code.swp391.entity.MeterReading;
+import swp391.code.swp391.entity.Order;
+import swp391.code.swp391.entity.Session;
+import swp391.code.swp391.event.SessionEndedEvent;
+import swp391.code.swp391.event.SessionStartedEvent;
+import swp391.code.swp391.repository.MeterReadingRepository;
+import swp391.code.swp391.repository.SessionRepository;
+import swp391.code.swp391.util.ChargeCurve;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Các phiên đang sạc (CHARGING) giữ trong bộ nhớ để đọc tiến trình không cần truy vấn / ghi DB.
+ *
+ * Dựng lại từ DB khi khởi động, thêm khi phiên bắt đầu, bỏ khi phiên kết thúc; phiên bắt đầu trên node khác
+ * được nạp khi lần đầu được đọc. powerConsumed / baseCost ghi vào bộ nhớ (record) và được đẩy xuống DB theo lô
+ * định kỳ (flush) trong một transaction. Một mục chỉ được coi là đã ghi khi transaction commit và không có ghi mới
+ * xen vào, nên khi sập chỉ mất tối đa một chu kỳ flush (tiến trình vẫn tính lại được từ giờ bắt đầu).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveSessionRegistry {
+
+    private final SessionRepository sessionRepository;
+    private final MeterReadingRepository meterReadingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, ActiveSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Dựng registry trước các service đọc nó khi khởi động (SessionTimerService)
+     */
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại registry từ các session CHARGING trong DB
+     */
+    public void rebuild() {
+        List<ActiveSession> charging = transactionTemplate.execute(status -> withLatestReadings(
+                sessionRepository.findWithOrderByStatus(Session.SessionStatus.CHARGING).stream()
+                        .map(ActiveSession::of)
+                        .toList()));
+        sessions.clear();
+        if (charging != null) {
+            charging.forEach(active -> sessions.put(active.getSessionId(), active));
+        }
+        log.info("Active session registry built with {} charging sessions", sessions.size());
+    }
+
+    /**
+     * Phiên đang sạc theo ID; nạp từ DB nếu chưa có (ví dụ phiên bắt đầu trên node khác)
+     */
+    public Optional<ActiveSession> find(Long sessionId) {
+        ActiveSession active = sessions.get(sessionId);
+        if (active != null) {
+            return Optional.of(active);
+        }
+        ActiveSession loaded = transactionTemplate.execute(status -> sessionRepository.findById(sessionId)
+                .filter(session -> session.getStatus() == Session.SessionStatus.CHARGING)
+                .map(session -> withLatestReadings(List.of(ActiveSession.of(session))).get(0))
+                .orElse(null));
+        return loaded != null ? Optional.of(sessions.computeIfAbsent(sessionId, id -> loaded)) : Optional.empty();
+    }
+
+    /**
+     * Các phiên đang sạc trong registry
+     */
+    public Collection<ActiveSession> all() {
+        return sessions.values();
+    }
+
+    /**
+     * Năng lượng đã sạc theo giá trị đồng hồ mới nhất (null nếu phiên không có trong registry hoặc chưa có giá trị)
+     */
+    public Double meteredKwh(Long sessionId) {
+        ActiveSession active = sessions.get(sessionId);
+        return active != null ? active.getMeteredKwh() : null;
+    }
+
+    /**
+     * Khôi phục giá trị đồng hồ mới nhất đã ghi xuống DB (một truy vấn cho cả danh sách)
+     */
+    private List<ActiveSession> withLatestReadings(List<ActiveSession> actives) {
+        if (actives.isEmpty()) {
+            return actives;
+        }
+        Map<Long, ActiveSession> byId = new HashMap<>();
+        actives.forEach(active -> byId.put(active.getSessionId(), active));
+        for (MeterReading reading : meterReadingRepository.findLatestBySessionIds(byId.keySet())) {
+            byId.get(reading.getSessionId()).acceptReading(reading.getMeasuredAt(), reading.getEnergyKwh());
+        }
+        return actives;
+    }
+
+    /**
+     * Ghi tiến trình mới vào bộ nhớ, lần flush kế tiếp sẽ đẩy xuống DB
+     */
+    public void record(ActiveSession active, SessionProgressDTO progress) {
+        active.record(progress.getPowerConsumed(), progress.getCost());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionStarted(SessionStartedEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Session session = sessionRepository.findByOrderOrderId(event.getOrderId());
+                if (session != null && session.getStatus() == Session.SessionStatus.CHARGING) {
+                    sessions.put(session.getSessionId(), ActiveSession.of(session));
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to register session of order {}: {}", event.getOrderId(), e.getMessage());
+        }
+    }
+
+    /**
+     * endSession đã ghi giá trị cuối cùng, chỉ cần bỏ khỏi registry
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionEnded(SessionEndedEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    /**
+     * Đẩy tiến trình của các phiên có thay đổi xuống DB trong một transaction
+     */
+    @Scheduled(fixedDelayString = "${app.session.flush-ms:30000}")
+    public void flush() {
+        List<ActiveSession> dirty = new ArrayList<>();
+        for (ActiveSession active : sessions.values()) {
+            if (active.isDirty()) {
+                dirty.add(active);
+            }
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // Phiên bản được chụp trước khi ghi: record xen vào trong lúc flush vẫn để mục ở trạng thái chưa ghi
+        long[] versions = new long[dirty.size()];
+        List<Long> ended = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < dirty.size(); i++) {
+                    ActiveSession active = dirty.get(i);
+                    versions[i] = active.version;
+                    double[] values = active.snapshot();
+                    if (sessionRepository.updateProgress(active.getSessionId(), values[0], values[1]) == 0) {
+                        ended.add(active.getSessionId()); // Đã kết thúc (có thể trên node khác)
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to flush progress of {} sessions, will retry: {}", dirty.size(), e.getMessage());
+            return;
+        }
+        for (int i = 0; i < dirty.size(); i++) {
+            dirty.get(i).markFlushed(versions[i]);
+        }
+        ended.forEach(sessions::remove);
+        log.debug("Flushed progress of {} sessions", dirty.size());
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        flush();
+    }
+
+    /**
+     * Thông số cố định của một phiên đang sạc và tiến trình mới nhất chưa ghi xuống DB
+     */
+    @Getter
+    public static class ActiveSession {
+        private final Long sessionId;
+        private final Long orderId;
+        private final Long userId;
+        private final Long stationId; // Trạm của charging point (kiểm tra quyền gửi giá trị đồng hồ)
+        private final LocalDateTime startTime;
+        private final double powerKw;
+        private final double pricePerKwh;
+        private final double capacityKwh;
+        private final double startedBattery;
+        private final double expectedBattery;
+        @Getter(AccessLevel.NONE)
+        private final ChargeCurve curve;
+        private final int expectedMinutes; // Thời gian sạc dự kiến từ startedBattery tới expectedBattery
+
+        private double powerConsumed;
+        private double baseCost;
+        private volatile Double meteredKwh; // Giá trị đồng hồ mới nhất (null = trụ chưa gửi)
+        private volatile LocalDateTime meteredAt;
+        private LocalDateTime targetReachedAt; // Thời điểm đạt mức pin mong muốn (null = chưa đạt)
+        @Getter(AccessLevel.NONE)
+        private volatile long version;
+        @Getter(AccessLevel.NONE)
+        private volatile long flushedVersion;
+
+        private ActiveSession(Long sessionId, Long orderId, Long userId, Long stationId, LocalDateTime startTime,
+                              double powerKw, double pricePerKwh, double capacityKwh, double startedBattery,
+                              double expectedBattery, ChargeCurve curve) {
+            this.sessionId = sessionId;
+            this.orderId = orderId;
+            this.userId = userId;
+            this.stationId = stationId;
+            this.startTime = startTime;
+            this.powerKw = powerKw;
+            this.pricePerKwh = pricePerKwh;
+            this.capacityKwh = capacityKwh;
+            this.startedBattery = startedBattery;
+            this.expectedBattery = expectedBattery;
+            this.curve = curve;
+            this.expectedMinutes = curve.minutes(startedBattery, expectedBattery);
+        }
+
+        public static ActiveSession of(Session session) {
+            Order order = session.getOrder();
+            ConnectorType connectorType = order.getChargingPoint().getConnectorType();
+            ChargingStation station = order.getChargingPoint().getStation();
+            ActiveSession active = new ActiveSession(session.getSessionId(), order.getOrderId(),
+                    order.getUser().getUserId(), station != null ? station.getStationId() : null,
+                    session.getStartTime(), connectorType.getPowerOutput(),
+                    connectorType.getPricePerKWh(), order.getVehicle().getCarModel().getCapacity(),
+                    order.getStartedBattery() != null ? order.getStartedBattery() : 0,
+                    order.getExpectedBattery() != null ? order.getExpectedBattery() : 100,
+                    ChargeCurve.of(order.getVehicle().getCarModel(), connectorType.getPowerOutput()));
+            active.powerConsumed = session.getPowerConsumed() != null ? session.getPowerConsumed() : 0;
+            active.baseCost = session.getBaseCost() != null ? session.getBaseCost() : 0;
+            active.targetReachedAt = session.getTargetNotifiedAt();
+            return active;
+        }
+
+        public long minutesElapsed(LocalDateTime now) {
+            return ChronoUnit.MINUTES.between(startTime, now);
+        }
+
+        public SessionProgressDTO progressAt(LocalDateTime now) {
+            Double metered = meteredKwh;
+            SessionProgressDTO progress = metered != null
+                    ? SessionServiceImpl.progressOfEnergy(metered, pricePerKwh, capacityKwh, startedBattery)
+                    : SessionServiceImpl.progressOf(powerKw, pricePerKwh, capacityKwh, startedBattery, minutesElapsed(now));
+            // ETA: hai lần đọc bảng của đường cong sạc
+            progress.setRemainingMinutes(curve.minutes(progress.getCurrentBattery(), expectedBattery));
+            return progress;
+        }
+
+        /**
+         * Ghi nhận đã đạt mức pin mong muốn (gọi khi tiến trình đã đạt) và trả về thời điểm đạt, các lần sau giữ nguyên.
+         * Lấy giá trị đồng hồ mới nhất nếu muộn hơn thời gian dự kiến (trụ sạc chậm hơn đường cong), không sớm hơn
+         * thời gian dự kiến; phiên nạp lại từ DB giữ thời điểm đã gửi thông báo
+         */
+        public synchronized LocalDateTime markTargetReached() {
+            if (targetReachedAt == null) {
+                LocalDateTime expectedAt = startTime.plusMinutes(expectedMinutes);
+                LocalDateTime measuredAt = meteredKwh != null ? meteredAt : null;
+                targetReachedAt = measuredAt != null && measuredAt.isAfter(expectedAt) ? measuredAt : expectedAt;
+            }
+            return targetReachedAt;
+        }
+
+        /**
+         * Nhận giá trị đồng hồ nếu mới hơn giá trị hiện tại (bỏ giá trị gửi lại hoặc sai thứ tự)
+         */
+        public synchronized boolean acceptReading(LocalDateTime measuredAt, double energyKwh) {
+            if (meteredAt != null && !measuredAt.isAfter(meteredAt)) {
+                return false;
+            }
+            if (meteredKwh != null && energyKwh < meteredKwh) {
+                return false; // Giá trị cộng dồn không được giảm
+            }
+            meteredAt = measuredAt;
+            meteredKwh = energyKwh;
+            return true;
+        }
+
+        synchronized void record(double powerConsumed, double baseCost) {
+            this.powerConsumed = powerConsumed;
+            this.baseCost = baseCost;
+            version++;
+        }
+
+        boolean isDirty() {
+            return version != flushedVersion;
+        }
+
+        synchronized double[] snapshot() {
+            return new double[]{powerConsumed, baseCost};
+        }
+
+        synchronized void markFlushed(long version) {
+            if (version > flushedVersion) {
+                flushedVersion = version;
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package swp391.code.swp391.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import swp391.code.swp391.event.ChargingPointChangedEvent;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.event.StationChangedEvent;
+import swp391.code.swp391.util.GapKernel;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Cache kết quả tìm khoảng trống theo (trạm, tập connector tương thích, bucket thời gian sạc, ngày, horizon).
+ *
+ * Giá trị là các khoảng trống (phút epoch) của từng charging point, chưa trừ hold và chưa tính giá
+ * vì hai phần này phụ thuộc user. Bucket theo năng lượng: thời gian sạc cần của mỗi point chỉ phụ thuộc
+ * năng lượng và công suất point, nên các khoảng được lọc theo năng lượng nhỏ nhất của bucket
+ * (tập cha của kết quả chính xác) và được lọc lại theo số phút thật khi đọc.
+ *
+ * Entry bị xóa ngay khi có đặt chỗ/hủy giao với khoảng ngày của entry, khi charging point đổi trạng thái
+ * hoặc trạm đổi giờ mở cửa. TTL chỉ là lưới an toàn cho thay đổi từ node khác.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AvailabilityCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.booking.availability-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${app.booking.availability-cache.energy-bucket-kwh:5}")
+    private double energyBucketKwh;
+
+    @Value("${app.booking.availability-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    // stationId -> các key của trạm (xóa chính xác theo trạm)
+    private final Map<Long, Set<Key>> keysByStation = new ConcurrentHashMap<>();
+    // stationId -> thế hệ, tăng mỗi lần xóa; kết quả tính trước khi xóa không được ghi vào cache
+    private final Map<Long, long[]> generations = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void registerMetrics() {
+        hits = Counter.builder("availability.cache.requests").tag("result", "hit")
+                .description("Số lần tìm slot dùng được cache").register(meterRegistry);
+        misses = Counter.builder("availability.cache.requests").tag("result", "miss")
+                .description("Số lần tìm slot phải tính lại").register(meterRegistry);
+        Gauge.builder("availability.cache.hit.ratio", this, AvailabilityCache::hitRatio)
+                .description("Tỉ lệ hit của cache tìm slot").register(meterRegistry);
+        Gauge.builder("availability.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Tìm entry cho một lần tìm slot. Khi miss, Lookup ghi nhận các khoảng trống vừa tính
+     * để store() đưa vào cache.
+     */
+    public Lookup lookup(Long stationId, Collection<Long> connectorTypeIds, double energyKwh,
+                         LocalDate firstDay, int horizonDays) {
+        int bucket = energyBucketKwh > 0 ? (int) Math.floor(energyKwh / energyBucketKwh) : 0;
+        List<Long> connectors = new ArrayList<>(connectorTypeIds);
+        Collections.sort(connectors);
+        Key key = new Key(stationId, connectors, bucket, firstDay, horizonDays);
+        double bucketEnergy = energyBucketKwh > 0 ? bucket * energyBucketKwh : energyKwh;
+
+        long generation = generationOf(stationId);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            hits.increment();
+            return new Lookup(key, generation, bucketEnergy, entry.gapsByPoint);
+        }
+        if (entry != null) {
+            evict(key, entry); // Hết TTL
+        }
+        misses.increment();
+        return new Lookup(key, generation, bucketEnergy, null);
+    }
+
+    /**
+     * Ghi các khoảng trống đã tính trong lần tìm vào cache, trừ khi trạm đã thay đổi trong lúc tính
+     */
+    public void store(Lookup lookup) {
+        if (lookup.isHit() || lookup.recorded.isEmpty()) {
+            return;
+        }
+        Key key = lookup.key;
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries) {
+            for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                if (e.getValue().expiresAt <= now) {
+                    evict(e.getKey(), e.getValue());
+                }
+            }
+            if (entries.size() >= maxEntries) {
+                return;
+            }
+        }
+        long[] generation = generations.computeIfAbsent(key.stationId, id -> new long[1]);
+        synchronized (generation) {
+            if (generation[0] != lookup.generation) {
+                return;
+            }
+            entries.put(key, new Entry(Map.copyOf(lookup.recorded), now + ttlSeconds * 1000));
+            keysByStation.computeIfAbsent(key.stationId, id -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.getStationId() == null || event.getStartTime() == null || event.getEndTime() == null) {
+            return;
+        }
+        LocalDate fromDay = event.getStartTime().toLocalDate();
+        LocalDate toDay = event.getEndTime().toLocalDate();
+        invalidate(event.getStationId(), key -> key.overlaps(fromDay, toDay));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargingPointChanged(ChargingPointChangedEvent event) {
+        if (event.getStationId() != null) {
+            invalidate(event.getStationId(), key -> true);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationChanged(StationChangedEvent event) {
+        invalidate(event.getStationId(), key -> true);
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private void invalidate(Long stationId, Predicate<Key> matches) {
+        long[] generation = generations.computeIfAbsent(stationId, id -> new long[1]);
+        synchronized (generation) {
+            generation[0]++;
+            Set<Key> keys = keysByStation.get(stationId);
+            if (keys == null) {
+                return;
+            }
+            for (Iterator<Key> it = keys.iterator(); it.hasNext(); ) {
+                Key key = it.next();
+                if (matches.test(key)) {
+                    entries.remove(key);
+                    it.remove();
+                }
+            }
+            if (keys.isEmpty()) {
+                keysByStation.remove(stationId);
+            }
+        }
+    }
+
+    /**
+     * Xóa entry hết hạn và bỏ key khỏi keysByStation (dưới khóa thế hệ của trạm như store / invalidate).
+     * Chỉ xóa nếu entry chưa bị thay bằng entry mới
+     */
+    private void evict(Key key, Entry entry) {
+        long[] generation = generations.computeIfAbsent(key.stationId, id -> new long[1]);
+        synchronized (generation) {
+            if (!entries.remove(key, entry)) {
+                return;
+            }
+            Set<Key> keys = keysByStation.get(key.stationId);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByStation.remove(key.stationId);
+                }
+            }
+        }
+    }
+
+    private long generationOf(Long stationId) {
+        long[] generation = generations.computeIfAbsent(stationId, id -> new long[1]);
+        synchronized (generation) {
+            return generation[0];
+        }
+    }
+
+    /**
+     * Kết quả tra cache của một lần tìm slot
+     */
+    public static class Lookup {
+        private final Key key;
+        private final long generation;
+        private final double bucketEnergy;
+        private final Map<Long, long[]> cached;
+        private final Map<Long, long[]> recorded = new HashMap<>();
+
+        private Lookup(Key key, long generation, double bucketEnergy, Map<Long, long[]> cached) {
+            this.key = key;
+            this.generation = generation;
+            this.bucketEnergy = bucketEnergy;
+            this.cached = cached;
+        }
+
+        public boolean isHit() {
+            return cached != null;
+        }
+
+        /**
+         * Năng lượng nhỏ nhất của bucket: dùng để tính độ dài tối thiểu khi lọc khoảng trống lưu cache
+         */
+        public double getBucketEnergy() {
+            return bucketEnergy;
+        }
+
+        /**
+         * Chép các khoảng trống đã cache của point vào out, bỏ phần trước notBefore và khoảng ngắn hơn minLength
+         *
+         * @return false nếu cache không có point này
+         */
+        public boolean copyGaps(Long chargingPointId, long notBefore, long minLength, GapKernel.Buffer out) {
+            long[] gaps = cached != null ? cached.get(chargingPointId) : null;
+            if (gaps == null) {
+                return false;
+            }
+            for (int i = 0; i < gaps.length; i += 2) {
+                long start = Math.max(gaps[i], notBefore);
+                if (gaps[i + 1] - start >= Math.max(1, minLength)) {
+                    out.add(start, gaps[i + 1]);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Ghi nhận khoảng trống vừa tính của point (chỉ khi miss)
+         */
+        public void record(Long chargingPointId, GapKernel.Buffer gaps) {
+            if (cached != null) {
+                return;
+            }
+            long[] copy = new long[gaps.size() * 2];
+            for (int i = 0; i < gaps.size(); i++) {
+                copy[2 * i] = gaps.start(i);
+                copy[2 * i + 1] = gaps.end(i);
+            }
+            recorded.put(chargingPointId, copy);
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Key {
+        private final Long stationId;
+        private final List<Long> connectorTypeIds;
+        private final int energyBucket;
+        private final LocalDate firstDay;
+        private final int horizonDays;
+
+        /**
+         * Entry gồm cả phần qua đêm sang ngày sau ngày cuối của horizon
+         */
+        boolean overlaps(LocalDate fromDay, LocalDate toDay) {
+            LocalDate lastDay = firstDay.plusDays(horizonDays);
+            return !toDay.isBefore(firstDay.minusDays(1)) && !fromDay.isAfter(lastDay);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final Map<Long, long[]> gapsByPoint;
+        private final long expiresAt;
+    }
+}
@@ -42,6 +42,8 @@ public class CarModelServiceImpl implements CarModelService {
         carModel.setBrand(carModelDTO.getBrand());
         carModel.setModel(carModelDTO.getModel());
         carModel.setCapacity(carModelDTO.getCapacity());
+        carModel.setMaxChargePowerKw(carModelDTO.getMaxChargePowerKw());
+        carModel.setTaperStartSoc(carModelDTO.getTaperStartSoc());
         carModel.setProductYear(carModelDTO.getProductYear());
 
         // Cập nhật ConnectorTypes nếu có
@@ -124,6 +126,8 @@ public class CarModelServiceImpl implements CarModelService {
         carModel.setBrand(carModelDTO.getBrand());
         carModel.setModel(carModelDTO.getModel());
         carModel.setCapacity(carModelDTO.getCapacity());
+        carModel.setMaxChargePowerKw(carModelDTO.getMaxChargePowerKw());
+        carModel.setTaperStartSoc(carModelDTO.getTaperStartSoc());
         carModel.setProductYear(carModelDTO.getProductYear());
 
         if (carModelDTO.getConnectorTypeIds() != null && !carModelDTO.getConnectorTypeIds().isEmpty()) {
@@ -141,6 +145,8 @@ public class CarModelServiceImpl implements CarModelService {
         dto.setBrand(carModel.getBrand());
         dto.setModel(carModel.getModel());
         dto.setCapacity(carModel.getCapacity());
+        dto.setMaxChargePowerKw(carModel.getMaxChargePowerKw());
+        dto.setTaperStartSoc(carModel.getTaperStartSoc());
         dto.setProductYear(carModel.getProductYear());
         if (carModel.getConnectorTypes() != null) {
             dto.setConnectorTypeIds(
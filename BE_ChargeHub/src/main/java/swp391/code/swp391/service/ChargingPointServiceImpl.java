@@ -1,6 +1,7 @@
 package swp391.code.swp391.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import swp391.code.swp391.dto.ChargingPointDTO;
@@ -8,6 +9,7 @@ import swp391.code.swp391.entity.ChargingPoint;
 import swp391.code.swp391.entity.ChargingPoint.ChargingPointStatus;
 import swp391.code.swp391.entity.ChargingStation;
 import swp391.code.swp391.entity.ConnectorType;
+import swp391.code.swp391.event.ChargingPointChangedEvent;
 import swp391.code.swp391.repository.ChargingPointRepository;
 import swp391.code.swp391.repository.ChargingStationRepository;
 import swp391.code.swp391.repository.ConnectorTypeRepository;
@@ -23,6 +25,7 @@ public class ChargingPointServiceImpl implements ChargingPointService {
     private final ChargingPointRepository chargingPointRepository;
     private final ChargingStationRepository chargingStationRepository;
     private final ConnectorTypeRepository connectorTypeRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public ChargingPointDTO createChargingPoint(ChargingPointDTO chargingPointDTO) {
@@ -51,6 +54,7 @@ public class ChargingPointServiceImpl implements ChargingPointService {
 
         // Save charging point
         ChargingPoint savedChargingPoint = chargingPointRepository.save(chargingPoint);
+        eventPublisher.publishEvent(ChargingPointChangedEvent.of(savedChargingPoint));
 
         // Convert to DTO with connector type information
         ChargingPointDTO resultDTO = convertToDTO(savedChargingPoint);
@@ -90,6 +94,9 @@ public class ChargingPointServiceImpl implements ChargingPointService {
         ChargingPoint existingChargingPoint = chargingPointRepository.findById(chargingPointId)
                 .orElseThrow(() -> new RuntimeException("Charging point not found with id: " + chargingPointId));
 
+        // Trạm cũ cũng phải bỏ kết quả đã cache nếu point chuyển trạm
+        eventPublisher.publishEvent(ChargingPointChangedEvent.of(existingChargingPoint));
+
         // Cập nhật status
         existingChargingPoint.setStatus(chargingPointDTO.getStatus());
 
@@ -108,6 +115,7 @@ public class ChargingPointServiceImpl implements ChargingPointService {
         }
 
         ChargingPoint updatedChargingPoint = chargingPointRepository.save(existingChargingPoint);
+        eventPublisher.publishEvent(ChargingPointChangedEvent.of(updatedChargingPoint));
         return convertToDTO(updatedChargingPoint);
     }
 
@@ -122,6 +130,7 @@ public class ChargingPointServiceImpl implements ChargingPointService {
         }
 
         chargingPointRepository.deleteById(chargingPointId);
+        eventPublisher.publishEvent(ChargingPointChangedEvent.of(chargingPoint));
     }
 
 
@@ -148,6 +157,7 @@ public class ChargingPointServiceImpl implements ChargingPointService {
 
         chargingPoint.setStatus(status);
         ChargingPoint updatedChargingPoint = chargingPointRepository.save(chargingPoint);
+        eventPublisher.publishEvent(ChargingPointChangedEvent.of(updatedChargingPoint));
         return convertToDTO(updatedChargingPoint);
     }
 
@@ -1,6 +1,7 @@
 package swp391.code.swp391.service;
 
 import swp391.code.swp391.dto.ChargingStationDTO;
+import swp391.code.swp391.dto.NearbyStationDTO;
 import swp391.code.swp391.entity.ChargingStation.ChargingStationStatus;
 
 import java.util.List;
@@ -16,6 +17,12 @@ public interface ChargingStationService {
     // Lấy tất cả charging stations
     List<ChargingStationDTO> getAllChargingStations();
 
+    // Tìm các trạm trong bán kính (km), sắp xếp theo khoảng cách
+    List<NearbyStationDTO> findStationsWithinRadius(double latitude, double longitude, double radiusKm);
+
+    // Tìm k trạm gần nhất, sắp xếp theo khoảng cách
+    List<NearbyStationDTO> findNearestStations(double latitude, double longitude, int k);
+
     // Cập nhật charging station
     ChargingStationDTO updateChargingStation(Long stationId, ChargingStationDTO chargingStationDTO);
 
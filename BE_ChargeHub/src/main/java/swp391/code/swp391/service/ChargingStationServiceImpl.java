@@ -1,12 +1,15 @@
 package swp391.code.swp391.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import swp391.code.swp391.dto.ChargingPointDTO;
 import swp391.code.swp391.dto.ChargingStationDTO;
+import swp391.code.swp391.dto.NearbyStationDTO;
 import swp391.code.swp391.entity.ChargingStation;
 import swp391.code.swp391.entity.ChargingStation.ChargingStationStatus;
+import swp391.code.swp391.event.StationChangedEvent;
 import swp391.code.swp391.repository.ChargingStationRepository;
 import swp391.code.swp391.repository.ConnectorTypeRepository;
 
@@ -22,6 +25,8 @@ public class ChargingStationServiceImpl implements ChargingStationService {
     private final ChargingStationRepository chargingStationRepository;
     private final ChargingPointService chargingPointService;
     private final ConnectorTypeRepository connectorTypeRepository;
+    private final StationGeoIndex stationGeoIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public ChargingStationDTO createChargingStation(ChargingStationDTO chargingStationDTO) {
@@ -63,6 +68,7 @@ public class ChargingStationServiceImpl implements ChargingStationService {
         
         
         ChargingStation savedChargingStation = chargingStationRepository.save(chargingStation);
+        eventPublisher.publishEvent(StationChangedEvent.upserted(savedChargingStation));
 
 
         // Tạo trụ sạc
@@ -94,6 +100,18 @@ public class ChargingStationServiceImpl implements ChargingStationService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<NearbyStationDTO> findStationsWithinRadius(double latitude, double longitude, double radiusKm) {
+        return stationGeoIndex.findWithinRadius(latitude, longitude, radiusKm, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<NearbyStationDTO> findNearestStations(double latitude, double longitude, int k) {
+        return stationGeoIndex.findNearest(latitude, longitude, k, null);
+    }
+
     @Override
     public ChargingStationDTO updateChargingStation(Long stationId, ChargingStationDTO chargingStationDTO) {
         ChargingStation existingStation = chargingStationRepository.findById(stationId)
@@ -111,8 +129,12 @@ public class ChargingStationServiceImpl implements ChargingStationService {
         existingStation.setStatus(chargingStationDTO.getStatus());
         existingStation.setLatitude(chargingStationDTO.getLatitude());
         existingStation.setLongitude(chargingStationDTO.getLongitude());
+        existingStation.setOpeningTime(chargingStationDTO.getOpeningTime());
+        existingStation.setClosingTime(chargingStationDTO.getClosingTime());
+        existingStation.setPowerBudgetKw(chargingStationDTO.getPowerBudgetKw());
 
         ChargingStation updatedStation = chargingStationRepository.save(existingStation);
+        eventPublisher.publishEvent(StationChangedEvent.upserted(updatedStation));
         return convertToDTO(updatedStation);
     }
 
@@ -124,6 +146,7 @@ public class ChargingStationServiceImpl implements ChargingStationService {
 
 
         chargingStationRepository.deleteById(stationId);
+        eventPublisher.publishEvent(StationChangedEvent.deleted(stationId));
     }
 
     @Override
@@ -157,6 +180,7 @@ public class ChargingStationServiceImpl implements ChargingStationService {
 
         chargingStation.setStatus(status);
         ChargingStation updatedStation = chargingStationRepository.save(chargingStation);
+        eventPublisher.publishEvent(StationChangedEvent.upserted(updatedStation));
         return convertToDTO(updatedStation);
     }
 
@@ -232,6 +256,9 @@ public class ChargingStationServiceImpl implements ChargingStationService {
         // Thêm latitude và longitude
         chargingStation.setLatitude(chargingStationDTO.getLatitude());
         chargingStation.setLongitude(chargingStationDTO.getLongitude());
+        chargingStation.setOpeningTime(chargingStationDTO.getOpeningTime());
+        chargingStation.setClosingTime(chargingStationDTO.getClosingTime());
+        chargingStation.setPowerBudgetKw(chargingStationDTO.getPowerBudgetKw());
         chargingStation.setStaff_id(chargingStation.getStaff_id());
         return chargingStation;
     }
@@ -246,6 +273,9 @@ public class ChargingStationServiceImpl implements ChargingStationService {
         // Thêm latitude và longitude
         dto.setLatitude(chargingStation.getLatitude());
         dto.setLongitude(chargingStation.getLongitude());
+        dto.setOpeningTime(chargingStation.getOpeningTime());
+        dto.setClosingTime(chargingStation.getClosingTime());
+        dto.setPowerBudgetKw(chargingStation.getPowerBudgetKw());
         dto.setStaff_id(chargingStation.getStaff_id());
         return dto;
     }
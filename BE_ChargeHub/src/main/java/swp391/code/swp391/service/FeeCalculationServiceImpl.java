@@ -23,7 +23,7 @@ public class FeeCalculationServiceImpl implements FeeCalculationService {
 
     // Các hằng số cấu hình
     private static final BigDecimal OVERCHARGE_RATE = new BigDecimal("2000.00"); // VND mỗi phút
-    private static final BigDecimal NO_SHOW_RATE = new BigDecimal("0.30"); // 30%
+    static final BigDecimal NO_SHOW_RATE = new BigDecimal("0.30"); // 30%
     private static final BigDecimal CANCEL_RATE = new BigDecimal("0.10"); // 10%
 
     @Override
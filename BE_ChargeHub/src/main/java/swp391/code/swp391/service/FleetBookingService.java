@@ -0,0 +1,305 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import swp391.code.swp391.dto.FleetBookingRequestDTO;
+import swp391.code.swp391.dto.FleetBookingResponseDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.exception.ApiRequestException;
+import swp391.code.swp391.repository.*;
+import swp391.code.swp391.util.ChargeCurve;
+import swp391.code.swp391.util.StationHoursUtil;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Đặt chỗ hàng loạt cho đội xe trong một transaction.
+ *
+ * Xe, trạm, trụ và đơn hiện có được tải bằng các truy vấn theo tập (không findById theo từng item).
+ * Trụ và giờ bắt đầu được xếp theo thứ tự hạn chót sớm nhất, không trùng nhau trong cùng batch;
+ * mỗi khoảng được chốt qua bitmap chiếm dụng (tryOccupy) rồi lưu tất cả đơn bằng saveAll.
+ * Item lỗi không làm hỏng cả batch mà được trả về trong kết quả riêng.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FleetBookingService {
+
+    // Độ dài tối đa của khung mỗi item (khớp với số ngày tìm kiếm tối đa khi đặt lẻ);
+    // khung dài làm lượt xếp trụ, khóa bitmap và tải công suất phải duyệt toàn bộ khoảng
+    private static final int MAX_WINDOW_DAYS = 7;
+
+    private final UserRepository userRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ChargingStationRepository stationRepository;
+    private final ChargingPointRepository chargingPointRepository;
+    private final OrderRepository orderRepository;
+    private final ReservationTimelineIndex timelineIndex;
+    private final SlotHoldService slotHoldService;
+    private final OccupancyService occupancyService;
+    private final PointLockRegistry pointLockRegistry;
+    private final StationPowerBudgetService powerBudgetService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public FleetBookingResponseDTO bookFleet(FleetBookingRequestDTO request) {
+        LocalDateTime now = LocalDateTime.now();
+        List<FleetBookingRequestDTO.Item> items = request.getItems();
+        FleetBookingResponseDTO.ItemResult[] results = new FleetBookingResponseDTO.ItemResult[items.size()];
+
+        // 1. Tải user, xe, trạm và trụ bằng các truy vấn theo tập
+        User user = userRepository.findById(request.getUserId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy user"));
+        Map<Long, Vehicle> vehicles = vehicleRepository.findAllById(
+                        items.stream().map(FleetBookingRequestDTO.Item::getVehicleId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Vehicle::getId, Function.identity()));
+        Set<Long> stationIds = items.stream().map(FleetBookingRequestDTO.Item::getStationId).collect(Collectors.toSet());
+        Map<Long, ChargingStation> stations = stationRepository.findAllById(stationIds)
+                .stream().collect(Collectors.toMap(ChargingStation::getStationId, Function.identity()));
+        Map<Long, List<ChargingPoint>> pointsByStation = chargingPointRepository.findByStationStationIdIn(stationIds).stream()
+                .filter(ChargingPoint::isBookable)
+                .collect(Collectors.groupingBy(point -> point.getStation().getStationId()));
+
+        // 2. Kiểm tra từng item trong bộ nhớ
+        Map<Integer, List<ChargingPoint>> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            FleetBookingRequestDTO.Item item = items.get(i);
+            String error = validate(item, user, vehicles.get(item.getVehicleId()), stations.get(item.getStationId()), now);
+            if (error != null) {
+                results[i] = failed(i, item, error);
+                continue;
+            }
+            List<ConnectorType> compatible = vehicles.get(item.getVehicleId()).getCarModel().getConnectorTypes();
+            List<ChargingPoint> points = pointsByStation.getOrDefault(item.getStationId(), List.of()).stream()
+                    .filter(point -> compatible != null && compatible.contains(point.getConnectorType()))
+                    .toList();
+            if (points.isEmpty()) {
+                results[i] = failed(i, item, "Trạm này không có trụ sạc tương thích với xe");
+                continue;
+            }
+            candidates.put(i, points);
+        }
+
+        if (!candidates.isEmpty()) {
+            // 3. Khóa các trụ liên quan, seed timeline và tải đơn hiện có của các xe bằng một truy vấn range
+            Set<Long> pointIds = candidates.values().stream().flatMap(List::stream)
+                    .map(ChargingPoint::getChargingPointId).collect(Collectors.toCollection(TreeSet::new));
+            LocalDateTime rangeStart = candidates.keySet().stream().map(i -> effectiveStart(items.get(i), now))
+                    .min(Comparator.naturalOrder()).orElse(now);
+            LocalDateTime rangeEnd = candidates.keySet().stream().map(i -> items.get(i).getWindowEnd())
+                    .max(Comparator.naturalOrder()).orElse(now);
+
+            pointLockRegistry.lockAllUntilCompletion(powerBudgetService.lockScope(pointIds,
+                    candidates.keySet().stream().map(i -> stations.get(items.get(i).getStationId())).collect(Collectors.toSet())));
+            timelineIndex.preload(pointIds, rangeStart.toLocalDate(), rangeEnd.toLocalDate());
+
+            Map<Long, List<LocalDateTime[]>> busyByVehicle = new HashMap<>();
+            for (Order order : orderRepository.findOccupyingOrdersByVehicles(
+                    candidates.keySet().stream().map(i -> items.get(i).getVehicleId()).collect(Collectors.toSet()),
+                    rangeStart, rangeEnd)) {
+                busyByVehicle.computeIfAbsent(order.getVehicle().getId(), id -> new ArrayList<>())
+                        .add(new LocalDateTime[]{order.getStartTime(), order.getEndTime()});
+            }
+
+            // 4. Xếp trụ theo hạn chót sớm nhất, cộng dồn các khoảng đã xếp trong batch
+            Map<Long, List<LocalDateTime[]>> assignedByPoint = new HashMap<>();
+            List<Assignment> assignments = new ArrayList<>();
+            List<Integer> order = new ArrayList<>(candidates.keySet());
+            order.sort(Comparator.comparing((Integer i) -> items.get(i).getWindowEnd()).thenComparing(i -> i));
+            for (int i : order) {
+                FleetBookingRequestDTO.Item item = items.get(i);
+                Assignment assignment = assign(i, item, vehicles.get(item.getVehicleId()), stations.get(item.getStationId()),
+                        candidates.get(i), user.getUserId(), assignedByPoint,
+                        busyByVehicle.getOrDefault(item.getVehicleId(), List.of()), now);
+                if (assignment == null) {
+                    results[i] = failed(i, item, "Không tìm được khung giờ trống đủ để sạc trong khoảng thời gian yêu cầu");
+                    continue;
+                }
+                LocalDateTime[] range = {assignment.start, assignment.end};
+                assignedByPoint.computeIfAbsent(assignment.point.getChargingPointId(), id -> new ArrayList<>()).add(range);
+                busyByVehicle.computeIfAbsent(item.getVehicleId(), id -> new ArrayList<>()).add(range);
+                assignments.add(assignment);
+            }
+
+            // 5. Chốt từng khoảng qua bitmap (theo thứ tự trụ, thời gian) rồi lưu tất cả đơn một lần.
+            // Trạm có giới hạn công suất: cộng dồn tải các đơn trong batch vào biểu đồ tải của trạm
+            assignments.sort(Comparator.comparing((Assignment a) -> a.point.getChargingPointId())
+                    .thenComparing(a -> a.start));
+            // Khóa dòng các trạm có giới hạn theo thứ tự stationId (tránh deadlock giữa các batch)
+            Map<Long, StationPowerBudgetService.StationLoad> loads = new HashMap<>();
+            assignments.stream().map(a -> stations.get(items.get(a.index).getStationId()))
+                    .filter(powerBudgetService::isLimited)
+                    .collect(Collectors.toMap(ChargingStation::getStationId, s -> s, (a, b) -> a, TreeMap::new))
+                    .forEach((id, station) -> loads.put(id, powerBudgetService.loadOf(station, rangeStart, rangeEnd)));
+            List<Order> orders = new ArrayList<>();
+            List<Assignment> persisted = new ArrayList<>();
+            for (Assignment assignment : assignments) {
+                ChargingStation station = stations.get(items.get(assignment.index).getStationId());
+                StationPowerBudgetService.StationLoad load = loads.get(station.getStationId());
+                if (load != null && !load.fits(assignment.point, assignment.start, assignment.end)) {
+                    results[assignment.index] = failed(assignment.index, items.get(assignment.index),
+                            "Trạm đã đạt giới hạn công suất trong khung giờ này");
+                    continue;
+                }
+                if (!occupancyService.tryOccupy(assignment.point.getChargingPointId(), assignment.start, assignment.end)) {
+                    results[assignment.index] = failed(assignment.index, items.get(assignment.index),
+                            "Khung giờ vừa được người khác đặt, vui lòng thử lại");
+                    continue;
+                }
+                if (load != null) {
+                    load.reserve(assignment.point, assignment.start, assignment.end);
+                }
+                FleetBookingRequestDTO.Item item = items.get(assignment.index);
+                orders.add(Order.builder()
+                        .user(user)
+                        .vehicle(vehicles.get(item.getVehicleId()))
+                        .chargingPoint(assignment.point)
+                        .startTime(assignment.start)
+                        .endTime(assignment.end)
+                        .status(Order.Status.BOOKED)
+                        .startedBattery(item.getCurrentBattery())
+                        .expectedBattery(item.getTargetBattery())
+                        .createdAt(now)
+                        .build());
+                persisted.add(assignment);
+            }
+
+            List<Order> saved = orderRepository.saveAll(orders);
+            for (int k = 0; k < saved.size(); k++) {
+                Order savedOrder = saved.get(k);
+                Assignment assignment = persisted.get(k);
+                eventPublisher.publishEvent(ReservationChangedEvent.booked(savedOrder));
+                results[assignment.index] = FleetBookingResponseDTO.ItemResult.builder()
+                        .index(assignment.index)
+                        .vehicleId(items.get(assignment.index).getVehicleId())
+                        .stationId(items.get(assignment.index).getStationId())
+                        .success(true)
+                        .orderId(savedOrder.getOrderId())
+                        .chargingPointId(assignment.point.getChargingPointId())
+                        .connectorTypeName(assignment.point.getConnectorType().getTypeName())
+                        .startTime(assignment.start)
+                        .endTime(assignment.end)
+                        .build();
+            }
+        }
+
+        List<FleetBookingResponseDTO.ItemResult> resultList = Arrays.asList(results);
+        int booked = (int) resultList.stream().filter(FleetBookingResponseDTO.ItemResult::getSuccess).count();
+        log.info("Fleet booking for user {}: {}/{} items booked", user.getUserId(), booked, items.size());
+        return FleetBookingResponseDTO.builder()
+                .requested(items.size())
+                .booked(booked)
+                .failed(items.size() - booked)
+                .results(resultList)
+                .build();
+    }
+
+    private String validate(FleetBookingRequestDTO.Item item, User user, Vehicle vehicle, ChargingStation station, LocalDateTime now) {
+        if (vehicle == null) {
+            return "Không tìm thấy xe";
+        }
+        if (vehicle.getUser() == null || !vehicle.getUser().getUserId().equals(user.getUserId())) {
+            return "Xe này không thuộc về bạn";
+        }
+        if (vehicle.getCarModel() == null) {
+            return "Xe này không có thông tin dòng xe";
+        }
+        if (station == null) {
+            return "Không tìm thấy trạm sạc";
+        }
+        if (station.getStatus() != ChargingStation.ChargingStationStatus.ACTIVE) {
+            return "Trạm sạc không hoạt động";
+        }
+        if (!item.getWindowStart().isBefore(item.getWindowEnd())) {
+            return "Thời gian kết thúc khung phải sau thời gian bắt đầu";
+        }
+        if (!item.getWindowEnd().isAfter(now)) {
+            return "Khung thời gian đã qua";
+        }
+        if (effectiveStart(item, now).plusDays(MAX_WINDOW_DAYS).isBefore(item.getWindowEnd())) {
+            return "Khung thời gian tối đa " + MAX_WINDOW_DAYS + " ngày";
+        }
+        if (item.getTargetBattery() <= item.getCurrentBattery()) {
+            return "Pin mong muốn phải lớn hơn pin hiện tại";
+        }
+        return null;
+    }
+
+    /**
+     * Chọn trụ có giờ bắt đầu sớm nhất (hòa thì trụ sạc nhanh hơn) trong khung của item
+     */
+    private Assignment assign(int index, FleetBookingRequestDTO.Item item, Vehicle vehicle, ChargingStation station,
+                              List<ChargingPoint> points, Long userId, Map<Long, List<LocalDateTime[]>> assignedByPoint,
+                              List<LocalDateTime[]> vehicleBusy, LocalDateTime now) {
+        LocalDateTime searchStart = effectiveStart(item, now);
+        List<LocalDateTime[]> windows = StationHoursUtil.openWindows(station, searchStart.toLocalDate(),
+                item.getWindowEnd().toLocalDate(), searchStart);
+
+        Assignment best = null;
+        for (ChargingPoint point : points) {
+            int requiredMinutes = ChargeCurve.of(vehicle.getCarModel(), point.getConnectorType().getPowerOutput())
+                    .minutes(item.getCurrentBattery(), item.getTargetBattery());
+            List<LocalDateTime[]> busy = new ArrayList<>(vehicleBusy);
+            busy.addAll(assignedByPoint.getOrDefault(point.getChargingPointId(), List.of()));
+
+            for (LocalDateTime[] window : windows) {
+                LocalDateTime windowEnd = window[1].isAfter(item.getWindowEnd()) ? item.getWindowEnd() : window[1];
+                if (!window[0].isBefore(windowEnd)) {
+                    continue;
+                }
+                List<ReservationTimelineIndex.FreeGap> gaps = timelineIndex.findFreeGaps(point.getChargingPointId(), window[0], windowEnd);
+                gaps = slotHoldService.excludeHeld(point.getChargingPointId(), userId, gaps);
+                gaps = ReservationTimelineIndex.subtract(gaps, busy);
+                Optional<ReservationTimelineIndex.FreeGap> gap = gaps.stream()
+                        .filter(g -> g.getDurationMinutes() >= requiredMinutes)
+                        .findFirst();
+                if (gap.isPresent()) {
+                    LocalDateTime start = gap.get().getStart();
+                    if (best == null || start.isBefore(best.start)
+                            || (start.equals(best.start) && requiredMinutes < best.requiredMinutes)) {
+                        best = new Assignment(index, point, start, start.plusMinutes(requiredMinutes), requiredMinutes);
+                    }
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static LocalDateTime effectiveStart(FleetBookingRequestDTO.Item item, LocalDateTime now) {
+        return item.getWindowStart().isBefore(now) ? now : item.getWindowStart();
+    }
+
+    private static FleetBookingResponseDTO.ItemResult failed(int index, FleetBookingRequestDTO.Item item, String message) {
+        return FleetBookingResponseDTO.ItemResult.builder()
+                .index(index)
+                .vehicleId(item.getVehicleId())
+                .stationId(item.getStationId())
+                .success(false)
+                .message(message)
+                .build();
+    }
+
+    private static class Assignment {
+        private final int index;
+        private final ChargingPoint point;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int requiredMinutes;
+
+        Assignment(int index, ChargingPoint point, LocalDateTime start, LocalDateTime end, int requiredMinutes) {
+            this.index = index;
+            this.point = point;
+            this.start = start;
+            this.end = end;
+            this.requiredMinutes = requiredMinutes;
+        }
+    }
+}
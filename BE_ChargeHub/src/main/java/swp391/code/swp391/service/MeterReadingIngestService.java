@@ -0,0 +1,202 @@
+package swp391.code.swp391.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.dto.MeterValuesRequestDTO;
+import swp391.code.swp391.entity.MeterReading;
+import swp391.code.swp391.entity.User;
+import swp391.code.swp391.repository.UserRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Nhận giá trị đồng hồ từ trụ sạc (kiểu OCPP MeterValues).
+ *
+ * Chỉ trụ sạc (tài khoản staff của trạm có phiên) hoặc admin được gửi giá trị: giá trị đồng hồ quyết định tiền của phiên.
+ * Ngoài một lần đọc user để kiểm tra quyền, đường nhận chỉ làm việc trong bộ nhớ: kiểm tra phiên trong
+ * ActiveSessionRegistry, bỏ giá trị ngoài [giờ bắt đầu phiên, hiện tại] và giá trị gửi lại / sai thứ tự,
+ * cập nhật năng lượng mới nhất của phiên (dùng cho tiến trình và tính tiền) rồi đưa vào hàng đợi có giới hạn.
+ * Một writer định kỳ lấy từng lô khỏi hàng đợi và ghi thêm vào meter_readings bằng JDBC batch (INSERT IGNORE)
+ * trong một transaction; giá trị đã có trong DB (trụ gửi lại) được bỏ qua thay vì làm hỏng cả lô.
+ * Hàng đợi đầy thì từ chối để trụ gửi lại sau, không để bộ nhớ tăng vô hạn.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MeterReadingIngestService {
+
+    // Trùng khóa (session_id, measured_at) chỉ bỏ qua dòng đó, không làm hỏng cả lô
+    private static final String INSERT_SQL = """
+        INSERT IGNORE INTO meter_readings (session_id, measured_at, energy_kwh, power_kw, soc_percent, received_at)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    private final ActiveSessionRegistry activeSessionRegistry;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.meter.queue-capacity:200000}")
+    private int queueCapacity = 200_000;
+
+    @Value("${app.meter.batch-size:1000}")
+    private int batchSize = 1000;
+
+    // Độ lệch đồng hồ cho phép giữa trụ và server
+    @Value("${app.meter.max-clock-skew-seconds:30}")
+    private long maxClockSkewSeconds = 30;
+
+    private BlockingQueue<MeterReading> queue;
+
+    private Counter accepted;
+    private Counter duplicates;
+    private Counter rejected;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        accepted = Counter.builder("meter.readings").tag("outcome", "accepted")
+                .description("Số giá trị đồng hồ nhận từ trụ").register(meterRegistry);
+        duplicates = Counter.builder("meter.readings").tag("outcome", "duplicate")
+                .description("Số giá trị đồng hồ gửi lại hoặc sai thứ tự bị bỏ qua").register(meterRegistry);
+        rejected = Counter.builder("meter.readings").tag("outcome", "rejected")
+                .description("Số giá trị đồng hồ có thời điểm đo trước khi phiên bắt đầu hoặc ở tương lai").register(meterRegistry);
+        dropped = Counter.builder("meter.readings").tag("outcome", "dropped")
+                .description("Số giá trị đồng hồ không ghi được xuống DB").register(meterRegistry);
+        Gauge.builder("meter.readings.pending", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    /**
+     * Nhận một lô giá trị đồng hồ của phiên do userId (staff của trạm hoặc admin) gửi
+     *
+     * @return số giá trị được nhận (không tính giá trị gửi lại hoặc bị từ chối)
+     */
+    public int ingest(Long sessionId, Long userId, MeterValuesRequestDTO request) {
+        // 1. Phiên phải đang sạc và người gửi phải có quyền trên trạm của phiên
+        ActiveSessionRegistry.ActiveSession session = activeSessionRegistry.find(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session not active"));
+        authorize(session, userId);
+
+        // 2. Đủ chỗ trong hàng đợi cho cả lô (trụ gửi lại cả lô nếu bị từ chối)
+        List<MeterValuesRequestDTO.Sample> samples = request.getSamples();
+        if (queue.remainingCapacity() < samples.size()) {
+            throw new IllegalStateException("Meter reading queue is full, retry later");
+        }
+
+        // 3. Cập nhật giá trị mới nhất và xếp hàng ghi
+        // (giá trị ở tương lai sẽ chặn mọi giá trị thật sau nó nên bị từ chối trước khi so thứ tự)
+        LocalDateTime receivedAt = LocalDateTime.now();
+        LocalDateTime latestAllowed = receivedAt.plusSeconds(maxClockSkewSeconds);
+        int count = 0;
+        for (MeterValuesRequestDTO.Sample sample : samples) {
+            if (sample.getTimestamp().isBefore(session.getStartTime()) || sample.getTimestamp().isAfter(latestAllowed)) {
+                rejected.increment();
+                continue;
+            }
+            if (!session.acceptReading(sample.getTimestamp(), sample.getEnergyKwh())) {
+                duplicates.increment();
+                continue;
+            }
+            MeterReading reading = MeterReading.builder()
+                    .sessionId(sessionId)
+                    .measuredAt(sample.getTimestamp())
+                    .energyKwh(sample.getEnergyKwh())
+                    .powerKw(sample.getPowerKw())
+                    .socPercent(sample.getSocPercent())
+                    .receivedAt(receivedAt)
+                    .build();
+            if (!queue.offer(reading)) {
+                dropped.increment(); // Chỉ xảy ra khi nhiều lô tranh nhau chỗ cuối cùng
+                continue;
+            }
+            count++;
+        }
+        if (count > 0) {
+            activeSessionRegistry.record(session, session.progressAt(receivedAt));
+            accepted.increment(count);
+        }
+        return count;
+    }
+
+    private void authorize(ActiveSessionRegistry.ActiveSession session, Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new AccessDeniedException("User not found"));
+        if (user.getRole() == User.UserRole.ADMIN) {
+            return;
+        }
+        boolean stationStaff = user.getRole() == User.UserRole.STAFF && user.getStation() != null
+                && user.getStation().getStationId().equals(session.getStationId());
+        if (!stationStaff) {
+            throw new AccessDeniedException("Not authorized to report meter values for this session");
+        }
+    }
+
+    /**
+     * Ghi các giá trị đang chờ xuống DB theo lô
+     */
+    @Scheduled(fixedDelayString = "${app.meter.flush-ms:200}")
+    public void drain() {
+        List<MeterReading> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        drain();
+    }
+
+    private void write(List<MeterReading> batch) {
+        try {
+            int[] written = {0};
+            transactionTemplate.executeWithoutResult(status ->
+                    entityManager.unwrap(org.hibernate.Session.class).doWork(connection -> {
+                        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                            for (MeterReading reading : batch) {
+                                statement.setLong(1, reading.getSessionId());
+                                statement.setObject(2, reading.getMeasuredAt());
+                                statement.setDouble(3, reading.getEnergyKwh());
+                                statement.setObject(4, reading.getPowerKw(), Types.DOUBLE);
+                                statement.setObject(5, reading.getSocPercent(), Types.DOUBLE);
+                                statement.setObject(6, reading.getReceivedAt());
+                                statement.addBatch();
+                            }
+                            for (int count : statement.executeBatch()) {
+                                // 0 = dòng đã có (trụ gửi lại sau khi node khởi động lại / chuyển node), bỏ qua
+                                if (count != 0) {
+                                    written[0]++;
+                                }
+                            }
+                        }
+                    }));
+            if (written[0] < batch.size()) {
+                duplicates.increment(batch.size() - written[0]);
+            }
+        } catch (Exception e) {
+            // Giá trị mới nhất vẫn nằm trong registry và được ghi vào session theo chu kỳ flush của registry
+            dropped.increment(batch.size());
+            log.warn("Failed to write {} meter readings: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package swp391.code.swp391.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import swp391.code.swp391.dto.*;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.exception.ApiRequestException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tìm slot sớm nhất ở N trạm gần người dùng.
+ *
+ * Mỗi trạm được tìm song song (mỗi task là một lần gọi findAvailableSlots với transaction riêng),
+ * tất cả dùng chung một deadline. Trạm chưa trả lời kịp được báo là pending thay vì chặn response.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NearbySlotSearchService {
+
+    private static final int DEFAULT_STATION_LIMIT = 5;
+    private static final int DEFAULT_MAX_RESULTS = 20;
+
+    private final OrderService orderService;
+    private final StationGeoIndex stationGeoIndex;
+
+    @Value("${app.booking.nearby-search-threads:16}")
+    private int threads;
+
+    @Value("${app.booking.nearby-search-timeout-ms:1500}")
+    private long timeoutMs;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "nearby-slot-search-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public NearbySlotsResponseDTO findNearbySlots(NearbySlotsRequestDTO request) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        // 1. Chọn N trạm ACTIVE gần nhất
+        int stationLimit = request.getStationLimit() != null ? request.getStationLimit() : DEFAULT_STATION_LIMIT;
+        List<NearbySlotsResponseDTO.StationRef> stations = findNearestStations(
+                request.getLatitude(), request.getLongitude(), stationLimit);
+        if (stations.isEmpty()) {
+            throw new ApiRequestException("Không có trạm sạc nào đang hoạt động");
+        }
+
+        // 2. Gửi yêu cầu tìm slot cho từng trạm song song
+        Map<NearbySlotsResponseDTO.StationRef, Future<AvailableSlotsResponseDTO>> futures = new LinkedHashMap<>();
+        for (NearbySlotsResponseDTO.StationRef station : stations) {
+            OrderRequestDTO stationRequest = OrderRequestDTO.builder()
+                    .userId(request.getUserId())
+                    .vehicleId(request.getVehicleId())
+                    .stationId(station.getStationId())
+                    .currentBattery(request.getCurrentBattery())
+                    .targetBattery(request.getTargetBattery())
+                    .horizonDays(request.getHorizonDays())
+                    .build();
+            futures.put(station, executor.submit(() -> orderService.findAvailableSlots(stationRequest)));
+        }
+
+        // 3. Thu kết quả trong deadline chung
+        List<NearbySlotsResponseDTO.NearbySlot> slots = new ArrayList<>();
+        List<NearbySlotsResponseDTO.StationRef> pending = new ArrayList<>();
+        List<NearbySlotsResponseDTO.StationRef> failed = new ArrayList<>();
+        for (Map.Entry<NearbySlotsResponseDTO.StationRef, Future<AvailableSlotsResponseDTO>> entry : futures.entrySet()) {
+            NearbySlotsResponseDTO.StationRef station = entry.getKey();
+            Future<AvailableSlotsResponseDTO> future = entry.getValue();
+            try {
+                long remaining = deadline - System.nanoTime();
+                AvailableSlotsResponseDTO response = remaining > 0
+                        ? future.get(remaining, TimeUnit.NANOSECONDS)
+                        : future.isDone() ? future.get() : null;
+                if (response == null) {
+                    future.cancel(true);
+                    pending.add(station);
+                } else {
+                    collectSlots(station, response, slots);
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                pending.add(station);
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof ApiRequestException)) {
+                    // ApiRequestException = trạm không có slot phù hợp, không phải lỗi
+                    log.warn("Nearby slot search failed for station {}", station.getStationId(), e.getCause());
+                    failed.add(station);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                pending.add(station);
+            }
+        }
+
+        // 4. Gộp và sắp xếp theo thời gian trống sớm nhất
+        int maxResults = request.getMaxResults() != null ? request.getMaxResults() : DEFAULT_MAX_RESULTS;
+        slots.sort(Comparator.comparing(NearbySlotsResponseDTO.NearbySlot::getFreeFrom)
+                .thenComparing(NearbySlotsResponseDTO.NearbySlot::getDistanceKm)
+                .thenComparing(NearbySlotsResponseDTO.NearbySlot::getEstimatedCost,
+                        Comparator.nullsLast(Comparator.naturalOrder())));
+
+        return NearbySlotsResponseDTO.builder()
+                .slots(slots.size() > maxResults ? new ArrayList<>(slots.subList(0, maxResults)) : slots)
+                .pendingStations(pending)
+                .failedStations(failed)
+                .searchedStations(stations.size())
+                .build();
+    }
+
+    /**
+     * N trạm ACTIVE gần nhất theo index không gian
+     */
+    private List<NearbySlotsResponseDTO.StationRef> findNearestStations(double latitude, double longitude, int limit) {
+        return stationGeoIndex.findNearest(latitude, longitude, limit, ChargingStation.ChargingStationStatus.ACTIVE).stream()
+                .map(station -> NearbySlotsResponseDTO.StationRef.builder()
+                        .stationId(station.getStationId())
+                        .stationName(station.getStationName())
+                        .distanceKm(station.getDistanceKm())
+                        .build())
+                .toList();
+    }
+
+    private void collectSlots(NearbySlotsResponseDTO.StationRef station, AvailableSlotsResponseDTO response,
+                              List<NearbySlotsResponseDTO.NearbySlot> slots) {
+        for (ChargingPointAvailabilityDTO point : response.getChargingPoints()) {
+            for (AvailableTimeSlotDTO slot : point.getAvailableSlots()) {
+                slots.add(NearbySlotsResponseDTO.NearbySlot.builder()
+                        .stationId(station.getStationId())
+                        .stationName(station.getStationName())
+                        .address(response.getAddress())
+                        .distanceKm(station.getDistanceKm())
+                        .chargingPointId(point.getChargingPointId())
+                        .connectorTypeName(point.getConnectorTypeName())
+                        .chargingPower(point.getChargingPower())
+                        .freeFrom(slot.getFreeFrom())
+                        .freeTo(slot.getFreeTo())
+                        .requiredMinutes(slot.getRequiredMinutes())
+                        .estimatedCost(slot.getEstimatedCost())
+                        .build());
+            }
+        }
+    }
+}
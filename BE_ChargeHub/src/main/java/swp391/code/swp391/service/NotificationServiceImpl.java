@@ -71,7 +71,7 @@ public class NotificationServiceImpl implements NotificationService {
 
 //=====================BOOKING NOTIFICATION==========================
     public enum NotificationEvent {
-        BOOKING_SUCCESS, CANCEL_ORDER, SESSION_START, SESSION_COMPLETE
+        BOOKING_SUCCESS, CANCEL_ORDER, SESSION_START, TARGET_REACHED, SESSION_COMPLETE
     }
 
     @Transactional
@@ -112,6 +112,13 @@ public class NotificationServiceImpl implements NotificationService {
                         stationName, order.getOrderId(), LocalDateTime.now()
                 ));
                 break;
+            case TARGET_REACHED:
+                notification.setTitle("Đã đạt mức pin mong muốn");
+                notification.setContent(String.format(
+                        "Xe của bạn tại trạm %s đã sạc tới %.0f%%.\nOrder ID: %d\nVui lòng kết thúc phiên sạc để tránh phí quá giờ.",
+                        stationName, order.getExpectedBattery(), order.getOrderId()
+                ));
+                break;
             case SESSION_COMPLETE:
                 notification.setTitle("Phiên sạc hoàn tất");
                 notification.setContent(String.format(
@@ -0,0 +1,277 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.entity.Order;
+import swp391.code.swp391.entity.PointOccupancy;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.repository.OrderRepository;
+import swp391.code.swp391.repository.PointOccupancyRepository;
+import swp391.code.swp391.util.OccupancyBitmap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Quản lý bitmap chiếm dụng theo phút (bảng point_occupancy).
+ *
+ * Bitmap được cập nhật trong cùng transaction với orders (tryOccupy khi đặt chỗ, lắng nghe
+ * ReservationChangedEvent khi giải phóng), nên mọi node sau load balancer đều đọc được cùng một trạng thái.
+ * Ngày chưa có dòng bitmap (dữ liệu cũ) sẽ được dựng lại từ orders khi cần.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OccupancyService {
+
+    private final PointOccupancyRepository occupancyRepository;
+    private final OrderRepository orderRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Đọc bitmap của các charging points trong [fromDate, toDate] bằng một truy vấn.
+     * Các (point, ngày) chưa có dòng được dựng từ orders (không ghi lại DB).
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<LocalDate, long[]>> loadDays(Collection<Long> chargingPointIds, LocalDate fromDate, LocalDate toDate) {
+        Map<Long, Map<LocalDate, long[]>> result = new HashMap<>();
+        if (chargingPointIds.isEmpty()) {
+            return result;
+        }
+        for (PointOccupancy row : occupancyRepository.findByChargingPointIdInAndOccupancyDateBetween(chargingPointIds, fromDate, toDate)) {
+            result.computeIfAbsent(row.getChargingPointId(), id -> new HashMap<>())
+                    .put(row.getOccupancyDate(), OccupancyBitmap.fromBytes(row.getBitmap()));
+        }
+
+        // Các point còn thiếu ngày -> dựng từ orders bằng một truy vấn
+        Set<Long> missingPoints = new HashSet<>();
+        for (Long pointId : chargingPointIds) {
+            Map<LocalDate, long[]> days = result.computeIfAbsent(pointId, id -> new HashMap<>());
+            for (LocalDate day = fromDate; !day.isAfter(toDate); day = day.plusDays(1)) {
+                if (!days.containsKey(day)) {
+                    missingPoints.add(pointId);
+                    break;
+                }
+            }
+        }
+        if (!missingPoints.isEmpty()) {
+            Map<Long, Map<LocalDate, long[]>> rebuilt = buildFromOrders(missingPoints, fromDate, toDate);
+            for (Long pointId : missingPoints) {
+                Map<LocalDate, long[]> days = result.get(pointId);
+                for (LocalDate day = fromDate; !day.isAfter(toDate); day = day.plusDays(1)) {
+                    days.putIfAbsent(day, rebuilt.get(pointId).get(day));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Khóa (SELECT ... FOR UPDATE) và đọc bitmap của các charging points trong [fromDate, toDate],
+     * theo thứ tự point rồi ngày tăng dần như tryOccupy. Đọc có khóa luôn thấy bản đã commit mới nhất
+     * (không phải snapshot của transaction), dùng khi cần kiểm tra trên nhiều point cùng lúc.
+     * Các dòng còn thiếu được tạo trước trong một transaction riêng.
+     */
+    @Transactional
+    public Map<Long, Map<LocalDate, long[]>> lockDays(Collection<Long> chargingPointIds, LocalDate fromDate, LocalDate toDate) {
+        Map<Long, Map<LocalDate, long[]>> result = new HashMap<>();
+        if (chargingPointIds.isEmpty()) {
+            return result;
+        }
+
+        // 1. Tạo các (point, ngày) chưa có dòng
+        Set<Long> missingPoints = new TreeSet<>(chargingPointIds);
+        long days = fromDate.until(toDate, ChronoUnit.DAYS) + 1;
+        Map<Long, Set<LocalDate>> existing = new HashMap<>();
+        for (Object[] key : occupancyRepository.findExistingDays(chargingPointIds, fromDate, toDate)) {
+            existing.computeIfAbsent((Long) key[0], id -> new HashSet<>()).add((LocalDate) key[1]);
+        }
+        missingPoints.removeIf(pointId -> existing.getOrDefault(pointId, Set.of()).size() == days);
+        if (!missingPoints.isEmpty()) {
+            createDays(missingPoints, fromDate, toDate, existing);
+        }
+
+        // 2. Khóa từng dòng theo thứ tự
+        for (Long pointId : new TreeSet<>(chargingPointIds)) {
+            Map<LocalDate, long[]> bitmaps = result.computeIfAbsent(pointId, id -> new HashMap<>());
+            for (LocalDate day = fromDate; !day.isAfter(toDate); day = day.plusDays(1)) {
+                PointOccupancy row = occupancyRepository.findForUpdate(pointId, day)
+                        .orElseThrow(() -> new IllegalStateException("Không tạo được bitmap cho charging point " + pointId));
+                bitmaps.put(day, OccupancyBitmap.fromBytes(row.getBitmap()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Đồng bộ bitmap trong cùng transaction với thay đổi của order
+     */
+    @EventListener
+    @Transactional
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.getChargingPointId() == null || event.getStartTime() == null || event.getEndTime() == null
+                || !event.getStartTime().isBefore(event.getEndTime())) {
+            return;
+        }
+        // BOOKED đã được ghi bởi tryOccupy khi xác nhận đặt chỗ (kiểm tra và ghi dưới khóa dòng)
+        if (event.getType() == ReservationChangedEvent.Type.RELEASED) {
+            release(event.getChargingPointId(), event.getStartTime(), event.getEndTime());
+        }
+    }
+
+    /**
+     * Kiểm tra và đánh dấu [start, end) trong cùng khóa dòng bitmap (SELECT ... FOR UPDATE).
+     * Đây là chốt chặn ở mức DB chống đặt trùng giữa các node: chỉ khóa các dòng (point, ngày)
+     * liên quan nên không chặn các point khác.
+     *
+     * @return false nếu khoảng đã bị chiếm một phần (không ghi gì)
+     */
+    @Transactional
+    public boolean tryOccupy(Long chargingPointId, LocalDateTime start, LocalDateTime end) {
+        // 1. Khóa các ngày theo thứ tự tăng dần (tránh deadlock) và kiểm tra
+        List<PointOccupancy> rows = new ArrayList<>();
+        List<long[]> bitmaps = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>();
+        boolean[] free = {true};
+        forEachDay(start, end, (day, from, to) -> {
+            PointOccupancy row = lockDay(chargingPointId, day);
+            long[] words = OccupancyBitmap.fromBytes(row.getBitmap());
+            if (!OccupancyBitmap.isFree(words, from, to)) {
+                free[0] = false;
+            }
+            rows.add(row);
+            bitmaps.add(words);
+            ranges.add(new int[]{from, to});
+        });
+        if (!free[0]) {
+            return false;
+        }
+
+        // 2. Ghi
+        for (int i = 0; i < rows.size(); i++) {
+            OccupancyBitmap.set(bitmaps.get(i), ranges.get(i)[0], ranges.get(i)[1]);
+            rows.get(i).setBitmap(OccupancyBitmap.toBytes(bitmaps.get(i)));
+            occupancyRepository.save(rows.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * Giải phóng [start, end) trên point
+     */
+    @Transactional
+    public void release(Long chargingPointId, LocalDateTime start, LocalDateTime end) {
+        forEachDay(start, end, (day, from, to) -> {
+            PointOccupancy row = lockDay(chargingPointId, day);
+            long[] words = OccupancyBitmap.fromBytes(row.getBitmap());
+            OccupancyBitmap.clear(words, from, to);
+            row.setBitmap(OccupancyBitmap.toBytes(words));
+            occupancyRepository.save(row);
+        });
+    }
+
+    /**
+     * Khóa dòng bitmap của (point, ngày), tạo và backfill từ orders nếu chưa có.
+     *
+     * Chỉ SELECT ... FOR UPDATE trên dòng đã tồn tại (khóa bản ghi, không khóa khoảng): INSERT IGNORE trùng khóa
+     * lấy khóa chia sẻ rồi nâng lên khóa ghi, và khóa FOR UPDATE trên dòng chưa có là khóa khoảng chặn INSERT
+     * của transaction khác - cả hai đều gây deadlock khi hai transaction cùng khóa một (point, ngày).
+     */
+    private PointOccupancy lockDay(Long chargingPointId, LocalDate day) {
+        if (!occupancyRepository.existsByChargingPointIdAndOccupancyDate(chargingPointId, day)) {
+            createDay(chargingPointId, day);
+        }
+        return occupancyRepository.findForUpdate(chargingPointId, day)
+                .orElseThrow(() -> new IllegalStateException("Không tạo được bitmap cho charging point " + chargingPointId));
+    }
+
+    /**
+     * Tạo dòng bitmap dựng từ orders trong transaction riêng (commit ngay, không giữ khóa của transaction gọi).
+     * Node khác tạo trước thì INSERT IGNORE bỏ qua và dòng của node đó được dùng.
+     */
+    private void createDay(Long chargingPointId, LocalDate day) {
+        createDays(List.of(chargingPointId), day, day, Map.of());
+    }
+
+    /**
+     * Tạo trong một transaction riêng các dòng (point, ngày) chưa có trong existing, dựng từ orders bằng một truy vấn
+     */
+    private void createDays(Collection<Long> chargingPointIds, LocalDate fromDate, LocalDate toDate,
+                            Map<Long, Set<LocalDate>> existing) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.executeWithoutResult(status -> {
+            Map<Long, Map<LocalDate, long[]>> rebuilt = buildFromOrders(chargingPointIds, fromDate, toDate);
+            for (Long pointId : chargingPointIds) {
+                Set<LocalDate> present = existing.getOrDefault(pointId, Set.of());
+                for (LocalDate day = fromDate; !day.isAfter(toDate); day = day.plusDays(1)) {
+                    if (!present.contains(day) && occupancyRepository.insertIfAbsent(pointId, day,
+                            OccupancyBitmap.toBytes(rebuilt.get(pointId).get(day))) > 0) {
+                        log.debug("Backfilled occupancy bitmap for charging point {} on {}", pointId, day);
+                    }
+                }
+            }
+        });
+    }
+
+    private Map<Long, Map<LocalDate, long[]>> buildFromOrders(Collection<Long> chargingPointIds, LocalDate fromDate, LocalDate toDate) {
+        Map<Long, Map<LocalDate, long[]>> result = new HashMap<>();
+        for (Long pointId : chargingPointIds) {
+            Map<LocalDate, long[]> days = new HashMap<>();
+            for (LocalDate day = fromDate; !day.isAfter(toDate); day = day.plusDays(1)) {
+                days.put(day, OccupancyBitmap.empty());
+            }
+            result.put(pointId, days);
+        }
+
+        LocalDateTime rangeStart = fromDate.atStartOfDay();
+        LocalDateTime rangeEnd = toDate.plusDays(1).atStartOfDay();
+        List<Order> orders = orderRepository.findOccupyingOrdersByChargingPoints(chargingPointIds, rangeStart, rangeEnd);
+        for (Order order : orders) {
+            Map<LocalDate, long[]> days = result.get(order.getChargingPoint().getChargingPointId());
+            LocalDateTime start = order.getStartTime().isBefore(rangeStart) ? rangeStart : order.getStartTime();
+            LocalDateTime end = order.getEndTime().isAfter(rangeEnd) ? rangeEnd : order.getEndTime();
+            forEachDay(start, end, (day, from, to) -> OccupancyBitmap.set(days.get(day), from, to));
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface DaySlice {
+        void accept(LocalDate day, int fromMinute, int toMinute);
+    }
+
+    /**
+     * Chia [start, end) thành các đoạn theo từng ngày (phút trong ngày)
+     */
+    private static void forEachDay(LocalDateTime start, LocalDateTime end, DaySlice slice) {
+        LocalDate day = start.toLocalDate();
+        while (day.atStartOfDay().isBefore(end)) {
+            LocalDateTime dayStart = day.atStartOfDay();
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            int from = start.isAfter(dayStart) ? minuteOfDay(start.toLocalTime()) : 0;
+            int to = end.isBefore(dayEnd) ? ceilMinuteOfDay(end.toLocalTime()) : OccupancyBitmap.MINUTES_PER_DAY;
+            if (from < to) {
+                slice.accept(day, from, to);
+            }
+            day = day.plusDays(1);
+        }
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static int ceilMinuteOfDay(LocalTime time) {
+        return minuteOfDay(time) + (time.getSecond() > 0 || time.getNano() > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,141 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.event.ChargingPointChangedEvent;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.repository.ChargingPointRepository;
+import swp391.code.swp391.repository.FeeRepository;
+import swp391.code.swp391.repository.NotificationRepository;
+import swp391.code.swp391.repository.OrderRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * Quét định kỳ vòng đời đơn đặt chỗ:
+ * - Đơn BOOKED quá startTime + thời gian cho phép mà chưa bắt đầu bị hủy (no-show), kèm phí NO_SHOW và thông báo phạt.
+ * - Point có người sắp đến (trong reserveBeforeMinutes) chuyển sang RESERVED, hết người sắp đến thì trả về AVAILABLE.
+ *
+ * Mọi thay đổi là câu UPDATE / INSERT ... SELECT theo từng lô, không nạp entity từng đơn.
+ * Mỗi lô được "nhận" bằng một mã lượt quét (sweep_token) trong cùng câu UPDATE có điều kiện status = 'BOOKED',
+ * nên nhiều node chạy song song không hủy / phạt trùng một đơn; chuyển trạng thái point cũng có điều kiện nên chạy lặp vô hại.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderLifecycleService {
+
+    static final String NO_SHOW_REASON = "Không đến trong thời gian cho phép";
+
+    private final OrderRepository orderRepository;
+    private final FeeRepository feeRepository;
+    private final NotificationRepository notificationRepository;
+    private final ChargingPointRepository chargingPointRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.booking.lifecycle.chunk-size:500}")
+    private int chunkSize;
+
+    // Thời gian cho phép bắt đầu sau startTime (giống SessionServiceImpl.isValidTime)
+    @Value("${app.booking.no-show-grace-minutes:15}")
+    private int graceMinutes;
+
+    @Value("${app.booking.lifecycle.reserve-before-minutes:15}")
+    private int reserveBeforeMinutes;
+
+    @Scheduled(fixedDelayString = "${app.booking.lifecycle.sweep-ms:60000}")
+    public void sweep() {
+        try {
+            int expired = expireNoShows(LocalDateTime.now());
+            int flipped = syncReservedPoints(LocalDateTime.now());
+            if (expired > 0 || flipped > 0) {
+                log.info("Lifecycle sweep: {} no-show orders expired, {} charging points updated", expired, flipped);
+            }
+        } catch (Exception e) {
+            log.warn("Order lifecycle sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hủy các đơn no-show theo lô cho tới khi một lô trả về ít hơn chunkSize
+     *
+     * @return tổng số đơn đã hủy
+     */
+    public int expireNoShows(LocalDateTime now) {
+        LocalDateTime cutoff = now.minusMinutes(graceMinutes);
+        int total = 0;
+        int claimed;
+        do {
+            String token = UUID.randomUUID().toString();
+            Integer count = transactionTemplate.execute(status -> {
+                // 1. Nhận và hủy một lô đơn quá hạn
+                int rows = orderRepository.claimNoShows(token, cutoff, now, NO_SHOW_REASON, chunkSize);
+                if (rows == 0) {
+                    return 0;
+                }
+                // 2. Phí NO_SHOW và thông báo phạt cho cả lô
+                feeRepository.insertNoShowFees(token, FeeCalculationServiceImpl.NO_SHOW_RATE, now);
+                notificationRepository.insertNoShowNotifications(token, now);
+
+                // 3. Giải phóng khung giờ (đơn đặt chồng không sở hữu khung giờ nên bỏ qua)
+                for (OrderRepository.SweptOrderView order : orderRepository.findSweptOrders(token)) {
+                    if (!Boolean.TRUE.equals(order.getOverbooked())) {
+                        eventPublisher.publishEvent(new ReservationChangedEvent(ReservationChangedEvent.Type.RELEASED,
+                                order.getOrderId(), order.getChargingPointId(), order.getStationId(),
+                                order.getStartTime(), order.getEndTime()));
+                    }
+                }
+                return rows;
+            });
+            claimed = count != null ? count : 0;
+            total += claimed;
+        } while (claimed >= chunkSize);
+        return total;
+    }
+
+    /**
+     * Đồng bộ trạng thái RESERVED của point với các đơn sắp bắt đầu
+     *
+     * @return số point đã đổi trạng thái
+     */
+    public int syncReservedPoints(LocalDateTime now) {
+        LocalDateTime graceCutoff = now.minusMinutes(graceMinutes);
+        LocalDateTime horizon = now.plusMinutes(reserveBeforeMinutes);
+
+        int changed = transition(chargingPointRepository.findPointsToReserve(graceCutoff, horizon),
+                chargingPointRepository::reserveForBookings);
+        changed += transition(chargingPointRepository.findPointsToRelease(graceCutoff, horizon),
+                chargingPointRepository::releaseBookingReservations);
+        return changed;
+    }
+
+    private int transition(List<Object[]> rows, ToIntFunction<List<Long>> update) {
+        int changed = 0;
+        for (int i = 0; i < rows.size(); i += chunkSize) {
+            List<Object[]> chunk = rows.subList(i, Math.min(rows.size(), i + chunkSize));
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Object[] row : chunk) {
+                ids.add((Long) row[0]);
+            }
+            Integer count = transactionTemplate.execute(status -> {
+                int updated = update.applyAsInt(ids);
+                for (Object[] row : chunk) {
+                    eventPublisher.publishEvent(new ChargingPointChangedEvent((Long) row[0], (Long) row[1]));
+                }
+                return updated;
+            });
+            changed += count != null ? count : 0;
+        }
+        return changed;
+    }
+}
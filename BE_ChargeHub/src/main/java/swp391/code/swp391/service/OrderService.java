@@ -23,6 +23,11 @@ public interface OrderService {
      */
     List<OrderResponseDTO> getUserOrders(Long userId, Order.Status status);
 
+    /**
+     * Lấy đơn sạc của người dùng theo trang (con trỏ từ trang trước, null = trang đầu).
+     */
+    OrderPageDTO getUserOrderPage(Long userId, Order.Status status, String cursor, Integer size);
+
     /**
      * Hủy đơn đặt chỗ.
      *
@@ -1,20 +1,37 @@
 package swp391.code.swp391.service;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import swp391.code.swp391.dto.*;
 import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.HoldConsumedEvent;
+import swp391.code.swp391.event.ReservationChangedEvent;
 import swp391.code.swp391.exception.ApiRequestException;
 import swp391.code.swp391.repository.*;
+import swp391.code.swp391.util.ChargeCurve;
+import swp391.code.swp391.util.ChargingTimeUtil;
+import swp391.code.swp391.util.GapKernel;
+import swp391.code.swp391.util.StationHoursUtil;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -25,12 +42,85 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ChargingPointRepository chargingPointRepository;
+    private final ReservationTimelineIndex timelineIndex;
+    private final SlotHoldService slotHoldService;
+    private final OccupancyService occupancyService;
+    private final PointLockRegistry pointLockRegistry;
+    private final SlotRankingService slotRankingService;
+    private final AvailabilityCache availabilityCache;
+    private final StationPowerBudgetService powerBudgetService;
+    private final OverbookingService overbookingService;
+    private final SlotPlacementService slotPlacementService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_FEED_HOURS = 24;
+    private static final int MAX_FEED_HOURS = 7 * 24;
+
+    private static final int DEFAULT_HORIZON_DAYS = 1;
+    private static final int DEFAULT_TOP_K = 5;
+
+    // Số point được seed timeline mỗi lần khi stream kết quả
+    private static final int STREAM_PRELOAD_CHUNK = 32;
 
-    private static final LocalTime OPENING_TIME = LocalTime.of(0, 0);
-    private static final LocalTime CLOSING_TIME = LocalTime.of(23, 30);
+    /**
+     * Dữ liệu của một lần tìm slot sau khi đã kiểm tra xe, trạm và connector
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SlotSearch {
+        private final Vehicle vehicle;
+        private final ChargingStation station;
+        private final List<ChargingPoint> compatiblePoints;
+        private final double currentBattery;
+        private final double targetBattery;
+        private final double batteryToCharge;
+        private final double energyToCharge;
+        private final int horizonDays;
+        private final int topK;
+        private final List<LocalDateTime[]> openWindows;
+        private final SlotRankingService.PricingContext pricing;
+        private final AvailabilityCache.Lookup cache;
+        private final OrderRequestDTO.PlacementPolicy placementPolicy;
+        // connectorTypeId -> số phút sạc theo đường cong của xe
+        private final Map<Long, Integer> minutesByConnector = new HashMap<>();
+
+        /**
+         * Thời gian sạc từ currentBattery lên targetBattery trên point (tra bảng ChargeCurve, nhớ theo connector)
+         */
+        public int requiredMinutes(ChargingPoint point) {
+            ConnectorType connector = point.getConnectorType();
+            return minutesByConnector.computeIfAbsent(connector.getConnectorTypeId(), id ->
+                    ChargeCurve.of(vehicle.getCarModel(), connector.getPowerOutput()).minutes(currentBattery, targetBattery));
+        }
+    }
 
     @Transactional(readOnly = true)
     public AvailableSlotsResponseDTO findAvailableSlots(OrderRequestDTO request) {
+        SlotSearch search = prepareSlotSearch(request);
+
+        // 7. Tìm gaps đủ thời gian cho từng charging point
+        // (seed timeline cho tất cả points bằng một truy vấn range, không cần khi cache đã có kết quả)
+        List<ChargingPointAvailabilityDTO> chargingPointsAvailability = new ArrayList<>();
+        List<RankedSlotDTO> recommended = collectAvailableSlots(search, request.getUserId(),
+                search.getCompatiblePoints().size(), chargingPointsAvailability::add);
+        if (chargingPointsAvailability.isEmpty()) {
+            throw new ApiRequestException(noGapMessage(search.getHorizonDays()));
+        }
+
+        // 8. Build response
+        AvailableSlotsResponseDTO response = buildSlotsHeader(search, request);
+        response.setChargingPoints(chargingPointsAvailability);
+        response.setRecommendedSlots(recommended);
+        return response;
+    }
+
+    /**
+     * Kiểm tra yêu cầu tìm slot và chuẩn bị dữ liệu dùng chung (bước 1-6), chưa tính khoảng trống
+     */
+    @Transactional(readOnly = true)
+    public SlotSearch prepareSlotSearch(OrderRequestDTO request) {
 
         // 1. Lấy thông tin xe
         Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
@@ -54,7 +144,7 @@ public class OrderServiceImpl implements OrderService {
 
         // 5. Lấy tất cả charging points của trạm có connector tương thích
         List<ChargingPoint> compatiblePoints = station.getChargingPoint().stream()
-                .filter(point -> point.getStatus() == ChargingPoint.ChargingPointStatus.AVAILABLE)
+                .filter(ChargingPoint::isBookable)
                 .filter(point -> compatibleConnectors.contains(point.getConnectorType()))
                 .toList();
 
@@ -63,64 +153,151 @@ public class OrderServiceImpl implements OrderService {
         }
 
 
-        // 6. Tìm gaps đủ thời gian cho từng charging point
-        List<ChargingPointAvailabilityDTO> chargingPointsAvailability = new ArrayList<>();
-        for (ChargingPoint point : compatiblePoints) {
-            int requiredMinutes = calculateChargingDuration(energyToCharge, point.getConnectorType().getPowerOutput());
-            ChargingPointAvailabilityDTO availability = findAvailableGap(point, requiredMinutes, energyToCharge);
-            if (!availability.getAvailableSlots().isEmpty()) {
-                chargingPointsAvailability.add(availability);
-            }
-        }
+        // 6. Tính các khung giờ mở cửa trong horizon
+        int horizonDays = request.getHorizonDays() != null ? request.getHorizonDays() : DEFAULT_HORIZON_DAYS;
+        LocalDate today = LocalDate.now();
+        List<LocalDateTime[]> openWindows = StationHoursUtil.openWindows(
+                station, today, today.plusDays(horizonDays - 1), LocalDateTime.now());
 
-        if (chargingPointsAvailability.isEmpty()) {
-            throw new ApiRequestException("Không tìm thấy khoảng thời gian trống đủ để sạc trong ngày hôm nay");
-        }
+        // Hệ số giá của trạm và gói đăng ký của user: tải một lần cho mọi slot
+        SlotRankingService.PricingContext pricing = slotRankingService.pricingFor(station.getStationId(), request.getUserId());
+
+        // Khoảng trống đã tính cho cùng trạm/connector/bucket/ngày (nếu có)
+        AvailabilityCache.Lookup cache = availabilityCache.lookup(station.getStationId(),
+                compatibleConnectors.stream().map(ConnectorType::getConnectorTypeId).toList(),
+                energyToCharge, today, horizonDays);
 
-        // 7. Build response
+        return new SlotSearch(vehicle, station, compatiblePoints, request.getCurrentBattery(), request.getTargetBattery(),
+                batteryToCharge, energyToCharge, horizonDays,
+                request.getTopK() != null ? request.getTopK() : DEFAULT_TOP_K, openWindows, pricing, cache,
+                request.getPlacementPolicy());
+    }
+
+    /**
+     * Phần đầu của response (trạm, xe, thông tin sạc), chưa có danh sách charging points
+     */
+    public AvailableSlotsResponseDTO buildSlotsHeader(SlotSearch search, OrderRequestDTO request) {
+        ChargingStation station = search.getStation();
         return AvailableSlotsResponseDTO.builder()
                 .stationId(station.getStationId())
                 .stationName(station.getStationName())
                 .address(station.getAddress())
                 .latitude(station.getLatitude())
                 .longitude(station.getLongitude())
-                .vehicleInfo(buildVehicleInfo(vehicle))
+                .vehicleInfo(buildVehicleInfo(search.getVehicle()))
                 .chargingInfo(AvailableSlotsResponseDTO.ChargingInfo.builder()
                         .currentBattery(request.getCurrentBattery())
                         .targetBattery(request.getTargetBattery())
-                        .batteryToCharge(batteryToCharge)
-                        .energyToCharge(energyToCharge)
+                        .batteryToCharge(search.getBatteryToCharge())
+                        .energyToCharge(search.getEnergyToCharge())
                         .build())
-                .chargingPoints(chargingPointsAvailability)
                 .build();
     }
 
-    private int calculateChargingDuration(double energyToChargeKwh, double chargingPowerKw) {
-        double theoreticalHours = energyToChargeKwh / chargingPowerKw;
-        double adjustedHours = theoreticalHours * 1.15;
-        return (int) Math.ceil(adjustedHours * 60);
+    /**
+     * Tính khoảng trống từng point và đẩy ngay cho sink, không giữ lại danh sách points.
+     * Timeline được seed theo từng nhóm nhỏ để kết quả đầu tiên không phải chờ seed cả trạm;
+     * chỉ top-K đề xuất được giữ trong bộ nhớ.
+     *
+     * @return các slot đề xuất (rỗng nếu không point nào có khoảng trống đủ và không đặt chồng được)
+     */
+    public List<RankedSlotDTO> streamAvailableSlots(SlotSearch search, Long userId,
+                                                    Consumer<ChargingPointAvailabilityDTO> sink) {
+        return collectAvailableSlots(search, userId, STREAM_PRELOAD_CHUNK, sink);
     }
 
-    private ChargingPointAvailabilityDTO findAvailableGap(ChargingPoint point, int requiredMinutes, double energyToCharge) {
-        LocalDate today = LocalDate.now();
-        LocalDateTime dayStart = LocalDateTime.of(today, OPENING_TIME);
-        LocalDateTime dayEnd = LocalDateTime.of(today, CLOSING_TIME);
+    /**
+     * Đường tính slot dùng chung cho API thường và API stream: seed timeline theo nhóm preloadChunk points,
+     * đẩy từng point có khoảng trống cho sink và giữ top-K đề xuất.
+     * Không point nào còn khoảng trống thì đề xuất đặt chồng lên các đơn có khả năng không đến (nếu trạm cho phép).
+     */
+    private List<RankedSlotDTO> collectAvailableSlots(SlotSearch search, Long userId, int preloadChunk,
+                                                      Consumer<ChargingPointAvailabilityDTO> sink) {
+        SlotRankingService.TopK topK = slotRankingService.newTopK(search.getPricing(), search.getEnergyToCharge(),
+                search.getTopK(), slotPlacementService.rankingOrder(search.getPlacementPolicy()));
+        List<ChargingPoint> points = search.getCompatiblePoints();
+        boolean found = false;
+        for (int from = 0; from < points.size(); from += preloadChunk) {
+            List<ChargingPoint> chunk = points.subList(from, Math.min(from + preloadChunk, points.size()));
+            if (!search.getCache().isHit()) {
+                preloadTimelines(search, chunk);
+            }
+            for (ChargingPoint point : chunk) {
+                ChargingPointAvailabilityDTO availability = findAvailableGap(point, userId, search);
+                if (!availability.getAvailableSlots().isEmpty()) {
+                    found = true;
+                    topK.add(availability);
+                    sink.accept(availability);
+                }
+            }
+        }
+        availabilityCache.store(search.getCache());
 
-        List<Order> existingOrders = orderRepository.findActiveOrdersByChargingPoint(point.getChargingPointId(), LocalDateTime.now());
-        existingOrders.sort((o1, o2) -> o1.getStartTime().compareTo(o2.getStartTime()));
+        if (!found) {
+            for (ChargingPointAvailabilityDTO availability : findOverbookableSlots(search)) {
+                topK.add(availability);
+                sink.accept(availability);
+            }
+        }
+        return topK.result();
+    }
 
-        List<TimeGap> allGaps = findAllGaps(existingOrders, dayStart, dayEnd);
+    public String noGapMessage(int horizonDays) {
+        return horizonDays > 1
+                ? "Không tìm thấy khoảng thời gian trống đủ để sạc trong " + horizonDays + " ngày tới"
+                : "Không tìm thấy khoảng thời gian trống đủ để sạc trong ngày hôm nay";
+    }
 
-        List<AvailableTimeSlotDTO> sufficientGaps = allGaps.stream()
-                .filter(gap -> gap.durationMinutes >= requiredMinutes)
-                .map(gap -> createAvailableSlot(point, gap, requiredMinutes, energyToCharge))
-                .collect(Collectors.toList());
+    private void preloadTimelines(SlotSearch search, List<ChargingPoint> points) {
+        List<LocalDateTime[]> openWindows = search.getOpenWindows();
+        if (!openWindows.isEmpty()) {
+            timelineIndex.preload(
+                    points.stream().map(ChargingPoint::getChargingPointId).toList(),
+                    LocalDate.now(),
+                    openWindows.get(openWindows.size() - 1)[1].toLocalDate());
+        }
+    }
 
-        int totalAvailableMinutes = sufficientGaps.stream().mapToInt(AvailableTimeSlotDTO::getAvailableMinutes).sum();
+    private int calculateChargingDuration(double energyToChargeKwh, double chargingPowerKw) {
+        return ChargingTimeUtil.estimateMinutes(energyToChargeKwh, chargingPowerKw);
+    }
+
+    private ChargingPointAvailabilityDTO findAvailableGap(ChargingPoint point, Long userId, SlotSearch search) {
+        int requiredMinutes = search.requiredMinutes(point);
+        double energyToCharge = search.getEnergyToCharge();
+        SlotRankingService.PricingContext pricing = search.getPricing();
+        // Khoảng trống được tính từ timeline trong bộ nhớ trên mảng phút primitive (không tạo object trung gian),
+        // chỉ các khoảng đủ thời gian sạc mới được chuyển thành DTO
+        GapKernel.Workspace workspace = GapKernel.workspace();
+        AvailabilityCache.Lookup cache = search.getCache();
+        long now = ReservationTimelineIndex.toEpochMinute(LocalDateTime.now());
+        if (!cache.copyGaps(point.getChargingPointId(), now, requiredMinutes, workspace.free)) {
+            // Cache lưu các khoảng đủ dài cho năng lượng nhỏ nhất của bucket, lọc lại theo requiredMinutes bên dưới
+            // (ước tính công suất không đổi là cận dưới của đường cong nên không bỏ sót khoảng nào)
+            int bucketMinutes = calculateChargingDuration(cache.getBucketEnergy(), point.getConnectorType().getPowerOutput());
+            for (LocalDateTime[] window : search.getOpenWindows()) {
+                timelineIndex.collectFreeGaps(point.getChargingPointId(), window[0], window[1], bucketMinutes, workspace.free);
+            }
+            cache.record(point.getChargingPointId(), workspace.free);
+        }
+        // Ẩn các khoảng đang được người khác giữ chỗ và lọc theo thời gian sạc thật
+        slotHoldService.collectHeld(point.getChargingPointId(), userId, workspace.busy);
+        GapKernel.subtract(workspace.free, workspace.busy, requiredMinutes, workspace.result);
+        GapKernel.Buffer gaps = workspace.result;
+
+        List<AvailableTimeSlotDTO> sufficientGaps = new ArrayList<>(gaps.size());
+        int totalAvailableMinutes = 0;
+        for (int i = 0; i < gaps.size(); i++) {
+            int availableMinutes = (int) (gaps.end(i) - gaps.start(i));
+            sufficientGaps.add(createAvailableSlot(point, ReservationTimelineIndex.fromEpochMinute(gaps.start(i)),
+                    ReservationTimelineIndex.fromEpochMinute(gaps.end(i)), availableMinutes, requiredMinutes,
+                    energyToCharge, pricing));
+            totalAvailableMinutes += availableMinutes;
+        }
 
         ConnectorType connector = point.getConnectorType();
 
-        return ChargingPointAvailabilityDTO.builder()
+        ChargingPointAvailabilityDTO availability = ChargingPointAvailabilityDTO.builder()
                 .chargingPointId(point.getChargingPointId())
                 .connectorTypeName(connector.getTypeName())
                 .chargingPower(connector.getPowerOutput())
@@ -129,51 +306,75 @@ public class OrderServiceImpl implements OrderService {
                 .availableSlots(sufficientGaps)
                 .totalAvailableMinutes(totalAvailableMinutes)
                 .build();
+        // Đề xuất giờ bắt đầu sát một đầu khoảng trống để giảm phân mảnh
+        if (search.getPlacementPolicy() != null) {
+            slotPlacementService.applyPlacement(availability, search.getPlacementPolicy(), pricing, energyToCharge);
+        }
+        return availability;
     }
 
-    private List<TimeGap> findAllGaps(List<Order> existingOrders, LocalDateTime dayStart, LocalDateTime dayEnd) {
-        List<TimeGap> gaps = new ArrayList<>();
-        LocalDateTime currentTime = LocalDateTime.now();
-        LocalDateTime searchStart = currentTime.isBefore(dayStart) ? dayStart : currentTime;
-
-        if (searchStart.toLocalTime().isAfter(CLOSING_TIME) || searchStart.toLocalTime().equals(CLOSING_TIME)) {
-            return gaps;
+    /**
+     * Slot đặt chồng: từ hết thời gian cho phép bắt đầu của đơn gốc tới khi đơn gốc kết thúc
+     */
+    private List<ChargingPointAvailabilityDTO> findOverbookableSlots(SlotSearch search) {
+        List<LocalDateTime[]> openWindows = search.getOpenWindows();
+        if (openWindows.isEmpty()) {
+            return List.of();
         }
-
-        if (existingOrders.isEmpty()) {
-            gaps.add(new TimeGap(searchStart, dayEnd, (int) Duration.between(searchStart, dayEnd).toMinutes()));
-        } else {
-            Order firstOrder = existingOrders.get(0);
-            if (searchStart.isBefore(firstOrder.getStartTime())) {
-                gaps.add(new TimeGap(searchStart, firstOrder.getStartTime(), (int) Duration.between(searchStart, firstOrder.getStartTime()).toMinutes()));
-            }
-            for (int i = 0; i < existingOrders.size() - 1; i++) {
-                LocalDateTime gapStart = existingOrders.get(i).getEndTime();
-                LocalDateTime gapEnd = existingOrders.get(i + 1).getStartTime();
-                if (gapStart.isBefore(gapEnd)) {
-                    gaps.add(new TimeGap(gapStart, gapEnd, (int) Duration.between(gapStart, gapEnd).toMinutes()));
-                }
+        Map<Long, ChargingPoint> points = search.getCompatiblePoints().stream()
+                .collect(Collectors.toMap(ChargingPoint::getChargingPointId, point -> point));
+        Map<Long, List<AvailableTimeSlotDTO>> slotsByPoint = new LinkedHashMap<>();
+        for (Order original : overbookingService.findOverbookableOrders(search.getStation(), points.keySet(),
+                openWindows.get(0)[0], openWindows.get(openWindows.size() - 1)[1])) {
+            ChargingPoint point = points.get(original.getChargingPoint().getChargingPointId());
+            int requiredMinutes = search.requiredMinutes(point);
+            LocalDateTime freeFrom = original.getStartTime().plusMinutes(overbookingService.getGraceMinutes());
+            int availableMinutes = (int) ChronoUnit.MINUTES.between(freeFrom, original.getEndTime());
+            if (availableMinutes < requiredMinutes) {
+                continue;
             }
-            Order lastOrder = existingOrders.get(existingOrders.size() - 1);
-            if (lastOrder.getEndTime().isBefore(dayEnd)) {
-                gaps.add(new TimeGap(lastOrder.getEndTime(), dayEnd, (int) Duration.between(lastOrder.getEndTime(), dayEnd).toMinutes()));
+            AvailableTimeSlotDTO slot = createAvailableSlot(point, freeFrom, original.getEndTime(), availableMinutes,
+                    requiredMinutes, search.getEnergyToCharge(), search.getPricing());
+            slot.setOverbooked(true);
+            slotsByPoint.computeIfAbsent(point.getChargingPointId(), id -> new ArrayList<>()).add(slot);
+        }
+
+        List<ChargingPointAvailabilityDTO> result = new ArrayList<>();
+        for (Map.Entry<Long, List<AvailableTimeSlotDTO>> entry : slotsByPoint.entrySet()) {
+            ConnectorType connector = points.get(entry.getKey()).getConnectorType();
+            ChargingPointAvailabilityDTO availability = ChargingPointAvailabilityDTO.builder()
+                    .chargingPointId(entry.getKey())
+                    .connectorTypeName(connector.getTypeName())
+                    .chargingPower(connector.getPowerOutput())
+                    .pricePerKwh(connector.getPricePerKWh())
+                    .requiredMinutes(entry.getValue().get(0).getRequiredMinutes())
+                    .availableSlots(entry.getValue())
+                    .totalAvailableMinutes(entry.getValue().stream().mapToInt(AvailableTimeSlotDTO::getAvailableMinutes).sum())
+                    .build();
+            if (search.getPlacementPolicy() != null) {
+                slotPlacementService.applyPlacement(availability, search.getPlacementPolicy(),
+                        search.getPricing(), search.getEnergyToCharge());
             }
+            result.add(availability);
         }
-        return gaps;
+        return result;
     }
 
-    private AvailableTimeSlotDTO createAvailableSlot(ChargingPoint point, TimeGap gap, int requiredMinutes, double energyToCharge) {
+    private AvailableTimeSlotDTO createAvailableSlot(ChargingPoint point, LocalDateTime freeFrom, LocalDateTime freeTo,
+                                                     int availableMinutes, int requiredMinutes,
+                                                     double energyToCharge, SlotRankingService.PricingContext pricing) {
         ConnectorType connector = point.getConnectorType();
-        double estimatedCost = energyToCharge * connector.getPricePerKWh();
+        // Chi phí nếu bắt đầu ngay đầu khoảng trống (đã tính hệ số khung giờ và giảm giá gói)
+        double estimatedCost = pricing.effectiveCost(energyToCharge, connector.getPricePerKWh(), freeFrom);
 
         return AvailableTimeSlotDTO.builder()
                 //.chargingPointId(point.getChargingPointId())
                 //.connectorTypeName(connector.getTypeName())
                 //.chargingPower(connector.getPowerOutput())
                 //.pricePerKwh(connector.getPricePerKWh())
-                .freeFrom(gap.start)
-                .freeTo(gap.end)
-                .availableMinutes(gap.durationMinutes)
+                .freeFrom(freeFrom)
+                .freeTo(freeTo)
+                .availableMinutes(availableMinutes)
                 .requiredMinutes(requiredMinutes)
                 .estimatedCost(estimatedCost)
                 .build();
@@ -201,18 +402,58 @@ public class OrderServiceImpl implements OrderService {
             throw new ApiRequestException("Điểm sạc không thuộc về trạm này");
         }
 
-        if (chargingPoint.getStatus() != ChargingPoint.ChargingPointStatus.AVAILABLE) {
+        if (!chargingPoint.isBookable()) {
             throw new ApiRequestException("Điểm sạc không khả dụng");
         }
 
-        if (!isChargingPointAvailable(chargingPoint, request.getStartTime(), request.getEndTime())) {
+        if (!StationHoursUtil.isWithinOpeningHours(station, request.getStartTime(), request.getEndTime())) {
+            throw new ApiRequestException("Khung giờ này nằm ngoài giờ mở cửa của trạm");
+        }
+
+        if (!request.getStartTime().isBefore(request.getEndTime())) {
+            throw new ApiRequestException("Thời gian kết thúc phải sau thời gian bắt đầu");
+        }
+
+        // Loại sớm theo timeline trong bộ nhớ, không cần khóa (trạm nhận đặt chồng thì khung giờ đã đặt vẫn được xét tiếp)
+        if (!overbookingService.mayOverbook(station)
+                && !timelineIndex.isFree(chargingPoint.getChargingPointId(), request.getStartTime(), request.getEndTime())) {
             throw new ApiRequestException("Khung giờ này đã có người đặt");
         }
 
+        // Khóa point trong tiến trình tới khi transaction kết thúc (các point khác không bị chặn).
+        // Trạm có giới hạn công suất: khóa mọi point của trạm rồi kiểm tra tải đỉnh trong khung giờ
+        if (powerBudgetService.isLimited(station)) {
+            pointLockRegistry.lockAllUntilCompletion(
+                    powerBudgetService.lockScope(List.of(chargingPoint.getChargingPointId()), List.of(station)));
+            powerBudgetService.checkAdmission(station, chargingPoint, request.getStartTime(), request.getEndTime());
+        } else {
+            pointLockRegistry.lockUntilCompletion(chargingPoint.getChargingPointId());
+        }
+
         if (orderRepository.hasUserOrderInTimeRange(user.getUserId(), request.getStartTime(), request.getEndTime())) {
             throw new ApiRequestException("Bạn đã có đơn đặt chỗ trong khung giờ này");
         }
 
+        // Tiêu thụ hold của user, hoặc từ chối nếu khung giờ đang được người khác giữ
+        if (request.getHoldId() != null) {
+            slotHoldService.consumeHold(request.getHoldId(), user.getUserId(), chargingPoint.getChargingPointId(),
+                    request.getStartTime(), request.getEndTime());
+        } else if (slotHoldService.isHeldByOthers(chargingPoint.getChargingPointId(), user.getUserId(),
+                request.getStartTime(), request.getEndTime())) {
+            throw new ApiRequestException("Khung giờ này đang được người khác giữ chỗ");
+        }
+
+        // Kiểm tra và ghi bitmap dưới khóa dòng DB: chốt chặn đặt trùng giữa các node
+        // Khung giờ đã bị chiếm: chỉ nhận nếu được đặt chồng lên một đơn có khả năng không đến
+        boolean overbooked = false;
+        if (!occupancyService.tryOccupy(chargingPoint.getChargingPointId(), request.getStartTime(), request.getEndTime())) {
+            if (!overbookingService.tryAdmit(station, chargingPoint.getChargingPointId(),
+                    request.getStartTime(), request.getEndTime())) {
+                throw new ApiRequestException("Khung giờ này đã có người đặt");
+            }
+            overbooked = true;
+        }
+
         double batteryToCharge = request.getTargetBattery() - request.getCurrentBattery();
 
         Order order = Order.builder()
@@ -225,19 +466,21 @@ public class OrderServiceImpl implements OrderService {
                 .startedBattery(request.getCurrentBattery())
                 .expectedBattery(request.getTargetBattery())
                 .createdAt(LocalDateTime.now())
+                .overbooked(overbooked ? Boolean.TRUE : null)
                 .build();
 
         order = orderRepository.save(order);
 
+        // Cập nhật timeline index sau khi commit
+        eventPublisher.publishEvent(ReservationChangedEvent.booked(order));
+        if (request.getHoldId() != null) {
+            // Đăng ký chờ được mời bằng hold này chuyển sang BOOKED trong cùng transaction
+            eventPublisher.publishEvent(new HoldConsumedEvent(request.getHoldId(), user.getUserId(), order.getOrderId()));
+        }
 
         return order.getOrderId() != null ? convertToDTO(order) : null;
     }
 
-    private boolean isChargingPointAvailable(ChargingPoint point, LocalDateTime startTime, LocalDateTime endTime) {
-        List<Order> overlappingOrders = orderRepository.findOverlappingOrders(point.getChargingPointId(), startTime, endTime);
-        return overlappingOrders.stream().noneMatch(Order::isActive);
-    }
-
     @Transactional(readOnly = true)
     public List<OrderResponseDTO> getUserOrders(Long userId, Order.Status status) {
         List<Order> orders;
@@ -253,6 +496,48 @@ public class OrderServiceImpl implements OrderService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Danh sách đơn của user theo trang, phân trang bằng con trỏ (createdAt, orderId) giảm dần.
+     * Mỗi trang là đúng một truy vấn projection, không phụ thuộc kích thước trang.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public OrderPageDTO getUserOrderPage(Long userId, Order.Status status, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        LocalDateTime cursorCreatedAt = null;
+        Long cursorOrderId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("_", 2);
+                cursorCreatedAt = LocalDateTime.parse(parts[0]);
+                cursorOrderId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new ApiRequestException("Con trỏ phân trang không hợp lệ");
+            }
+        }
+
+        // Lấy dư một dòng để biết còn trang sau hay không
+        List<OrderRepository.OrderSummaryView> rows = orderRepository.findUserOrderPage(
+                userId, status, cursorCreatedAt, cursorOrderId, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<OrderResponseDTO> orders = rows.stream().map(this::convertToDTO).collect(Collectors.toList());
+        String nextCursor = null;
+        if (hasMore) {
+            OrderRepository.OrderSummaryView last = rows.get(rows.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getCreatedAt() + "_" + last.getOrderId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return OrderPageDTO.builder()
+                .orders(orders)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
 
     private AvailableSlotsResponseDTO.VehicleInfo buildVehicleInfo(Vehicle vehicle) {
         List<String> compatibleConnectors = vehicle.getCarModel().getConnectorTypes()
@@ -269,17 +554,11 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
-    @lombok.AllArgsConstructor
-    private static class TimeGap {
-        LocalDateTime start;
-        LocalDateTime end;
-        int durationMinutes;
-    }
     public OrderResponseDTO convertToDTO(Order order) {
         if (order == null) return null;
-        int estimatedDuration =  calculateChargingDuration(
-                (order.getExpectedBattery() - order.getStartedBattery()) / 100.0 * order.getVehicle().getCarModel().getCapacity(),
-                order.getChargingPoint().getConnectorType().getPowerOutput());
+        int estimatedDuration = ChargeCurve.of(order.getVehicle().getCarModel(),
+                        order.getChargingPoint().getConnectorType().getPowerOutput())
+                .minutes(order.getStartedBattery(), order.getExpectedBattery());
         double energyToCharge = -order.getStartedBattery() + order.getExpectedBattery();
         double estimatedCost = energyToCharge * order.getChargingPoint().getConnectorType().getPricePerKWh();
         return OrderResponseDTO.builder()
@@ -296,6 +575,33 @@ public class OrderServiceImpl implements OrderService {
                 .estimatedCost(estimatedCost)
                 .status(order.getStatus() != null ? order.getStatus().name() : null)
                 .createdAt(order.getCreatedAt())
+                .overbooked(order.isOverbooked())
+                .build();
+    }
+
+    private OrderResponseDTO convertToDTO(OrderRepository.OrderSummaryView row) {
+        double energyToCharge = row.getExpectedBattery() - row.getStartedBattery();
+        double chargingPower = row.getChargingPower() != null ? row.getChargingPower() : 0;
+        double pricePerKwh = row.getPricePerKwh() != null ? row.getPricePerKwh() : 0;
+        double capacity = row.getBatteryCapacity() != null ? row.getBatteryCapacity() : 0;
+        return OrderResponseDTO.builder()
+                .orderId(row.getOrderId())
+                .stationName(row.getStationName())
+                .stationAddress(row.getStationAddress())
+                .connectorType(row.getConnectorType())
+                .startTime(row.getStartTime())
+                .endTime(row.getEndTime())
+                .estimatedDuration(chargingPower > 0 && capacity > 0
+                        ? ChargeCurve.of(capacity, chargingPower, row.getMaxChargePowerKw(), row.getTaperStartSoc())
+                                .minutes(row.getStartedBattery(), row.getExpectedBattery())
+                        : 0)
+                .energyToCharge(energyToCharge)
+                .chargingPower(chargingPower)
+                .pricePerKwh(pricePerKwh)
+                .estimatedCost(energyToCharge * pricePerKwh)
+                .status(row.getStatus() != null ? row.getStatus().name() : null)
+                .createdAt(row.getCreatedAt())
+                .overbooked(Boolean.TRUE.equals(row.getOverbooked()))
                 .build();
     }
 
@@ -340,6 +646,10 @@ public class OrderServiceImpl implements OrderService {
         );
 
         order = orderRepository.save(order);
+        // Đơn đặt chồng chưa sở hữu khung giờ (đơn gốc vẫn giữ), không giải phóng gì
+        if (!order.isOverbooked()) {
+            eventPublisher.publishEvent(ReservationChangedEvent.released(order));
+        }
         return convertToDTO(order);
     }
 
@@ -350,6 +660,43 @@ public class OrderServiceImpl implements OrderService {
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
 
-        return orderDTOs.isEmpty() ? null : orderDTOs;
+        return orderDTOs;
+    }
+
+    /**
+     * Khung thời gian của feed đơn trạm: cả ngày date nếu có, ngược lại hours giờ tới tính từ bây giờ
+     */
+    public LocalDateTime[] stationFeedWindow(Long stationId, LocalDate date, Integer hours) {
+        if (!stationRepository.existsById(stationId)) {
+            throw new ApiRequestException("Không tìm thấy trạm sạc");
+        }
+        if (date != null) {
+            return new LocalDateTime[]{date.atStartOfDay(), date.plusDays(1).atStartOfDay()};
+        }
+        int windowHours = hours != null ? hours : DEFAULT_FEED_HOURS;
+        if (windowHours < 1 || windowHours > MAX_FEED_HOURS) {
+            throw new ApiRequestException("Số giờ phải nằm trong khoảng 1 - " + MAX_FEED_HOURS);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return new LocalDateTime[]{now, now.plusHours(windowHours)};
+    }
+
+    /**
+     * Đẩy lần lượt các đơn của trạm bắt đầu trong [from, to) cho sink, không giữ cả danh sách trong bộ nhớ
+     *
+     * @return số đơn đã gửi
+     */
+    @Transactional(readOnly = true)
+    public int streamStationOrders(Long stationId, Order.Status status, LocalDateTime from, LocalDateTime to,
+                                   Consumer<OrderResponseDTO> sink) {
+        int count = 0;
+        try (Stream<OrderRepository.OrderSummaryView> rows = orderRepository.streamStationOrders(stationId, status, from, to)) {
+            Iterator<OrderRepository.OrderSummaryView> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                sink.accept(convertToDTO(iterator.next()));
+                count++;
+            }
+        }
+        return count;
     }
 }
@@ -0,0 +1,368 @@
+package swp391.code.swp391.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.entity.Order;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.event.SessionStartedEvent;
+import swp391.code.swp391.repository.ChargingStationRepository;
+import swp391.code.swp391.repository.FeeRepository;
+import swp391.code.swp391.repository.OrderRepository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đặt chồng (overbooking) có giới hạn lên các đơn có khả năng không đến.
+ *
+ * Tỉ lệ no-show được học theo (trạm, giờ bắt đầu) từ lịch sử orders/Fee: đơn còn BOOKED sau thời gian
+ * cho phép bắt đầu và đơn bị phạt NO_SHOW là không đến, đơn CHARGING/COMPLETED là có đến.
+ * Đơn đặt chồng chỉ được bắt đầu sau thời gian cho phép của đơn gốc và không ghi bitmap chiếm dụng:
+ * - đơn gốc bị hủy/giải phóng: đơn đặt chồng được chuyển thành đơn thường ngay trong transaction giải phóng (absorbed)
+ * - chủ đơn gốc đến: đơn đặt chồng bị hủy (conflict), hệ số đặt chồng của trạm giảm một nửa
+ * Số đơn đặt chồng đồng thời của trạm không vượt quá maxRatio × số trụ × hệ số hiện tại.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OverbookingService {
+
+    // Số đơn "ảo" theo tỉ lệ chung cộng vào mỗi (trạm, giờ) để giờ ít dữ liệu không bị ước lượng lệch
+    private static final double PRIOR_WEIGHT = 20;
+    private static final double FACTOR_STEP = 0.1;
+
+    private final OrderRepository orderRepository;
+    private final FeeRepository feeRepository;
+    private final ChargingStationRepository chargingStationRepository;
+    private final OccupancyService occupancyService;
+    private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Tắt mặc định: khi bật, confirmOrder không còn loại sớm khung giờ đã đặt ở các trạm được phép đặt chồng
+    @Value("${app.booking.overbooking.enabled:false}")
+    private boolean enabled;
+
+    // Tỉ lệ đơn đặt chồng tối đa trên số trụ của trạm
+    @Value("${app.booking.overbooking.max-ratio:0.1}")
+    private double maxRatio;
+
+    // Chỉ đặt chồng lên đơn có xác suất không đến ít nhất bằng ngưỡng này
+    @Value("${app.booking.overbooking.min-no-show-rate:0.25}")
+    private double minNoShowRate;
+
+    @Value("${app.booking.overbooking.history-days:90}")
+    private int historyDays;
+
+    // Thời gian cho phép bắt đầu sau startTime (giống SessionServiceImpl.isValidTime)
+    @Value("${app.booking.no-show-grace-minutes:15}")
+    private int graceMinutes;
+
+    private volatile NoShowRates rates = new NoShowRates(Map.of(), 0);
+    // stationId -> hệ số đặt chồng trong [0, 1], giảm khi có xung đột, hồi dần theo thời gian
+    private final Map<Long, Double> factors = new ConcurrentHashMap<>();
+
+    private Counter admitted;
+    private Counter absorbed;
+    private Counter conflicts;
+
+    @PostConstruct
+    void registerMetrics() {
+        admitted = Counter.builder("overbooking.orders").tag("outcome", "admitted")
+                .description("Số đơn đặt chồng được nhận").register(meterRegistry);
+        absorbed = Counter.builder("overbooking.orders").tag("outcome", "absorbed")
+                .description("Số đơn đặt chồng được sạc do đơn gốc không đến").register(meterRegistry);
+        conflicts = Counter.builder("overbooking.orders").tag("outcome", "conflict")
+                .description("Số đơn đặt chồng bị hủy do chủ đơn gốc đến").register(meterRegistry);
+        Gauge.builder("overbooking.conflict.ratio", this, OverbookingService::conflictRatio)
+                .description("Tỉ lệ xung đột thực tế của các đơn đặt chồng đã có kết quả").register(meterRegistry);
+    }
+
+    public int getGraceMinutes() {
+        return graceMinutes;
+    }
+
+    /**
+     * Trạm có thể nhận đơn đặt chồng hay không (bật và hạn mức của trạm > 0)
+     */
+    public boolean mayOverbook(ChargingStation station) {
+        return enabled && allowedOverbookings(station) > 0;
+    }
+
+    /**
+     * Xác suất không đến ước lượng cho đơn bắt đầu lúc startTime tại trạm
+     */
+    public double noShowRate(Long stationId, LocalDateTime startTime) {
+        NoShowRates current = rates;
+        double[] byHour = current.byStation.get(stationId);
+        return byHour != null ? byHour[startTime.getHour()] : current.global;
+    }
+
+    /**
+     * Kiểm tra có được đặt chồng [start, end) lên đơn đang chiếm point hay không.
+     * Gọi trong transaction đặt chỗ khi đang giữ khóa point (confirmOrder), sau khi tryOccupy thất bại;
+     * khóa dòng station được giữ tới khi transaction kết thúc.
+     */
+    public boolean tryAdmit(ChargingStation station, Long chargingPointId, LocalDateTime start, LocalDateTime end) {
+        if (!enabled) {
+            return false;
+        }
+        // Chỉ một đơn gốc (chưa có đơn đặt chồng trong khung giờ này) và khung giờ nằm sau thời gian cho phép của nó
+        List<Order> occupying = orderRepository.findOccupyingOrdersByChargingPoints(List.of(chargingPointId), start, end);
+        if (occupying.size() != 1) {
+            return false;
+        }
+        Order original = occupying.get(0);
+        if (!isCandidate(original, station.getStationId())
+                || start.isBefore(original.getStartTime().plusMinutes(graceMinutes))
+                || end.isAfter(original.getEndTime())) {
+            return false;
+        }
+        // Hạn mức tính cho cả trạm: khóa dòng station để hai đơn trên hai point khác nhau (kể cả khác node)
+        // không cùng đếm thiếu, rồi đếm trong transaction mới để thấy đơn đặt chồng mà bên giữ khóa trước vừa commit
+        chargingStationRepository.findForUpdate(station.getStationId());
+        TransactionTemplate fresh = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        fresh.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        fresh.setReadOnly(true);
+        long active = fresh.execute(status ->
+                orderRepository.countOverbookedOrdersAtStation(station.getStationId(), start, end));
+        if (active >= allowedOverbookings(station)) {
+            return false;
+        }
+        admitted.increment();
+        log.info("Overbooking point {} [{} - {}] on top of order {} (no-show rate {})", chargingPointId, start, end,
+                original.getOrderId(), String.format("%.2f", noShowRate(station.getStationId(), original.getStartTime())));
+        return true;
+    }
+
+    /**
+     * Các đơn có thể nhận đặt chồng trên các point trong [from, to), dùng khi tìm slot không còn khoảng trống
+     */
+    public List<Order> findOverbookableOrders(ChargingStation station, Collection<Long> chargingPointIds,
+                                              LocalDateTime from, LocalDateTime to) {
+        if (!enabled || allowedOverbookings(station) == 0) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> occupying = orderRepository.findOccupyingOrdersByChargingPoints(chargingPointIds, from, to);
+        Map<Long, List<Order>> overbookedByPoint = new HashMap<>();
+        for (Order order : occupying) {
+            if (order.isOverbooked()) {
+                overbookedByPoint.computeIfAbsent(order.getChargingPoint().getChargingPointId(), id -> new ArrayList<>())
+                        .add(order);
+            }
+        }
+        List<Order> candidates = new ArrayList<>();
+        for (Order order : occupying) {
+            if (!isCandidate(order, station.getStationId())
+                    || !order.getStartTime().plusMinutes(graceMinutes).isAfter(now)) {
+                continue;
+            }
+            boolean taken = overbookedByPoint.getOrDefault(order.getChargingPoint().getChargingPointId(), List.of()).stream()
+                    .anyMatch(other -> other.getStartTime().isBefore(order.getEndTime())
+                            && other.getEndTime().isAfter(order.getStartTime()));
+            if (!taken) {
+                candidates.add(order);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Đơn gốc được giải phóng: chuyển các đơn đặt chồng trong khoảng đó thành đơn thường.
+     * Chạy trước khi transaction giải phóng commit: OccupancyService vừa xóa khoảng đó trên bitmap và transaction
+     * vẫn giữ khóa dòng, nên không request nào (kể cả trên node khác) lấy được khoảng trống trước đơn đặt chồng.
+     * Lỗi ở đây làm transaction giải phóng rollback thay vì trả khoảng trống ra ngoài.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (!enabled || event.getType() != ReservationChangedEvent.Type.RELEASED || event.getChargingPointId() == null
+                || event.getStartTime() == null || event.getEndTime() == null) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Order order : orderRepository.findOverbookedOrders(event.getChargingPointId(),
+                    event.getStartTime(), event.getEndTime())) {
+                promote(order);
+            }
+        });
+    }
+
+    /**
+     * Phiên sạc bắt đầu: nếu là đơn đặt chồng thì đơn gốc đã không đến, ngược lại hủy các đơn đặt chồng lên đơn này
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionStarted(SessionStartedEvent event) {
+        if (event.getChargingPointId() == null || event.getStartTime() == null || event.getEndTime() == null) {
+            return;
+        }
+        if (event.isOverbooked()) {
+            absorbed.increment();
+            relax(event.getStationId());
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Order order : orderRepository.findOverbookedOrders(event.getChargingPointId(),
+                        event.getStartTime(), event.getEndTime())) {
+                    if (order.getStatus() == Order.Status.BOOKED) {
+                        bump(order, event.getStationId());
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to resolve overbooking conflict on charging point {}: {}", event.getChargingPointId(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.overbooking.refresh-ms:3600000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rates = loadRates();
+        } catch (Exception e) {
+            log.warn("Failed to refresh no-show rates: {}", e.getMessage());
+        }
+        // Hồi dần hệ số của các trạm từng có xung đột
+        factors.replaceAll((stationId, factor) -> Math.min(1.0, factor + FACTOR_STEP));
+    }
+
+    private NoShowRates loadRates() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusDays(historyDays);
+        // Đơn còn BOOKED sau thời gian cho phép bắt đầu là không đến
+        LocalDateTime until = now.minusMinutes(graceMinutes);
+
+        Map<Long, double[]> shows = new HashMap<>();
+        Map<Long, double[]> noShows = new HashMap<>();
+        accumulate(orderRepository.countByStationAndHour(
+                List.of(Order.Status.CHARGING, Order.Status.COMPLETED), since, until), shows);
+        accumulate(orderRepository.countByStationAndHour(List.of(Order.Status.BOOKED), since, until), noShows);
+        accumulate(feeRepository.countNoShowsByStationAndHour(since, until), noShows);
+
+        double totalShows = shows.values().stream().flatMapToDouble(Arrays::stream).sum();
+        double totalNoShows = noShows.values().stream().flatMapToDouble(Arrays::stream).sum();
+        double global = totalShows + totalNoShows > 0 ? totalNoShows / (totalShows + totalNoShows) : 0;
+
+        Set<Long> stationIds = new HashSet<>(shows.keySet());
+        stationIds.addAll(noShows.keySet());
+        Map<Long, double[]> byStation = new HashMap<>();
+        for (Long stationId : stationIds) {
+            double[] show = shows.getOrDefault(stationId, new double[24]);
+            double[] noShow = noShows.getOrDefault(stationId, new double[24]);
+            double[] rate = new double[24];
+            for (int hour = 0; hour < 24; hour++) {
+                rate[hour] = (noShow[hour] + PRIOR_WEIGHT * global) / (show[hour] + noShow[hour] + PRIOR_WEIGHT);
+            }
+            byStation.put(stationId, rate);
+        }
+        log.debug("Loaded no-show rates for {} stations (global {})", byStation.size(), global);
+        return new NoShowRates(byStation, global);
+    }
+
+    private static void accumulate(List<Object[]> rows, Map<Long, double[]> target) {
+        for (Object[] row : rows) {
+            Long stationId = ((Number) row[0]).longValue();
+            int hour = ((Number) row[1]).intValue();
+            target.computeIfAbsent(stationId, id -> new double[24])[hour] += ((Number) row[2]).doubleValue();
+        }
+    }
+
+    private boolean isCandidate(Order order, Long stationId) {
+        return order.getStatus() == Order.Status.BOOKED
+                && !order.isOverbooked()
+                && noShowRate(stationId, order.getStartTime()) >= minNoShowRate;
+    }
+
+    private int allowedOverbookings(ChargingStation station) {
+        int points = station.getChargingPoint() != null ? station.getChargingPoint().size() : 0;
+        return (int) Math.round(maxRatio * factors.getOrDefault(station.getStationId(), 1.0) * points);
+    }
+
+    private void promote(Order order) {
+        if (!occupancyService.tryOccupy(order.getChargingPoint().getChargingPointId(), order.getStartTime(), order.getEndTime())) {
+            // Khoảng được giải phóng không phủ hết đơn đặt chồng: hủy và báo cho người đặt thay vì để đơn treo
+            if (order.getStatus() == Order.Status.BOOKED) {
+                cancel(order, "Khung giờ của đơn đặt chồng không còn trống, đơn bị hủy");
+                log.warn("Overbooked order {} canceled: time slot is taken", order.getOrderId());
+            } else {
+                log.warn("Could not promote overbooked order {}: time slot is taken", order.getOrderId());
+            }
+            return;
+        }
+        boolean waiting = order.getStatus() == Order.Status.BOOKED;
+        order.setOverbooked(false);
+        orderRepository.save(order);
+        eventPublisher.publishEvent(ReservationChangedEvent.booked(order));
+        if (waiting) {
+            absorbed.increment();
+            relax(order.getChargingPoint().getStation() != null ? order.getChargingPoint().getStation().getStationId() : null);
+            notifySafely(order, NotificationServiceImpl.NotificationEvent.BOOKING_SUCCESS,
+                    "Đơn đặt chồng của bạn đã được xác nhận chính thức");
+        }
+        log.info("Overbooked order {} promoted to regular booking", order.getOrderId());
+    }
+
+    private void bump(Order order, Long stationId) {
+        cancel(order, "Chủ đơn trước đã đến, đơn đặt chồng bị hủy");
+        conflicts.increment();
+        if (stationId != null) {
+            factors.merge(stationId, 0.5, (factor, half) -> factor * half);
+        }
+        log.info("Overbooked order {} canceled: original booking showed up", order.getOrderId());
+    }
+
+    private void cancel(Order order, String reason) {
+        order.setStatus(Order.Status.CANCELED);
+        order.setCanceledAt(LocalDateTime.now());
+        order.setCancellationReason(reason);
+        orderRepository.save(order);
+        notifySafely(order, NotificationServiceImpl.NotificationEvent.CANCEL_ORDER, reason);
+    }
+
+    private void relax(Long stationId) {
+        if (stationId != null) {
+            factors.computeIfPresent(stationId, (id, factor) -> Math.min(1.0, factor + FACTOR_STEP));
+        }
+    }
+
+    private void notifySafely(Order order, NotificationServiceImpl.NotificationEvent event, String message) {
+        try {
+            notificationService.createBookingOrderNotification(order.getOrderId(), event, message);
+        } catch (Exception e) {
+            log.warn("Failed to notify order {}: {}", order.getOrderId(), e.getMessage());
+        }
+    }
+
+    private double conflictRatio() {
+        double resolved = conflicts.count() + absorbed.count();
+        return resolved > 0 ? conflicts.count() / resolved : 0;
+    }
+
+    private static class NoShowRates {
+        private final Map<Long, double[]> byStation;
+        private final double global;
+
+        NoShowRates(Map<Long, double[]> byStation, double global) {
+            this.byStation = byStation;
+            this.global = global;
+        }
+    }
+}
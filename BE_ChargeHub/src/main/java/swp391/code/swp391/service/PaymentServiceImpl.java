@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 import swp391.code.swp391.dto.*;
 import swp391.code.swp391.entity.*;
 import swp391.code.swp391.repository.*;
+import swp391.code.swp391.util.PricingUtil;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -129,12 +130,9 @@ public class PaymentServiceImpl implements PaymentService {
         LocalTime startTime = session.getStartTime().toLocalTime();
 
         // Kiểm tra giờ cao điểm
-        boolean isPeakHour = (startTime.isAfter(LocalTime.of(10, 0)) && startTime.isBefore(LocalTime.of(12, 0))) ||
-                (startTime.isAfter(LocalTime.of(17, 0)) && startTime.isBefore(LocalTime.of(20, 0)));
-
-        if (isPeakHour) {
+        if (PricingUtil.isPeakHour(startTime)) {
             log.info("Phiên sạc trong giờ cao điểm - áp dụng hệ số 1.5");
-            return new BigDecimal("1.5");
+            return PricingUtil.PEAK_FACTOR;
         }
 
         // Có thể lấy từ database PriceFactor nếu có cấu hình động
@@ -143,17 +141,9 @@ public class PaymentServiceImpl implements PaymentService {
                 session.getOrder().getChargingPoint().getStation() != null) {
 
             Long stationId = session.getOrder().getChargingPoint().getStation().getStationId();
-            List<PriceFactor> priceFactors = priceFactorRepository.findByStationStationId(stationId);
-
-            for (PriceFactor pf : priceFactors) {
-                if (pf.getStartTime() != null && pf.getEndTime() != null) {
-                    LocalTime pfStart = pf.getStartTime().toLocalTime();
-                    LocalTime pfEnd = pf.getEndTime().toLocalTime();
-
-                    if (startTime.isAfter(pfStart) && startTime.isBefore(pfEnd)) {
-                        return BigDecimal.valueOf(pf.getFactor());
-                    }
-                }
+            BigDecimal factor = PricingUtil.matchingFactor(startTime, priceFactorRepository.findByStationStationId(stationId));
+            if (factor != null) {
+                return factor;
             }
         }
 
@@ -185,11 +175,7 @@ public class PaymentServiceImpl implements PaymentService {
             return BigDecimal.ZERO;
         }
 
-        BigDecimal discount = switch (activeSubscription.getType()) {
-            case PREMIUM -> new BigDecimal("0.20"); // 20%
-            case PLUS -> new BigDecimal("0.10");    // 10%
-            case BASIC -> BigDecimal.ZERO;          // 0%
-        };
+        BigDecimal discount = PricingUtil.discountOf(activeSubscription.getType());
 
         log.info("Áp dụng giảm giá gói {}: {}%",
                 activeSubscription.getType(),
@@ -0,0 +1,92 @@
+package swp391.code.swp391.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import swp391.code.swp391.exception.ApiRequestException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Khóa trong tiến trình theo charging point (striped: nhiều point dùng chung một số cố định khóa).
+ *
+ * Khóa được giữ tới khi transaction hiện tại kết thúc (commit/rollback), nên hai request
+ * trên cùng point không thể cùng kiểm tra trước khi request kia commit. Các point khác stripe
+ * không chặn nhau; khóa dòng bitmap trong DB (OccupancyService.tryOccupy) bảo vệ giữa các node.
+ */
+@Service
+@Slf4j
+public class PointLockRegistry {
+
+    private final ReentrantLock[] stripes;
+    private final long waitMillis;
+
+    public PointLockRegistry(@Value("${app.booking.point-lock-stripes:256}") int stripeCount,
+                             @Value("${app.booking.point-lock-wait-ms:3000}") long waitMillis) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Khóa point tới khi transaction hiện tại kết thúc
+     */
+    public void lockUntilCompletion(Long chargingPointId) {
+        lockAllUntilCompletion(List.of(chargingPointId));
+    }
+
+    /**
+     * Khóa nhiều point tới khi transaction hiện tại kết thúc.
+     * Các stripe luôn được khóa theo thứ tự chỉ số tăng dần để tránh deadlock giữa các batch.
+     */
+    public void lockAllUntilCompletion(Collection<Long> chargingPointIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("lockUntilCompletion requires an active transaction");
+        }
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Long chargingPointId : chargingPointIds) {
+            indexes.add(stripeIndex(chargingPointId));
+        }
+
+        List<ReentrantLock> acquired = new ArrayList<>();
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                if (!lock.tryLock(waitMillis, TimeUnit.MILLISECONDS)) {
+                    log.warn("Timed out waiting for lock on charging points {}", chargingPointIds);
+                    throw new ApiRequestException("Hệ thống đang bận, vui lòng thử lại");
+                }
+                acquired.add(lock);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired.forEach(ReentrantLock::unlock);
+            throw new ApiRequestException("Yêu cầu bị gián đoạn, vui lòng thử lại");
+        } catch (RuntimeException e) {
+            acquired.forEach(ReentrantLock::unlock);
+            throw e;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                acquired.forEach(ReentrantLock::unlock);
+            }
+        });
+    }
+
+    private int stripeIndex(Long chargingPointId) {
+        // Trộn bit để các id liên tiếp rải đều các stripe
+        int hash = Long.hashCode(chargingPointId * 0x9E3779B97F4A7C15L);
+        return Math.floorMod(hash, stripes.length);
+    }
+}
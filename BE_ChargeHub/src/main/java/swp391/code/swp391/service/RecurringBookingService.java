@@ -0,0 +1,351 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import swp391.code.swp391.dto.RecurringBookingRequestDTO;
+import swp391.code.swp391.dto.RecurringBookingResponseDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.exception.ApiRequestException;
+import swp391.code.swp391.repository.*;
+import swp391.code.swp391.util.GapKernel;
+import swp391.code.swp391.util.StationHoursUtil;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Đặt chỗ định kỳ: lịch được mở rộng thành các lần lặp và đặt trong một transaction.
+ *
+ * Đơn hiện có của các trụ (và của user) trong cả khoảng ngày được tải bằng một truy vấn range,
+ * các lần lặp được dò xung đột bằng một lượt quét song song theo thời gian (không truy vấn overlap
+ * cho từng lần), sau đó chốt qua bitmap chiếm dụng và lưu tất cả đơn bằng saveAll.
+ * Lần lặp bị trùng không làm hỏng cả lịch mà được trả về kèm lý do.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecurringBookingService {
+
+    private static final int MAX_RANGE_DAYS = 92;
+
+    private final RecurringBookingRepository recurringBookingRepository;
+    private final UserRepository userRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ChargingStationRepository stationRepository;
+    private final ChargingPointRepository chargingPointRepository;
+    private final OrderRepository orderRepository;
+    private final SlotHoldService slotHoldService;
+    private final OccupancyService occupancyService;
+    private final PointLockRegistry pointLockRegistry;
+    private final StationPowerBudgetService powerBudgetService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public RecurringBookingResponseDTO createRecurringBooking(RecurringBookingRequestDTO request) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 1. Kiểm tra dữ liệu đầu vào
+        if (!request.getStartTime().isBefore(request.getEndTime())) {
+            throw new ApiRequestException("Giờ kết thúc phải sau giờ bắt đầu");
+        }
+        if (request.getUntilDate().isBefore(request.getFromDate())) {
+            throw new ApiRequestException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        if (ChronoUnit.DAYS.between(request.getFromDate(), request.getUntilDate()) >= MAX_RANGE_DAYS) {
+            throw new ApiRequestException("Lịch định kỳ tối đa " + MAX_RANGE_DAYS + " ngày");
+        }
+        if (request.getTargetBattery() <= request.getCurrentBattery()) {
+            throw new ApiRequestException("Pin mong muốn phải lớn hơn pin hiện tại");
+        }
+
+        User user = userRepository.findById(request.getUserId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy user"));
+        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy xe"));
+        if (vehicle.getUser() == null || !vehicle.getUser().getUserId().equals(user.getUserId())) {
+            throw new ApiRequestException("Xe này không thuộc về bạn");
+        }
+        if (vehicle.getCarModel() == null || vehicle.getCarModel().getConnectorTypes() == null) {
+            throw new ApiRequestException("Xe này không có thông tin connector type");
+        }
+        ChargingStation station = stationRepository.findById(request.getStationId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy trạm sạc"));
+        if (station.getStatus() != ChargingStation.ChargingStationStatus.ACTIVE) {
+            throw new ApiRequestException("Trạm sạc không hoạt động");
+        }
+
+        // 2. Trụ tương thích (trụ chỉ định đứng đầu, các trụ còn lại dự phòng khi trụ chỉ định bị trùng)
+        List<ConnectorType> compatible = vehicle.getCarModel().getConnectorTypes();
+        List<ChargingPoint> points = new ArrayList<>(chargingPointRepository.findByStationStationId(station.getStationId()).stream()
+                .filter(ChargingPoint::isBookable)
+                .filter(point -> compatible.contains(point.getConnectorType()))
+                .sorted(Comparator.comparing(ChargingPoint::getChargingPointId))
+                .toList());
+        if (request.getChargingPointId() != null) {
+            ChargingPoint preferred = points.stream()
+                    .filter(point -> point.getChargingPointId().equals(request.getChargingPointId()))
+                    .findFirst()
+                    .orElseThrow(() -> new ApiRequestException("Trụ sạc không khả dụng hoặc không tương thích với xe"));
+            points.remove(preferred);
+            points.add(0, preferred);
+        }
+        if (points.isEmpty()) {
+            throw new ApiRequestException("Trạm này không có trụ sạc tương thích với xe của bạn");
+        }
+
+        // 3. Mở rộng lịch thành các lần lặp (bỏ lần đã qua)
+        List<LocalDateTime[]> occurrences = new ArrayList<>();
+        for (LocalDate day = request.getFromDate(); !day.isAfter(request.getUntilDate()); day = day.plusDays(1)) {
+            if (request.getDaysOfWeek().contains(day.getDayOfWeek())) {
+                LocalDateTime start = day.atTime(request.getStartTime());
+                if (start.isAfter(now)) {
+                    occurrences.add(new LocalDateTime[]{start, day.atTime(request.getEndTime())});
+                }
+            }
+        }
+        if (occurrences.isEmpty()) {
+            throw new ApiRequestException("Không có lần lặp nào trong khoảng ngày đã chọn");
+        }
+
+        RecurringBooking rule = recurringBookingRepository.save(RecurringBooking.builder()
+                .userId(user.getUserId())
+                .vehicleId(vehicle.getId())
+                .stationId(station.getStationId())
+                .daysOfWeek(request.getDaysOfWeek().stream().sorted().map(Enum::name).collect(Collectors.joining(",")))
+                .startTime(request.getStartTime())
+                .endTime(request.getEndTime())
+                .fromDate(request.getFromDate())
+                .untilDate(request.getUntilDate())
+                .currentBattery(request.getCurrentBattery())
+                .targetBattery(request.getTargetBattery())
+                .status(RecurringBooking.Status.ACTIVE)
+                .createdAt(now)
+                .build());
+
+        // 4. Khóa các trụ, tải đơn hiện có của các trụ và của user trong cả khoảng bằng một truy vấn range mỗi loại
+        LocalDateTime rangeStart = occurrences.get(0)[0];
+        LocalDateTime rangeEnd = occurrences.get(occurrences.size() - 1)[1];
+        List<Long> pointIds = points.stream().map(ChargingPoint::getChargingPointId).toList();
+        pointLockRegistry.lockAllUntilCompletion(powerBudgetService.lockScope(pointIds, List.of(station)));
+        StationPowerBudgetService.StationLoad load = powerBudgetService.isLimited(station)
+                ? powerBudgetService.loadOf(station, rangeStart, rangeEnd) : null;
+
+        Map<Long, Timeline> busyByPoint = new HashMap<>();
+        for (ChargingPoint point : points) {
+            busyByPoint.put(point.getChargingPointId(), new Timeline());
+        }
+        for (Order order : orderRepository.findOccupyingOrdersByChargingPoints(pointIds, rangeStart, rangeEnd)) {
+            busyByPoint.get(order.getChargingPoint().getChargingPointId()).add(order.getStartTime(), order.getEndTime());
+        }
+        // Khoảng đang được người khác giữ chỗ (trong bộ nhớ)
+        GapKernel.Buffer held = new GapKernel.Buffer();
+        for (Long pointId : pointIds) {
+            held.clear();
+            slotHoldService.collectHeld(pointId, user.getUserId(), held);
+            for (int i = 0; i < held.size(); i++) {
+                busyByPoint.get(pointId).add(held.start(i), held.end(i));
+            }
+        }
+        Timeline userBusy = new Timeline();
+        for (Order order : orderRepository.findOccupyingOrdersByUser(user.getUserId(), rangeStart, rangeEnd)) {
+            userBusy.add(order.getStartTime(), order.getEndTime());
+        }
+        busyByPoint.values().forEach(Timeline::seal);
+        userBusy.seal();
+
+        // 5. Quét các lần lặp theo thời gian, ưu tiên giữ cùng một trụ giữa các lần
+        RecurringBookingResponseDTO.Occurrence[] results = new RecurringBookingResponseDTO.Occurrence[occurrences.size()];
+        List<Integer> assignedIndexes = new ArrayList<>();
+        List<ChargingPoint> assignedPoints = new ArrayList<>();
+        ChargingPoint lastPoint = null;
+        for (int k = 0; k < occurrences.size(); k++) {
+            LocalDateTime[] occurrence = occurrences.get(k);
+            long start = ReservationTimelineIndex.toEpochMinute(occurrence[0]);
+            long end = ReservationTimelineIndex.toEpochMinute(occurrence[1]);
+
+            if (!StationHoursUtil.isWithinOpeningHours(station, occurrence[0], occurrence[1])) {
+                results[k] = conflicted(occurrence, "Ngoài giờ mở cửa của trạm");
+                continue;
+            }
+            if (!userBusy.isFree(start, end)) {
+                results[k] = conflicted(occurrence, "Bạn đã có đơn đặt chỗ khác trong khung giờ này");
+                continue;
+            }
+            ChargingPoint chosen = null;
+            boolean overBudget = false;
+            List<ChargingPoint> candidates = lastPoint != null ? new ArrayList<>(List.of(lastPoint)) : new ArrayList<>();
+            candidates.addAll(points);
+            for (ChargingPoint point : candidates) {
+                if (!busyByPoint.get(point.getChargingPointId()).isFree(start, end)) {
+                    continue;
+                }
+                if (load != null && !load.fits(point, occurrence[0], occurrence[1])) {
+                    overBudget = true;
+                    continue;
+                }
+                chosen = point;
+                break;
+            }
+            if (chosen == null) {
+                results[k] = conflicted(occurrence, overBudget
+                        ? "Trạm đã đạt giới hạn công suất trong khung giờ này"
+                        : "Tất cả trụ tương thích đã có người đặt trong khung giờ này");
+                continue;
+            }
+            lastPoint = chosen;
+            assignedIndexes.add(k);
+            assignedPoints.add(chosen);
+        }
+
+        // 6. Chốt từng khoảng qua bitmap (theo thứ tự trụ, thời gian) rồi lưu tất cả đơn một lần
+        List<Integer> lockOrder = new ArrayList<>();
+        for (int a = 0; a < assignedIndexes.size(); a++) {
+            lockOrder.add(a);
+        }
+        lockOrder.sort(Comparator.comparing((Integer a) -> assignedPoints.get(a).getChargingPointId())
+                .thenComparing(a -> occurrences.get(assignedIndexes.get(a))[0]));
+        List<Order> orders = new ArrayList<>();
+        List<Integer> persistedIndexes = new ArrayList<>();
+        for (int a : lockOrder) {
+            int k = assignedIndexes.get(a);
+            ChargingPoint point = assignedPoints.get(a);
+            LocalDateTime[] occurrence = occurrences.get(k);
+            if (!occupancyService.tryOccupy(point.getChargingPointId(), occurrence[0], occurrence[1])) {
+                results[k] = conflicted(occurrence, "Khung giờ vừa được người khác đặt");
+                continue;
+            }
+            orders.add(Order.builder()
+                    .user(user)
+                    .vehicle(vehicle)
+                    .chargingPoint(point)
+                    .startTime(occurrence[0])
+                    .endTime(occurrence[1])
+                    .status(Order.Status.BOOKED)
+                    .startedBattery(request.getCurrentBattery())
+                    .expectedBattery(request.getTargetBattery())
+                    .createdAt(now)
+                    .recurringBookingId(rule.getRecurringBookingId())
+                    .build());
+            persistedIndexes.add(k);
+        }
+
+        List<Order> saved = orderRepository.saveAll(orders);
+        for (int i = 0; i < saved.size(); i++) {
+            Order order = saved.get(i);
+            eventPublisher.publishEvent(ReservationChangedEvent.booked(order));
+            results[persistedIndexes.get(i)] = RecurringBookingResponseDTO.Occurrence.builder()
+                    .startTime(order.getStartTime())
+                    .endTime(order.getEndTime())
+                    .success(true)
+                    .orderId(order.getOrderId())
+                    .chargingPointId(order.getChargingPoint().getChargingPointId())
+                    .connectorTypeName(order.getChargingPoint().getConnectorType().getTypeName())
+                    .build();
+        }
+
+        log.info("Recurring booking {} for user {}: {}/{} occurrences booked",
+                rule.getRecurringBookingId(), user.getUserId(), saved.size(), occurrences.size());
+        return RecurringBookingResponseDTO.builder()
+                .recurringBookingId(rule.getRecurringBookingId())
+                .requested(occurrences.size())
+                .booked(saved.size())
+                .conflicted(occurrences.size() - saved.size())
+                .occurrences(Arrays.asList(results))
+                .build();
+    }
+
+    /**
+     * Hủy lịch định kỳ: hủy các đơn BOOKED còn có thể hủy (trước hạn hủy 1 giờ)
+     *
+     * @return số đơn đã hủy
+     */
+    @Transactional
+    public int cancelRecurringBooking(Long recurringBookingId, Long userId) {
+        RecurringBooking rule = recurringBookingRepository.findByRecurringBookingIdAndUserId(recurringBookingId, userId)
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy lịch đặt định kỳ"));
+        if (rule.getStatus() == RecurringBooking.Status.CANCELLED) {
+            throw new ApiRequestException("Lịch đặt định kỳ đã bị hủy");
+        }
+        rule.setStatus(RecurringBooking.Status.CANCELLED);
+        recurringBookingRepository.save(rule);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> cancelled = new ArrayList<>();
+        for (Order order : orderRepository.findByRecurringBookingIdAndStatus(recurringBookingId, Order.Status.BOOKED)) {
+            if (order.canBeCancelled() && !order.isPastCancellationDeadline()) {
+                order.setStatus(Order.Status.CANCELED);
+                order.setCanceledAt(now);
+                order.setCancellationReason("Hủy lịch đặt định kỳ");
+                cancelled.add(order);
+            }
+        }
+        for (Order order : orderRepository.saveAll(cancelled)) {
+            eventPublisher.publishEvent(ReservationChangedEvent.released(order));
+        }
+        return cancelled.size();
+    }
+
+    private RecurringBookingResponseDTO.Occurrence conflicted(LocalDateTime[] occurrence, String reason) {
+        return RecurringBookingResponseDTO.Occurrence.builder()
+                .startTime(occurrence[0])
+                .endTime(occurrence[1])
+                .success(false)
+                .reason(reason)
+                .build();
+    }
+
+    /**
+     * Các khoảng bận (phút epoch) của một trụ hoặc user, được gộp thành dãy rời nhau tăng dần.
+     * Các lần lặp được hỏi theo thứ tự thời gian nên con trỏ chỉ tiến, cả lượt quét là tuyến tính.
+     */
+    private static class Timeline {
+        private final GapKernel.Buffer raw = new GapKernel.Buffer();
+        private long[] starts;
+        private long[] ends;
+        private int size;
+        private int cursor;
+
+        void add(LocalDateTime start, LocalDateTime end) {
+            add(ReservationTimelineIndex.toEpochMinute(start), ReservationTimelineIndex.toEpochMinute(end));
+        }
+
+        void add(long start, long end) {
+            raw.add(start, end);
+        }
+
+        void seal() {
+            Integer[] order = new Integer[raw.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(raw::start));
+            starts = new long[order.length];
+            ends = new long[order.length];
+            for (int i : order) {
+                if (size > 0 && raw.start(i) <= ends[size - 1]) {
+                    ends[size - 1] = Math.max(ends[size - 1], raw.end(i));
+                } else {
+                    starts[size] = raw.start(i);
+                    ends[size++] = raw.end(i);
+                }
+            }
+        }
+
+        /**
+         * [start, end) không giao khoảng bận nào; start phải không giảm giữa các lần gọi
+         */
+        boolean isFree(long start, long end) {
+            while (cursor < size && ends[cursor] <= start) {
+                cursor++;
+            }
+            return cursor >= size || starts[cursor] >= end;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package swp391.code.swp391.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.util.GapKernel;
+import swp391.code.swp391.util.OccupancyBitmap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index trong bộ nhớ (node-local) lưu timeline các khoảng đã đặt của từng charging point.
+ *
+ * Mỗi point giữ một mảng đã sắp xếp các khoảng rời nhau [start, end) tính theo epoch-minute.
+ * Truy vấn khoảng trống dùng binary search nên có độ phức tạp O(log n + k),
+ * không cần gọi DB ở mỗi lần tìm slot. Timeline được seed lười từ bitmap chiếm dụng
+ * (OccupancyService) và được seed lại sau mỗi refresh interval để bắt kịp thay đổi từ các node khác.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationTimelineIndex {
+
+    private final OccupancyService occupancyService;
+
+    // 0 = không tự seed lại (chỉ dựa vào sự kiện)
+    @Value("${app.booking.timeline-refresh-seconds:60}")
+    private long refreshSeconds;
+
+    private final Map<Long, PointTimeline> timelines = new ConcurrentHashMap<>();
+
+    /**
+     * Khoảng trống trên một charging point
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class FreeGap {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int durationMinutes;
+    }
+
+    /**
+     * Tìm các khoảng trống của point trong [from, to)
+     */
+    public List<FreeGap> findFreeGaps(Long chargingPointId, LocalDateTime from, LocalDateTime to) {
+        GapKernel.Buffer buffer = new GapKernel.Buffer();
+        collectFreeGaps(chargingPointId, from, to, 0, buffer);
+        List<FreeGap> gaps = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            gaps.add(newGap(buffer.start(i), buffer.end(i)));
+        }
+        return gaps;
+    }
+
+    /**
+     * Ghi các khoảng trống (phút epoch) dài ít nhất minLength phút của point trong [from, to) vào out,
+     * không tạo object trung gian
+     */
+    public void collectFreeGaps(Long chargingPointId, LocalDateTime from, LocalDateTime to, long minLength,
+                                GapKernel.Buffer out) {
+        long fromMinute = toEpochMinute(from);
+        long toMinute = toEpochMinute(to);
+        if (fromMinute >= toMinute) {
+            return;
+        }
+        Snapshot snapshot = timelineOf(chargingPointId, from.toLocalDate(), to.toLocalDate()).snapshot;
+        GapKernel.freeGaps(snapshot.starts, snapshot.ends, snapshot.size, fromMinute, toMinute, minLength, out);
+    }
+
+    /**
+     * Kiểm tra point có trống trong toàn bộ [from, to) theo index hay không
+     */
+    public boolean isFree(Long chargingPointId, LocalDateTime from, LocalDateTime to) {
+        long fromMinute = toEpochMinute(from);
+        long toMinute = toEpochMinute(to);
+        Snapshot snapshot = timelineOf(chargingPointId, from.toLocalDate(), to.toLocalDate()).snapshot;
+        int i = snapshot.firstEndingAfter(fromMinute);
+        return i >= snapshot.size || snapshot.starts[i] >= toMinute;
+    }
+
+    /**
+     * Xóa timeline của point (ví dụ khi point bị xóa/đổi trạm), lần truy vấn sau sẽ seed lại
+     */
+    public void evict(Long chargingPointId) {
+        timelines.remove(chargingPointId);
+    }
+
+    // Cập nhật trước các listener khác (ví dụ waitlist) để chúng đọc được timeline mới
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.getChargingPointId() == null || event.getStartTime() == null || event.getEndTime() == null) {
+            return;
+        }
+        PointTimeline timeline = timelines.get(event.getChargingPointId());
+        if (timeline == null) {
+            return; // Chưa seed, lần truy vấn đầu tiên sẽ đọc từ DB
+        }
+        long start = toEpochMinute(event.getStartTime());
+        long end = toEpochMinute(event.getEndTime());
+        if (event.getType() == ReservationChangedEvent.Type.BOOKED) {
+            timeline.occupy(start, end);
+        } else {
+            timeline.release(start, end);
+        }
+    }
+
+    /**
+     * Seed trước timeline của nhiều point cho [fromDate, toDate] bằng một truy vấn range duy nhất,
+     * thay vì mỗi point/mỗi ngày một truy vấn
+     */
+    public void preload(Collection<Long> chargingPointIds, LocalDate fromDate, LocalDate toDate) {
+        long now = System.currentTimeMillis();
+        List<Long> missing = new ArrayList<>();
+        for (Long pointId : chargingPointIds) {
+            if (needsSeed(timelines.get(pointId), fromDate, toDate, now)) {
+                missing.add(pointId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        LocalDate seedFrom = seedFrom(fromDate);
+        Map<Long, Map<LocalDate, long[]>> days = occupancyService.loadDays(missing, seedFrom, toDate);
+        for (Long pointId : missing) {
+            timelines.put(pointId, build(pointId, days.getOrDefault(pointId, Map.of()), seedFrom, toDate, now));
+        }
+    }
+
+    private PointTimeline timelineOf(Long chargingPointId, LocalDate fromDate, LocalDate toDate) {
+        long now = System.currentTimeMillis();
+        PointTimeline timeline = timelines.get(chargingPointId);
+        if (needsSeed(timeline, fromDate, toDate, now)) {
+            LocalDate seedFrom = seedFrom(fromDate);
+            LocalDate seedTo = toDate;
+            if (timeline != null && !isExpired(timeline, now) && timeline.coveredTo.isAfter(seedTo)) {
+                seedTo = timeline.coveredTo;
+            }
+            Map<LocalDate, long[]> days = occupancyService.loadDays(List.of(chargingPointId), seedFrom, seedTo)
+                    .getOrDefault(chargingPointId, Map.of());
+            timeline = build(chargingPointId, days, seedFrom, seedTo, now);
+            timelines.put(chargingPointId, timeline);
+        }
+        return timeline;
+    }
+
+    private boolean needsSeed(PointTimeline timeline, LocalDate fromDate, LocalDate toDate, long now) {
+        return timeline == null || isExpired(timeline, now) || !timeline.covers(fromDate, toDate);
+    }
+
+    private boolean isExpired(PointTimeline timeline, long now) {
+        return refreshSeconds > 0 && now - timeline.seededAt > refreshSeconds * 1000;
+    }
+
+    private static LocalDate seedFrom(LocalDate fromDate) {
+        LocalDate today = LocalDate.now();
+        return fromDate.isBefore(today) ? fromDate : today;
+    }
+
+    private PointTimeline build(Long chargingPointId, Map<LocalDate, long[]> days, LocalDate fromDate, LocalDate toDate, long now) {
+        PointTimeline timeline = new PointTimeline(now, fromDate, toDate);
+        for (Map.Entry<LocalDate, long[]> day : days.entrySet()) {
+            long dayMinute = toEpochMinute(day.getKey().atStartOfDay());
+            long[] words = day.getValue();
+            // Quét bitmap: mỗi dãy bit 1 liên tiếp là một khoảng đã đặt
+            int start = OccupancyBitmap.next(words, 0, OccupancyBitmap.MINUTES_PER_DAY, true);
+            while (start < OccupancyBitmap.MINUTES_PER_DAY) {
+                int end = OccupancyBitmap.next(words, start, OccupancyBitmap.MINUTES_PER_DAY, false);
+                timeline.occupy(dayMinute + start, dayMinute + end);
+                start = OccupancyBitmap.next(words, end, OccupancyBitmap.MINUTES_PER_DAY, true);
+            }
+        }
+        log.debug("Seeded timeline for charging point {} from {} to {}", chargingPointId, fromDate, toDate);
+        return timeline;
+    }
+
+    /**
+     * Cắt các khoảng bận [start, end) ra khỏi danh sách khoảng trống
+     */
+    public static List<FreeGap> subtract(List<FreeGap> gaps, List<LocalDateTime[]> busy) {
+        if (busy.isEmpty()) {
+            return gaps;
+        }
+        List<LocalDateTime[]> sorted = new ArrayList<>(busy);
+        sorted.sort(Comparator.comparing(range -> range[0]));
+
+        List<FreeGap> result = new ArrayList<>();
+        for (FreeGap gap : gaps) {
+            LocalDateTime cursor = gap.getStart();
+            for (LocalDateTime[] range : sorted) {
+                if (!range[1].isAfter(cursor) || !range[0].isBefore(gap.getEnd())) {
+                    continue;
+                }
+                if (range[0].isAfter(cursor)) {
+                    result.add(newGap(toEpochMinute(cursor), toEpochMinute(range[0])));
+                }
+                cursor = range[1];
+            }
+            if (cursor.isBefore(gap.getEnd())) {
+                result.add(newGap(toEpochMinute(cursor), toEpochMinute(gap.getEnd())));
+            }
+        }
+        return result;
+    }
+
+    private static FreeGap newGap(long startMinute, long endMinute) {
+        return new FreeGap(fromEpochMinute(startMinute), fromEpochMinute(endMinute), (int) (endMinute - startMinute));
+    }
+
+    public static long toEpochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime fromEpochMinute(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Timeline của một point: snapshot bất biến, thay bằng copy-on-write khi có thay đổi
+     * để luồng đọc không cần khóa.
+     */
+    private static class PointTimeline {
+        private final long seededAt;
+        private final LocalDate coveredFrom;
+        private final LocalDate coveredTo;
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+        PointTimeline(long seededAt, LocalDate coveredFrom, LocalDate coveredTo) {
+            this.seededAt = seededAt;
+            this.coveredFrom = coveredFrom;
+            this.coveredTo = coveredTo;
+        }
+
+        boolean covers(LocalDate fromDate, LocalDate toDate) {
+            return !fromDate.isBefore(coveredFrom) && !toDate.isAfter(coveredTo);
+        }
+
+        synchronized void occupy(long start, long end) {
+            snapshot = snapshot.merge(start, end, true);
+        }
+
+        synchronized void release(long start, long end) {
+            snapshot = snapshot.merge(start, end, false);
+        }
+    }
+
+    private static class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new long[0], new long[0], 0);
+
+        final long[] starts;
+        final long[] ends;
+        final int size;
+
+        Snapshot(long[] starts, long[] ends, int size) {
+            this.starts = starts;
+            this.ends = ends;
+            this.size = size;
+        }
+
+        /**
+         * Vị trí đầu tiên có end > minute (các khoảng rời nhau nên ends cũng tăng dần)
+         */
+        int firstEndingAfter(long minute) {
+            return GapKernel.firstEndingAfter(ends, size, minute);
+        }
+
+        /**
+         * Thêm (occupy = true) hoặc trừ (occupy = false) khoảng [start, end), giữ các khoảng rời nhau
+         */
+        Snapshot merge(long start, long end, boolean occupy) {
+            if (start >= end) {
+                return this;
+            }
+            long[] s = new long[size + 2];
+            long[] e = new long[size + 2];
+            int n = 0;
+            int i = 0;
+            // Các khoảng kết thúc trước start (khi thêm: trước start, không dính liền)
+            while (i < size && (occupy ? ends[i] < start : ends[i] <= start)) {
+                s[n] = starts[i];
+                e[n++] = ends[i++];
+            }
+            long mergedStart = start;
+            long mergedEnd = end;
+            // Các khoảng giao với [start, end)
+            while (i < size && (occupy ? starts[i] <= end : starts[i] < end)) {
+                if (occupy) {
+                    mergedStart = Math.min(mergedStart, starts[i]);
+                    mergedEnd = Math.max(mergedEnd, ends[i]);
+                } else {
+                    if (starts[i] < start) {
+                        s[n] = starts[i];
+                        e[n++] = start;
+                    }
+                    if (ends[i] > end) {
+                        s[n] = end;
+                        e[n++] = ends[i];
+                    }
+                }
+                i++;
+            }
+            if (occupy) {
+                s[n] = mergedStart;
+                e[n++] = mergedEnd;
+            }
+            while (i < size) {
+                s[n] = starts[i];
+                e[n++] = ends[i++];
+            }
+            return new Snapshot(s, e, n);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import swp391.code.swp391.dto.SessionProgressDTO;
+import swp391.code.swp391.event.SessionEndedEvent;
+import swp391.code.swp391.repository.SessionRepository;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Đẩy tiến trình sạc qua SSE thay cho việc app poll /monitor.
+ *
+ * Thông số cố định của phiên (công suất, giá, dung lượng pin, giờ bắt đầu) lấy từ ActiveSessionRegistry.
+ * Một ticker chung tính tiến trình cho mọi phiên đang được theo dõi từ các thông số đó (không truy vấn DB)
+ * và chỉ gửi khi giá trị thay đổi so với lần gửi trước, nên số client không làm tăng tải DB.
+ * Tiến trình được ghi vào registry (ghi xuống DB theo lô); luồng này không áp phạt như monitorSession.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SessionProgressStreamService {
+
+    static final String EVENT_PROGRESS = "progress";
+    static final String EVENT_COMPLETED = "completed";
+
+    private final SessionRepository sessionRepository;
+    private final ActiveSessionRegistry activeSessionRegistry;
+
+    @Value("${app.session.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    // sessionId -> phiên đang có người theo dõi trên node này
+    private final Map<Long, TrackedSession> tracked = new ConcurrentHashMap<>();
+
+    /**
+     * Đăng ký theo dõi một phiên; gửi ngay tiến trình hiện tại rồi cập nhật theo ticker
+     */
+    public SseEmitter subscribe(Long sessionId, Long userId) {
+        // 1. Validate
+        ActiveSessionRegistry.ActiveSession session = activeSessionRegistry.find(sessionId)
+                .orElseThrow(() -> new RuntimeException(
+                        sessionRepository.existsById(sessionId) ? "Session not active" : "Session not found"));
+        if (!session.getUserId().equals(userId)) {
+            throw new RuntimeException("Not authorized to monitor this session");
+        }
+
+        // 2. Gắn emitter (nguyên tử theo sessionId để không lệch với detach)
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        TrackedSession target = tracked.compute(sessionId, (id, existing) -> {
+            TrackedSession value = existing != null ? existing : new TrackedSession(session);
+            value.emitters.add(emitter);
+            return value;
+        });
+
+        // 3. Tự gỡ khi client ngắt kết nối hoặc hết thời gian
+        Runnable detach = () -> detach(target, emitter);
+        emitter.onCompletion(detach);
+        emitter.onTimeout(detach);
+        emitter.onError(e -> detach.run());
+
+        send(target, emitter, EVENT_PROGRESS, target.progressAt(LocalDateTime.now()));
+        return emitter;
+    }
+
+    /**
+     * Tính tiến trình một lần cho mỗi phiên đang được theo dõi và gửi cho mọi client nếu có thay đổi.
+     * Phiên không còn trong registry (kết thúc trên node khác, không nhận được SessionEndedEvent) thì đóng luồng.
+     */
+    @Scheduled(fixedRateString = "${app.session.stream-tick-ms:5000}")
+    public void tick() {
+        LocalDateTime now = LocalDateTime.now();
+        for (TrackedSession target : tracked.values()) {
+            if (activeSessionRegistry.find(target.sessionId()).isEmpty()) {
+                complete(target.sessionId());
+                continue;
+            }
+            SessionProgressDTO progress = target.progressAt(now);
+            if (progress.equals(target.lastSent)) {
+                continue;
+            }
+            target.lastSent = progress;
+            activeSessionRegistry.record(target.session, progress);
+            for (SseEmitter emitter : target.emitters) {
+                send(target, emitter, EVENT_PROGRESS, progress);
+            }
+        }
+    }
+
+    /**
+     * Phiên kết thúc: báo cho các client và đóng luồng
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionEnded(SessionEndedEvent event) {
+        complete(event.getSessionId());
+    }
+
+    private void complete(Long sessionId) {
+        TrackedSession target = tracked.remove(sessionId);
+        if (target == null) {
+            return;
+        }
+        for (SseEmitter emitter : target.emitters) {
+            send(target, emitter, EVENT_COMPLETED, sessionId);
+            emitter.complete();
+        }
+    }
+
+    private void send(TrackedSession target, SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client đã ngắt kết nối
+            detach(target, emitter);
+        }
+    }
+
+    private void detach(TrackedSession target, SseEmitter emitter) {
+        tracked.computeIfPresent(target.sessionId(), (id, existing) -> {
+            existing.emitters.remove(emitter);
+            return existing.emitters.isEmpty() ? null : existing;
+        });
+    }
+
+    private static class TrackedSession {
+        private final ActiveSessionRegistry.ActiveSession session;
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private volatile SessionProgressDTO lastSent;
+
+        TrackedSession(ActiveSessionRegistry.ActiveSession session) {
+            this.session = session;
+        }
+
+        Long sessionId() {
+            return session.getSessionId();
+        }
+
+        SessionProgressDTO progressAt(LocalDateTime now) {
+            return session.progressAt(now);
+        }
+    }
+}
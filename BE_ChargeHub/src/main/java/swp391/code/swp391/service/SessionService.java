@@ -15,9 +15,13 @@ public interface SessionService {
 
     SessionProgressDTO monitorSession(Long sessionId, Long userId);
 
+    void notifyTargetReached(Long sessionId);
+
+    void applyOvertimePenalty(Long sessionId);
+
     Double calculatePenaltyAmount(String type, Order order);
 
-    long expectedMinutes(Vehicle vehicle, Double expectedBattery);
+    long expectedMinutes(Order order);
 
     Double calculateBatteryPercentage(Vehicle vehicle, Double kwh);
 }
@@ -2,13 +2,23 @@ package swp391.code.swp391.service;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import swp391.code.swp391.dto.SessionProgressDTO;
 import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.ChargingPointChangedEvent;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.event.SessionEndedEvent;
+import swp391.code.swp391.event.SessionStartedEvent;
 import swp391.code.swp391.repository.*;
 
+import swp391.code.swp391.util.ChargeCurve;
+
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +31,14 @@ public class SessionServiceImpl implements SessionService {
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     private final FeeRepository feeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ActiveSessionRegistry activeSessionRegistry;
+    private final MeterReadingRepository meterReadingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Thời gian ân hạn sau khi đạt mức pin mong muốn trước khi áp phí sạc quá giờ
+    @Value("${app.session.overtime-grace-minutes:1}")
+    private long overtimeGraceMinutes = 1;
 
     @Override
     public boolean isValidTime(Long orderId, int maxStartDelayMinutes) {
@@ -61,13 +79,14 @@ public class SessionServiceImpl implements SessionService {
             applyPenalty(order, Fee.Type.NO_SHOW);
             order.setStatus(Order.Status.CANCELED);
             orderRepository.save(order);
+            eventPublisher.publishEvent(ReservationChangedEvent.released(order));
             throw new RuntimeException("Out of booking time slot - Order canceled with penalty");
         }
 
         // Kiểm tra charging point
         ChargingPoint point = chargingPointRepository.findById(order.getChargingPoint().getChargingPointId())
                 .orElseThrow(() -> new RuntimeException("Charging point not found"));
-        if (point.getStatus() != ChargingPoint.ChargingPointStatus.AVAILABLE) {
+        if (!point.isBookable()) {
             throw new RuntimeException("Charging point not available");
         }
 
@@ -87,6 +106,7 @@ public class SessionServiceImpl implements SessionService {
         // Cập nhật status charging point
         point.setStatus(ChargingPoint.ChargingPointStatus.OCCUPIED);
         chargingPointRepository.save(point);
+        eventPublisher.publishEvent(ChargingPointChangedEvent.of(point));
 
         // Tạo session
         Session session = new Session();
@@ -98,6 +118,7 @@ public class SessionServiceImpl implements SessionService {
         order.setStatus(Order.Status.CHARGING);
         orderRepository.save(order);
         session = sessionRepository.save(session);
+        eventPublisher.publishEvent(SessionStartedEvent.of(order));
 
         // Gửi notification
         notificationService.createBookingOrderNotification(orderId, NotificationServiceImpl.NotificationEvent.SESSION_START, null);
@@ -110,54 +131,69 @@ public class SessionServiceImpl implements SessionService {
     @Override
     public SessionProgressDTO monitorSession(Long sessionId, Long userId) {
 
-        //.1> Validate
-        Session session = sessionRepository.findById(sessionId)
-                .orElseThrow(() -> new RuntimeException("Session not found"));
+        //.1> Validate (phiên đang sạc được đọc từ registry trong bộ nhớ)
+        ActiveSessionRegistry.ActiveSession session = activeSessionRegistry.find(sessionId)
+                .orElseThrow(() -> new RuntimeException(
+                        sessionRepository.existsById(sessionId) ? "Session not active" : "Session not found"));
 
         // Kiểm tra ownership
-        if (!session.getOrder().getUser().getUserId().equals(userId)) {
+        if (!session.getUserId().equals(userId)) {
             throw new RuntimeException("Not authorized to monitor this session");
         }
 
-        if (session.getStatus() != Session.SessionStatus.CHARGING) {
-            throw new RuntimeException("Session not active");
+        // 2. Tính toán tiến trình sạc (chuẩn bị data trả về DTO)
+        LocalDateTime now = LocalDateTime.now();
+        SessionProgressDTO progress = session.progressAt(now);
+        //===============================================================
+        // Cập nhật progress trong bộ nhớ, registry ghi xuống DB theo lô
+        activeSessionRegistry.record(session, progress);
+
+        // Kiểm tra nếu đạt expectedBattery (thông báo đầy pin do SessionTimerService gửi đúng hạn)
+        // Nếu tiếp tục sau đầy pin quá thời gian ân hạn, áp phạt một lần.
+        // Nhận quyền áp phí bằng UPDATE có điều kiện như timer quá giờ, nên hai request / node không cùng áp
+        if (isOvertime(session, progress, now)) {
+            transactionTemplate.executeWithoutResult(status -> applyOvertimePenalty(sessionId));
         }
 
-        ConnectorType connectorType = session.getOrder().getChargingPoint().getConnectorType();
-        // 2. Tính toán tiến trình sạc (chuẩn bị data trả về DTO)
-        Vehicle vehicle = vehicleRepository.findById(session.getOrder().getVehicle().getId())
-                .orElseThrow(() -> new RuntimeException("Vehicle not found for session"));
+        // Trả về DTO
+        return progress;
+    }
 
-        double power = connectorType.getPowerOutput(); // kW
-        LocalDateTime now = LocalDateTime.now();
-        long minutesElapsed = ChronoUnit.MINUTES.between(session.getStartTime(), now);
+    /**
+     * Phiên quá giờ khi đã đạt mức pin mong muốn và đã hết thời gian ân hạn tính từ lúc đạt
+     * (không tính từ thời gian dự kiến: trụ sạc chậm hơn đường cong đạt muộn hơn)
+     */
+    private boolean isOvertime(ActiveSessionRegistry.ActiveSession session, SessionProgressDTO progress,
+                               LocalDateTime now) {
+        if (progress.getCurrentBattery() < session.getExpectedBattery()) {
+            return false;
+        }
+        return !now.isBefore(session.markTargetReached().plusMinutes(overtimeGraceMinutes));
+    }
 
-        double powerConsumed = power * (minutesElapsed / 60.0); // Simplified
+    /**
+     * Tiến trình sạc ước tính sau minutesElapsed phút ở công suất cố định (khi trụ chưa gửi giá trị đồng hồ)
+     */
+    public static SessionProgressDTO progressOf(double powerKw, double pricePerKwh, double capacityKwh,
+                                                double startedBattery, long minutesElapsed) {
+        double powerConsumed = powerKw * (minutesElapsed / 60.0); // Simplified
+        return progressOfEnergy(powerConsumed, pricePerKwh, capacityKwh, startedBattery);
+    }
 
-        double basePrice = connectorType.getPricePerKWh();
+    /**
+     * Tiến trình sạc khi đã sạc powerConsumed kWh (chưa tính hệ số giá / giảm giá)
+     */
+    public static SessionProgressDTO progressOfEnergy(double powerConsumed, double pricePerKwh, double capacityKwh,
+                                                      double startedBattery) {
         double priceFactor = 1.0;
         double discount = 0.0;
-        double cost = powerConsumed * basePrice * priceFactor * (1 - discount);
-        //===============================================================
-        session.setPowerConsumed(powerConsumed);
-        session.setBaseCost(cost);
-
-        // Kiểm tra nếu đạt expectedBattery
-        double currentBattery = calculateBatteryPercentage(vehicle, powerConsumed) + session.getOrder().getStartedBattery();
-        if (currentBattery >= session.getOrder().getExpectedBattery()) {
-            if (currentBattery > 100) currentBattery = 100.0; // Chỉnh lại nếu vượt
-            // Gui thong bao o day
-
-            // Nếu tiếp tục sau đầy pin, áp phạt (giả sử check sau)
-            if (minutesElapsed > expectedMinutes(vehicle, session.getOrder().getExpectedBattery())) {
-                applyPenalty(session.getOrder(), Fee.Type.CHARGING);
-            }
-        } else {
-            sessionRepository.save(session); // Cập nhật progress
-        }
-
-        // Trả về DTO
-        return new SessionProgressDTO(currentBattery,powerConsumed,cost);
+        double cost = powerConsumed * pricePerKwh * priceFactor * (1 - discount);
+        double currentBattery = Math.min(100.0, powerConsumed / capacityKwh * 100 + startedBattery);
+        SessionProgressDTO progress = new SessionProgressDTO();
+        progress.setCurrentBattery(currentBattery);
+        progress.setPowerConsumed(powerConsumed);
+        progress.setCost(cost);
+        return progress;
     }
 
     @Override
@@ -181,7 +217,18 @@ public class SessionServiceImpl implements SessionService {
         LocalDateTime now = LocalDateTime.now();
         double power = connectorType.getPowerOutput();
         long minutesElapsed = ChronoUnit.MINUTES.between(session.getStartTime(), now);
-        double powerConsumed = power * (minutesElapsed / 60.0);
+        // Lấy theo giá trị đồng hồ mới nhất của trụ, chưa có thì ước tính theo công suất
+        Double meteredKwh = meteredKwh(sessionId);
+        double powerConsumed = meteredKwh != null ? meteredKwh : power * (minutesElapsed / 60.0);
+
+        // Nhận quyền áp phí quá giờ trước khi đổi trạng thái phiên (UPDATE chỉ khớp phiên còn CHARGING)
+        boolean overtime = activeSessionRegistry.find(sessionId)
+                .map(active -> isOvertime(active, active.progressAt(now), now))
+                .orElse(false)
+                && sessionRepository.claimOvertimeCharge(sessionId, now) > 0;
+        if (overtime) {
+            session.setOvertimeChargedAt(now);
+        }
 
         // Calculate cost
         double basePrice = connectorType.getPricePerKWh();
@@ -200,10 +247,16 @@ public class SessionServiceImpl implements SessionService {
         order.setStatus(Order.Status.COMPLETED);
         orderRepository.save(order);
 
+        // Giải phóng phần còn lại của khung giờ đã đặt nếu kết thúc sớm
+        if (now.isBefore(order.getEndTime())) {
+            eventPublisher.publishEvent(ReservationChangedEvent.releasedFrom(order, now));
+        }
+
         // Update charging point status
         ChargingPoint chargingPoint = order.getChargingPoint();
         chargingPoint.setStatus(ChargingPoint.ChargingPointStatus.AVAILABLE);
         chargingPointRepository.save(chargingPoint);
+        eventPublisher.publishEvent(ChargingPointChangedEvent.of(chargingPoint));
 
         // Calculate final battery percentage
         double finalBattery = calculateBatteryPercentage(vehicle, powerConsumed) + session.getOrder().getStartedBattery();
@@ -212,12 +265,13 @@ public class SessionServiceImpl implements SessionService {
         }
 
         // Check for overtime penalty
-        if (minutesElapsed > expectedMinutes(vehicle, session.getOrder().getExpectedBattery())) {
+        if (overtime) {
             applyPenalty(order, Fee.Type.CHARGING);
         }
 
         // Save session
         session = sessionRepository.save(session);
+        eventPublisher.publishEvent(new SessionEndedEvent(session.getSessionId(), order.getOrderId()));
 
         // Send completion notification
         notificationService.createBookingOrderNotification(order.getOrderId(),
@@ -226,6 +280,38 @@ public class SessionServiceImpl implements SessionService {
         return session.getSessionId();
     }
 
+    /**
+     * Gửi thông báo đạt mức pin mong muốn một lần cho phiên đang sạc
+     */
+    @Override
+    @Transactional
+    public void notifyTargetReached(Long sessionId) {
+        if (sessionRepository.claimTargetNotice(sessionId, LocalDateTime.now()) == 0) {
+            return; // Đã gửi hoặc phiên đã kết thúc
+        }
+        Session session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session not found"));
+        notificationService.createBookingOrderNotification(session.getOrder().getOrderId(),
+                NotificationServiceImpl.NotificationEvent.TARGET_REACHED, null);
+    }
+
+    /**
+     * Áp phí sạc quá giờ một lần cho phiên vẫn đang sạc sau thời gian dự kiến
+     */
+    @Override
+    @Transactional
+    public void applyOvertimePenalty(Long sessionId) {
+        if (sessionRepository.claimOvertimeCharge(sessionId, LocalDateTime.now()) == 0) {
+            return; // Đã áp hoặc phiên đã kết thúc
+        }
+        Session session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session not found"));
+        Order order = session.getOrder();
+        if (!hasPenalty(order, Fee.Type.CHARGING)) { // Phí áp trước khi có overtime_charged_at
+            applyPenalty(order, Fee.Type.CHARGING);
+        }
+    }
+
     private void applyPenalty(Order order, Fee.Type type) { //Áp dụng phạt
         Fee fee = new Fee();
         fee.setOrder(order);
@@ -266,9 +352,31 @@ public class SessionServiceImpl implements SessionService {
     }
 
     @Override //US11
-    public long expectedMinutes(Vehicle vehicle, Double expectedBattery) {
-        // Calculate based on power and capacity
-        return 0;
+    public long expectedMinutes(Order order) {
+        // Tra bảng đường cong sạc của xe trên connector của trụ, từ mức pin lúc bắt đầu tới mức pin mong muốn
+        return ChargeCurve.of(order.getVehicle().getCarModel(), order.getChargingPoint().getConnectorType().getPowerOutput())
+                .minutes(order.getStartedBattery(), order.getExpectedBattery());
+    }
+
+    /**
+     * Năng lượng cộng dồn mới nhất của phiên: registry của node này hoặc giá trị đã ghi trong meter_readings
+     * (phiên được nhận đồng hồ ở node khác, node vừa khởi động lại), lấy giá trị lớn hơn; null nếu trụ chưa gửi
+     */
+    private Double meteredKwh(Long sessionId) {
+        Double local = activeSessionRegistry.meteredKwh(sessionId);
+        Double persisted = meterReadingRepository.findLatestBySessionIds(List.of(sessionId)).stream()
+                .map(MeterReading::getEnergyKwh)
+                .findFirst()
+                .orElse(null);
+        if (local == null || persisted == null) {
+            return local != null ? local : persisted;
+        }
+        return Math.max(local, persisted);
+    }
+
+    private boolean hasPenalty(Order order, Fee.Type type) {
+        return feeRepository.findByOrderOrderId(order.getOrderId()).stream()
+                .anyMatch(fee -> fee.getType() == type);
     }
 
 }
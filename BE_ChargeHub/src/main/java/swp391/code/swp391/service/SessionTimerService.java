@@ -0,0 +1,165 @@
+package swp391.code.swp391.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import swp391.code.swp391.dto.SessionProgressDTO;
+import swp391.code.swp391.entity.Session;
+import swp391.code.swp391.event.SessionEndedEvent;
+import swp391.code.swp391.event.SessionStartedEvent;
+import swp391.code.swp391.repository.SessionRepository;
+import swp391.code.swp391.util.TimingWheel;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hẹn giờ cho các phiên đang sạc để thông báo đầy pin và áp phí quá giờ đúng hạn,
+ * kể cả khi không ai gọi monitorSession.
+ *
+ * Mỗi phiên có đúng một timer trong TimingWheel (thêm / hủy O(1)):
+ * - TARGET: startTime + thời gian dự kiến theo đường cong sạc -> gửi thông báo, rồi hẹn OVERTIME.
+ * - OVERTIME: hết thời gian ân hạn tính từ lúc thực sự đạt mức pin (giống điều kiện phạt của monitorSession) -> áp phí CHARGING.
+ * Khi đến hạn mà pin (theo đồng hồ của trụ) chưa tới mức mong muốn thì hẹn lại theo ETA.
+ * Timer được dựng lại từ ActiveSessionRegistry khi khởi động; việc gửi / phạt được "nhận" bằng UPDATE có điều kiện
+ * trên session nên timer trùng (khởi động lại, nhiều node) không gửi hay phạt hai lần.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SessionTimerService {
+
+    private final ActiveSessionRegistry activeSessionRegistry;
+    private final SessionRepository sessionRepository;
+    private final SessionService sessionService;
+
+    @Value("${app.session.timer-tick-ms:1000}")
+    private long tickMillis = 1000;
+
+    // Số ô của wheel (lũy thừa của 2); 4096 ô x 1s = một vòng khoảng 68 phút
+    @Value("${app.session.timer-wheel-size:4096}")
+    private int wheelSize = 4096;
+
+    @Value("${app.session.overtime-grace-minutes:1}")
+    private long overtimeGraceMinutes = 1;
+
+    private TimingWheel<SessionTimer> wheel;
+
+    // sessionId -> timer hiện tại của phiên (để hủy khi phiên kết thúc)
+    private final Map<Long, TimingWheel.Timeout<SessionTimer>> timers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Dựng lại timer cho mọi phiên đang sạc (chạy sau khi ActiveSessionRegistry đã dựng xong)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        for (ActiveSessionRegistry.ActiveSession active : activeSessionRegistry.all()) {
+            schedule(active.getSessionId(), Stage.TARGET, targetTime(active));
+        }
+        log.info("Session timers rebuilt for {} charging sessions", timers.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionStarted(SessionStartedEvent event) {
+        try {
+            Session session = sessionRepository.findByOrderOrderId(event.getOrderId());
+            if (session == null) {
+                return;
+            }
+            activeSessionRegistry.find(session.getSessionId())
+                    .ifPresent(active -> schedule(active.getSessionId(), Stage.TARGET, targetTime(active)));
+        } catch (Exception e) {
+            log.warn("Failed to schedule timers for order {}: {}", event.getOrderId(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionEnded(SessionEndedEvent event) {
+        TimingWheel.Timeout<SessionTimer> timeout = timers.remove(event.getSessionId());
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    /**
+     * Quay wheel tới thời điểm hiện tại và xử lý các timer đến hạn
+     */
+    @Scheduled(fixedRateString = "${app.session.timer-tick-ms:1000}")
+    public void advance() {
+        List<SessionTimer> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (SessionTimer timer : due) {
+            try {
+                fire(timer, now);
+            } catch (Exception e) {
+                log.warn("Session timer {} of session {} failed: {}", timer.stage(), timer.sessionId(), e.getMessage());
+            }
+        }
+    }
+
+    private void fire(SessionTimer timer, LocalDateTime now) {
+        // 1. Bỏ timer khỏi map nếu vẫn là timer hiện tại của phiên
+        timers.computeIfPresent(timer.sessionId(), (id, timeout) -> timeout.getPayload() == timer ? null : timeout);
+
+        // 2. Phiên đã kết thúc (có thể trên node khác)
+        ActiveSessionRegistry.ActiveSession active = activeSessionRegistry.find(timer.sessionId()).orElse(null);
+        if (active == null) {
+            return;
+        }
+
+        // 3. Pin chưa tới mức mong muốn (trụ sạc chậm hơn đường cong): hẹn lại theo ETA
+        SessionProgressDTO progress = active.progressAt(now);
+        if (progress.getCurrentBattery() < active.getExpectedBattery()) {
+            int remaining = Math.max(1, progress.getRemainingMinutes());
+            schedule(timer.sessionId(), timer.stage(), now.plusMinutes(remaining));
+            return;
+        }
+
+        // 4. Thông báo đầy pin rồi hẹn phạt quá giờ, hoặc áp phạt
+        if (timer.stage() == Stage.TARGET) {
+            sessionService.notifyTargetReached(timer.sessionId());
+            // Tính từ lúc đạt (hoặc lúc đã gửi thông báo trước khi khởi động lại), không phải thời gian dự kiến
+            LocalDateTime reachedAt = active.markTargetReached();
+            schedule(timer.sessionId(), Stage.OVERTIME, reachedAt.plusMinutes(overtimeGraceMinutes));
+        } else {
+            sessionService.applyOvertimePenalty(timer.sessionId());
+        }
+    }
+
+    private void schedule(Long sessionId, Stage stage, LocalDateTime at) {
+        long deadline = at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        SessionTimer timer = new SessionTimer(sessionId, stage);
+        TimingWheel.Timeout<SessionTimer> previous = timers.put(sessionId, wheel.schedule(timer, deadline));
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    private static LocalDateTime targetTime(ActiveSessionRegistry.ActiveSession active) {
+        return active.getStartTime().plusMinutes(active.getExpectedMinutes());
+    }
+
+    enum Stage {
+        TARGET, OVERTIME
+    }
+
+    record SessionTimer(Long sessionId, Stage stage) {
+    }
+}
@@ -0,0 +1,293 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import swp391.code.swp391.dto.SlotHoldRequestDTO;
+import swp391.code.swp391.dto.SlotHoldResponseDTO;
+import swp391.code.swp391.entity.ChargingPoint;
+import swp391.code.swp391.entity.SlotHold;
+import swp391.code.swp391.exception.ApiRequestException;
+import swp391.code.swp391.repository.ChargingPointRepository;
+import swp391.code.swp391.repository.SlotHoldRepository;
+import swp391.code.swp391.repository.UserRepository;
+import swp391.code.swp391.util.GapKernel;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giữ chỗ tạm thời (soft lease) giữa bước tìm slot và bước xác nhận đặt chỗ.
+ *
+ * Hold còn hiệu lực bị ẩn khỏi kết quả tìm kiếm của người khác và được confirmOrder tiêu thụ.
+ * Truy vấn đọc từ bộ nhớ; bảng slot_holds là bản dự phòng để các node khác nhìn thấy hold
+ * (bộ nhớ được đồng bộ lại định kỳ) và để confirmOrder kiểm tra chắc chắn.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotHoldService {
+
+    private final SlotHoldRepository holdRepository;
+    private final ChargingPointRepository chargingPointRepository;
+    private final UserRepository userRepository;
+    private final ReservationTimelineIndex timelineIndex;
+    private final PointLockRegistry pointLockRegistry;
+
+    @Value("${app.booking.hold-ttl-seconds:120}")
+    private long ttlSeconds;
+
+    // chargingPointId -> (holdId -> hold)
+    private volatile Map<Long, Map<Long, Hold>> holdsByPoint = new ConcurrentHashMap<>();
+
+    /**
+     * Tạo hold cho user trên [startTime, endTime). Mỗi user chỉ giữ một hold, hold cũ bị thay thế.
+     */
+    @Transactional
+    public SlotHoldResponseDTO createHold(SlotHoldRequestDTO request) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 1. Kiểm tra dữ liệu đầu vào
+        if (!request.getStartTime().isBefore(request.getEndTime())) {
+            throw new ApiRequestException("Thời gian kết thúc phải sau thời gian bắt đầu");
+        }
+        if (!request.getEndTime().isAfter(now)) {
+            throw new ApiRequestException("Khung giờ này đã qua");
+        }
+        if (!userRepository.existsById(request.getUserId())) {
+            throw new ApiRequestException("Không tìm thấy user");
+        }
+        ChargingPoint point = chargingPointRepository.findById(request.getChargingPointId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy điểm sạc"));
+        if (!point.isBookable()) {
+            throw new ApiRequestException("Điểm sạc không khả dụng");
+        }
+
+        // 2. Khung giờ phải còn trống theo timeline
+        if (!timelineIndex.isFree(point.getChargingPointId(), request.getStartTime(), request.getEndTime())) {
+            throw new ApiRequestException("Khung giờ này đã có người đặt");
+        }
+
+        // 3. Kiểm tra và ghi hold dưới khóa của point (giữ tới khi commit)
+        pointLockRegistry.lockUntilCompletion(point.getChargingPointId());
+
+        if (isHeldByOthers(point.getChargingPointId(), request.getUserId(), request.getStartTime(), request.getEndTime())) {
+            throw new ApiRequestException("Khung giờ này đang được người khác giữ chỗ");
+        }
+
+        for (SlotHold previous : holdRepository.findByUserIdAndExpiresAtAfter(request.getUserId(), now)) {
+            holdRepository.delete(previous);
+            forget(previous.getChargingPointId(), previous.getHoldId());
+        }
+
+        SlotHold hold = holdRepository.save(SlotHold.builder()
+                .chargingPointId(point.getChargingPointId())
+                .userId(request.getUserId())
+                .startTime(request.getStartTime())
+                .endTime(request.getEndTime())
+                .expiresAt(now.plusSeconds(ttlSeconds))
+                .createdAt(now)
+                .build());
+        remember(hold);
+        return convertToDTO(hold);
+    }
+
+    /**
+     * Tiêu thụ hold khi xác nhận đặt chỗ. Khung giờ đặt phải nằm trong khung giờ đã giữ.
+     */
+    @Transactional
+    public void consumeHold(Long holdId, Long userId, Long chargingPointId, LocalDateTime startTime, LocalDateTime endTime) {
+        SlotHold hold = holdRepository.findByHoldIdAndUserId(holdId, userId)
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy giữ chỗ hoặc giữ chỗ đã hết hạn"));
+        if (!hold.getExpiresAt().isAfter(LocalDateTime.now())) {
+            throw new ApiRequestException("Giữ chỗ đã hết hạn, vui lòng tìm lại khung giờ");
+        }
+        if (!hold.getChargingPointId().equals(chargingPointId)
+                || startTime.isBefore(hold.getStartTime())
+                || endTime.isAfter(hold.getEndTime())) {
+            throw new ApiRequestException("Khung giờ đặt không khớp với giữ chỗ");
+        }
+        holdRepository.delete(hold);
+        forget(hold.getChargingPointId(), hold.getHoldId());
+    }
+
+    /**
+     * User chủ động bỏ hold
+     */
+    @Transactional
+    public void releaseHold(Long holdId, Long userId) {
+        SlotHold hold = holdRepository.findByHoldIdAndUserId(holdId, userId)
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy giữ chỗ"));
+        holdRepository.delete(hold);
+        forget(hold.getChargingPointId(), hold.getHoldId());
+    }
+
+    /**
+     * Có hold còn hiệu lực của người khác giao với [startTime, endTime) hay không.
+     * Kiểm tra bộ nhớ trước, sau đó kiểm tra DB (hold tạo ở node khác chưa kịp đồng bộ).
+     */
+    @Transactional(readOnly = true)
+    public boolean isHeldByOthers(Long chargingPointId, Long userId, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Hold hold : holdsOf(chargingPointId)) {
+            if (hold.isActive(now) && !hold.userId.equals(userId)
+                    && hold.startTime.isBefore(endTime) && hold.endTime.isAfter(startTime)) {
+                return true;
+            }
+        }
+        return !holdRepository.findOverlappingHoldsOfOthers(chargingPointId, userId, startTime, endTime, now).isEmpty();
+    }
+
+    /**
+     * Cắt các khoảng đang được người khác giữ ra khỏi danh sách khoảng trống (chỉ đọc bộ nhớ)
+     */
+    public List<ReservationTimelineIndex.FreeGap> excludeHeld(Long chargingPointId, Long userId,
+                                                             List<ReservationTimelineIndex.FreeGap> gaps) {
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime[]> held = new ArrayList<>();
+        for (Hold hold : holdsOf(chargingPointId)) {
+            if (hold.isActive(now) && !hold.userId.equals(userId)) {
+                held.add(new LocalDateTime[]{hold.startTime, hold.endTime});
+            }
+        }
+        return ReservationTimelineIndex.subtract(gaps, held);
+    }
+
+    /**
+     * Ghi các khoảng đang được người khác giữ (phút epoch) vào out, không tạo object
+     */
+    public void collectHeld(Long chargingPointId, Long userId, GapKernel.Buffer out) {
+        Map<Long, Hold> holds = holdsByPoint.get(chargingPointId);
+        if (holds == null || holds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Hold hold : holds.values()) {
+            if (hold.isActive(now) && !hold.userId.equals(userId)) {
+                out.add(hold.startMinute, hold.endMinute);
+            }
+        }
+    }
+
+    /**
+     * Xóa hold hết hạn trong DB và nạp lại bộ nhớ từ DB để thấy hold tạo ở các node khác
+     */
+    @Scheduled(fixedDelayString = "${app.booking.hold-sync-ms:5000}")
+    @Transactional
+    public void syncHolds() {
+        long syncStartedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int expired = holdRepository.deleteExpired(now);
+        if (expired > 0) {
+            log.debug("Deleted {} expired slot holds", expired);
+        }
+
+        Map<Long, Map<Long, Hold>> reloaded = new ConcurrentHashMap<>();
+        for (SlotHold hold : holdRepository.findByExpiresAtAfter(now)) {
+            reloaded.computeIfAbsent(hold.getChargingPointId(), id -> new ConcurrentHashMap<>())
+                    .put(hold.getHoldId(), Hold.of(hold));
+        }
+        // Giữ lại các hold được ghi nhận trên node này từ lúc bắt đầu nạp (commit sau khi đọc DB nên có thể chưa thấy).
+        // Đổi map trước rồi mới chép để hold ghi nhận vào map cũ trong lúc chép không bị mất
+        Map<Long, Map<Long, Hold>> previous = holdsByPoint;
+        holdsByPoint = reloaded;
+        for (Map<Long, Hold> holds : previous.values()) {
+            for (Hold hold : holds.values()) {
+                if (hold.registeredAt - syncStartedAt >= 0) {
+                    reloaded.computeIfAbsent(hold.chargingPointId, id -> new ConcurrentHashMap<>()).put(hold.holdId, hold);
+                }
+            }
+        }
+    }
+
+    private Collection<Hold> holdsOf(Long chargingPointId) {
+        Map<Long, Hold> holds = holdsByPoint.get(chargingPointId);
+        return holds != null ? holds.values() : List.of();
+    }
+
+    /**
+     * Ghi nhận hold vào bộ nhớ sau khi transaction commit (rollback thì không để lại hold ảo)
+     */
+    private void remember(SlotHold hold) {
+        afterCommit(() -> holdsByPoint.computeIfAbsent(hold.getChargingPointId(), id -> new ConcurrentHashMap<>())
+                .put(hold.getHoldId(), Hold.of(hold)));
+    }
+
+    /**
+     * Bỏ hold khỏi bộ nhớ sau khi transaction commit (rollback thì hold vẫn còn hiệu lực)
+     */
+    private void forget(Long chargingPointId, Long holdId) {
+        afterCommit(() -> {
+            Map<Long, Hold> holds = holdsByPoint.get(chargingPointId);
+            if (holds != null) {
+                holds.remove(holdId);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private SlotHoldResponseDTO convertToDTO(SlotHold hold) {
+        return SlotHoldResponseDTO.builder()
+                .holdId(hold.getHoldId())
+                .chargingPointId(hold.getChargingPointId())
+                .startTime(hold.getStartTime())
+                .endTime(hold.getEndTime())
+                .expiresAt(hold.getExpiresAt())
+                .build();
+    }
+
+    /**
+     * Bản bất biến của hold trong bộ nhớ
+     */
+    private static class Hold {
+        private final Long holdId;
+        private final Long chargingPointId;
+        private final Long userId;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final LocalDateTime expiresAt;
+        private final long registeredAt; // System.nanoTime() lúc đưa vào bộ nhớ
+        private final long startMinute;
+        private final long endMinute;
+
+        private Hold(Long holdId, Long chargingPointId, Long userId, LocalDateTime startTime,
+                     LocalDateTime endTime, LocalDateTime expiresAt) {
+            this.holdId = holdId;
+            this.chargingPointId = chargingPointId;
+            this.userId = userId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.expiresAt = expiresAt;
+            this.registeredAt = System.nanoTime();
+            this.startMinute = ReservationTimelineIndex.toEpochMinute(startTime);
+            this.endMinute = ReservationTimelineIndex.toEpochMinute(endTime);
+        }
+
+        static Hold of(SlotHold hold) {
+            return new Hold(hold.getHoldId(), hold.getChargingPointId(), hold.getUserId(), hold.getStartTime(),
+                    hold.getEndTime(), hold.getExpiresAt());
+        }
+
+        boolean isActive(LocalDateTime now) {
+            return expiresAt.isAfter(now);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package swp391.code.swp391.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import swp391.code.swp391.dto.AvailableTimeSlotDTO;
+import swp391.code.swp391.dto.ChargingPointAvailabilityDTO;
+import swp391.code.swp391.dto.OrderRequestDTO.PlacementPolicy;
+import swp391.code.swp391.dto.RankedSlotDTO;
+import swp391.code.swp391.entity.ChargingPoint;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.repository.ChargingPointRepository;
+import swp391.code.swp391.util.GapKernel;
+import swp391.code.swp391.util.StationHoursUtil;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Xếp chỗ giảm phân mảnh: đề xuất giờ bắt đầu sát một đầu khoảng trống để phần còn lại là một mảnh liền,
+ * và xếp hạng các khoảng trống của cả trạm theo chính sách (BEST_FIT / TIGHTEST_GAP).
+ *
+ * Mảnh trống ngắn hơn minUsefulMinutes được coi là phân mảnh (không ai đặt được).
+ * Số phút phân mảnh còn lại trong ngày của từng trụ được lấy mẫu định kỳ từ timeline
+ * và xuất ra metric charging.point.fragmented.minutes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotPlacementService {
+
+    private final ChargingPointRepository chargingPointRepository;
+    private final ReservationTimelineIndex timelineIndex;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.booking.placement.min-useful-minutes:30}")
+    private int minUsefulMinutes;
+
+    // chargingPointId -> số phút phân mảnh từ bây giờ tới hết ngày
+    private final Map<Long, double[]> fragmentedByPoint = new ConcurrentHashMap<>();
+
+    /**
+     * Phần trống quá ngắn để dùng được (0 nếu không còn gì hoặc vẫn đủ dùng)
+     */
+    public int fragmentedMinutes(long leftoverMinutes) {
+        return leftoverMinutes > 0 && leftoverMinutes < minUsefulMinutes ? (int) leftoverMinutes : 0;
+    }
+
+    /**
+     * Gán giờ bắt đầu đề xuất cho từng khoảng trống của point và sắp các khoảng theo chính sách.
+     * Đặt sát đầu hoặc cuối khoảng (chọn phía có hệ số giá thấp hơn, hòa thì sớm hơn) để phần còn lại không bị chia đôi.
+     */
+    public void applyPlacement(ChargingPointAvailabilityDTO point, PlacementPolicy policy,
+                               SlotRankingService.PricingContext pricing, double energyToCharge) {
+        int required = point.getRequiredMinutes();
+        for (AvailableTimeSlotDTO slot : point.getAvailableSlots()) {
+            LocalDateTime flushLeft = slot.getFreeFrom();
+            LocalDateTime flushRight = slot.getFreeTo().minusMinutes(required);
+            LocalDateTime start = pricing.factorAt(flushRight) < pricing.factorAt(flushLeft) ? flushRight : flushLeft;
+            int leftover = slot.getAvailableMinutes() - required;
+
+            slot.setProposedStart(start);
+            slot.setLeftoverMinutes(leftover);
+            slot.setFragmentedMinutes(fragmentedMinutes(leftover));
+            slot.setEstimatedCost(pricing.effectiveCost(energyToCharge, point.getPricePerKwh(), start));
+        }
+        point.getAvailableSlots().sort(slotOrder(policy));
+    }
+
+    /**
+     * Thứ tự các khoảng trống trong một point theo chính sách
+     */
+    public Comparator<AvailableTimeSlotDTO> slotOrder(PlacementPolicy policy) {
+        Comparator<AvailableTimeSlotDTO> order = policy == PlacementPolicy.TIGHTEST_GAP
+                ? Comparator.comparing(AvailableTimeSlotDTO::getAvailableMinutes)
+                : Comparator.comparing(AvailableTimeSlotDTO::getFragmentedMinutes)
+                        .thenComparing(AvailableTimeSlotDTO::getLeftoverMinutes);
+        return order.thenComparing(AvailableTimeSlotDTO::getProposedStart);
+    }
+
+    /**
+     * Thứ tự xếp hạng slot đề xuất trên cả trạm (null = theo điểm chi phí/thời gian chờ như mặc định)
+     */
+    public Comparator<RankedSlotDTO> rankingOrder(PlacementPolicy policy) {
+        if (policy == null) {
+            return null;
+        }
+        Comparator<RankedSlotDTO> order = policy == PlacementPolicy.TIGHTEST_GAP
+                ? Comparator.comparing((RankedSlotDTO slot) -> slot.getLeftoverMinutes() + slot.getRequiredMinutes())
+                : Comparator.comparing(RankedSlotDTO::getFragmentedMinutes).thenComparing(RankedSlotDTO::getLeftoverMinutes);
+        return order.thenComparing(RankedSlotDTO::getScore);
+    }
+
+    /**
+     * Lấy mẫu số phút phân mảnh từ bây giờ tới hết giờ mở cửa hôm nay của mỗi trụ.
+     * Chỉ tính các mảnh nằm giữa hai đơn đặt chỗ.
+     */
+    @Scheduled(fixedDelayString = "${app.booking.placement.fragmentation-sample-ms:300000}")
+    public void sampleFragmentation() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDate today = now.toLocalDate();
+            List<ChargingPoint> points = chargingPointRepository.findAll().stream()
+                    .filter(point -> point.getStation() != null
+                            && point.getStation().getStatus() == ChargingStation.ChargingStationStatus.ACTIVE)
+                    .toList();
+            timelineIndex.preload(points.stream().map(ChargingPoint::getChargingPointId).toList(), today, today.plusDays(1));
+
+            Set<Long> seen = new HashSet<>();
+            GapKernel.Buffer gaps = new GapKernel.Buffer();
+            for (ChargingPoint point : points) {
+                long fragmented = 0;
+                for (LocalDateTime[] window : StationHoursUtil.openWindows(point.getStation(), today, today, now)) {
+                    gaps.clear();
+                    timelineIndex.collectFreeGaps(point.getChargingPointId(), window[0], window[1], 0, gaps);
+                    long open = ReservationTimelineIndex.toEpochMinute(window[0]);
+                    long close = ReservationTimelineIndex.toEpochMinute(window[1]);
+                    for (int i = 0; i < gaps.size(); i++) {
+                        // Mảnh sát bây giờ hoặc sát giờ đóng cửa không bị kẹp giữa hai đơn, không tính là phân mảnh
+                        if (gaps.start(i) > open && gaps.end(i) < close) {
+                            fragmented += fragmentedMinutes(gaps.end(i) - gaps.start(i));
+                        }
+                    }
+                }
+                gaugeOf(point)[0] = fragmented;
+                seen.add(point.getChargingPointId());
+            }
+            fragmentedByPoint.forEach((pointId, value) -> {
+                if (!seen.contains(pointId)) {
+                    value[0] = 0;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to sample slot fragmentation: {}", e.getMessage());
+        }
+    }
+
+    private double[] gaugeOf(ChargingPoint point) {
+        return fragmentedByPoint.computeIfAbsent(point.getChargingPointId(), id -> {
+            double[] value = new double[1];
+            Gauge.builder("charging.point.fragmented.minutes", value, v -> v[0])
+                    .tag("chargingPointId", String.valueOf(id))
+                    .tag("stationId", String.valueOf(point.getStation().getStationId()))
+                    .description("Số phút trống quá ngắn để đặt được, từ bây giờ tới hết ngày")
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import swp391.code.swp391.dto.AvailableTimeSlotDTO;
+import swp391.code.swp391.dto.ChargingPointAvailabilityDTO;
+import swp391.code.swp391.dto.RankedSlotDTO;
+import swp391.code.swp391.entity.PriceFactor;
+import swp391.code.swp391.repository.PriceFactorRepository;
+import swp391.code.swp391.repository.SubscriptionRepository;
+import swp391.code.swp391.util.PricingUtil;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Chấm điểm và xếp hạng các slot khả dụng.
+ *
+ * Điểm = chi phí thực tế (giá × hệ số khung giờ × (1 - giảm giá gói))
+ *      + phút chờ × giá trị thời gian chờ + phút sạc × giá trị thời gian sạc.
+ * Hệ số giá và gói đăng ký được tải một lần cho cả lượt tìm kiếm (2 truy vấn), không truy vấn theo từng slot.
+ */
+@Service
+@RequiredArgsConstructor
+public class SlotRankingService {
+
+    private final PriceFactorRepository priceFactorRepository;
+    private final SubscriptionRepository subscriptionRepository;
+
+    @Value("${app.booking.rank.wait-value-per-minute:300}")
+    private double waitValuePerMinute; // VND cho mỗi phút chờ
+
+    @Value("${app.booking.rank.duration-value-per-minute:500}")
+    private double durationValuePerMinute; // VND cho mỗi phút sạc
+
+    /**
+     * Thông tin giá của một trạm cho một user, dùng lại cho mọi slot
+     */
+    public static class PricingContext {
+        private final List<PriceFactor> priceFactors;
+        private final double discount;
+        private final List<LocalTime> boundaries; // Các mốc giờ trong ngày mà hệ số giá có thể thay đổi
+
+        PricingContext(List<PriceFactor> priceFactors, double discount) {
+            this.priceFactors = priceFactors;
+            this.discount = discount;
+            TreeSet<LocalTime> times = new TreeSet<>();
+            for (LocalTime[] peak : PricingUtil.PEAK_HOURS) {
+                times.add(peak[0]);
+                times.add(peak[1]);
+            }
+            for (PriceFactor pf : priceFactors) {
+                if (pf.getStartTime() != null && pf.getEndTime() != null) {
+                    times.add(pf.getStartTime().toLocalTime());
+                    times.add(pf.getEndTime().toLocalTime());
+                }
+            }
+            this.boundaries = new ArrayList<>(times);
+        }
+
+        public double factorAt(LocalDateTime start) {
+            return PricingUtil.priceFactorAt(start.toLocalTime(), priceFactors).doubleValue();
+        }
+
+        public double getDiscount() {
+            return discount;
+        }
+
+        /**
+         * Chi phí ước tính: energy × pricePerKwh × hệ số tại thời điểm bắt đầu × (1 - giảm giá)
+         */
+        public double effectiveCost(double energyKwh, double pricePerKwh, LocalDateTime start) {
+            return energyKwh * pricePerKwh * factorAt(start) * (1 - discount);
+        }
+    }
+
+    /**
+     * Tải hệ số giá của trạm và gói đăng ký còn hiệu lực của user
+     */
+    public PricingContext pricingFor(Long stationId, Long userId) {
+        List<PriceFactor> priceFactors = priceFactorRepository.findByStationStationId(stationId);
+        double discount = userId == null ? 0
+                : PricingUtil.subscriptionDiscount(
+                        subscriptionRepository.findByUser_UserIdAndEndDateAfter(userId, LocalDateTime.now())).doubleValue();
+        return new PricingContext(priceFactors, discount);
+    }
+
+    /**
+     * Top-K slot theo điểm. Trong mỗi khoảng trống, ngoài thời điểm sớm nhất còn xét bắt đầu
+     * tại các mốc đổi giá (ví dụ ngay sau giờ cao điểm); mỗi khoảng trống giữ phương án tốt nhất.
+     */
+    public List<RankedSlotDTO> rankTopK(List<ChargingPointAvailabilityDTO> points, PricingContext pricing,
+                                        double energyToCharge, int k) {
+        return rankTopK(points, pricing, energyToCharge, k, null);
+    }
+
+    /**
+     * Top-K theo thứ tự order (null = theo điểm), xem newTopK
+     */
+    public List<RankedSlotDTO> rankTopK(List<ChargingPointAvailabilityDTO> points, PricingContext pricing,
+                                        double energyToCharge, int k, Comparator<RankedSlotDTO> order) {
+        TopK topK = newTopK(pricing, energyToCharge, k, order);
+        for (ChargingPointAvailabilityDTO point : points) {
+            topK.add(point);
+        }
+        return topK.result();
+    }
+
+    /**
+     * Bộ chọn top-K tăng dần: nhận từng charging point, chỉ giữ k phương án tốt nhất (dùng khi stream kết quả)
+     */
+    public TopK newTopK(PricingContext pricing, double energyToCharge, int k) {
+        return newTopK(pricing, energyToCharge, k, null);
+    }
+
+    /**
+     * Như trên nhưng xếp theo order (ví dụ chính sách xếp chỗ giảm phân mảnh). Khoảng trống đã có
+     * proposedStart chỉ xét đúng thời điểm đó thay vì các mốc đổi giá.
+     */
+    public TopK newTopK(PricingContext pricing, double energyToCharge, int k, Comparator<RankedSlotDTO> order) {
+        return new TopK(pricing, energyToCharge, k, order != null ? order : Comparator.comparing(RankedSlotDTO::getScore));
+    }
+
+    public class TopK {
+        private final PricingContext pricing;
+        private final double energyToCharge;
+        private final int k;
+        private final Comparator<RankedSlotDTO> order;
+        private final LocalDateTime now = LocalDateTime.now();
+        // Max-heap theo thứ tự xếp hạng, giữ k phương án tốt nhất
+        private final PriorityQueue<RankedSlotDTO> best;
+
+        private TopK(PricingContext pricing, double energyToCharge, int k, Comparator<RankedSlotDTO> order) {
+            this.pricing = pricing;
+            this.energyToCharge = energyToCharge;
+            this.k = k;
+            this.order = order;
+            this.best = new PriorityQueue<>(order.reversed());
+        }
+
+        public void add(ChargingPointAvailabilityDTO point) {
+            int required = point.getRequiredMinutes();
+            for (AvailableTimeSlotDTO gap : point.getAvailableSlots()) {
+                LocalDateTime latestStart = gap.getFreeTo().minusMinutes(required);
+                List<LocalDateTime> starts = gap.getProposedStart() != null
+                        ? List.of(gap.getProposedStart())
+                        : candidateStarts(gap.getFreeFrom(), latestStart, pricing.boundaries);
+                RankedSlotDTO bestInGap = null;
+                for (LocalDateTime start : starts) {
+                    RankedSlotDTO candidate = score(point, start, required, pricing, energyToCharge, now);
+                    if (bestInGap == null || candidate.getScore() < bestInGap.getScore()) {
+                        bestInGap = candidate;
+                    }
+                }
+                if (bestInGap == null) {
+                    continue;
+                }
+                bestInGap.setLeftoverMinutes(gap.getLeftoverMinutes());
+                bestInGap.setFragmentedMinutes(gap.getFragmentedMinutes());
+                if (best.size() < k) {
+                    best.add(bestInGap);
+                } else if (order.compare(bestInGap, best.peek()) < 0) {
+                    best.poll();
+                    best.add(bestInGap);
+                }
+            }
+        }
+
+        public List<RankedSlotDTO> result() {
+            List<RankedSlotDTO> result = new ArrayList<>(best);
+            result.sort(order);
+            return result;
+        }
+    }
+
+    private List<LocalDateTime> candidateStarts(LocalDateTime earliest, LocalDateTime latest, List<LocalTime> boundaries) {
+        List<LocalDateTime> starts = new ArrayList<>();
+        if (latest.isBefore(earliest)) {
+            return starts;
+        }
+        starts.add(earliest);
+        for (LocalDate day = earliest.toLocalDate(); !day.isAfter(latest.toLocalDate()); day = day.plusDays(1)) {
+            for (LocalTime boundary : boundaries) {
+                LocalDateTime start = day.atTime(boundary);
+                if (start.isAfter(earliest) && !start.isAfter(latest)) {
+                    starts.add(start);
+                }
+            }
+        }
+        return starts;
+    }
+
+    private RankedSlotDTO score(ChargingPointAvailabilityDTO point, LocalDateTime start, int requiredMinutes,
+                                PricingContext pricing, double energyToCharge, LocalDateTime now) {
+        double factor = pricing.factorAt(start);
+        double cost = energyToCharge * point.getPricePerKwh() * factor * (1 - pricing.discount);
+        long waitMinutes = Math.max(0, Duration.between(now, start).toMinutes());
+        double score = cost + waitMinutes * waitValuePerMinute + requiredMinutes * durationValuePerMinute;
+
+        return RankedSlotDTO.builder()
+                .chargingPointId(point.getChargingPointId())
+                .connectorTypeName(point.getConnectorTypeName())
+                .chargingPower(point.getChargingPower())
+                .startTime(start)
+                .endTime(start.plusMinutes(requiredMinutes))
+                .requiredMinutes(requiredMinutes)
+                .waitMinutes(waitMinutes)
+                .priceFactor(factor)
+                .subscriptionDiscount(pricing.discount)
+                .estimatedCost(cost)
+                .score(score)
+                .build();
+    }
+}
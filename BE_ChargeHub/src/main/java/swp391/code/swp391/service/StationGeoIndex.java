@@ -0,0 +1,318 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import swp391.code.swp391.dto.NearbyStationDTO;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.entity.ChargingStation.ChargingStationStatus;
+import swp391.code.swp391.event.StationChangedEvent;
+import swp391.code.swp391.repository.ChargingStationRepository;
+import swp391.code.swp391.util.GeoUtil;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index không gian trong bộ nhớ cho vị trí các trạm sạc (lưới ô vuông cố định theo độ).
+ *
+ * Mỗi ô 0.05° (~5.5 km) giữ một mảng bất biến các trạm nằm trong ô đó. Truy vấn bán kính chỉ duyệt
+ * các ô giao với bán kính; truy vấn k trạm gần nhất duyệt theo vòng ô mở rộng dần từ ô trung tâm.
+ * Bộ nhớ tỉ lệ tuyến tính với số trạm (chỉ lưu ô có trạm). Index được dựng lúc khởi động,
+ * cập nhật sau khi transaction tạo/sửa/xóa trạm commit, và dựng lại định kỳ thành một lưới mới rồi thay thế
+ * lưới cũ (bắt các thay đổi không qua service, ví dụ SQL trực tiếp hoặc sự kiện bị lỡ).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationGeoIndex {
+
+    private static final double CELL_DEGREES = 0.05;
+    private static final double KM_PER_DEGREE = Math.PI * GeoUtil.EARTH_RADIUS_KM / 180.0;
+    private static final int LAT_CELLS = (int) Math.ceil(180.0 / CELL_DEGREES);
+    private static final int LNG_CELLS = (int) Math.ceil(360.0 / CELL_DEGREES);
+    // Vượt quá số vòng này thì duyệt toàn bộ (ít trạm, phân bố thưa)
+    private static final int MAX_RINGS = 64;
+
+    private final ChargingStationRepository stationRepository;
+
+    private volatile Grid grid = new Grid();
+    private volatile boolean seeded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+        log.info("Station geo index built with {} stations in {} cells", grid.entries.size(), grid.cells.size());
+    }
+
+    /**
+     * Dựng lại định kỳ từ DB
+     */
+    @Scheduled(fixedDelayString = "${app.geo.refresh-ms:60000}", initialDelayString = "${app.geo.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Failed to refresh station geo index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dựng lưới mới từ DB rồi thay lưới hiện tại: truy vấn đang chạy vẫn đọc lưới cũ, không thấy index rỗng.
+     * Giữ khóa trong lúc đọc DB nên sự kiện trạm commit trong lúc dựng được áp lên lưới mới sau khi thay
+     */
+    public synchronized void rebuild() {
+        Grid fresh = new Grid();
+        for (ChargingStation station : stationRepository.findAll()) {
+            fresh.put(station);
+        }
+        grid = fresh;
+        seeded = true;
+        log.debug("Station geo index rebuilt with {} stations in {} cells", fresh.entries.size(), fresh.cells.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationChanged(StationChangedEvent event) {
+        if (!seeded) {
+            return; // Lần truy vấn đầu tiên sẽ dựng lại từ DB
+        }
+        synchronized (this) {
+            grid.remove(event.getStationId());
+            if (event.getType() == StationChangedEvent.Type.UPSERTED && event.getStation() != null) {
+                grid.put(event.getStation());
+            }
+        }
+    }
+
+    /**
+     * Các trạm trong bán kính radiusKm, sắp xếp theo khoảng cách tăng dần
+     *
+     * @param status chỉ lấy trạm có trạng thái này, null = tất cả
+     */
+    public List<NearbyStationDTO> findWithinRadius(double latitude, double longitude, double radiusKm, ChargingStationStatus status) {
+        Grid grid = ensureSeeded();
+        List<NearbyStationDTO> result = new ArrayList<>();
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        int latFrom = Math.max(0, latCell(latitude - latSpan));
+        int latTo = Math.min(LAT_CELLS - 1, latCell(latitude + latSpan));
+
+        double maxAbsLat = Math.abs(latitude) + latSpan;
+        int lngCount = LNG_CELLS;
+        int lngFrom = 0;
+        if (maxAbsLat < 89.0) {
+            double lngSpan = latSpan / Math.cos(Math.toRadians(maxAbsLat));
+            if (lngSpan < 180.0 - CELL_DEGREES) {
+                // Có thể vắt qua kinh tuyến 180 -> đếm ô theo modulo
+                lngFrom = lngCell(longitude - lngSpan);
+                lngCount = Math.floorMod(lngCell(longitude + lngSpan) - lngFrom, LNG_CELLS) + 1;
+            }
+        }
+
+        if ((long) (latTo - latFrom + 1) * lngCount > grid.entries.size()) {
+            // Bán kính quá lớn so với số trạm -> duyệt trực tiếp
+            for (Entry entry : grid.entries.values()) {
+                collect(entry, latitude, longitude, radiusKm, status, result);
+            }
+        } else {
+            for (int latIndex = latFrom; latIndex <= latTo; latIndex++) {
+                for (int i = 0; i < lngCount; i++) {
+                    Entry[] cell = grid.cells.get(cellKey(latIndex, (lngFrom + i) % LNG_CELLS));
+                    if (cell != null) {
+                        for (Entry entry : cell) {
+                            collect(entry, latitude, longitude, radiusKm, status, result);
+                        }
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparing(NearbyStationDTO::getDistanceKm));
+        return result;
+    }
+
+    /**
+     * k trạm gần nhất, sắp xếp theo khoảng cách tăng dần
+     *
+     * @param status chỉ lấy trạm có trạng thái này, null = tất cả
+     */
+    public List<NearbyStationDTO> findNearest(double latitude, double longitude, int k, ChargingStationStatus status) {
+        Grid grid = ensureSeeded();
+        if (k <= 0) {
+            return List.of();
+        }
+        // Max-heap theo khoảng cách, giữ k trạm gần nhất đã thấy
+        PriorityQueue<NearbyStationDTO> best = new PriorityQueue<>(
+                Comparator.comparing(NearbyStationDTO::getDistanceKm).reversed());
+        int centerLat = latCell(latitude);
+        int centerLng = lngCell(longitude);
+
+        boolean exhausted = false;
+        for (int ring = 0; ring <= MAX_RINGS && !exhausted; ring++) {
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                int latIndex = centerLat + dLat;
+                if (latIndex < 0 || latIndex >= LAT_CELLS) {
+                    continue;
+                }
+                boolean edgeRow = Math.abs(dLat) == ring;
+                for (int dLng = -ring; dLng <= ring; dLng += edgeRow ? 1 : Math.max(1, 2 * ring)) {
+                    Entry[] cell = grid.cells.get(cellKey(latIndex, Math.floorMod(centerLng + dLng, LNG_CELLS)));
+                    if (cell != null) {
+                        for (Entry entry : cell) {
+                            offer(best, k, entry, latitude, longitude, status);
+                        }
+                    }
+                }
+            }
+            // Mọi trạm chưa duyệt cách ít nhất ring ô theo vĩ độ hoặc kinh độ
+            if (best.size() == k && best.peek().getDistanceKm() <= minUnvisitedKm(latitude, ring)) {
+                exhausted = true;
+            }
+        }
+
+        if (!exhausted) {
+            // Trạm quá thưa quanh vị trí -> duyệt toàn bộ
+            best.clear();
+            for (Entry entry : grid.entries.values()) {
+                offer(best, k, entry, latitude, longitude, status);
+            }
+        }
+
+        List<NearbyStationDTO> result = new ArrayList<>(best);
+        result.sort(Comparator.comparing(NearbyStationDTO::getDistanceKm));
+        return result;
+    }
+
+    /**
+     * Lưới hiện tại, dựng từ DB nếu chưa có (mỗi truy vấn đọc trọn một lưới kể cả khi lưới bị thay giữa chừng)
+     */
+    private Grid ensureSeeded() {
+        if (!seeded) {
+            synchronized (this) {
+                if (!seeded) {
+                    rebuild();
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static void collect(Entry entry, double latitude, double longitude, double radiusKm,
+                                ChargingStationStatus status, List<NearbyStationDTO> result) {
+        if (status != null && entry.status != status) {
+            return;
+        }
+        double distance = GeoUtil.distanceKm(latitude, longitude, entry.latitude, entry.longitude);
+        if (distance <= radiusKm) {
+            result.add(entry.toDTO(distance));
+        }
+    }
+
+    private static void offer(PriorityQueue<NearbyStationDTO> best, int k, Entry entry,
+                              double latitude, double longitude, ChargingStationStatus status) {
+        if (status != null && entry.status != status) {
+            return;
+        }
+        double distance = GeoUtil.distanceKm(latitude, longitude, entry.latitude, entry.longitude);
+        if (best.size() < k) {
+            best.add(entry.toDTO(distance));
+        } else if (distance < best.peek().getDistanceKm()) {
+            best.poll();
+            best.add(entry.toDTO(distance));
+        }
+    }
+
+    /**
+     * Khoảng cách tối thiểu (km) tới các ô nằm ngoài ring vòng đã duyệt
+     */
+    private static double minUnvisitedKm(double latitude, int ring) {
+        double maxAbsLat = Math.min(89.0, Math.abs(latitude) + (ring + 1) * CELL_DEGREES);
+        return ring * CELL_DEGREES * KM_PER_DEGREE * Math.cos(Math.toRadians(maxAbsLat));
+    }
+
+    private static int latCell(double latitude) {
+        return (int) Math.floor((latitude + 90.0) / CELL_DEGREES);
+    }
+
+    private static int lngCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / CELL_DEGREES), LNG_CELLS);
+    }
+
+    private static long cellKey(int latIndex, int lngIndex) {
+        return (long) latIndex * LNG_CELLS + lngIndex;
+    }
+
+    /**
+     * Các ô của lưới và trạm theo ID; sửa dưới khóa của index, đọc không khóa
+     */
+    private static class Grid {
+        private final Map<Long, Entry[]> cells = new ConcurrentHashMap<>();
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        void put(ChargingStation station) {
+            Entry entry = new Entry(station.getStationId(), station.getStationName(), station.getAddress(),
+                    station.getLatitude(), station.getLongitude(), station.getStatus());
+            entries.put(entry.stationId, entry);
+            long key = cellKey(latCell(entry.latitude), lngCell(entry.longitude));
+            Entry[] cell = cells.get(key);
+            Entry[] updated;
+            if (cell == null) {
+                updated = new Entry[]{entry};
+            } else {
+                updated = Arrays.copyOf(cell, cell.length + 1);
+                updated[cell.length] = entry;
+            }
+            cells.put(key, updated);
+        }
+
+        void remove(Long stationId) {
+            Entry entry = entries.remove(stationId);
+            if (entry == null) {
+                return;
+            }
+            long key = cellKey(latCell(entry.latitude), lngCell(entry.longitude));
+            Entry[] cell = cells.get(key);
+            if (cell == null) {
+                return;
+            }
+            Entry[] updated = Arrays.stream(cell).filter(e -> !e.stationId.equals(stationId)).toArray(Entry[]::new);
+            if (updated.length == 0) {
+                cells.remove(key);
+            } else {
+                cells.put(key, updated);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Long stationId;
+        private final String stationName;
+        private final String address;
+        private final double latitude;
+        private final double longitude;
+        private final ChargingStationStatus status;
+
+        Entry(Long stationId, String stationName, String address, double latitude, double longitude, ChargingStationStatus status) {
+            this.stationId = stationId;
+            this.stationName = stationName;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.status = status;
+        }
+
+        NearbyStationDTO toDTO(double distanceKm) {
+            return NearbyStationDTO.builder()
+                    .stationId(stationId)
+                    .stationName(stationName)
+                    .address(address)
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .status(status)
+                    .distanceKm(distanceKm)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package swp391.code.swp391.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import swp391.code.swp391.entity.ChargingPoint;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.exception.ApiRequestException;
+import swp391.code.swp391.repository.ChargingPointRepository;
+import swp391.code.swp391.repository.ChargingStationRepository;
+import swp391.code.swp391.util.GapKernel;
+import swp391.code.swp391.util.LoadProfile;
+import swp391.code.swp391.util.OccupancyBitmap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Kiểm soát công suất của trạm (powerBudgetKw) khi đặt chỗ.
+ *
+ * Mỗi đơn được tính ở công suất tối đa của trụ (connector powerOutput) trong suốt khoảng đặt.
+ * Với trạm có giới hạn, bên gọi (trong transaction đặt chỗ) khóa dòng station (SELECT ... FOR UPDATE)
+ * rồi đọc bitmap point_occupancy của mọi trụ dưới khóa dòng, nên hai đơn trên hai trụ khác nhau -
+ * kể cả trên hai node khác nhau - không cùng lọt qua. Tải đỉnh được tính bằng một lượt quét đầu mút
+ * các khoảng bận giao với khung giờ cần kiểm tra, nên chi phí không tăng theo tổng số đơn của trạm.
+ * lockScope vẫn khóa mọi trụ của trạm trong tiến trình để các request trên cùng node chờ nhau trước khi vào DB.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationPowerBudgetService {
+
+    private final ChargingPointRepository chargingPointRepository;
+    private final ChargingStationRepository chargingStationRepository;
+    private final OccupancyService occupancyService;
+
+    public boolean isLimited(ChargingStation station) {
+        return station != null && station.getPowerBudgetKw() != null;
+    }
+
+    /**
+     * Các point cần khóa khi đặt chỗ: thêm mọi point của các trạm có giới hạn công suất
+     */
+    public Collection<Long> lockScope(Collection<Long> chargingPointIds, Collection<ChargingStation> stations) {
+        TreeSet<Long> ids = new TreeSet<>(chargingPointIds);
+        for (ChargingStation station : stations) {
+            if (isLimited(station)) {
+                chargingPointRepository.findByStationStationId(station.getStationId())
+                        .forEach(point -> ids.add(point.getChargingPointId()));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Biểu đồ tải hiện tại của trạm trong [from, to), đọc từ bitmap đã commit dưới khóa dòng của station.
+     * Phải gọi trong transaction đặt chỗ: các khóa được giữ tới khi transaction kết thúc.
+     */
+    public StationLoad loadOf(ChargingStation station, LocalDateTime from, LocalDateTime to) {
+        // 1. Khóa dòng station: các transaction đặt chỗ trên trạm này (mọi node) xếp hàng tại đây
+        chargingStationRepository.findForUpdate(station.getStationId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy trạm sạc"));
+
+        // 2. Đọc bitmap của mọi point dưới khóa dòng (luôn là bản đã commit mới nhất)
+        List<ChargingPoint> points = chargingPointRepository.findByStationStationId(station.getStationId());
+        Map<Long, Map<LocalDate, long[]>> bitmaps = occupancyService.lockDays(
+                points.stream().map(ChargingPoint::getChargingPointId).toList(), from.toLocalDate(), to.toLocalDate());
+
+        // 3. Gom các đoạn bận giao với [from, to)
+        long fromMinute = ReservationTimelineIndex.toEpochMinute(from);
+        long toMinute = ReservationTimelineIndex.toEpochMinute(to);
+        GapKernel.Buffer intervals = new GapKernel.Buffer();
+        double[] kw = new double[16];
+        for (ChargingPoint point : points) {
+            int before = intervals.size();
+            for (Map.Entry<LocalDate, long[]> day : bitmaps.get(point.getChargingPointId()).entrySet()) {
+                collectBusy(day.getValue(), ReservationTimelineIndex.toEpochMinute(day.getKey().atStartOfDay()),
+                        fromMinute, toMinute, intervals);
+            }
+            if (intervals.size() > kw.length) {
+                kw = Arrays.copyOf(kw, Math.max(kw.length * 2, intervals.size()));
+            }
+            Arrays.fill(kw, before, intervals.size(), powerOf(point));
+        }
+        return new StationLoad(station.getPowerBudgetKw(), LoadProfile.of(intervals, kw));
+    }
+
+    /**
+     * Từ chối nếu thêm point vào [from, to) làm tải đỉnh của trạm vượt giới hạn
+     */
+    public void checkAdmission(ChargingStation station, ChargingPoint point, LocalDateTime from, LocalDateTime to) {
+        if (!isLimited(station)) {
+            return;
+        }
+        StationLoad load = loadOf(station, from, to);
+        if (!load.fits(point, from, to)) {
+            log.info("Rejected booking on point {} at station {}: peak {} kW + {} kW exceeds budget {} kW",
+                    point.getChargingPointId(), station.getStationId(), load.peak(from, to), powerOf(point),
+                    station.getPowerBudgetKw());
+            throw new ApiRequestException("Trạm đã đạt giới hạn công suất trong khung giờ này, vui lòng chọn giờ khác");
+        }
+    }
+
+    /**
+     * Thêm các đoạn bit 1 liên tiếp của bitmap một ngày (bắt đầu từ dayStart) nằm trong [fromMinute, toMinute)
+     */
+    private static void collectBusy(long[] words, long dayStart, long fromMinute, long toMinute, GapKernel.Buffer out) {
+        int limit = (int) Math.min(OccupancyBitmap.MINUTES_PER_DAY, Math.max(0, toMinute - dayStart));
+        int minute = OccupancyBitmap.next(words, (int) Math.min(limit, Math.max(0, fromMinute - dayStart)), limit, true);
+        while (minute < limit) {
+            int end = OccupancyBitmap.next(words, minute, limit, false);
+            out.add(dayStart + minute, dayStart + end);
+            minute = OccupancyBitmap.next(words, end, limit, true);
+        }
+    }
+
+    static double powerOf(ChargingPoint point) {
+        return point.getConnectorType() != null ? point.getConnectorType().getPowerOutput() : 0;
+    }
+
+    /**
+     * Tải của một trạm; các đơn xếp thêm trong cùng batch được cộng bằng reserve
+     */
+    public static class StationLoad {
+        private final double budgetKw;
+        private final LoadProfile profile;
+
+        StationLoad(double budgetKw, LoadProfile profile) {
+            this.budgetKw = budgetKw;
+            this.profile = profile;
+        }
+
+        public double peak(LocalDateTime from, LocalDateTime to) {
+            return profile.peak(ReservationTimelineIndex.toEpochMinute(from), ReservationTimelineIndex.toEpochMinute(to));
+        }
+
+        public boolean fits(ChargingPoint point, LocalDateTime from, LocalDateTime to) {
+            return peak(from, to) + powerOf(point) <= budgetKw + 1e-9;
+        }
+
+        public void reserve(ChargingPoint point, LocalDateTime from, LocalDateTime to) {
+            profile.add(ReservationTimelineIndex.toEpochMinute(from), ReservationTimelineIndex.toEpochMinute(to),
+                    powerOf(point));
+        }
+    }
+}
@@ -146,6 +146,8 @@ public class VehicleServiceImpl implements VehicleService {
                     carModel.getBrand(),
                     carModel.getModel(),
                     carModel.getCapacity(),
+                    carModel.getMaxChargePowerKw(),
+                    carModel.getTaperStartSoc(),
                     carModel.getProductYear(),
                     connectorTypeIds,
                     carModel.getImg_url()
@@ -0,0 +1,556 @@
+package swp391.code.swp391.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.dto.ConfirmOrderDTO;
+import swp391.code.swp391.dto.OrderResponseDTO;
+import swp391.code.swp391.dto.SlotHoldRequestDTO;
+import swp391.code.swp391.dto.SlotHoldResponseDTO;
+import swp391.code.swp391.dto.WaitlistRequestDTO;
+import swp391.code.swp391.dto.WaitlistResponseDTO;
+import swp391.code.swp391.entity.CarModel;
+import swp391.code.swp391.entity.ChargingPoint;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.entity.ConnectorType;
+import swp391.code.swp391.entity.Vehicle;
+import swp391.code.swp391.entity.WaitlistEntry;
+import swp391.code.swp391.event.HoldConsumedEvent;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.exception.ApiRequestException;
+import swp391.code.swp391.repository.ChargingPointRepository;
+import swp391.code.swp391.repository.ChargingStationRepository;
+import swp391.code.swp391.repository.ConnectorTypeRepository;
+import swp391.code.swp391.repository.VehicleRepository;
+import swp391.code.swp391.repository.WaitlistEntryRepository;
+import swp391.code.swp391.util.ChargeCurve;
+import swp391.code.swp391.util.ChargingTimeUtil;
+import swp391.code.swp391.util.StationHoursUtil;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Danh sách chờ theo (trạm, loại connector).
+ *
+ * Người chờ được giữ trong bộ nhớ, sắp theo thời gian sạc cần thiết (tra sẵn từ đường cong sạc của xe trên
+ * connector đã chọn khi đưa vào index). Khi một khoảng thời gian được giải phóng (hủy đơn, kết thúc phiên sớm),
+ * khoảng trống được ghép với người chờ "vừa khít" nhất (cần nhiều thời gian nhất mà vẫn lọt) mà không cần quét DB. Người chờ được đặt tự động hoặc được giữ chỗ tạm và nhận thông báo.
+ * Bảng waitlist_entries là nguồn dữ liệu chính; bộ nhớ được nạp lại định kỳ để thấy đăng ký từ các node khác.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaitlistService {
+
+    // Số người chờ thử tối đa cho một khoảng trống (tránh lặp khi khoảng trống đã bị lấy)
+    private static final int MAX_ATTEMPTS_PER_GAP = 3;
+
+    private final WaitlistEntryRepository waitlistRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ChargingStationRepository stationRepository;
+    private final ChargingPointRepository chargingPointRepository;
+    private final ConnectorTypeRepository connectorTypeRepository;
+    private final ReservationTimelineIndex timelineIndex;
+    private final SlotHoldService slotHoldService;
+    private final OrderService orderService;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    // "stationId:connectorTypeId" -> người chờ sắp theo năng lượng tăng dần
+    private final Map<String, ConcurrentSkipListSet<Waiter>> waitersByKey = new ConcurrentHashMap<>();
+    private final Map<Long, Waiter> waitersById = new ConcurrentHashMap<>();
+
+    // Một luồng duy nhất ghép khoảng trống: các lần giải phóng được xử lý tuần tự, không tranh nhau người chờ
+    private ExecutorService promoter;
+
+    @PostConstruct
+    void start() {
+        promoter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waitlist-promoter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        promoter.shutdownNow();
+    }
+
+    /**
+     * Đăng ký chờ slot tại trạm
+     */
+    @Transactional
+    public WaitlistResponseDTO join(WaitlistRequestDTO request) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 1. Kiểm tra dữ liệu đầu vào
+        if (!request.getEarliestStart().isBefore(request.getLatestEnd())) {
+            throw new ApiRequestException("Thời gian muộn nhất phải sau thời gian sớm nhất");
+        }
+        if (!request.getLatestEnd().isAfter(now)) {
+            throw new ApiRequestException("Khung thời gian đã qua");
+        }
+        if (request.getTargetBattery() <= request.getCurrentBattery()) {
+            throw new ApiRequestException("Pin mong muốn phải lớn hơn pin hiện tại");
+        }
+
+        // 2. Xe thuộc user và hỗ trợ loại connector
+        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy xe"));
+        if (vehicle.getUser() == null || !vehicle.getUser().getUserId().equals(request.getUserId())) {
+            throw new ApiRequestException("Xe này không thuộc về bạn");
+        }
+        if (vehicle.getCarModel() == null) {
+            throw new ApiRequestException("Xe này không có thông tin dòng xe");
+        }
+        List<ConnectorType> compatible = vehicle.getCarModel().getConnectorTypes();
+        ConnectorType connectorType = compatible == null ? null : compatible.stream()
+                .filter(connector -> connector.getConnectorTypeId().equals(request.getConnectorTypeId()))
+                .findFirst()
+                .orElse(null);
+        if (connectorType == null) {
+            throw new ApiRequestException("Xe không hỗ trợ loại kết nối này");
+        }
+
+        // 3. Trạm có trụ sạc với loại connector này
+        ChargingStation station = stationRepository.findById(request.getStationId())
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy trạm sạc"));
+        if (station.getStatus() != ChargingStation.ChargingStationStatus.ACTIVE) {
+            throw new ApiRequestException("Trạm sạc không hoạt động");
+        }
+        boolean hasConnector = chargingPointRepository.findByStationStationId(station.getStationId()).stream()
+                .anyMatch(point -> point.getConnectorType() != null
+                        && point.getConnectorType().getConnectorTypeId().equals(request.getConnectorTypeId()));
+        if (!hasConnector) {
+            throw new ApiRequestException("Trạm không có trụ sạc với loại kết nối này");
+        }
+
+        // 4. Lưu và đưa vào index
+        double energyToCharge = (request.getTargetBattery() - request.getCurrentBattery()) / 100.0
+                * vehicle.getCarModel().getCapacity();
+        WaitlistEntry entry = waitlistRepository.save(WaitlistEntry.builder()
+                .userId(request.getUserId())
+                .vehicleId(request.getVehicleId())
+                .stationId(request.getStationId())
+                .connectorTypeId(request.getConnectorTypeId())
+                .earliestStart(request.getEarliestStart().isBefore(now) ? now : request.getEarliestStart())
+                .latestEnd(request.getLatestEnd())
+                .currentBattery(request.getCurrentBattery())
+                .targetBattery(request.getTargetBattery())
+                .energyToCharge(energyToCharge)
+                .autoBook(Boolean.TRUE.equals(request.getAutoBook()))
+                .status(WaitlistEntry.Status.WAITING)
+                .createdAt(now)
+                .build());
+        index(Waiter.of(entry, chargeMinutes(entry, vehicle.getCarModel(), connectorType.getPowerOutput())));
+        return convertToDTO(entry);
+    }
+
+    /**
+     * Rời danh sách chờ (bỏ luôn giữ chỗ nếu đang được mời)
+     */
+    @Transactional
+    public void leave(Long waitlistId, Long userId) {
+        WaitlistEntry entry = waitlistRepository.findByWaitlistIdAndUserId(waitlistId, userId)
+                .orElseThrow(() -> new ApiRequestException("Không tìm thấy đăng ký chờ"));
+        if (entry.getStatus() != WaitlistEntry.Status.WAITING && entry.getStatus() != WaitlistEntry.Status.OFFERED) {
+            throw new ApiRequestException("Đăng ký chờ đã kết thúc");
+        }
+        if (entry.getStatus() == WaitlistEntry.Status.OFFERED && entry.getHoldId() != null) {
+            try {
+                slotHoldService.releaseHold(entry.getHoldId(), userId);
+            } catch (ApiRequestException e) {
+                // Giữ chỗ đã hết hạn hoặc đã được dùng
+            }
+        }
+        entry.setStatus(WaitlistEntry.Status.CANCELLED);
+        waitlistRepository.save(entry);
+        unindex(entry.getWaitlistId());
+    }
+
+    @Transactional(readOnly = true)
+    public List<WaitlistResponseDTO> getUserEntries(Long userId) {
+        return waitlistRepository.findByUserIdAndStatusInOrderByCreatedAtDesc(userId,
+                        List.of(WaitlistEntry.Status.WAITING, WaitlistEntry.Status.OFFERED, WaitlistEntry.Status.BOOKED))
+                .stream()
+                .map(this::convertToDTO)
+                .toList();
+    }
+
+    /**
+     * Sau khi khoảng thời gian được giải phóng và commit, chuyển việc ghép sang luồng promoter
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.getType() != ReservationChangedEvent.Type.RELEASED || event.getChargingPointId() == null
+                || event.getStartTime() == null || event.getEndTime() == null) {
+            return;
+        }
+        if (waitersById.isEmpty()) {
+            return;
+        }
+        promoter.execute(() -> {
+            try {
+                promote(event.getChargingPointId(), event.getStartTime(), event.getEndTime());
+            } catch (Exception e) {
+                log.warn("Waitlist promotion failed for charging point {}: {}", event.getChargingPointId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Ghép khoảng trống quanh [releasedStart, releasedEnd) của point với danh sách chờ
+     */
+    void promote(Long chargingPointId, LocalDateTime releasedStart, LocalDateTime releasedEnd) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!releasedEnd.isAfter(now)) {
+            return;
+        }
+        ChargingPoint point = chargingPointRepository.findById(chargingPointId).orElse(null);
+        if (point == null || !point.isBookable()
+                || point.getConnectorType() == null || point.getStation() == null) {
+            return;
+        }
+        ConcurrentSkipListSet<Waiter> waiters = waitersByKey.get(
+                key(point.getStation().getStationId(), point.getConnectorType().getConnectorTypeId()));
+        if (waiters == null || waiters.isEmpty()) {
+            return;
+        }
+
+        // 1. Khoảng trống thực tế chứa phần được giải phóng (nối với khoảng trống liền kề, trong giờ mở cửa)
+        LocalDateTime from = releasedStart.isBefore(now) ? now : releasedStart;
+        Deque<ReservationTimelineIndex.FreeGap> gaps = new ArrayDeque<>();
+        for (LocalDateTime[] window : StationHoursUtil.openWindows(point.getStation(),
+                from.toLocalDate(), releasedEnd.toLocalDate(), now)) {
+            List<ReservationTimelineIndex.FreeGap> free = slotHoldService.excludeHeld(chargingPointId, null,
+                    timelineIndex.findFreeGaps(chargingPointId, window[0], window[1]));
+            for (ReservationTimelineIndex.FreeGap gap : free) {
+                if (gap.getStart().isBefore(releasedEnd) && gap.getEnd().isAfter(from)) {
+                    gaps.add(gap);
+                }
+            }
+        }
+
+        // 2. Mỗi khoảng trống nhận người chờ vừa khít nhất; phần thừa hai bên được ghép tiếp
+        while (!gaps.isEmpty() && !waiters.isEmpty()) {
+            ReservationTimelineIndex.FreeGap gap = gaps.poll();
+            LocalDateTime[] booked = fillGap(point, gap, waiters, now);
+            if (booked != null) {
+                addGap(gaps, gap.getStart(), booked[0]);
+                addGap(gaps, booked[1], gap.getEnd());
+            }
+        }
+    }
+
+    /**
+     * Duyệt người chờ theo thời gian sạc giảm dần, bắt đầu từ mức lớn nhất còn lọt khoảng trống
+     *
+     * @return [start, end) đã cấp cho người chờ, null nếu không ai phù hợp
+     */
+    private LocalDateTime[] fillGap(ChargingPoint point, ReservationTimelineIndex.FreeGap gap,
+                                    ConcurrentSkipListSet<Waiter> waiters, LocalDateTime now) {
+        int attempts = 0;
+        for (Waiter waiter : waiters.headSet(Waiter.probe(gap.getDurationMinutes()), true).descendingSet()) {
+            if (!waiter.latestEnd.isAfter(now)) {
+                unindex(waiter.waitlistId);
+                continue;
+            }
+            LocalDateTime start = gap.getStart().isBefore(waiter.earliestStart) ? waiter.earliestStart : gap.getStart();
+            LocalDateTime end = start.plusMinutes(waiter.chargeMinutes);
+            LocalDateTime limit = gap.getEnd().isBefore(waiter.latestEnd) ? gap.getEnd() : waiter.latestEnd;
+            if (end.isAfter(limit)) {
+                continue;
+            }
+            if (tryPromote(waiter, point, start, end)) {
+                return new LocalDateTime[]{start, end};
+            }
+            if (++attempts >= MAX_ATTEMPTS_PER_GAP) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Giành đăng ký (chỉ một node thắng) rồi đặt chỗ hoặc giữ chỗ trong cùng một transaction
+     */
+    private boolean tryPromote(Waiter waiter, ChargingPoint point, LocalDateTime start, LocalDateTime end) {
+        WaitlistEntry.Status target = waiter.autoBook ? WaitlistEntry.Status.BOOKED : WaitlistEntry.Status.OFFERED;
+        try {
+            WaitlistEntry promoted = transactionTemplate.execute(status -> {
+                if (waitlistRepository.transition(waiter.waitlistId, WaitlistEntry.Status.WAITING, target) == 0) {
+                    return null;
+                }
+                WaitlistEntry entry = waitlistRepository.findById(waiter.waitlistId).orElseThrow();
+                if (waiter.autoBook) {
+                    OrderResponseDTO order = orderService.confirmOrder(ConfirmOrderDTO.builder()
+                            .userId(entry.getUserId())
+                            .vehicleId(entry.getVehicleId())
+                            .stationId(entry.getStationId())
+                            .chargingPointId(point.getChargingPointId())
+                            .startTime(start)
+                            .endTime(end)
+                            .currentBattery(entry.getCurrentBattery())
+                            .targetBattery(entry.getTargetBattery())
+                            .energyToCharge(entry.getEnergyToCharge())
+                            .estimatedCost(entry.getEnergyToCharge() * point.getConnectorType().getPricePerKWh())
+                            .connectorTypeId(entry.getConnectorTypeId())
+                            .notes("Đặt tự động từ danh sách chờ")
+                            .build());
+                    entry.setOrderId(order.getOrderId());
+                } else {
+                    SlotHoldResponseDTO hold = slotHoldService.createHold(SlotHoldRequestDTO.builder()
+                            .userId(entry.getUserId())
+                            .chargingPointId(point.getChargingPointId())
+                            .startTime(start)
+                            .endTime(end)
+                            .build());
+                    entry.setHoldId(hold.getHoldId());
+                    entry.setOfferExpiresAt(hold.getExpiresAt());
+                }
+                entry.setStatus(target);
+                return waitlistRepository.save(entry);
+            });
+            // promoted == null: đăng ký đã được node khác xử lý hoặc đã hủy
+            unindex(waiter.waitlistId);
+            if (promoted != null) {
+                notifyPromoted(promoted, point, start, end);
+                return true;
+            }
+        } catch (ApiRequestException e) {
+            // Transaction đã rollback, người chờ vẫn ở trạng thái WAITING
+            log.debug("Waitlist entry {} not promoted: {}", waiter.waitlistId, e.getMessage());
+        }
+        return false;
+    }
+
+    private void notifyPromoted(WaitlistEntry entry, ChargingPoint point, LocalDateTime start, LocalDateTime end) {
+        try {
+            if (entry.getStatus() == WaitlistEntry.Status.BOOKED) {
+                notificationService.createBookingOrderNotification(entry.getOrderId(),
+                        NotificationServiceImpl.NotificationEvent.BOOKING_SUCCESS, "Đặt tự động từ danh sách chờ");
+            } else {
+                notificationService.createGeneralNotification(List.of(entry.getUserId()),
+                        "Có slot trống cho bạn",
+                        "Trụ " + point.getChargingPointId() + " trống từ " + start + " đến " + end
+                                + ". Slot được giữ cho bạn đến " + entry.getOfferExpiresAt()
+                                + ", vui lòng xác nhận với mã giữ chỗ " + entry.getHoldId() + ".");
+            }
+        } catch (Exception e) {
+            log.warn("Failed to notify waitlist entry {}: {}", entry.getWaitlistId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Người chờ xác nhận đặt chỗ bằng mã giữ chỗ được mời: đăng ký chuyển sang BOOKED trước khi transaction
+     * tạo order commit, nên maintain() không đưa lại về trạng thái chờ và không mời / đặt thêm lần nữa
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onHoldConsumed(HoldConsumedEvent event) {
+        waitlistRepository.findByHoldId(event.getHoldId())
+                .filter(entry -> entry.getUserId().equals(event.getUserId()))
+                .ifPresent(entry -> {
+                    if (waitlistRepository.markBooked(entry.getWaitlistId(), event.getHoldId(), event.getOrderId()) > 0) {
+                        unindex(entry.getWaitlistId());
+                    }
+                });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Hết hạn đăng ký quá hạn, trả lời mời chưa xác nhận về trạng thái chờ và nạp lại index từ DB
+     */
+    @Scheduled(fixedDelayString = "${app.booking.waitlist-sync-ms:60000}")
+    public void maintain() {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            int expired = waitlistRepository.expireEnded(now);
+            if (expired > 0) {
+                log.debug("Expired {} waitlist entries", expired);
+            }
+            for (WaitlistEntry entry : waitlistRepository.findByStatusAndOfferExpiresAtBefore(WaitlistEntry.Status.OFFERED, now)) {
+                // Giữ holdId: xác nhận đặt chỗ đang chạy với hold này vẫn chuyển được đăng ký sang BOOKED
+                entry.setStatus(WaitlistEntry.Status.WAITING);
+                entry.setOfferExpiresAt(null);
+                waitlistRepository.save(entry);
+            }
+        });
+        reload();
+    }
+
+    private void reload() {
+        List<WaitlistEntry> entries = waitlistRepository.findByStatusAndLatestEndAfter(
+                WaitlistEntry.Status.WAITING, LocalDateTime.now());
+        Set<Long> active = new HashSet<>();
+        List<WaitlistEntry> added = new ArrayList<>();
+        for (WaitlistEntry entry : entries) {
+            active.add(entry.getWaitlistId());
+            if (!waitersById.containsKey(entry.getWaitlistId())) {
+                added.add(entry);
+            }
+        }
+        if (!added.isEmpty()) {
+            List<Waiter> waiters = transactionTemplate.execute(status -> toWaiters(added));
+            if (waiters != null) {
+                waiters.forEach(this::index);
+            }
+        }
+        for (Long waitlistId : new ArrayList<>(waitersById.keySet())) {
+            if (!active.contains(waitlistId)) {
+                unindex(waitlistId);
+            }
+        }
+    }
+
+    private void index(Waiter waiter) {
+        waitersById.put(waiter.waitlistId, waiter);
+        waitersByKey.computeIfAbsent(waiter.key, key -> new ConcurrentSkipListSet<>()).add(waiter);
+    }
+
+    private void unindex(Long waitlistId) {
+        Waiter waiter = waitersById.remove(waitlistId);
+        if (waiter != null) {
+            ConcurrentSkipListSet<Waiter> waiters = waitersByKey.get(waiter.key);
+            if (waiters != null) {
+                waiters.remove(waiter);
+            }
+        }
+    }
+
+    /**
+     * Dựng người chờ cho các đăng ký (nạp xe và connector bằng một truy vấn mỗi loại)
+     */
+    private List<Waiter> toWaiters(List<WaitlistEntry> entries) {
+        Set<Long> vehicleIds = new HashSet<>();
+        Set<Long> connectorTypeIds = new HashSet<>();
+        for (WaitlistEntry entry : entries) {
+            vehicleIds.add(entry.getVehicleId());
+            connectorTypeIds.add(entry.getConnectorTypeId());
+        }
+        Map<Long, Vehicle> vehicles = new HashMap<>();
+        vehicleRepository.findAllById(vehicleIds).forEach(vehicle -> vehicles.put(vehicle.getId(), vehicle));
+        Map<Long, ConnectorType> connectorTypes = new HashMap<>();
+        connectorTypeRepository.findAllById(connectorTypeIds)
+                .forEach(connector -> connectorTypes.put(connector.getConnectorTypeId(), connector));
+
+        List<Waiter> waiters = new ArrayList<>(entries.size());
+        for (WaitlistEntry entry : entries) {
+            Vehicle vehicle = vehicles.get(entry.getVehicleId());
+            ConnectorType connectorType = connectorTypes.get(entry.getConnectorTypeId());
+            if (vehicle == null || vehicle.getCarModel() == null || connectorType == null) {
+                continue; // Xe hoặc connector đã bị xóa
+            }
+            waiters.add(Waiter.of(entry, chargeMinutes(entry, vehicle.getCarModel(), connectorType.getPowerOutput())));
+        }
+        return waiters;
+    }
+
+    /**
+     * Thời gian sạc từ pin hiện tại tới pin mong muốn theo đường cong sạc của xe trên connector
+     */
+    private static int chargeMinutes(WaitlistEntry entry, CarModel carModel, double power) {
+        if (entry.getCurrentBattery() == null || entry.getTargetBattery() == null) {
+            return ChargingTimeUtil.estimateMinutes(entry.getEnergyToCharge(), power); // Đăng ký cũ chỉ có năng lượng
+        }
+        return ChargeCurve.of(carModel, power).minutes(entry.getCurrentBattery(), entry.getTargetBattery());
+    }
+
+    private static void addGap(Deque<ReservationTimelineIndex.FreeGap> gaps, LocalDateTime start, LocalDateTime end) {
+        int minutes = (int) Duration.between(start, end).toMinutes();
+        if (minutes > 0) {
+            gaps.add(new ReservationTimelineIndex.FreeGap(start, end, minutes));
+        }
+    }
+
+    private static String key(Long stationId, Long connectorTypeId) {
+        return stationId + ":" + connectorTypeId;
+    }
+
+    private WaitlistResponseDTO convertToDTO(WaitlistEntry entry) {
+        return WaitlistResponseDTO.builder()
+                .waitlistId(entry.getWaitlistId())
+                .vehicleId(entry.getVehicleId())
+                .stationId(entry.getStationId())
+                .connectorTypeId(entry.getConnectorTypeId())
+                .earliestStart(entry.getEarliestStart())
+                .latestEnd(entry.getLatestEnd())
+                .energyToCharge(entry.getEnergyToCharge())
+                .autoBook(entry.getAutoBook())
+                .status(entry.getStatus().name())
+                .holdId(entry.getStatus() == WaitlistEntry.Status.OFFERED ? entry.getHoldId() : null)
+                .offerExpiresAt(entry.getOfferExpiresAt())
+                .orderId(entry.getOrderId())
+                .build();
+    }
+
+    /**
+     * Người chờ trong bộ nhớ. Thứ tự: thời gian sạc tăng dần; cùng thời gian thì ai đăng ký trước đứng sau
+     * (để khi duyệt giảm dần, người đến trước được ưu tiên).
+     */
+    private static class Waiter implements Comparable<Waiter> {
+        private final Long waitlistId;
+        private final String key;
+        private final int chargeMinutes;
+        private final LocalDateTime earliestStart;
+        private final LocalDateTime latestEnd;
+        private final boolean autoBook;
+        private final LocalDateTime createdAt;
+
+        private Waiter(Long waitlistId, String key, int chargeMinutes, LocalDateTime earliestStart,
+                       LocalDateTime latestEnd, boolean autoBook, LocalDateTime createdAt) {
+            this.waitlistId = waitlistId;
+            this.key = key;
+            this.chargeMinutes = chargeMinutes;
+            this.earliestStart = earliestStart;
+            this.latestEnd = latestEnd;
+            this.autoBook = autoBook;
+            this.createdAt = createdAt;
+        }
+
+        static Waiter of(WaitlistEntry entry, int chargeMinutes) {
+            return new Waiter(entry.getWaitlistId(), key(entry.getStationId(), entry.getConnectorTypeId()),
+                    chargeMinutes, entry.getEarliestStart(), entry.getLatestEnd(),
+                    Boolean.TRUE.equals(entry.getAutoBook()), entry.getCreatedAt());
+        }
+
+        /**
+         * Mốc so sánh đứng sau mọi người chờ cần <= minutes phút
+         */
+        static Waiter probe(int minutes) {
+            return new Waiter(Long.MIN_VALUE, null, minutes, null, null, false, LocalDateTime.MIN);
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byMinutes = Integer.compare(chargeMinutes, other.chargeMinutes);
+            if (byMinutes != 0) {
+                return byMinutes;
+            }
+            int byCreated = other.createdAt.compareTo(createdAt);
+            if (byCreated != 0) {
+                return byCreated;
+            }
+            return other.waitlistId.compareTo(waitlistId);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package swp391.code.swp391.util;
+
+import swp391.code.swp391.entity.CarModel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đường cong sạc của một cặp (CarModel, công suất connector) dạng bảng tra dựng sẵn.
+ *
+ * Công suất sạc = min(công suất connector, công suất tối đa xe nhận) đến taperStartSoc,
+ * sau đó giảm tuyến tính còn TAPER_FLOOR lần ở 100%. minutesAt[s] là số phút sạc từ 0% tới s%
+ * (tích phân theo từng 1% SoC, đã nhân hệ số hao hụt), nên thời gian sạc giữa hai mức pin
+ * là hai lần đọc mảng và nội suy, không tính lại đường cong.
+ * Bảng được dựng một lần cho mỗi bộ thông số và dùng chung.
+ */
+public final class ChargeCurve {
+
+    // Hệ số hao hụt so với sạc lý thuyết ở công suất tối đa
+    public static final double EFFICIENCY_OVERHEAD = 1.15;
+    // SoC mặc định bắt đầu giảm công suất khi CarModel chưa khai báo
+    public static final double DEFAULT_TAPER_START_SOC = 80;
+    // Tỉ lệ công suất còn lại ở 100%
+    private static final double TAPER_FLOOR = 0.15;
+    private static final int STEPS = 100;
+
+    private static final Map<Key, ChargeCurve> CURVES = new ConcurrentHashMap<>();
+
+    private final double[] minutesAt;
+
+    private ChargeCurve(double[] minutesAt) {
+        this.minutesAt = minutesAt;
+    }
+
+    public static ChargeCurve of(CarModel carModel, double connectorPowerKw) {
+        return of(carModel.getCapacity(), connectorPowerKw, carModel.getMaxChargePowerKw(), carModel.getTaperStartSoc());
+    }
+
+    /**
+     * @param maxChargePowerKw công suất tối đa xe nhận (null = không giới hạn)
+     * @param taperStartSoc    SoC bắt đầu giảm công suất (null = DEFAULT_TAPER_START_SOC, 100 = không giảm)
+     * @throws IllegalArgumentException nếu dung lượng pin hoặc công suất sạc không dương
+     */
+    public static ChargeCurve of(double capacityKwh, double connectorPowerKw, Double maxChargePowerKw, Double taperStartSoc) {
+        double power = maxChargePowerKw != null ? Math.min(connectorPowerKw, maxChargePowerKw) : connectorPowerKw;
+        if (!(capacityKwh > 0) || !(power > 0)) {
+            throw new IllegalArgumentException("Capacity and charging power must be positive: capacity="
+                    + capacityKwh + ", power=" + power);
+        }
+        double taperStart = taperStartSoc != null ? taperStartSoc : DEFAULT_TAPER_START_SOC;
+        return CURVES.computeIfAbsent(new Key(capacityKwh, power, taperStart), ChargeCurve::build);
+    }
+
+    private static ChargeCurve build(Key key) {
+        double[] minutesAt = new double[STEPS + 1];
+        double kwhPerStep = key.capacityKwh / STEPS;
+        for (int s = 0; s < STEPS; s++) {
+            double power = key.powerKw * powerFactor(s + 0.5, key.taperStartSoc); // Công suất giữa bước
+            minutesAt[s + 1] = minutesAt[s] + kwhPerStep / power * 60 * EFFICIENCY_OVERHEAD;
+        }
+        return new ChargeCurve(minutesAt);
+    }
+
+    private static double powerFactor(double soc, double taperStart) {
+        if (soc <= taperStart || taperStart >= STEPS) {
+            return 1;
+        }
+        return 1 - (1 - TAPER_FLOOR) * (soc - taperStart) / (STEPS - taperStart);
+    }
+
+    /**
+     * Số phút (làm tròn lên) để sạc từ fromSoc% lên toSoc%
+     */
+    public int minutes(double fromSoc, double toSoc) {
+        return (int) Math.ceil(minutesBetween(fromSoc, toSoc));
+    }
+
+    public double minutesBetween(double fromSoc, double toSoc) {
+        return Math.max(0, minutesAt(toSoc) - minutesAt(fromSoc));
+    }
+
+    /**
+     * Mức pin sau khi sạc thêm minutes phút từ fromSoc%
+     */
+    public double socAfter(double fromSoc, double minutes) {
+        double target = minutesAt(fromSoc) + minutes;
+        if (target >= minutesAt[STEPS]) {
+            return STEPS;
+        }
+        int lo = 0;
+        int hi = STEPS;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (minutesAt[mid] <= target) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo + (target - minutesAt[lo]) / (minutesAt[hi] - minutesAt[lo]);
+    }
+
+    private double minutesAt(double soc) {
+        double clamped = Math.max(0, Math.min(STEPS, soc));
+        int i = (int) clamped;
+        if (i == STEPS) {
+            return minutesAt[STEPS];
+        }
+        return minutesAt[i] + (clamped - i) * (minutesAt[i + 1] - minutesAt[i]);
+    }
+
+    private record Key(double capacityKwh, double powerKw, double taperStartSoc) {
+    }
+}
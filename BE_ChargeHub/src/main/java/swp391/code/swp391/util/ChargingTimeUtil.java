@@ -0,0 +1,21 @@
+package swp391.code.swp391.util;
+
+/**
+ * Utility class ước tính thời gian sạc theo năng lượng ở công suất không đổi.
+ * Khi biết xe và mức pin, dùng ChargeCurve (có giảm công suất gần đầy); ước tính này là cận dưới của ChargeCurve
+ * với cùng công suất connector, dùng khi chỉ có năng lượng cần sạc.
+ */
+public class ChargingTimeUtil {
+
+    private ChargingTimeUtil() {
+    }
+
+    /**
+     * Số phút cần để sạc energyToChargeKwh với công suất chargingPowerKw
+     */
+    public static int estimateMinutes(double energyToChargeKwh, double chargingPowerKw) {
+        double theoreticalHours = energyToChargeKwh / chargingPowerKw;
+        double adjustedHours = theoreticalHours * ChargeCurve.EFFICIENCY_OVERHEAD;
+        return (int) Math.ceil(adjustedHours * 60);
+    }
+}
@@ -0,0 +1,164 @@
+package swp391.code.swp391.util;
+
+import java.util.Arrays;
+
+/**
+ * Utility class tìm khoảng trống trên mảng primitive (phút tính từ epoch).
+ *
+ * Các hàm chỉ ghi vào Buffer do bên gọi truyền vào và không tạo object; mỗi luồng dùng lại
+ * một Workspace (ThreadLocal) nên ở trạng thái ổn định việc tìm gap không cấp phát bộ nhớ.
+ * Khoảng luôn là nửa mở [start, end).
+ */
+public class GapKernel {
+
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    private GapKernel() {
+    }
+
+    /**
+     * Danh sách khoảng [start, end) dạng hai mảng song song, tự nới khi đầy
+     */
+    public static final class Buffer {
+        private long[] starts = new long[64];
+        private long[] ends = new long[64];
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        public long start(int i) {
+            return starts[i];
+        }
+
+        public long end(int i) {
+            return ends[i];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public void add(long start, long end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size++] = end;
+        }
+    }
+
+    /**
+     * Các buffer dùng lại cho một lần tìm gap trên một luồng
+     */
+    public static final class Workspace {
+        public final Buffer free = new Buffer();
+        public final Buffer busy = new Buffer();
+        public final Buffer result = new Buffer();
+
+        public Workspace clear() {
+            free.clear();
+            busy.clear();
+            result.clear();
+            return this;
+        }
+    }
+
+    /**
+     * Workspace của luồng hiện tại (đã xóa dữ liệu cũ)
+     */
+    public static Workspace workspace() {
+        return WORKSPACES.get().clear();
+    }
+
+    /**
+     * Vị trí đầu tiên có end > minute trong các khoảng rời nhau đã sắp xếp
+     */
+    public static int firstEndingAfter(long[] ends, int size, long minute) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] <= minute) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Ghi vào out các khoảng trống trong [from, to) giữa các khoảng bận (rời nhau, đã sắp xếp)
+     * có độ dài >= minLength
+     *
+     * @return số khoảng đã ghi
+     */
+    public static int freeGaps(long[] busyStarts, long[] busyEnds, int busySize, long from, long to,
+                               long minLength, Buffer out) {
+        int before = out.size;
+        if (from >= to) {
+            return 0;
+        }
+        long cursor = from;
+        for (int i = firstEndingAfter(busyEnds, busySize, from); i < busySize && busyStarts[i] < to; i++) {
+            if (busyStarts[i] - cursor >= Math.max(1, minLength)) {
+                out.add(cursor, busyStarts[i]);
+            }
+            cursor = Math.max(cursor, busyEnds[i]);
+        }
+        if (to - cursor >= Math.max(1, minLength)) {
+            out.add(cursor, to);
+        }
+        return out.size - before;
+    }
+
+    /**
+     * Trừ các khoảng bận (có thể chồng nhau, chưa sắp xếp; bị sắp xếp lại tại chỗ) khỏi gaps,
+     * ghi các phần còn lại có độ dài >= minLength vào out
+     *
+     * @return số khoảng đã ghi
+     */
+    public static int subtract(Buffer gaps, Buffer busy, long minLength, Buffer out) {
+        int before = out.size;
+        sortByStart(busy);
+        long min = Math.max(1, minLength);
+        for (int g = 0; g < gaps.size; g++) {
+            long cursor = gaps.starts[g];
+            long gapEnd = gaps.ends[g];
+            for (int b = 0; b < busy.size; b++) {
+                if (busy.ends[b] <= cursor || busy.starts[b] >= gapEnd) {
+                    continue;
+                }
+                if (busy.starts[b] - cursor >= min) {
+                    out.add(cursor, busy.starts[b]);
+                }
+                cursor = Math.max(cursor, busy.ends[b]);
+            }
+            if (gapEnd - cursor >= min) {
+                out.add(cursor, gapEnd);
+            }
+        }
+        return out.size - before;
+    }
+
+    /**
+     * Sắp xếp chèn theo start (số khoảng bận như hold thường rất ít)
+     */
+    private static void sortByStart(Buffer buffer) {
+        for (int i = 1; i < buffer.size; i++) {
+            long start = buffer.starts[i];
+            long end = buffer.ends[i];
+            int j = i - 1;
+            while (j >= 0 && buffer.starts[j] > start) {
+                buffer.starts[j + 1] = buffer.starts[j];
+                buffer.ends[j + 1] = buffer.ends[j];
+                j--;
+            }
+            buffer.starts[j + 1] = start;
+            buffer.ends[j + 1] = end;
+        }
+    }
+}
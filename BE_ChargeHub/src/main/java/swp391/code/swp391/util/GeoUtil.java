@@ -0,0 +1,24 @@
+package swp391.code.swp391.util;
+
+/**
+ * Utility class cho các phép tính khoảng cách địa lý
+ */
+public class GeoUtil {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private GeoUtil() {
+    }
+
+    /**
+     * Khoảng cách great-circle (haversine) giữa hai tọa độ, đơn vị km
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,129 @@
+package swp391.code.swp391.util;
+
+import java.util.Arrays;
+
+/**
+ * Biểu đồ tải (kW) theo thời gian dạng hàm bậc thang trên phút epoch.
+ *
+ * loads[i] là tổng công suất trong [times[i], times[i + 1]); trước times[0] và sau mốc cuối tải bằng 0.
+ * Dựng một lần bằng quét các đầu mút (sắp xếp O(n log n)), truy vấn tải đỉnh trong một khoảng
+ * là binary search + duyệt các mốc nằm trong khoảng.
+ */
+public class LoadProfile {
+
+    // Bit thấp của khóa sự kiện: chỉ số khoảng (tối đa 2^19 khoảng), bit kế tiếp: 1 = bắt đầu
+    private static final int INDEX_BITS = 19;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private long[] times;
+    private double[] loads;
+    private int size;
+
+    private LoadProfile(long[] times, double[] loads, int size) {
+        this.times = times;
+        this.loads = loads;
+        this.size = size;
+    }
+
+    /**
+     * Dựng biểu đồ tải từ các khoảng [start, end) với công suất kw[i] tương ứng từng khoảng
+     */
+    public static LoadProfile of(GapKernel.Buffer intervals, double[] kw) {
+        int count = intervals.size();
+        if (count > INDEX_MASK) {
+            throw new IllegalArgumentException("Too many intervals: " + count);
+        }
+        // Kết thúc xếp trước bắt đầu ở cùng một phút vì khoảng là nửa mở
+        long[] events = new long[count * 2];
+        for (int i = 0; i < count; i++) {
+            events[2 * i] = (intervals.start(i) << (INDEX_BITS + 1)) | (1L << INDEX_BITS) | i;
+            events[2 * i + 1] = (intervals.end(i) << (INDEX_BITS + 1)) | i;
+        }
+        Arrays.sort(events);
+
+        long[] times = new long[events.length];
+        double[] loads = new double[events.length];
+        int size = 0;
+        double load = 0;
+        for (int e = 0; e < events.length; ) {
+            long minute = events[e] >> (INDEX_BITS + 1);
+            // Gộp mọi sự kiện cùng phút thành một mốc
+            while (e < events.length && events[e] >> (INDEX_BITS + 1) == minute) {
+                int index = (int) (events[e] & INDEX_MASK);
+                boolean start = (events[e] & (1L << INDEX_BITS)) != 0;
+                load += start ? kw[index] : -kw[index];
+                e++;
+            }
+            times[size] = minute;
+            loads[size++] = Math.max(0, load);
+        }
+        return new LoadProfile(times, loads, size);
+    }
+
+    /**
+     * Tải lớn nhất trong [from, to)
+     */
+    public double peak(long from, long to) {
+        int i = lastAtOrBefore(from);
+        double peak = i >= 0 ? loads[i] : 0;
+        for (int j = i + 1; j < size && times[j] < to; j++) {
+            peak = Math.max(peak, loads[j]);
+        }
+        return peak;
+    }
+
+    /**
+     * Thêm kw vào toàn bộ [from, to) (ví dụ các đơn vừa xếp trong cùng một batch)
+     */
+    public void add(long from, long to, double kw) {
+        if (from >= to) {
+            return;
+        }
+        long[] t = new long[size + 2];
+        double[] l = new double[size + 2];
+        int n = 0;
+        int i = 0;
+        double current = 0;
+        while (i < size && times[i] < from) {
+            current = loads[i];
+            t[n] = times[i];
+            l[n++] = loads[i++];
+        }
+        if (i < size && times[i] == from) {
+            current = loads[i++];
+        }
+        t[n] = from;
+        l[n++] = current + kw;
+        while (i < size && times[i] < to) {
+            current = loads[i];
+            t[n] = times[i];
+            l[n++] = loads[i++] + kw;
+        }
+        if (i < size && times[i] == to) {
+            current = loads[i++];
+        }
+        t[n] = to;
+        l[n++] = current;
+        while (i < size) {
+            t[n] = times[i];
+            l[n++] = loads[i++];
+        }
+        times = t;
+        loads = l;
+        size = n;
+    }
+
+    private int lastAtOrBefore(long minute) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= minute) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+}
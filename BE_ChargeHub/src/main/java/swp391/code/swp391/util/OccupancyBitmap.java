@@ -0,0 +1,96 @@
+package swp391.code.swp391.util;
+
+/**
+ * Utility class cho bitmap chiếm dụng theo phút của một charging point trong một ngày.
+ * Mỗi ngày có 1440 bit (1 bit = 1 phút), lưu trong DB dưới dạng 180 byte.
+ * Bit = 1 nghĩa là phút đó đã có người đặt.
+ */
+public class OccupancyBitmap {
+
+    public static final int MINUTES_PER_DAY = 1440;
+    public static final int BYTES = MINUTES_PER_DAY / 8;
+    public static final int WORDS = (MINUTES_PER_DAY + 63) / 64;
+
+    private OccupancyBitmap() {
+    }
+
+    public static long[] empty() {
+        return new long[WORDS];
+    }
+
+    /**
+     * Đánh dấu các phút [from, to) là đã chiếm
+     */
+    public static void set(long[] words, int from, int to) {
+        for (int w = from >>> 6; w < WORDS && (w << 6) < to; w++) {
+            words[w] |= rangeMask(w, from, to);
+        }
+    }
+
+    /**
+     * Giải phóng các phút [from, to)
+     */
+    public static void clear(long[] words, int from, int to) {
+        for (int w = from >>> 6; w < WORDS && (w << 6) < to; w++) {
+            words[w] &= ~rangeMask(w, from, to);
+        }
+    }
+
+    /**
+     * Kiểm tra toàn bộ [from, to) còn trống
+     */
+    public static boolean isFree(long[] words, int from, int to) {
+        for (int w = from >>> 6; w < WORDS && (w << 6) < to; w++) {
+            if ((words[w] & rangeMask(w, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tìm phút có trạng thái bằng value đầu tiên trong [from, limit), trả về limit nếu không có
+     */
+    public static int next(long[] words, int from, int limit, boolean value) {
+        int minute = from;
+        while (minute < limit) {
+            int w = minute >>> 6;
+            long word = value ? words[w] : ~words[w];
+            word &= -1L << (minute & 63); // bỏ các bit trước minute
+            if (word != 0) {
+                return Math.min(limit, (w << 6) + Long.numberOfTrailingZeros(word));
+            }
+            minute = (w + 1) << 6;
+        }
+        return limit;
+    }
+
+    public static byte[] toBytes(long[] words) {
+        byte[] bytes = new byte[BYTES];
+        for (int i = 0; i < BYTES; i++) {
+            bytes[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
+        }
+        return bytes;
+    }
+
+    public static long[] fromBytes(byte[] bytes) {
+        long[] words = empty();
+        if (bytes == null) {
+            return words;
+        }
+        for (int i = 0; i < Math.min(bytes.length, BYTES); i++) {
+            words[i >>> 3] |= (bytes[i] & 0xFFL) << ((i & 7) << 3);
+        }
+        return words;
+    }
+
+    private static long rangeMask(int word, int from, int to) {
+        int lo = Math.max(from - (word << 6), 0);
+        int hi = Math.min(to - (word << 6), 64);
+        if (lo >= hi) {
+            return 0L;
+        }
+        long upper = hi == 64 ? -1L : (1L << hi) - 1;
+        return upper & (-1L << lo);
+    }
+}
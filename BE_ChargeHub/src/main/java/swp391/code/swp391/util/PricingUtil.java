@@ -0,0 +1,82 @@
+package swp391.code.swp391.util;
+
+import swp391.code.swp391.entity.PriceFactor;
+import swp391.code.swp391.entity.Subscription;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.Collection;
+
+/**
+ * Utility class cho quy tắc giá dùng chung giữa thanh toán và ước tính khi tìm slot:
+ * hệ số giá theo khung giờ và mức giảm giá theo gói đăng ký.
+ */
+public class PricingUtil {
+
+    public static final BigDecimal PEAK_FACTOR = new BigDecimal("1.5");
+
+    // Giờ cao điểm (10:00-12:00, 17:00-20:00)
+    public static final LocalTime[][] PEAK_HOURS = {
+            {LocalTime.of(10, 0), LocalTime.of(12, 0)},
+            {LocalTime.of(17, 0), LocalTime.of(20, 0)}
+    };
+
+    private PricingUtil() {
+    }
+
+    public static boolean isPeakHour(LocalTime time) {
+        for (LocalTime[] peak : PEAK_HOURS) {
+            if (time.isAfter(peak[0]) && time.isBefore(peak[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hệ số của khung PriceFactor chứa thời điểm time (so theo giờ trong ngày), null nếu không có
+     */
+    public static BigDecimal matchingFactor(LocalTime time, Collection<PriceFactor> priceFactors) {
+        for (PriceFactor pf : priceFactors) {
+            if (pf.getStartTime() != null && pf.getEndTime() != null && pf.getFactor() != null) {
+                LocalTime pfStart = pf.getStartTime().toLocalTime();
+                LocalTime pfEnd = pf.getEndTime().toLocalTime();
+                if (time.isAfter(pfStart) && time.isBefore(pfEnd)) {
+                    return BigDecimal.valueOf(pf.getFactor());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hệ số giá áp dụng cho phiên bắt đầu lúc time: giờ cao điểm, sau đó PriceFactor của trạm, mặc định 1.0
+     */
+    public static BigDecimal priceFactorAt(LocalTime time, Collection<PriceFactor> priceFactors) {
+        if (isPeakHour(time)) {
+            return PEAK_FACTOR;
+        }
+        BigDecimal factor = matchingFactor(time, priceFactors);
+        return factor != null ? factor : BigDecimal.ONE;
+    }
+
+    /**
+     * Mức giảm giá của gói cao nhất trong các gói còn hiệu lực
+     * - BASIC: 0%, PLUS: 10%, PREMIUM: 20%
+     */
+    public static BigDecimal subscriptionDiscount(Collection<Subscription> activeSubscriptions) {
+        return activeSubscriptions.stream()
+                .map(Subscription::getType)
+                .max(Enum::compareTo)
+                .map(PricingUtil::discountOf)
+                .orElse(BigDecimal.ZERO);
+    }
+
+    public static BigDecimal discountOf(Subscription.Type type) {
+        return switch (type) {
+            case PREMIUM -> new BigDecimal("0.20"); // 20%
+            case PLUS -> new BigDecimal("0.10");    // 10%
+            case BASIC -> BigDecimal.ZERO;          // 0%
+        };
+    }
+}
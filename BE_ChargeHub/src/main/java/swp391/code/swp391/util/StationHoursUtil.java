@@ -0,0 +1,71 @@
+package swp391.code.swp391.util;
+
+import swp391.code.swp391.entity.ChargingStation;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class cho giờ mở cửa của trạm sạc.
+ * Giờ đóng cửa nhỏ hơn giờ mở cửa nghĩa là trạm mở qua đêm.
+ */
+public class StationHoursUtil {
+
+    public static final LocalTime DEFAULT_OPENING_TIME = LocalTime.of(0, 0);
+    public static final LocalTime DEFAULT_CLOSING_TIME = LocalTime.of(23, 30);
+
+    private StationHoursUtil() {
+    }
+
+    public static LocalTime openingTimeOf(ChargingStation station) {
+        return station.getOpeningTime() != null ? station.getOpeningTime() : DEFAULT_OPENING_TIME;
+    }
+
+    public static LocalTime closingTimeOf(ChargingStation station) {
+        return station.getClosingTime() != null ? station.getClosingTime() : DEFAULT_CLOSING_TIME;
+    }
+
+    /**
+     * Các khung giờ mở cửa của các ngày [firstDay, lastDay] (kèm phần qua đêm của ngày trước firstDay),
+     * bỏ phần trước notBefore
+     */
+    public static List<LocalDateTime[]> openWindows(ChargingStation station, LocalDate firstDay, LocalDate lastDay,
+                                                    LocalDateTime notBefore) {
+        LocalTime opening = openingTimeOf(station);
+        LocalTime closing = closingTimeOf(station);
+
+        List<LocalDateTime[]> windows = new ArrayList<>();
+        for (LocalDate day = firstDay.minusDays(1); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            LocalDateTime dayStart = LocalDateTime.of(day, opening);
+            LocalDateTime dayEnd = closing.isAfter(opening)
+                    ? LocalDateTime.of(day, closing)
+                    : LocalDateTime.of(day.plusDays(1), closing);
+            LocalDateTime searchStart = notBefore.isBefore(dayStart) ? dayStart : notBefore;
+            if (searchStart.isBefore(dayEnd)) {
+                windows.add(new LocalDateTime[]{searchStart, dayEnd});
+            }
+        }
+        return windows;
+    }
+
+    /**
+     * Kiểm tra [start, end) nằm trọn trong một khung giờ mở cửa của trạm
+     */
+    public static boolean isWithinOpeningHours(ChargingStation station, LocalDateTime start, LocalDateTime end) {
+        LocalTime opening = openingTimeOf(station);
+        LocalTime closing = closingTimeOf(station);
+        for (LocalDate day = start.toLocalDate().minusDays(1); !day.isAfter(start.toLocalDate()); day = day.plusDays(1)) {
+            LocalDateTime open = LocalDateTime.of(day, opening);
+            LocalDateTime close = closing.isAfter(opening)
+                    ? LocalDateTime.of(day, closing)
+                    : LocalDateTime.of(day.plusDays(1), closing);
+            if (!start.isBefore(open) && !end.isAfter(close)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package swp391.code.swp391.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel: vòng gồm wheelSize ô, mỗi ô ứng với một tick (tickMillis).
+ *
+ * Timer có hạn ở tick t nằm trong ô (t & mask) dưới dạng danh sách liên kết đôi, nên thêm / hủy là O(1)
+ * bất kể số timer. Mỗi lần advance chỉ duyệt các ô của những tick đã qua và lấy ra các timer đến hạn;
+ * timer có hạn xa hơn một vòng vẫn nằm trong ô và được kiểm tra lại ở vòng sau (so deadline tuyệt đối,
+ * nên bỏ lỡ nhiều tick vẫn đúng). Không tự chạy thread: caller gọi advance theo chu kỳ.
+ */
+public final class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Timeout<T>[] buckets;
+    private long currentTick; // Tick cuối cùng đã xử lý
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new Timeout[wheelSize];
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Thêm timer có hạn lúc deadlineMillis (hạn đã qua thì đến hạn ở lần advance kế tiếp)
+     */
+    public synchronized Timeout<T> schedule(T payload, long deadlineMillis) {
+        long tick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(payload, tick);
+        link(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Hủy timer chưa đến hạn
+     *
+     * @return false nếu timer đã đến hạn hoặc đã bị hủy trước đó
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Xử lý các tick tới nowMillis
+     *
+     * @return payload của các timer đến hạn, theo thứ tự ô được duyệt: đúng thứ tự tick khi advance đều đặn,
+     * nhưng khi bỏ lỡ từ một vòng trở lên thì timer quá hạn lâu có thể đứng sau timer có hạn muộn hơn
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        if (nowTick <= currentTick) {
+            return expired;
+        }
+        // Bỏ lỡ từ một vòng trở lên thì mỗi ô chỉ cần duyệt một lần
+        long from = Math.max(currentTick + 1, nowTick - mask);
+        for (long tick = from; tick <= nowTick; tick++) {
+            Timeout<T> timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= nowTick) {
+                    unlink(timeout);
+                    size--;
+                    expired.add(timeout.payload);
+                }
+                timeout = next;
+            }
+        }
+        currentTick = nowTick;
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void link(Timeout<T> timeout) {
+        int bucket = (int) (timeout.deadlineTick & mask);
+        timeout.bucket = bucket;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    /**
+     * Handle của một timer, dùng để hủy
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private int bucket = -1;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package swp391.code.swp391.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import swp391.code.swp391.dto.AvailableTimeSlotDTO;
+import swp391.code.swp391.service.OccupancyService;
+import swp391.code.swp391.service.ReservationTimelineIndex;
+import swp391.code.swp391.util.ChargingTimeUtil;
+import swp391.code.swp391.util.GapKernel;
+import swp391.code.swp391.util.OccupancyBitmap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * So sánh tìm gap của một charging point: đường cũ (FreeGap/LocalDateTime + subtract + stream)
+ * với GapKernel trên mảng phút primitive.
+ *
+ * Chạy (đo cả allocation rate với -prof gc):
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main GapKernelBenchmark -prof gc"
+ * hoặc chạy main() từ IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GapKernelBenchmark {
+
+    private static final Long POINT_ID = 1L;
+    private static final double ENERGY_KWH = 30;
+    private static final double POWER_KW = 50;
+    private static final LocalTime CLOSING = LocalTime.of(23, 30);
+
+    @Param({"10", "100", "1000"})
+    public int ordersPerPoint;
+
+    private ReservationTimelineIndex timelineIndex;
+    private List<LocalDateTime[]> openWindows;
+    private List<LocalDateTime[]> holds;
+    private long holdStart;
+    private long holdEnd;
+
+    @Setup
+    public void setUp() {
+        // Mỗi order 60 phút, khoảng trống xen kẽ 20 và 90 phút (chỉ một nửa đủ để sạc)
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        Map<LocalDate, long[]> days = new HashMap<>();
+        LocalDate day = firstDay;
+        int minute = 0;
+        for (int i = 0; i < ordersPerPoint; i++) {
+            if (minute + 60 > CLOSING.toSecondOfDay() / 60) {
+                day = day.plusDays(1);
+                minute = 0;
+            }
+            OccupancyBitmap.set(days.computeIfAbsent(day, d -> OccupancyBitmap.empty()), minute, minute + 60);
+            minute += 60 + (i % 2 == 0 ? 20 : 90);
+        }
+        LocalDate lastDay = day;
+
+        OccupancyService occupancyService = new OccupancyService(null, null, null) {
+            @Override
+            public Map<Long, Map<LocalDate, long[]>> loadDays(Collection<Long> ids, LocalDate from, LocalDate to) {
+                return Map.of(POINT_ID, days);
+            }
+        };
+        timelineIndex = new ReservationTimelineIndex(occupancyService);
+        timelineIndex.preload(List.of(POINT_ID), LocalDate.now(), lastDay);
+
+        openWindows = new ArrayList<>();
+        for (LocalDate d = firstDay; !d.isAfter(lastDay); d = d.plusDays(1)) {
+            openWindows.add(new LocalDateTime[]{d.atStartOfDay(), d.atTime(CLOSING)});
+        }
+
+        // Một hold của người khác ở giữa horizon
+        LocalDateTime held = firstDay.atTime(12, 0);
+        holds = List.<LocalDateTime[]>of(new LocalDateTime[]{held, held.plusMinutes(30)});
+        holdStart = ReservationTimelineIndex.toEpochMinute(held);
+        holdEnd = holdStart + 30;
+    }
+
+    /**
+     * Đường cũ trong OrderServiceImpl.findAvailableGap
+     */
+    @Benchmark
+    public void legacyPath(Blackhole blackhole) {
+        int requiredMinutes = ChargingTimeUtil.estimateMinutes(ENERGY_KWH, POWER_KW);
+        List<ReservationTimelineIndex.FreeGap> allGaps = new ArrayList<>();
+        for (LocalDateTime[] window : openWindows) {
+            allGaps.addAll(timelineIndex.findFreeGaps(POINT_ID, window[0], window[1]));
+        }
+        allGaps = ReservationTimelineIndex.subtract(allGaps, holds);
+
+        List<AvailableTimeSlotDTO> slots = allGaps.stream()
+                .filter(gap -> gap.getDurationMinutes() >= requiredMinutes)
+                .map(gap -> AvailableTimeSlotDTO.builder()
+                        .freeFrom(gap.getStart())
+                        .freeTo(gap.getEnd())
+                        .availableMinutes(gap.getDurationMinutes())
+                        .requiredMinutes(requiredMinutes)
+                        .build())
+                .collect(Collectors.toList());
+        blackhole.consume(slots);
+        blackhole.consume(slots.stream().mapToInt(AvailableTimeSlotDTO::getAvailableMinutes).sum());
+    }
+
+    /**
+     * GapKernel: chỉ các khoảng đủ thời gian mới tạo DTO (giống OrderServiceImpl hiện tại)
+     */
+    @Benchmark
+    public void kernelPath(Blackhole blackhole) {
+        int requiredMinutes = ChargingTimeUtil.estimateMinutes(ENERGY_KWH, POWER_KW);
+        GapKernel.Workspace workspace = GapKernel.workspace();
+        for (LocalDateTime[] window : openWindows) {
+            timelineIndex.collectFreeGaps(POINT_ID, window[0], window[1], requiredMinutes, workspace.free);
+        }
+        workspace.busy.add(holdStart, holdEnd);
+        GapKernel.subtract(workspace.free, workspace.busy, requiredMinutes, workspace.result);
+
+        GapKernel.Buffer gaps = workspace.result;
+        List<AvailableTimeSlotDTO> slots = new ArrayList<>(gaps.size());
+        int total = 0;
+        for (int i = 0; i < gaps.size(); i++) {
+            int availableMinutes = (int) (gaps.end(i) - gaps.start(i));
+            slots.add(AvailableTimeSlotDTO.builder()
+                    .freeFrom(ReservationTimelineIndex.fromEpochMinute(gaps.start(i)))
+                    .freeTo(ReservationTimelineIndex.fromEpochMinute(gaps.end(i)))
+                    .availableMinutes(availableMinutes)
+                    .requiredMinutes(requiredMinutes)
+                    .build());
+            total += availableMinutes;
+        }
+        blackhole.consume(slots);
+        blackhole.consume(total);
+    }
+
+    /**
+     * Chỉ phần tìm gap (không tạo DTO) để thấy kernel không cấp phát
+     */
+    @Benchmark
+    public int kernelOnly() {
+        int requiredMinutes = ChargingTimeUtil.estimateMinutes(ENERGY_KWH, POWER_KW);
+        GapKernel.Workspace workspace = GapKernel.workspace();
+        for (LocalDateTime[] window : openWindows) {
+            timelineIndex.collectFreeGaps(POINT_ID, window[0], window[1], requiredMinutes, workspace.free);
+        }
+        workspace.busy.add(holdStart, holdEnd);
+        return GapKernel.subtract(workspace.free, workspace.busy, requiredMinutes, workspace.result);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(GapKernelBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,127 @@
+package swp391.code.swp391.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.service.AvailabilityCache;
+import swp391.code.swp391.util.GapKernel;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AvailabilityCacheTest {
+
+    private static final Long STATION_ID = 1L;
+    private static final Long POINT_ID = 10L;
+    private static final List<Long> CONNECTORS = List.of(1L);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AvailabilityCache cache;
+
+    private final LocalDate today = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        cache = new AvailabilityCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "energyBucketKwh", 5.0);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.invokeMethod(cache, "registerMetrics");
+    }
+
+    @Test
+    void testStore_ResultComputedBeforeInvalidationIsDropped() {
+        AvailabilityCache.Lookup lookup = computeAndRecord(today);
+
+        // Có đặt chỗ commit trong lúc đang tính: kết quả đã cũ
+        cache.onReservationChanged(booking(today));
+        cache.store(lookup);
+
+        assertFalse(lookup(today).isHit());
+    }
+
+    @Test
+    void testOnReservationChanged_InvalidatesOnlyOverlappingDays() {
+        LocalDate later = today.plusDays(5);
+        cache.store(computeAndRecord(today));
+        cache.store(computeAndRecord(later));
+
+        cache.onReservationChanged(booking(today));
+
+        assertFalse(lookup(today).isHit());
+        assertTrue(lookup(later).isHit());
+    }
+
+    @Test
+    void testLookup_CountsHitsAndMisses() {
+        cache.store(computeAndRecord(today)); // miss
+        lookup(today); // hit
+        lookup(today); // hit
+        lookup(today.plusDays(3)); // miss
+
+        assertEquals(2.0, meterRegistry.get("availability.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(2.0, meterRegistry.get("availability.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(0.5, cache.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void testLookup_ExpiredEntryIsPrunedFromStationKeys() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        cache.store(computeAndRecord(today));
+        assertFalse(keysByStation().isEmpty());
+
+        assertFalse(lookup(today).isHit());
+
+        assertTrue(keysByStation().isEmpty());
+        assertTrue(entries().isEmpty());
+    }
+
+    @Test
+    void testStore_CleanupOfExpiredEntriesPrunesStationKeys() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 1);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        cache.store(computeAndRecord(today));
+
+        // Cache đầy: store dọn entry hết hạn trước khi ghi entry mới
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 30L);
+        LocalDate later = today.plusDays(5);
+        cache.store(computeAndRecord(later));
+
+        assertEquals(1, entries().size());
+        assertEquals(1, keysByStation().get(STATION_ID).size());
+        assertTrue(lookup(later).isHit());
+    }
+
+    private AvailabilityCache.Lookup lookup(LocalDate day) {
+        return cache.lookup(STATION_ID, CONNECTORS, 30, day, 1);
+    }
+
+    private AvailabilityCache.Lookup computeAndRecord(LocalDate day) {
+        AvailabilityCache.Lookup lookup = lookup(day);
+        GapKernel.Buffer gaps = new GapKernel.Buffer();
+        gaps.add(0, 60);
+        lookup.record(POINT_ID, gaps);
+        return lookup;
+    }
+
+    private ReservationChangedEvent booking(LocalDate day) {
+        return new ReservationChangedEvent(ReservationChangedEvent.Type.BOOKED, 1L, POINT_ID, STATION_ID,
+                day.atTime(10, 0), day.atTime(11, 0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Set<?>> keysByStation() {
+        return (Map<Long, Set<?>>) ReflectionTestUtils.getField(cache, "keysByStation");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, ?> entries() {
+        return (Map<Object, ?>) ReflectionTestUtils.getField(cache, "entries");
+    }
+}
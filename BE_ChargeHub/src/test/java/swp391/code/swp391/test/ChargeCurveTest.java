@@ -0,0 +1,90 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.Test;
+import swp391.code.swp391.util.ChargeCurve;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChargeCurveTest {
+
+    private static final double CAPACITY_KWH = 60;
+    private static final double POWER_KW = 50;
+
+    private final ChargeCurve curve = ChargeCurve.of(CAPACITY_KWH, POWER_KW, null, null);
+
+    @Test
+    void testMinutes_MonotonicInTargetSoc() {
+        double previous = 0;
+        int previousMinutes = 0;
+        for (double soc = 0.5; soc <= 100; soc += 0.5) {
+            double minutes = curve.minutesBetween(0, soc);
+            assertTrue(minutes > previous, "minutesBetween(0, " + soc + ") phải tăng");
+            assertTrue(curve.minutes(0, soc) >= previousMinutes);
+            previous = minutes;
+            previousMinutes = curve.minutes(0, soc);
+        }
+        assertEquals(0, curve.minutes(50, 50));
+        assertEquals(0, curve.minutes(60, 40)); // Không sạc ngược
+    }
+
+    @Test
+    void testMinutes_ConstantPowerBeforeTaperStart() {
+        // 10% của 60 kWh = 6 kWh ở 50 kW, nhân hệ số hao hụt
+        double expected = 6 / POWER_KW * 60 * ChargeCurve.EFFICIENCY_OVERHEAD;
+
+        assertEquals(expected, curve.minutesBetween(10, 20), 1e-9);
+        assertEquals(expected, curve.minutesBetween(60, 70), 1e-9);
+    }
+
+    @Test
+    void testMinutes_SlowsDownAfterTaperStart() {
+        double beforeTaper = curve.minutesBetween(70, 80);
+        double justAfter = curve.minutesBetween(80, 90);
+        double nearFull = curve.minutesBetween(90, 100);
+
+        assertTrue(justAfter > beforeTaper);
+        assertTrue(nearFull > justAfter);
+
+        // Bắt đầu giảm muộn hơn thì đoạn 80-90% nhanh hơn, taperStartSoc = 100 thì không giảm
+        ChargeCurve lateTaper = ChargeCurve.of(CAPACITY_KWH, POWER_KW, null, 90.0);
+        ChargeCurve noTaper = ChargeCurve.of(CAPACITY_KWH, POWER_KW, null, 100.0);
+        assertEquals(beforeTaper, lateTaper.minutesBetween(80, 90), 1e-9);
+        assertEquals(beforeTaper, noTaper.minutesBetween(90, 100), 1e-9);
+    }
+
+    @Test
+    void testOf_CarLimitCapsConnectorPower() {
+        ChargeCurve limited = ChargeCurve.of(CAPACITY_KWH, 150, POWER_KW, null);
+
+        assertEquals(curve.minutesBetween(20, 90), limited.minutesBetween(20, 90), 1e-9);
+    }
+
+    @Test
+    void testSocAfter_InvertsMinutes() {
+        double[][] ranges = {{0, 100}, {10, 80}, {35.5, 79.25}, {79, 81}, {85, 99.9}, {20, 20.3}};
+        for (double[] range : ranges) {
+            double from = range[0];
+            double to = range[1];
+
+            assertEquals(to, curve.socAfter(from, curve.minutesBetween(from, to)), 1e-6);
+
+            // Số phút làm tròn lên luôn đủ để đạt mức pin mong muốn
+            double reached = curve.socAfter(from, curve.minutes(from, to));
+            assertTrue(reached >= to - 1e-9);
+            assertTrue(curve.minutesBetween(to, reached) <= 1 + 1e-9);
+        }
+        assertEquals(100, curve.socAfter(50, 10_000));
+        assertEquals(40, curve.socAfter(40, 0), 1e-9);
+    }
+
+    @Test
+    void testOf_RejectsNonPositiveCapacityOrPower() {
+        assertThrows(IllegalArgumentException.class, () -> ChargeCurve.of(0, POWER_KW, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ChargeCurve.of(-60, POWER_KW, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ChargeCurve.of(Double.NaN, POWER_KW, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ChargeCurve.of(CAPACITY_KWH, 0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ChargeCurve.of(CAPACITY_KWH, -50, null, null));
+        // Giới hạn của xe bằng 0 cũng làm công suất sạc bằng 0
+        assertThrows(IllegalArgumentException.class, () -> ChargeCurve.of(CAPACITY_KWH, POWER_KW, 0.0, null));
+    }
+}
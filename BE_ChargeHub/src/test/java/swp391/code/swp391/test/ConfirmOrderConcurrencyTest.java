@@ -0,0 +1,299 @@
+package swp391.code.swp391.test;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.dto.ConfirmOrderDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.exception.ApiRequestException;
+import swp391.code.swp391.service.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đặt trùng đồng thời trên DB thật: nhiều user cùng xác nhận một khung giờ trên một point, chỉ một đơn được ghi,
+ * và throughput trên các point khác nhau không bị tuần tự hóa như trên cùng một point.
+ * Khóa point trong tiến trình được thay bằng mock (như các request đến từ các node khác nhau),
+ * nên tính đúng đắn chỉ đến từ khóa dòng bitmap point_occupancy.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:confirm;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderServiceImpl.class, OccupancyService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ConfirmOrderConcurrencyTest {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final int REQUESTS = 8;
+
+    @Autowired
+    private OrderServiceImpl orderService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private ReservationTimelineIndex timelineIndex;
+    @MockitoBean
+    private SlotHoldService slotHoldService;
+    @MockitoBean
+    private PointLockRegistry pointLockRegistry;
+    @MockitoBean
+    private SlotRankingService slotRankingService;
+    @MockitoBean
+    private AvailabilityCache availabilityCache;
+    @MockitoBean
+    private StationPowerBudgetService powerBudgetService;
+    @MockitoBean
+    private OverbookingService overbookingService;
+    @MockitoBean
+    private SlotPlacementService slotPlacementService;
+
+    private final LocalDateTime slotStart = LocalDate.now().plusDays(1).atTime(10, 0);
+    private final LocalDateTime slotEnd = slotStart.plusMinutes(45);
+
+    private Long stationId;
+    private Long pointId;
+    private ConnectorType connectorType;
+    private final List<Vehicle> vehicles = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        long seq = SEQUENCE.incrementAndGet();
+        vehicles.clear();
+        // Timeline trong bộ nhớ của mỗi node chưa thấy đơn của node khác
+        when(timelineIndex.isFree(anyLong(), any(), any())).thenReturn(true);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            ChargingStation station = new ChargingStation();
+            station.setStationName("Station " + seq);
+            station.setAddress("1 Test Street");
+            station.setChargingPointNumber(1);
+            entityManager.persist(station);
+            stationId = station.getStationId();
+
+            connectorType = new ConnectorType();
+            connectorType.setTypeName("CCS2");
+            connectorType.setPowerOutput(60);
+            connectorType.setPricePerKWh(3500);
+            entityManager.persist(connectorType);
+
+            ChargingPoint point = new ChargingPoint();
+            point.setStation(station);
+            point.setConnectorType(connectorType);
+            entityManager.persist(point);
+            pointId = point.getChargingPointId();
+
+            CarModel carModel = new CarModel();
+            carModel.setBrand("VinFast");
+            carModel.setModel("VF8");
+            carModel.setCapacity(60);
+            entityManager.persist(carModel);
+
+            for (int i = 0; i < REQUESTS; i++) {
+                User driver = new User();
+                driver.setFullName("Driver " + i);
+                driver.setEmail("driver" + seq + "-" + i + "@test.com");
+                entityManager.persist(driver);
+
+                Vehicle vehicle = new Vehicle();
+                vehicle.setPlateNumber("51A-" + seq + "-" + i);
+                vehicle.setCarModel(carModel);
+                vehicle.setUser(driver);
+                entityManager.persist(vehicle);
+                vehicles.add(vehicle);
+            }
+        });
+    }
+
+    @Test
+    void testConfirmOrder_SameSlotConcurrently_OnlyOneSucceeds() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(REQUESTS);
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Vehicle vehicle : vehicles) {
+                ConfirmOrderDTO request = request(vehicle);
+                futures.add(executor.submit(() -> {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    return confirm(request);
+                }));
+            }
+
+            int succeeded = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get(30, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+
+            assertEquals(1, succeeded);
+            assertEquals(1L, countOrders());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConfirmOrder_RejectsTakenSlotButAcceptsAdjacentOne() {
+        assertTrue(confirm(request(vehicles.get(0))));
+        assertFalse(confirm(request(vehicles.get(1))));
+
+        // Khung giờ liền sau vẫn đặt được
+        ConfirmOrderDTO next = request(vehicles.get(1));
+        next.setStartTime(slotEnd);
+        next.setEndTime(slotEnd.plusMinutes(45));
+        assertTrue(confirm(next));
+        assertEquals(2L, countOrders());
+    }
+
+    @Test
+    void testConfirmOrder_ThroughputScalesAcrossPoints() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        assumeTrue(cores >= 2, "Cần ít nhất 2 core để đo khả năng mở rộng");
+        int threads = Math.min(cores, REQUESTS);
+        int ordersPerThread = 20;
+        List<Long> points = addPoints(threads);
+
+        // Tất cả luồng cùng một point: tuần tự hóa trên khóa dòng point_occupancy
+        long samePointNanos = runBookings(threads, ordersPerThread, slotStart, thread -> pointId);
+        // Mỗi luồng một point: khóa các dòng khác nhau, chạy song song (ngày khác để không trùng đơn của chính user)
+        long distinctPointsNanos = runBookings(threads, ordersPerThread, slotStart.plusDays(1), points::get);
+
+        assertEquals(2L * threads * ordersPerThread, countAllOrders());
+        double samePointThroughput = threads * ordersPerThread / (samePointNanos / 1e9);
+        double distinctThroughput = threads * ordersPerThread / (distinctPointsNanos / 1e9);
+        assertTrue(distinctThroughput > samePointThroughput * 1.2,
+                String.format("threads=%d, same point %.0f orders/s, distinct points %.0f orders/s",
+                        threads, samePointThroughput, distinctThroughput));
+    }
+
+    private long runBookings(int threads, int ordersPerThread, LocalDateTime from, IntFunction<Long> pointOf) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int ok = 0;
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        // Mỗi (luồng, i) một khung giờ riêng, không trùng nhau
+                        ConfirmOrderDTO request = request(vehicles.get(thread));
+                        request.setChargingPointId(pointOf.apply(thread));
+                        request.setStartTime(from.plusMinutes((long) (thread * ordersPerThread + i) * 10));
+                        request.setEndTime(request.getStartTime().plusMinutes(5));
+                        if (confirm(request)) {
+                            ok++;
+                        }
+                    }
+                    return ok;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(ordersPerThread, future.get(60, TimeUnit.SECONDS));
+            }
+            return System.nanoTime() - begin;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Long> addPoints(int count) {
+        return transactionTemplate.execute(status -> {
+            ChargingStation station = entityManager.find(ChargingStation.class, stationId);
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ChargingPoint point = new ChargingPoint();
+                point.setStation(station);
+                point.setConnectorType(entityManager.merge(connectorType));
+                entityManager.persist(point);
+                ids.add(point.getChargingPointId());
+            }
+            return ids;
+        });
+    }
+
+    private long countAllOrders() {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT COUNT(o) FROM Order o WHERE o.chargingPoint.station.stationId = :stationId", Long.class)
+                .setParameter("stationId", stationId)
+                .getSingleResult());
+    }
+
+    @Test
+    void testConfirmOrder_AdminReservedPointIsRejected() {
+        // Admin giữ point thủ công: không nhận đặt chỗ
+        reserve(null);
+        assertFalse(confirm(request(vehicles.get(0))));
+        assertEquals(0L, countOrders());
+
+        // RESERVED do job đồng bộ đặt chỗ: chỉ báo có người sắp đến, khung giờ khác vẫn đặt được
+        reserve(true);
+        assertTrue(confirm(request(vehicles.get(0))));
+    }
+
+    private void reserve(Boolean byBooking) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ChargingPoint point = entityManager.find(ChargingPoint.class, pointId);
+            point.setStatus(ChargingPoint.ChargingPointStatus.RESERVED);
+            point.setReservedByBooking(byBooking);
+        });
+    }
+
+    private boolean confirm(ConfirmOrderDTO request) {
+        try {
+            return orderService.confirmOrder(request) != null;
+        } catch (ApiRequestException e) {
+            return false;
+        }
+    }
+
+    private long countOrders() {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT COUNT(o) FROM Order o WHERE o.chargingPoint.chargingPointId = :pointId", Long.class)
+                .setParameter("pointId", pointId)
+                .getSingleResult());
+    }
+
+    private ConfirmOrderDTO request(Vehicle vehicle) {
+        return ConfirmOrderDTO.builder()
+                .userId(vehicle.getUser().getUserId())
+                .vehicleId(vehicle.getId())
+                .stationId(stationId)
+                .chargingPointId(pointId)
+                .startTime(slotStart)
+                .endTime(slotEnd)
+                .currentBattery(20.0)
+                .targetBattery(80.0)
+                .energyToCharge(36.0)
+                .estimatedCost(126000.0)
+                .connectorTypeId(1L)
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import swp391.code.swp391.dto.FleetBookingRequestDTO;
+import swp391.code.swp391.dto.FleetBookingResponseDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.repository.*;
+import swp391.code.swp391.service.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class FleetBookingServiceTest {
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private VehicleRepository vehicleRepository;
+    @Mock
+    private ChargingStationRepository stationRepository;
+    @Mock
+    private ChargingPointRepository chargingPointRepository;
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private ReservationTimelineIndex timelineIndex;
+    @Mock
+    private SlotHoldService slotHoldService;
+    @Mock
+    private OccupancyService occupancyService;
+    @Mock
+    private PointLockRegistry pointLockRegistry;
+    @Mock
+    private StationPowerBudgetService powerBudgetService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private FleetBookingService fleetBookingService;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+
+        User user = new User();
+        user.setUserId(1L);
+
+        ConnectorType ccs = new ConnectorType();
+        ccs.setConnectorTypeId(1L);
+        ccs.setTypeName("CCS2");
+        ccs.setPowerOutput(60);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        carModel.setConnectorTypes(List.of(ccs));
+
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(10L);
+        vehicle.setUser(user);
+        vehicle.setCarModel(carModel);
+
+        ChargingStation station = new ChargingStation();
+        station.setStationId(100L);
+        station.setStatus(ChargingStation.ChargingStationStatus.ACTIVE);
+
+        ChargingPoint point = new ChargingPoint();
+        point.setChargingPointId(1000L);
+        point.setStation(station);
+        point.setConnectorType(ccs);
+        point.setStatus(ChargingPoint.ChargingPointStatus.AVAILABLE);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(vehicleRepository.findAllById(any())).thenReturn(List.of(vehicle));
+        when(stationRepository.findAllById(any())).thenReturn(List.of(station));
+        when(chargingPointRepository.findByStationStationIdIn(any())).thenReturn(List.of(point));
+        when(powerBudgetService.lockScope(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(timelineIndex.findFreeGaps(eq(1000L), any(), any())).thenAnswer(invocation -> {
+            LocalDateTime from = invocation.getArgument(1);
+            LocalDateTime to = invocation.getArgument(2);
+            return List.of(new ReservationTimelineIndex.FreeGap(from, to,
+                    (int) Duration.between(from, to).toMinutes()));
+        });
+        when(slotHoldService.excludeHeld(eq(1000L), eq(1L), anyList())).thenAnswer(invocation -> invocation.getArgument(2));
+        when(occupancyService.tryOccupy(eq(1000L), any(), any())).thenReturn(true);
+        AtomicLong orderIds = new AtomicLong();
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> order.setOrderId(orderIds.incrementAndGet()));
+            return orders;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testBookFleet_RejectsWindowLongerThanSevenDays() {
+        LocalDateTime windowStart = now.plusHours(1);
+
+        FleetBookingResponseDTO response = fleetBookingService.bookFleet(request(windowStart, windowStart.plusDays(8)));
+
+        assertEquals(0, response.getBooked());
+        FleetBookingResponseDTO.ItemResult result = response.getResults().get(0);
+        assertFalse(result.getSuccess());
+        assertEquals("Khung thời gian tối đa 7 ngày", result.getMessage());
+        verifyNoInteractions(pointLockRegistry, timelineIndex, occupancyService, orderRepository);
+    }
+
+    @Test
+    void testBookFleet_AcceptsSevenDayWindow() {
+        LocalDateTime windowStart = now.plusHours(1);
+
+        FleetBookingResponseDTO response = fleetBookingService.bookFleet(request(windowStart, windowStart.plusDays(7)));
+
+        assertEquals(1, response.getBooked());
+        assertTrue(response.getResults().get(0).getSuccess());
+        verify(occupancyService).tryOccupy(eq(1000L), any(), any());
+    }
+
+    @Test
+    void testBookFleet_PastWindowStartCountsFromNow() {
+        // Giờ bắt đầu khung đã qua từ lâu: chỉ phần còn lại (từ bây giờ) được tính và được duyệt
+        FleetBookingResponseDTO response = fleetBookingService.bookFleet(
+                request(now.minusYears(5), now.plusDays(2)));
+
+        assertEquals(1, response.getBooked());
+        verify(timelineIndex, atMost(4)).findFreeGaps(eq(1000L), any(), any());
+    }
+
+    private FleetBookingRequestDTO request(LocalDateTime windowStart, LocalDateTime windowEnd) {
+        return FleetBookingRequestDTO.builder()
+                .userId(1L)
+                .items(List.of(FleetBookingRequestDTO.Item.builder()
+                        .vehicleId(10L)
+                        .stationId(100L)
+                        .windowStart(windowStart)
+                        .windowEnd(windowEnd)
+                        .currentBattery(20.0)
+                        .targetBattery(80.0)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.Test;
+import swp391.code.swp391.util.GapKernel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GapKernelTest {
+
+    private final long[] starts = {60, 180, 300};
+    private final long[] ends = {120, 240, 330};
+
+    @Test
+    void testFreeGaps_FiltersByMinLength() {
+        GapKernel.Buffer out = new GapKernel.Buffer();
+
+        int count = GapKernel.freeGaps(starts, ends, starts.length, 0, 400, 61, out);
+
+        // Các khoảng 60 phút bị bỏ, chỉ còn [330, 400)
+        assertEquals(1, count);
+        assertGap(out, 0, 330, 400);
+    }
+
+    @Test
+    void testFreeGaps_WindowStartsInsideBusyRange() {
+        GapKernel.Buffer out = new GapKernel.Buffer();
+
+        GapKernel.freeGaps(starts, ends, starts.length, 90, 200, 0, out);
+
+        assertEquals(1, out.size());
+        assertGap(out, 0, 120, 180);
+    }
+
+    @Test
+    void testSubtract_SplitsGapsAroundUnsortedBusyRanges() {
+        GapKernel.Buffer gaps = new GapKernel.Buffer();
+        gaps.add(0, 100);
+        gaps.add(200, 300);
+        GapKernel.Buffer busy = new GapKernel.Buffer();
+        busy.add(250, 260);
+        busy.add(40, 50);
+        busy.add(45, 70);
+        GapKernel.Buffer out = new GapKernel.Buffer();
+
+        GapKernel.subtract(gaps, busy, 30, out);
+
+        assertEquals(4, out.size());
+        assertGap(out, 0, 0, 40);
+        assertGap(out, 1, 70, 100);
+        assertGap(out, 2, 200, 250);
+        assertGap(out, 3, 260, 300);
+    }
+
+    private static void assertGap(GapKernel.Buffer buffer, int index, long start, long end) {
+        assertEquals(start, buffer.start(index));
+        assertEquals(end, buffer.end(index));
+    }
+}
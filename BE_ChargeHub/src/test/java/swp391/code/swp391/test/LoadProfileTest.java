@@ -0,0 +1,39 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.Test;
+import swp391.code.swp391.util.GapKernel;
+import swp391.code.swp391.util.LoadProfile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadProfileTest {
+
+    @Test
+    void testPeak_SumsOverlappingIntervalsOnly() {
+        GapKernel.Buffer intervals = new GapKernel.Buffer();
+        intervals.add(0, 60);   // 50 kW
+        intervals.add(30, 90);  // 150 kW
+        intervals.add(60, 120); // 50 kW (bắt đầu đúng lúc khoảng đầu kết thúc)
+
+        LoadProfile profile = LoadProfile.of(intervals, new double[]{50, 150, 50});
+
+        assertEquals(200, profile.peak(0, 120));
+        assertEquals(200, profile.peak(60, 90));
+        assertEquals(50, profile.peak(90, 200));
+        assertEquals(0, profile.peak(120, 200));
+    }
+
+    @Test
+    void testAdd_RaisesLoadInsideRangeOnly() {
+        GapKernel.Buffer intervals = new GapKernel.Buffer();
+        intervals.add(0, 60);
+        LoadProfile profile = LoadProfile.of(intervals, new double[]{50});
+
+        profile.add(30, 90, 100);
+
+        assertEquals(50, profile.peak(0, 30));
+        assertEquals(150, profile.peak(0, 60));
+        assertEquals(100, profile.peak(60, 90));
+        assertEquals(0, profile.peak(90, 100));
+    }
+}
@@ -0,0 +1,236 @@
+package swp391.code.swp391.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jdbc.Work;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.dto.MeterValuesRequestDTO;
+import swp391.code.swp391.dto.SessionProgressDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.repository.UserRepository;
+import swp391.code.swp391.service.ActiveSessionRegistry;
+import swp391.code.swp391.service.MeterReadingIngestService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MeterReadingIngestServiceTest {
+
+    private static final double PRICE_PER_KWH = 3500;
+    private static final Long STATION_ID = 10L;
+    private static final Long STAFF_ID = 99L;
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private ActiveSessionRegistry activeSessionRegistry;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private org.hibernate.Session hibernateSession;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MeterReadingIngestService ingestService;
+    private ActiveSessionRegistry.ActiveSession active;
+    private SimulatedCharger charger;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        mocks = MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        ingestService = new MeterReadingIngestService(activeSessionRegistry, userRepository, entityManager,
+                transactionTemplate, meterRegistry);
+        ingestService.init();
+
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        active = ActiveSessionRegistry.ActiveSession.of(chargingSession(start));
+        charger = new SimulatedCharger(60, 60, 20, start, Duration.ofSeconds(1));
+
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(active));
+        when(userRepository.findById(STAFF_ID)).thenReturn(Optional.of(staff(STAFF_ID, STATION_ID)));
+        when(entityManager.unwrap(org.hibernate.Session.class)).thenReturn(hibernateSession);
+        doAnswer(invocation -> {
+            Consumer<Object> callback = invocation.getArgument(0);
+            callback.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doAnswer(invocation -> {
+            Work work = invocation.getArgument(0);
+            work.execute(connection);
+            return null;
+        }).when(hibernateSession).doWork(any());
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testIngest_ProgressFollowsLatestCumulativeReading() {
+        int accepted = ingestService.ingest(1L, STAFF_ID, charger.next(600)); // 10 phút ở 60 kW = 10 kWh
+
+        assertEquals(600, accepted);
+        assertEquals(charger.getEnergyKwh(), active.getMeteredKwh(), 1e-9);
+        SessionProgressDTO progress = active.progressAt(LocalDateTime.now());
+        assertEquals(10, progress.getPowerConsumed(), 1e-6);
+        assertEquals(10 * PRICE_PER_KWH, progress.getCost(), 1e-3);
+        assertEquals(20 + 10.0 / 60 * 100, progress.getCurrentBattery(), 1e-6);
+        verify(activeSessionRegistry).record(eq(active), any());
+    }
+
+    @Test
+    void testIngest_ResentSamplesAreIgnored() {
+        MeterValuesRequestDTO batch = charger.next(50);
+        assertEquals(50, ingestService.ingest(1L, STAFF_ID, batch));
+
+        assertEquals(0, ingestService.ingest(1L, STAFF_ID, batch));
+        assertEquals(charger.getEnergyKwh(), active.getMeteredKwh(), 1e-9);
+    }
+
+    @Test
+    void testDrain_WritesReadingsInBatches() throws SQLException {
+        AtomicInteger pending = new AtomicInteger();
+        doAnswer(invocation -> {
+            pending.incrementAndGet();
+            return null;
+        }).when(statement).addBatch();
+        when(statement.executeBatch()).thenAnswer(invocation -> filled(pending.getAndSet(0), 1));
+        ingestService.ingest(1L, STAFF_ID, charger.next(2500));
+
+        ingestService.drain();
+
+        verify(statement, times(2500)).addBatch();
+        verify(statement, times(3)).executeBatch(); // Lô mặc định 1000
+        assertEquals(0, meterRegistry.counter("meter.readings", "outcome", "dropped").count());
+    }
+
+    @Test
+    void testDrain_DuplicateRowsAreSkippedNotDropped() throws SQLException {
+        // Hai dòng đầu đã có trong DB (INSERT IGNORE trả về 0), phần còn lại của lô vẫn được ghi
+        int[] counts = filled(10, 1);
+        counts[0] = 0;
+        counts[1] = 0;
+        when(statement.executeBatch()).thenReturn(counts);
+        ingestService.ingest(1L, STAFF_ID, charger.next(10));
+
+        ingestService.drain();
+
+        verify(statement, times(10)).addBatch();
+        assertEquals(2, meterRegistry.counter("meter.readings", "outcome", "duplicate").count());
+        assertEquals(0, meterRegistry.counter("meter.readings", "outcome", "dropped").count());
+    }
+
+    @Test
+    void testIngest_StaffOfAnotherStationIsRejected() {
+        when(userRepository.findById(100L)).thenReturn(Optional.of(staff(100L, 11L)));
+
+        assertThrows(AccessDeniedException.class, () -> ingestService.ingest(1L, 100L, charger.next(10)));
+        assertNull(active.getMeteredKwh());
+    }
+
+    @Test
+    void testIngest_FutureTimestampDoesNotFreezeTheMeter() {
+        // Một giá trị đo "ngày mai" bị từ chối, các giá trị thật sau đó vẫn được nhận
+        MeterValuesRequestDTO forged = MeterValuesRequestDTO.builder().samples(List.of(MeterValuesRequestDTO.Sample.builder()
+                .timestamp(LocalDateTime.now().plusDays(1))
+                .energyKwh(0.1)
+                .build())).build();
+        assertEquals(0, ingestService.ingest(1L, STAFF_ID, forged));
+
+        assertEquals(30, ingestService.ingest(1L, STAFF_ID, charger.next(30)));
+        assertEquals(charger.getEnergyKwh(), active.getMeteredKwh(), 1e-9);
+        assertEquals(1, meterRegistry.counter("meter.readings", "outcome", "rejected").count());
+    }
+
+    @Test
+    void testIngest_TimestampBeforeSessionStartIsRejected() {
+        MeterValuesRequestDTO stale = MeterValuesRequestDTO.builder().samples(List.of(MeterValuesRequestDTO.Sample.builder()
+                .timestamp(active.getStartTime().minusMinutes(5))
+                .energyKwh(1.0)
+                .build())).build();
+
+        assertEquals(0, ingestService.ingest(1L, STAFF_ID, stale));
+        assertNull(active.getMeteredKwh());
+    }
+
+    private static User staff(Long userId, Long stationId) {
+        ChargingStation station = new ChargingStation();
+        station.setStationId(stationId);
+        User user = new User();
+        user.setUserId(userId);
+        user.setRole(User.UserRole.STAFF);
+        user.setStation(station);
+        return user;
+    }
+
+    private static int[] filled(int size, int value) {
+        int[] counts = new int[size];
+        Arrays.fill(counts, value);
+        return counts;
+    }
+
+    private Session chargingSession(LocalDateTime start) {
+        User user = new User();
+        user.setUserId(7L);
+
+        ConnectorType connectorType = new ConnectorType();
+        connectorType.setPowerOutput(60);
+        connectorType.setPricePerKWh(PRICE_PER_KWH);
+        ChargingStation station = new ChargingStation();
+        station.setStationId(STATION_ID);
+        ChargingPoint point = new ChargingPoint();
+        point.setStation(station);
+        point.setConnectorType(connectorType);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setCarModel(carModel);
+
+        Order order = new Order();
+        order.setOrderId(1L);
+        order.setUser(user);
+        order.setChargingPoint(point);
+        order.setVehicle(vehicle);
+        order.setStartedBattery(20.0);
+        order.setExpectedBattery(80.0);
+
+        Session session = new Session();
+        session.setSessionId(1L);
+        session.setOrder(order);
+        session.setStartTime(start);
+        session.setPowerConsumed(0.0);
+        session.setBaseCost(0.0);
+        return session;
+    }
+}
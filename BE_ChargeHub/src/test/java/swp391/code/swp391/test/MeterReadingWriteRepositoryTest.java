@@ -0,0 +1,122 @@
+package swp391.code.swp391.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.repository.UserRepository;
+import swp391.code.swp391.service.ActiveSessionRegistry;
+import swp391.code.swp391.service.MeterReadingIngestService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Ghi giá trị đồng hồ trên schema thật: lô chứa dòng đã có trong DB (trụ gửi lại sau khi node khởi động lại)
+ * vẫn ghi được các dòng còn lại.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:meter;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class MeterReadingWriteRepositoryTest {
+
+    private static final Long ADMIN_ID = 1L;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ActiveSessionRegistry activeSessionRegistry = mock(ActiveSessionRegistry.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MeterReadingIngestService ingestService;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        ingestService = new MeterReadingIngestService(activeSessionRegistry, userRepository, entityManager,
+                transactionTemplate, meterRegistry);
+        ingestService.init();
+        User admin = new User();
+        admin.setUserId(ADMIN_ID);
+        admin.setRole(User.UserRole.ADMIN);
+        when(userRepository.findById(ADMIN_ID)).thenReturn(Optional.of(admin));
+        start = LocalDateTime.now().minusHours(1).withNano(0);
+    }
+
+    @Test
+    void testDrain_ResentReadingsDoNotFailTheBatch() {
+        // Lần đầu ghi 10 giá trị
+        SimulatedCharger first = new SimulatedCharger(60, 60, 20, start, Duration.ofSeconds(1));
+        ingestService.ingest(activate(), ADMIN_ID, first.next(10));
+        ingestService.drain();
+
+        // Node khác (registry mới) nhận lại cả 10 giá trị cũ cùng 5 giá trị mới trong một lô
+        SimulatedCharger resent = new SimulatedCharger(60, 60, 20, start, Duration.ofSeconds(1));
+        ingestService.ingest(activate(), ADMIN_ID, resent.next(15));
+        ingestService.drain();
+
+        assertEquals(15L, countReadings());
+        assertEquals(10, meterRegistry.counter("meter.readings", "outcome", "duplicate").count());
+        assertEquals(0, meterRegistry.counter("meter.readings", "outcome", "dropped").count());
+    }
+
+    private Long activate() {
+        ActiveSessionRegistry.ActiveSession active = ActiveSessionRegistry.ActiveSession.of(chargingSession());
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(active));
+        return 1L;
+    }
+
+    private long countReadings() {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT COUNT(r) FROM MeterReading r WHERE r.sessionId = 1", Long.class)
+                .getSingleResult());
+    }
+
+    private Session chargingSession() {
+        User user = new User();
+        user.setUserId(7L);
+
+        ConnectorType connectorType = new ConnectorType();
+        connectorType.setPowerOutput(60);
+        connectorType.setPricePerKWh(3500);
+        ChargingPoint point = new ChargingPoint();
+        point.setConnectorType(connectorType);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setCarModel(carModel);
+
+        Order order = new Order();
+        order.setOrderId(1L);
+        order.setUser(user);
+        order.setChargingPoint(point);
+        order.setVehicle(vehicle);
+        order.setStartedBattery(20.0);
+        order.setExpectedBattery(80.0);
+
+        Session session = new Session();
+        session.setSessionId(1L);
+        session.setOrder(order);
+        session.setStartTime(start);
+        session.setPowerConsumed(0.0);
+        session.setBaseCost(0.0);
+        return session;
+    }
+}
@@ -0,0 +1,153 @@
+package swp391.code.swp391.test;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.repository.FeeRepository;
+import swp391.code.swp391.repository.NotificationRepository;
+import swp391.code.swp391.repository.OrderRepository;
+import swp391.code.swp391.service.OrderLifecycleService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chạy lượt quét no-show trên schema thật do Hibernate sinh ra.
+ * H2 ở chế độ MySQL, giữ nguyên hoa / thường của tên bảng như MySQL trên Linux (lower_case_table_names=0),
+ * nên câu SQL native dùng sai tên bảng vật lý sẽ lỗi ở đây.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lifecycle;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderLifecycleService.class)
+public class OrderLifecycleSweepRepositoryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private OrderLifecycleService orderLifecycleService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private FeeRepository feeRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    private User driver;
+    private Vehicle vehicle;
+    private ChargingPoint point;
+
+    @BeforeEach
+    void setUp() {
+        ChargingStation station = new ChargingStation();
+        station.setStationName("Station A");
+        station.setAddress("1 Test Street");
+        station.setChargingPointNumber(1);
+        entityManager.persist(station);
+
+        ConnectorType connectorType = new ConnectorType();
+        connectorType.setTypeName("CCS2");
+        connectorType.setPowerOutput(60);
+        connectorType.setPricePerKWh(3500);
+        entityManager.persist(connectorType);
+
+        point = new ChargingPoint();
+        point.setStation(station);
+        point.setConnectorType(connectorType);
+        entityManager.persist(point);
+
+        CarModel carModel = new CarModel();
+        carModel.setBrand("VinFast");
+        carModel.setModel("VF8");
+        carModel.setCapacity(60);
+        entityManager.persist(carModel);
+
+        driver = new User();
+        driver.setFullName("Driver");
+        driver.setEmail("driver@test.com");
+        entityManager.persist(driver);
+
+        vehicle = new Vehicle();
+        vehicle.setPlateNumber("51A-00001");
+        vehicle.setCarModel(carModel);
+        vehicle.setUser(driver);
+        entityManager.persist(vehicle);
+    }
+
+    @Test
+    void testExpireNoShows_CancelsOverdueOrderWithFeeAndNotification() {
+        LocalDateTime now = LocalDateTime.now();
+        Order overdue = order(now.minusHours(1));
+        Order upcoming = order(now.plusHours(1));
+
+        int expired = orderLifecycleService.expireNoShows(now);
+        entityManager.clear();
+
+        assertEquals(1, expired);
+        assertEquals(Order.Status.CANCELED, orderRepository.findByOrderId(overdue.getOrderId()).getStatus());
+        assertEquals(Order.Status.BOOKED, orderRepository.findByOrderId(upcoming.getOrderId()).getStatus());
+
+        List<Fee> fees = feeRepository.findByOrderOrderId(overdue.getOrderId());
+        assertEquals(1, fees.size());
+        assertEquals(Fee.Type.NO_SHOW, fees.get(0).getType());
+        assertTrue(fees.get(0).getAmount() > 0);
+
+        List<Notification> notifications = notificationRepository.findByUserOrderBySentTimeDesc(driver);
+        assertEquals(1, notifications.size());
+        assertEquals(Notification.Type.PENALTY, notifications.get(0).getType());
+
+        // Lượt quét sau không hủy / phạt lại
+        assertEquals(0, orderLifecycleService.expireNoShows(now));
+        assertEquals(1, feeRepository.findByOrderOrderId(overdue.getOrderId()).size());
+    }
+
+    @Test
+    void testSyncReservedPoints_ReleasesOnlyPointsReservedForBookings() {
+        LocalDateTime now = LocalDateTime.now();
+        ChargingPoint adminReserved = new ChargingPoint();
+        adminReserved.setStation(point.getStation());
+        adminReserved.setConnectorType(point.getConnectorType());
+        adminReserved.setStatus(ChargingPoint.ChargingPointStatus.RESERVED);
+        entityManager.persist(adminReserved);
+        Order upcoming = order(now.plusMinutes(10));
+
+        assertEquals(1, orderLifecycleService.syncReservedPoints(now));
+        entityManager.clear();
+        assertEquals(ChargingPoint.ChargingPointStatus.RESERVED,
+                entityManager.find(ChargingPoint.class, point.getChargingPointId()).getStatus());
+
+        // Người sắp đến hủy đơn: point do job giữ được trả lại, point admin đặt RESERVED giữ nguyên
+        Order canceled = entityManager.find(Order.class, upcoming.getOrderId());
+        canceled.setStatus(Order.Status.CANCELED);
+        entityManager.flush();
+
+        assertEquals(1, orderLifecycleService.syncReservedPoints(now));
+        entityManager.clear();
+        assertEquals(ChargingPoint.ChargingPointStatus.AVAILABLE,
+                entityManager.find(ChargingPoint.class, point.getChargingPointId()).getStatus());
+        assertEquals(ChargingPoint.ChargingPointStatus.RESERVED,
+                entityManager.find(ChargingPoint.class, adminReserved.getChargingPointId()).getStatus());
+    }
+
+    private Order order(LocalDateTime startTime) {
+        Order order = new Order();
+        order.setUser(driver);
+        order.setVehicle(vehicle);
+        order.setChargingPoint(point);
+        order.setStartTime(startTime);
+        order.setEndTime(startTime.plusHours(1));
+        order.setStatus(Order.Status.BOOKED);
+        entityManager.persist(order);
+        entityManager.flush();
+        return order;
+    }
+}
@@ -0,0 +1,152 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import swp391.code.swp391.dto.ChargingPointAvailabilityDTO;
+import swp391.code.swp391.dto.RankedSlotDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.repository.*;
+import swp391.code.swp391.service.*;
+import swp391.code.swp391.util.GapKernel;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OrderServiceImplTest {
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+    @Mock
+    private ChargingStationRepository stationRepository;
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ChargingPointRepository chargingPointRepository;
+    @Mock
+    private ReservationTimelineIndex timelineIndex;
+    @Mock
+    private SlotHoldService slotHoldService;
+    @Mock
+    private OccupancyService occupancyService;
+    @Mock
+    private PointLockRegistry pointLockRegistry;
+    @Mock
+    private SlotRankingService slotRankingService;
+    @Mock
+    private AvailabilityCache availabilityCache;
+    @Mock
+    private StationPowerBudgetService powerBudgetService;
+    @Mock
+    private OverbookingService overbookingService;
+    @Mock
+    private SlotPlacementService slotPlacementService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private AvailabilityCache.Lookup cache;
+    @Mock
+    private SlotRankingService.PricingContext pricing;
+    @Mock
+    private SlotRankingService.TopK topK;
+
+    @InjectMocks
+    private OrderServiceImpl orderService;
+
+    private final LocalDateTime windowStart = LocalDate.now().plusDays(1).atTime(8, 0);
+    private final LocalDateTime windowEnd = windowStart.plusHours(12);
+
+    private ChargingStation station;
+    private ChargingPoint point;
+    private OrderServiceImpl.SlotSearch search;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+
+        station = new ChargingStation();
+        station.setStationId(100L);
+
+        ConnectorType ccs = new ConnectorType();
+        ccs.setConnectorTypeId(1L);
+        ccs.setTypeName("CCS2");
+        ccs.setPowerOutput(60);
+        ccs.setPricePerKWh(3500);
+
+        point = new ChargingPoint();
+        point.setChargingPointId(1000L);
+        point.setStation(station);
+        point.setConnectorType(ccs);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setCarModel(carModel);
+
+        List<LocalDateTime[]> openWindows = new ArrayList<>();
+        openWindows.add(new LocalDateTime[]{windowStart, windowEnd});
+        search = new OrderServiceImpl.SlotSearch(vehicle, station, List.of(point), 20.0, 80.0, 60.0, 36.0, 1, 5,
+                openWindows, pricing, cache, null);
+
+        when(cache.isHit()).thenReturn(true);
+        when(slotRankingService.newTopK(any(), anyDouble(), anyInt(), any())).thenReturn(topK);
+        when(topK.result()).thenReturn(List.of(new RankedSlotDTO()));
+        when(overbookingService.getGraceMinutes()).thenReturn(15);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testStreamAvailableSlots_FallsBackToOverbookableSlots() {
+        // Không còn khoảng trống nào, chỉ còn một đơn có khả năng không đến
+        when(cache.copyGaps(eq(1000L), anyLong(), anyLong(), any())).thenReturn(true);
+        Order original = new Order();
+        original.setChargingPoint(point);
+        original.setStartTime(windowStart.plusHours(2));
+        original.setEndTime(windowStart.plusHours(5));
+        when(overbookingService.findOverbookableOrders(eq(station), any(), any(), any())).thenReturn(List.of(original));
+
+        List<ChargingPointAvailabilityDTO> streamed = new ArrayList<>();
+        List<RankedSlotDTO> recommended = orderService.streamAvailableSlots(search, 1L, streamed::add);
+
+        assertEquals(1, streamed.size());
+        assertTrue(streamed.get(0).getAvailableSlots().get(0).getOverbooked());
+        assertEquals(original.getStartTime().plusMinutes(15), streamed.get(0).getAvailableSlots().get(0).getFreeFrom());
+        verify(topK).add(streamed.get(0));
+        assertEquals(1, recommended.size());
+    }
+
+    @Test
+    void testStreamAvailableSlots_FreeGapsSkipOverbooking() {
+        when(cache.copyGaps(eq(1000L), anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            GapKernel.Buffer out = invocation.getArgument(3);
+            out.add(ReservationTimelineIndex.toEpochMinute(windowStart), ReservationTimelineIndex.toEpochMinute(windowEnd));
+            return true;
+        });
+
+        List<ChargingPointAvailabilityDTO> streamed = new ArrayList<>();
+        orderService.streamAvailableSlots(search, 1L, streamed::add);
+
+        assertEquals(1, streamed.size());
+        assertNotEquals(Boolean.TRUE, streamed.get(0).getAvailableSlots().get(0).getOverbooked());
+        verify(overbookingService, never()).findOverbookableOrders(any(), any(), any(), any());
+    }
+}
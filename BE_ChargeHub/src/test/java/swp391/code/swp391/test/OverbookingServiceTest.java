@@ -0,0 +1,258 @@
+package swp391.code.swp391.test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.service.NotificationService;
+import swp391.code.swp391.service.OccupancyService;
+import swp391.code.swp391.service.OverbookingService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Hạn mức đặt chồng của trạm trên DB thật: hai đơn đặt chồng trên hai point khác nhau của cùng trạm
+ * được xét đồng thời, hạn mức 1 đơn thì chỉ một đơn được nhận.
+ * Đơn gốc bị hủy: đơn đặt chồng nhận khoảng trống trong cùng transaction, request khác không chen vào được.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:overbooking;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.booking.overbooking.enabled=true",
+        "app.booking.overbooking.max-ratio=0.1",
+        "app.booking.overbooking.min-no-show-rate=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OverbookingService.class, OccupancyService.class, OverbookingServiceTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OverbookingServiceTest {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    @Autowired
+    private OverbookingService overbookingService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private OccupancyService occupancyService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    private final LocalDateTime originalStart = LocalDate.now().plusDays(1).atTime(10, 0);
+    private final LocalDateTime originalEnd = originalStart.plusHours(2);
+
+    private Long stationId;
+    private final List<ChargingPoint> points = new ArrayList<>();
+    private final List<Order> originals = new ArrayList<>();
+    private User driver;
+    private Vehicle vehicle;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        long seq = SEQUENCE.incrementAndGet();
+        points.clear();
+        originals.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            // 10 trụ x max-ratio 0.1 = tối đa 1 đơn đặt chồng cùng lúc
+            ChargingStation station = new ChargingStation();
+            station.setStationName("Station " + seq);
+            station.setAddress("1 Test Street");
+            station.setChargingPointNumber(10);
+            entityManager.persist(station);
+            stationId = station.getStationId();
+
+            ConnectorType connectorType = new ConnectorType();
+            connectorType.setTypeName("CCS2");
+            connectorType.setPowerOutput(60);
+            connectorType.setPricePerKWh(3500);
+            entityManager.persist(connectorType);
+
+            for (int i = 0; i < 10; i++) {
+                ChargingPoint point = new ChargingPoint();
+                point.setStation(station);
+                point.setConnectorType(connectorType);
+                entityManager.persist(point);
+                points.add(point);
+            }
+
+            CarModel carModel = new CarModel();
+            carModel.setBrand("VinFast");
+            carModel.setModel("VF8");
+            carModel.setCapacity(60);
+            entityManager.persist(carModel);
+
+            driver = new User();
+            driver.setFullName("Driver");
+            driver.setEmail("driver" + seq + "@test.com");
+            entityManager.persist(driver);
+
+            vehicle = new Vehicle();
+            vehicle.setPlateNumber("51A-" + seq);
+            vehicle.setCarModel(carModel);
+            vehicle.setUser(driver);
+            entityManager.persist(vehicle);
+
+            // Đơn gốc trên hai trụ đầu
+            originals.add(persistOrder(points.get(0), originalStart, originalEnd, false));
+            originals.add(persistOrder(points.get(1), originalStart, originalEnd, false));
+        });
+    }
+
+    @Test
+    void testTryAdmit_StationCapHoldsUnderConcurrentAdmissions() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor.submit(() -> admitAndBook(points.get(0), barrier));
+            Future<Boolean> second = executor.submit(() -> admitAndBook(points.get(1), barrier));
+
+            int admitted = (first.get(30, TimeUnit.SECONDS) ? 1 : 0) + (second.get(30, TimeUnit.SECONDS) ? 1 : 0);
+
+            assertEquals(1, admitted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTryAdmit_RejectsWindowInsideGracePeriod() {
+        Boolean admitted = transactionTemplate.execute(status -> overbookingService.tryAdmit(
+                entityManager.find(ChargingStation.class, stationId), points.get(0).getChargingPointId(),
+                originalStart.plusMinutes(5), originalEnd.minusMinutes(30)));
+
+        assertFalse(admitted);
+    }
+
+    @Test
+    void testRelease_OverbookedOrderTakesSlotBeforeOthersSeeIt() throws Exception {
+        ChargingPoint point = points.get(0);
+        LocalDateTime start = originalStart.plusMinutes(30);
+        LocalDateTime end = originalEnd.minusMinutes(30);
+        Long overbookedId = transactionTemplate.execute(status -> persistOrder(point, start, end, true).getOrderId());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> competitor = transactionTemplate.execute(status -> {
+                cancelOriginal(0, ReservationChangedEvent::released);
+                // Request khác (như trên node khác) muốn đặt đúng khoảng vừa trống, chờ khóa dòng bitmap
+                Future<Boolean> attempt = executor.submit(() -> transactionTemplate.execute(inner ->
+                        occupancyService.tryOccupy(point.getChargingPointId(), start, end)));
+                sleep(300);
+                return attempt;
+            });
+
+            assertFalse(competitor.get(30, TimeUnit.SECONDS));
+            Order promoted = transactionTemplate.execute(status -> entityManager.find(Order.class, overbookedId));
+            assertFalse(promoted.isOverbooked());
+            assertEquals(Order.Status.BOOKED, promoted.getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRelease_CancelsOverbookedOrderThatCannotBePromoted() {
+        // Chỉ phần sau 11:00 của đơn gốc được giải phóng, đơn đặt chồng [10:30, 11:30) không nhận được trọn khoảng
+        LocalDateTime start = originalStart.plusMinutes(30);
+        LocalDateTime end = originalEnd.minusMinutes(30);
+        Long overbookedId = transactionTemplate.execute(status -> persistOrder(points.get(0), start, end, true).getOrderId());
+
+        transactionTemplate.executeWithoutResult(status ->
+                cancelOriginal(0, order -> ReservationChangedEvent.releasedFrom(order, originalStart.plusHours(1))));
+
+        Order canceled = transactionTemplate.execute(status -> entityManager.find(Order.class, overbookedId));
+        assertEquals(Order.Status.CANCELED, canceled.getStatus());
+        verify(notificationService).createBookingOrderNotification(eq(overbookedId), any(), any());
+    }
+
+    private void cancelOriginal(int index, Function<Order, ReservationChangedEvent> release) {
+        Order original = entityManager.find(Order.class, originals.get(index).getOrderId());
+        original.setStatus(Order.Status.CANCELED);
+        eventPublisher.publishEvent(release.apply(original));
+    }
+
+    /**
+     * Xét đặt chồng rồi ghi đơn trong cùng một transaction như confirmOrder; ghi chậm để hai transaction chồng lên nhau
+     */
+    private boolean admitAndBook(ChargingPoint point, CyclicBarrier barrier) {
+        return transactionTemplate.execute(status -> {
+            ChargingStation station = entityManager.find(ChargingStation.class, stationId);
+            await(barrier);
+            LocalDateTime start = originalStart.plusMinutes(30);
+            LocalDateTime end = originalEnd.minusMinutes(30);
+            if (!overbookingService.tryAdmit(station, point.getChargingPointId(), start, end)) {
+                return false;
+            }
+            sleep(300);
+            persistOrder(entityManager.find(ChargingPoint.class, point.getChargingPointId()), start, end, true);
+            return true;
+        });
+    }
+
+    private Order persistOrder(ChargingPoint point, LocalDateTime start, LocalDateTime end, boolean overbooked) {
+        Order order = new Order();
+        order.setUser(entityManager.find(User.class, driver.getUserId()));
+        order.setVehicle(entityManager.find(Vehicle.class, vehicle.getId()));
+        order.setChargingPoint(point);
+        order.setStartTime(start);
+        order.setEndTime(end);
+        order.setStatus(Order.Status.BOOKED);
+        order.setOverbooked(overbooked ? Boolean.TRUE : null);
+        entityManager.persist(order);
+        return order;
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
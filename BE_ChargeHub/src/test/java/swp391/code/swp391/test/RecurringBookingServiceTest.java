@@ -0,0 +1,287 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import swp391.code.swp391.dto.RecurringBookingRequestDTO;
+import swp391.code.swp391.dto.RecurringBookingResponseDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.repository.*;
+import swp391.code.swp391.service.*;
+import swp391.code.swp391.util.GapKernel;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RecurringBookingServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long POINT_A = 1000L;
+    private static final Long POINT_B = 1001L;
+    private static final String ALL_TAKEN = "Tất cả trụ tương thích đã có người đặt trong khung giờ này";
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private RecurringBookingRepository recurringBookingRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private VehicleRepository vehicleRepository;
+    @Mock
+    private ChargingStationRepository stationRepository;
+    @Mock
+    private ChargingPointRepository chargingPointRepository;
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private SlotHoldService slotHoldService;
+    @Mock
+    private OccupancyService occupancyService;
+    @Mock
+    private PointLockRegistry pointLockRegistry;
+    @Mock
+    private StationPowerBudgetService powerBudgetService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private RecurringBookingService recurringBookingService;
+
+    private User user;
+    private ChargingPoint pointA;
+    private ChargingPoint pointB;
+
+    // Ba lần lặp cùng thứ trong tuần: firstDay, +7 ngày, +14 ngày
+    private final LocalDate firstDay = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+
+        user = new User();
+        user.setUserId(USER_ID);
+
+        ConnectorType ccs = new ConnectorType();
+        ccs.setConnectorTypeId(1L);
+        ccs.setTypeName("CCS2");
+        ccs.setPowerOutput(60);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        carModel.setConnectorTypes(List.of(ccs));
+
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(10L);
+        vehicle.setUser(user);
+        vehicle.setCarModel(carModel);
+
+        ChargingStation station = new ChargingStation();
+        station.setStationId(100L);
+        station.setStatus(ChargingStation.ChargingStationStatus.ACTIVE);
+
+        pointA = point(POINT_A, station, ccs);
+        pointB = point(POINT_B, station, ccs);
+
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(vehicleRepository.findById(10L)).thenReturn(Optional.of(vehicle));
+        when(stationRepository.findById(100L)).thenReturn(Optional.of(station));
+        when(chargingPointRepository.findByStationStationId(100L)).thenReturn(List.of(pointA, pointB));
+        when(recurringBookingRepository.save(any())).thenAnswer(invocation -> {
+            RecurringBooking rule = invocation.getArgument(0);
+            rule.setRecurringBookingId(50L);
+            return rule;
+        });
+        when(powerBudgetService.lockScope(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderRepository.findOccupyingOrdersByChargingPoints(any(), any(), any())).thenReturn(List.of());
+        when(orderRepository.findOccupyingOrdersByUser(eq(USER_ID), any(), any())).thenReturn(List.of());
+        when(occupancyService.tryOccupy(any(), any(), any())).thenReturn(true);
+        AtomicLong orderIds = new AtomicLong();
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> order.setOrderId(orderIds.incrementAndGet()));
+            return orders;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testCreate_BooksEveryOccurrenceOnPreferredPoint() {
+        RecurringBookingResponseDTO response = recurringBookingService.createRecurringBooking(request(POINT_B));
+
+        assertEquals(3, response.getRequested());
+        assertEquals(3, response.getBooked());
+        assertEquals(List.of(POINT_B, POINT_B, POINT_B), bookedPoints(response));
+        verify(eventPublisher, times(3)).publishEvent(any(ReservationChangedEvent.class));
+    }
+
+    @Test
+    void testCreate_ExistingOrdersOnEveryPointConflictOnlyTheirOccurrence() {
+        // Tuần 1 và tuần 3 đều kín cả hai trụ, tuần 2 trống: con trỏ quét phải đi qua khoảng bận rồi vẫn thấy tuần 2 trống
+        when(orderRepository.findOccupyingOrdersByChargingPoints(any(), any(), any())).thenReturn(List.of(
+                existing(pointA, week(0), 30, 90),
+                existing(pointB, week(0), -30, 30),
+                existing(pointA, week(2), 0, 60),
+                existing(pointB, week(2), 59, 120)));
+
+        RecurringBookingResponseDTO response = recurringBookingService.createRecurringBooking(request(null));
+
+        assertEquals(1, response.getBooked());
+        assertEquals(2, response.getConflicted());
+        List<RecurringBookingResponseDTO.Occurrence> occurrences = response.getOccurrences();
+        assertEquals(ALL_TAKEN, occurrences.get(0).getReason());
+        assertTrue(occurrences.get(1).getSuccess());
+        assertEquals(POINT_A, occurrences.get(1).getChargingPointId());
+        assertEquals(ALL_TAKEN, occurrences.get(2).getReason());
+        verify(occupancyService, times(1)).tryOccupy(any(), any(), any());
+    }
+
+    @Test
+    void testCreate_OrderEndingAtOccurrenceStartIsNotAConflict() {
+        when(orderRepository.findOccupyingOrdersByChargingPoints(any(), any(), any())).thenReturn(List.of(
+                existing(pointA, week(0), -60, 0),
+                existing(pointA, week(1), 60, 120)));
+
+        RecurringBookingResponseDTO response = recurringBookingService.createRecurringBooking(request(POINT_A));
+
+        assertEquals(3, response.getBooked());
+        assertEquals(List.of(POINT_A, POINT_A, POINT_A), bookedPoints(response));
+    }
+
+    @Test
+    void testCreate_HeldSlotsAreTreatedAsBusy() {
+        // Người khác đang giữ chỗ tuần 2 trên cả hai trụ
+        doAnswer(invocation -> {
+            GapKernel.Buffer out = invocation.getArgument(2);
+            out.add(ReservationTimelineIndex.toEpochMinute(week(1)),
+                    ReservationTimelineIndex.toEpochMinute(week(1).plusMinutes(15)));
+            return null;
+        }).when(slotHoldService).collectHeld(any(), eq(USER_ID), any());
+
+        RecurringBookingResponseDTO response = recurringBookingService.createRecurringBooking(request(null));
+
+        assertEquals(2, response.getBooked());
+        assertEquals(ALL_TAKEN, response.getOccurrences().get(1).getReason());
+        assertTrue(response.getOccurrences().get(0).getSuccess());
+        assertTrue(response.getOccurrences().get(2).getSuccess());
+    }
+
+    @Test
+    void testCreate_FallsBackToAnotherPointAndKeepsIt() {
+        // Trụ chỉ định B bận tuần 2 (đơn) và tuần 3 (giữ chỗ): tuần 2 chuyển sang A và tuần 3 giữ nguyên A
+        when(orderRepository.findOccupyingOrdersByChargingPoints(any(), any(), any())).thenReturn(List.of(
+                existing(pointB, week(1), 0, 60)));
+        doAnswer(invocation -> {
+            GapKernel.Buffer out = invocation.getArgument(2);
+            out.add(ReservationTimelineIndex.toEpochMinute(week(2)),
+                    ReservationTimelineIndex.toEpochMinute(week(2).plusMinutes(60)));
+            return null;
+        }).when(slotHoldService).collectHeld(eq(POINT_B), eq(USER_ID), any());
+
+        RecurringBookingResponseDTO response = recurringBookingService.createRecurringBooking(request(POINT_B));
+
+        assertEquals(3, response.getBooked());
+        assertEquals(List.of(POINT_B, POINT_A, POINT_A), bookedPoints(response));
+    }
+
+    @Test
+    void testCreate_UserOwnOrderConflictsOccurrence() {
+        when(orderRepository.findOccupyingOrdersByUser(eq(USER_ID), any(), any())).thenReturn(List.of(
+                existing(pointA, week(1), 30, 90)));
+
+        RecurringBookingResponseDTO response = recurringBookingService.createRecurringBooking(request(null));
+
+        assertEquals(2, response.getBooked());
+        assertEquals("Bạn đã có đơn đặt chỗ khác trong khung giờ này", response.getOccurrences().get(1).getReason());
+    }
+
+    @Test
+    void testCancel_KeepsOrdersPastCancellationDeadline() {
+        RecurringBooking rule = RecurringBooking.builder()
+                .recurringBookingId(50L)
+                .userId(USER_ID)
+                .status(RecurringBooking.Status.ACTIVE)
+                .build();
+        LocalDateTime now = LocalDateTime.now();
+        Order soon = existing(pointA, now.plusMinutes(30), 0, 60);
+        Order later = existing(pointA, now.plusDays(7), 0, 60);
+        when(recurringBookingRepository.findByRecurringBookingIdAndUserId(50L, USER_ID)).thenReturn(Optional.of(rule));
+        when(orderRepository.findByRecurringBookingIdAndStatus(50L, Order.Status.BOOKED)).thenReturn(List.of(soon, later));
+
+        int cancelled = recurringBookingService.cancelRecurringBooking(50L, USER_ID);
+
+        assertEquals(1, cancelled);
+        assertEquals(RecurringBooking.Status.CANCELLED, rule.getStatus());
+        assertEquals(Order.Status.BOOKED, soon.getStatus());
+        assertEquals(Order.Status.CANCELED, later.getStatus());
+        assertNotNull(later.getCanceledAt());
+        verify(orderRepository).saveAll(List.of(later));
+        verify(eventPublisher, times(1)).publishEvent(any(ReservationChangedEvent.class));
+    }
+
+    private RecurringBookingRequestDTO request(Long chargingPointId) {
+        return RecurringBookingRequestDTO.builder()
+                .userId(USER_ID)
+                .vehicleId(10L)
+                .stationId(100L)
+                .chargingPointId(chargingPointId)
+                .daysOfWeek(Set.of(firstDay.getDayOfWeek()))
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(11, 0))
+                .fromDate(firstDay)
+                .untilDate(firstDay.plusDays(14))
+                .currentBattery(20.0)
+                .targetBattery(80.0)
+                .build();
+    }
+
+    private LocalDateTime week(int index) {
+        return firstDay.plusWeeks(index).atTime(10, 0);
+    }
+
+    /**
+     * Đơn BOOKED trên trụ, tính theo phút lệch so với mốc
+     */
+    private Order existing(ChargingPoint point, LocalDateTime base, int fromMinutes, int toMinutes) {
+        return Order.builder()
+                .user(user)
+                .chargingPoint(point)
+                .startTime(base.plusMinutes(fromMinutes))
+                .endTime(base.plusMinutes(toMinutes))
+                .status(Order.Status.BOOKED)
+                .build();
+    }
+
+    private ChargingPoint point(Long id, ChargingStation station, ConnectorType connectorType) {
+        ChargingPoint point = new ChargingPoint();
+        point.setChargingPointId(id);
+        point.setStation(station);
+        point.setConnectorType(connectorType);
+        point.setStatus(ChargingPoint.ChargingPointStatus.AVAILABLE);
+        return point;
+    }
+
+    private List<Long> bookedPoints(RecurringBookingResponseDTO response) {
+        return response.getOccurrences().stream()
+                .map(RecurringBookingResponseDTO.Occurrence::getChargingPointId)
+                .toList();
+    }
+}
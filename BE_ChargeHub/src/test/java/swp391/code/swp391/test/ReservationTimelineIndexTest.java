@@ -0,0 +1,114 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import swp391.code.swp391.entity.ChargingPoint;
+import swp391.code.swp391.entity.Order;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.service.OccupancyService;
+import swp391.code.swp391.service.ReservationTimelineIndex;
+import swp391.code.swp391.util.OccupancyBitmap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReservationTimelineIndexTest {
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private OccupancyService occupancyService;
+
+    @InjectMocks
+    private ReservationTimelineIndex timelineIndex;
+
+    private final LocalDateTime base = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testFindFreeGaps_BetweenOrders() {
+        givenOccupied(new int[]{60, 120}, new int[]{180, 240});
+
+        List<ReservationTimelineIndex.FreeGap> gaps = timelineIndex.findFreeGaps(1L, base, base.plusMinutes(300));
+
+        assertEquals(3, gaps.size());
+        assertEquals(base, gaps.get(0).getStart());
+        assertEquals(60, gaps.get(0).getDurationMinutes());
+        assertEquals(base.plusMinutes(120), gaps.get(1).getStart());
+        assertEquals(60, gaps.get(1).getDurationMinutes());
+        assertEquals(base.plusMinutes(240), gaps.get(2).getStart());
+        assertEquals(base.plusMinutes(300), gaps.get(2).getEnd());
+    }
+
+    @Test
+    void testEvents_UpdateTimelineWithoutReseeding() {
+        givenOccupied(new int[]{60, 120});
+        assertFalse(timelineIndex.isFree(1L, base.plusMinutes(90), base.plusMinutes(100)));
+
+        timelineIndex.onReservationChanged(ReservationChangedEvent.booked(order(12L, 0, 30)));
+        assertFalse(timelineIndex.isFree(1L, base, base.plusMinutes(10)));
+
+        timelineIndex.onReservationChanged(ReservationChangedEvent.released(order(10L, 60, 120)));
+        assertTrue(timelineIndex.isFree(1L, base.plusMinutes(30), base.plusMinutes(200)));
+
+        verify(occupancyService, times(1)).loadDays(any(), any(), any());
+    }
+
+    @Test
+    void testReleasedFrom_KeepsConsumedPart() {
+        givenOccupied(new int[]{0, 120});
+        timelineIndex.findFreeGaps(1L, base, base.plusMinutes(1));
+
+        timelineIndex.onReservationChanged(ReservationChangedEvent.releasedFrom(order(10L, 0, 120), base.plusMinutes(45)));
+
+        assertFalse(timelineIndex.isFree(1L, base.plusMinutes(30), base.plusMinutes(40)));
+        assertTrue(timelineIndex.isFree(1L, base.plusMinutes(45), base.plusMinutes(120)));
+    }
+
+    /**
+     * Giả lập bitmap của ngày base với các khoảng [start, end) tính theo phút kể từ base
+     */
+    private void givenOccupied(int[]... ranges) {
+        long[] words = OccupancyBitmap.empty();
+        int baseMinute = base.getHour() * 60;
+        for (int[] range : ranges) {
+            OccupancyBitmap.set(words, baseMinute + range[0], baseMinute + range[1]);
+        }
+        Map<LocalDate, long[]> days = new HashMap<>();
+        days.put(base.toLocalDate(), words);
+        when(occupancyService.loadDays(eq(List.of(1L)), any(), any())).thenReturn(Map.of(1L, days));
+    }
+
+    private Order order(Long id, int startOffset, int endOffset) {
+        ChargingPoint point = new ChargingPoint();
+        point.setChargingPointId(1L);
+        Order order = new Order();
+        order.setOrderId(id);
+        order.setChargingPoint(point);
+        order.setStatus(Order.Status.BOOKED);
+        order.setStartTime(base.plusMinutes(startOffset));
+        order.setEndTime(base.plusMinutes(endOffset));
+        return order;
+    }
+}
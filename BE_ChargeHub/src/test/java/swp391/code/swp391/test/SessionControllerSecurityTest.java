@@ -0,0 +1,92 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import swp391.code.swp391.config.SecurityConfig;
+import swp391.code.swp391.controller.SessionController;
+import swp391.code.swp391.entity.User;
+import swp391.code.swp391.filter.AuthorizationFilter;
+import swp391.code.swp391.filter.JwtBlacklistFilter;
+import swp391.code.swp391.repository.UserRepository;
+import swp391.code.swp391.service.*;
+import swp391.code.swp391.util.JwtUtil;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Quyền gửi giá trị đồng hồ qua chuỗi filter bảo mật thật: tài xế (người bị tính tiền) không được gửi.
+ */
+@WebMvcTest(SessionController.class)
+@ContextConfiguration(classes = {SessionController.class, SecurityConfig.class,
+        AuthorizationFilter.class, JwtBlacklistFilter.class})
+public class SessionControllerSecurityTest {
+
+    private static final String BODY = """
+            {"samples": [{"timestamp": "2026-01-01T10:00:00", "energyKwh": 1.5}]}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private SessionService sessionService;
+    @MockitoBean
+    private SessionProgressStreamService sessionProgressStreamService;
+    @MockitoBean
+    private MeterReadingIngestService meterReadingIngestService;
+    @MockitoBean
+    private JwtUtil jwtUtil;
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+    @MockitoBean
+    private CustomUserDetailService customUserDetailService;
+    @MockitoBean
+    private JwtBlacklistService jwtBlacklistService;
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        User user = new User();
+        user.setStatus(User.UserStatus.ACTIVE);
+        when(userRepository.getUserByEmail(anyString())).thenReturn(user);
+        when(jwtUtil.getTokenFromHeader(any())).thenReturn("token");
+        when(jwtUtil.getUserIdByTokenDecode("token")).thenReturn(5L);
+    }
+
+    @Test
+    void testMeterValues_DriverTokenIsForbidden() throws Exception {
+        mockMvc.perform(post("/api/sessions/1/meter-values")
+                        .with(jwt().jwt(token -> token.subject("driver@test.com"))
+                                .authorities(new SimpleGrantedAuthority("ROLE_DRIVER")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(meterReadingIngestService);
+    }
+
+    @Test
+    void testMeterValues_StaffTokenIsAccepted() throws Exception {
+        when(meterReadingIngestService.ingest(eq(1L), eq(5L), any())).thenReturn(1);
+
+        mockMvc.perform(post("/api/sessions/1/meter-values")
+                        .with(jwt().jwt(token -> token.subject("staff@test.com"))
+                                .authorities(new SimpleGrantedAuthority("ROLE_STAFF")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isAccepted());
+    }
+}
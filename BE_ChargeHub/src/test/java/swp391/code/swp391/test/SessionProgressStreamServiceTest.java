@@ -0,0 +1,101 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.repository.SessionRepository;
+import swp391.code.swp391.service.ActiveSessionRegistry;
+import swp391.code.swp391.service.SessionProgressStreamService;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SessionProgressStreamServiceTest {
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private SessionRepository sessionRepository;
+    @Mock
+    private ActiveSessionRegistry activeSessionRegistry;
+
+    @InjectMocks
+    private SessionProgressStreamService streamService;
+
+    private ActiveSessionRegistry.ActiveSession active;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        active = ActiveSessionRegistry.ActiveSession.of(chargingSession());
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(active));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testTick_RecordsProgressWhileSessionIsActive() {
+        streamService.subscribe(1L, 7L);
+
+        streamService.tick();
+
+        verify(activeSessionRegistry).record(eq(active), any());
+    }
+
+    @Test
+    void testTick_DropsSessionEndedOnAnotherNode() {
+        streamService.subscribe(1L, 7L);
+        // Phiên kết thúc trên node khác: registry không còn trả về phiên
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.empty());
+
+        streamService.tick();
+        streamService.tick();
+
+        verify(activeSessionRegistry, never()).record(any(), any());
+        // subscribe + tick đầu tiên; tick sau không còn theo dõi phiên
+        verify(activeSessionRegistry, times(2)).find(1L);
+    }
+
+    private Session chargingSession() {
+        User user = new User();
+        user.setUserId(7L);
+
+        ConnectorType connectorType = new ConnectorType();
+        connectorType.setPowerOutput(60);
+        connectorType.setPricePerKWh(3500);
+        ChargingPoint point = new ChargingPoint();
+        point.setConnectorType(connectorType);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setCarModel(carModel);
+
+        Order order = new Order();
+        order.setOrderId(1L);
+        order.setUser(user);
+        order.setChargingPoint(point);
+        order.setVehicle(vehicle);
+        order.setStartedBattery(20.0);
+        order.setExpectedBattery(80.0);
+
+        Session session = new Session();
+        session.setSessionId(1L);
+        session.setOrder(order);
+        session.setStartTime(LocalDateTime.now().minusMinutes(10));
+        session.setPowerConsumed(0.0);
+        session.setBaseCost(0.0);
+        return session;
+    }
+}
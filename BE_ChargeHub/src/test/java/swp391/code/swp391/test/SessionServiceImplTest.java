@@ -6,8 +6,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
 import swp391.code.swp391.entity.*;
 import swp391.code.swp391.repository.*;
+import swp391.code.swp391.service.ActiveSessionRegistry;
 import swp391.code.swp391.service.NotificationService;
 import swp391.code.swp391.service.NotificationServiceImpl;
 import swp391.code.swp391.service.SessionServiceImpl;
@@ -15,6 +18,7 @@ import swp391.code.swp391.service.SessionServiceImpl;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -38,6 +42,14 @@ public class SessionServiceImplTest {
     private NotificationService notificationService;
     @Mock
     private FeeRepository feeRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ActiveSessionRegistry activeSessionRegistry;
+    @Mock
+    private MeterReadingRepository meterReadingRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
 
     @InjectMocks
     private SessionServiceImpl sessionService;
@@ -45,6 +57,11 @@ public class SessionServiceImplTest {
     @BeforeEach
     void setUp() {
         mocks = MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            Consumer<Object> callback = invocation.getArgument(0);
+            callback.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
     }
 
     @AfterEach
@@ -357,4 +374,133 @@ public class SessionServiceImplTest {
 
     //Mock test US11: updateSession
 
+    @Test
+    void testMonitorSession_OvertimePenaltyIsClaimedOnce() {
+        // Phiên đã sạc đầy từ lâu: mỗi lần poll đều thỏa điều kiện phạt, nhưng chỉ lần nhận được quyền mới áp phí
+        Session session = chargingSession();
+        session.setStartTime(LocalDateTime.now().minusHours(2));
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(ActiveSessionRegistry.ActiveSession.of(session)));
+        when(sessionRepository.claimOvertimeCharge(eq(1L), any())).thenReturn(1, 0);
+
+        sessionService.monitorSession(1L, 1L);
+        sessionService.monitorSession(1L, 1L);
+
+        verify(sessionRepository, times(2)).claimOvertimeCharge(eq(1L), any());
+        verify(feeRepository, times(1)).save(argThat(fee -> fee.getType() == Fee.Type.CHARGING));
+    }
+
+    @Test
+    void testEndSession_OvertimeAlreadyChargedIsNotChargedAgain() {
+        Session session = chargingSession();
+        session.setStartTime(LocalDateTime.now().minusHours(2));
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(ActiveSessionRegistry.ActiveSession.of(session)));
+        when(sessionRepository.claimOvertimeCharge(eq(1L), any())).thenReturn(0); // Timer đã áp trước
+
+        sessionService.endSession(1L, 1L);
+
+        verify(feeRepository, never()).save(any());
+        assertEquals(Session.SessionStatus.COMPLETED, session.getStatus());
+    }
+
+    @Test
+    void testMonitorSession_SlowChargerIsNotOvertimeWhenTargetIsJustReached() {
+        // Theo đường cong cần khoảng 40 phút, nhưng trụ chậm: sau 2 giờ đồng hồ mới vừa báo đủ 80%
+        Session session = chargingSession();
+        session.setStartTime(LocalDateTime.now().minusHours(2));
+        ActiveSessionRegistry.ActiveSession active = ActiveSessionRegistry.ActiveSession.of(session);
+        active.acceptReading(LocalDateTime.now(), 36.0);
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(active));
+
+        sessionService.monitorSession(1L, 1L);
+        sessionService.endSession(1L, 1L);
+
+        verify(sessionRepository, never()).claimOvertimeCharge(any(), any());
+        verify(feeRepository, never()).save(any());
+    }
+
+    @Test
+    void testMonitorSession_SlowChargerIsOvertimeAfterGraceFromTargetNotice() {
+        // Trụ chậm đã đạt mức pin và gửi thông báo 10 phút trước: quá thời gian ân hạn tính từ lúc đó
+        Session session = chargingSession();
+        session.setStartTime(LocalDateTime.now().minusHours(2));
+        session.setTargetNotifiedAt(LocalDateTime.now().minusMinutes(10));
+        ActiveSessionRegistry.ActiveSession active = ActiveSessionRegistry.ActiveSession.of(session);
+        active.acceptReading(LocalDateTime.now().minusMinutes(10), 36.0);
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(active));
+        when(sessionRepository.claimOvertimeCharge(eq(1L), any())).thenReturn(1);
+
+        sessionService.monitorSession(1L, 1L);
+
+        verify(feeRepository).save(argThat(fee -> fee.getType() == Fee.Type.CHARGING));
+    }
+
+    //Mock test: endSession
+    @Test
+    void testEndSession_BillsFromPersistedReadingWhenNotTrackedLocally() {
+        // Phiên nhận đồng hồ ở node khác: registry của node này không có giá trị
+        Session session = chargingSession();
+        when(activeSessionRegistry.meteredKwh(1L)).thenReturn(null);
+        when(meterReadingRepository.findLatestBySessionIds(List.of(1L)))
+                .thenReturn(List.of(MeterReading.builder().sessionId(1L).energyKwh(12.5).build()));
+
+        sessionService.endSession(1L, 1L);
+
+        assertEquals(12.5, session.getPowerConsumed(), 1e-9);
+        assertEquals(12.5 * 3500, session.getBaseCost(), 1e-6);
+        assertEquals(Session.SessionStatus.COMPLETED, session.getStatus());
+    }
+
+    @Test
+    void testEndSession_BillsFromLatestOfLocalAndPersistedReading() {
+        Session session = chargingSession();
+        when(activeSessionRegistry.meteredKwh(1L)).thenReturn(14.0);
+        when(meterReadingRepository.findLatestBySessionIds(List.of(1L)))
+                .thenReturn(List.of(MeterReading.builder().sessionId(1L).energyKwh(12.5).build()));
+
+        sessionService.endSession(1L, 1L);
+
+        assertEquals(14.0, session.getPowerConsumed(), 1e-9);
+    }
+
+    private Session chargingSession() {
+        User user = new User();
+        user.setUserId(1L);
+
+        ConnectorType ccs = new ConnectorType();
+        ccs.setTypeName("CCS");
+        ccs.setPowerOutput(60);
+        ccs.setPricePerKWh(3500);
+
+        ChargingPoint point = new ChargingPoint();
+        point.setChargingPointId(1L);
+        point.setConnectorType(ccs);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(1L);
+        vehicle.setCarModel(carModel);
+
+        Order order = new Order();
+        order.setOrderId(1L);
+        order.setUser(user);
+        order.setVehicle(vehicle);
+        order.setChargingPoint(point);
+        order.setStatus(Order.Status.CHARGING);
+        order.setStartTime(LocalDateTime.now().minusMinutes(20));
+        order.setEndTime(LocalDateTime.now().plusMinutes(40));
+        order.setStartedBattery(20.0);
+        order.setExpectedBattery(80.0);
+
+        Session session = new Session();
+        session.setSessionId(1L);
+        session.setOrder(order);
+        session.setStartTime(LocalDateTime.now().minusMinutes(15));
+        session.setStatus(Session.SessionStatus.CHARGING);
+
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
+        when(sessionRepository.save(any(Session.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        return session;
+    }
 }
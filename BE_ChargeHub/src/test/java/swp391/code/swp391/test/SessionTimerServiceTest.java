@@ -0,0 +1,126 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.SessionStartedEvent;
+import swp391.code.swp391.repository.SessionRepository;
+import swp391.code.swp391.service.ActiveSessionRegistry;
+import swp391.code.swp391.service.SessionService;
+import swp391.code.swp391.service.SessionTimerService;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class SessionTimerServiceTest {
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private ActiveSessionRegistry activeSessionRegistry;
+    @Mock
+    private SessionRepository sessionRepository;
+    @Mock
+    private SessionService sessionService;
+
+    @InjectMocks
+    private SessionTimerService timerService;
+
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        // Tick 1ms để timer đến hạn ngay ở lần advance kế tiếp
+        ReflectionTestUtils.setField(timerService, "tickMillis", 1L);
+        timerService.init();
+
+        session = chargingSession();
+        when(sessionRepository.findByOrderOrderId(1L)).thenReturn(session);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testFire_SlowChargerGetsGraceFromWhenTargetIsReached() throws Exception {
+        // Theo đường cong cần khoảng 40 phút, trụ chậm sau 2 giờ mới vừa báo đủ 80%:
+        // thời gian dự kiến đã qua từ lâu nhưng phí quá giờ phải chờ hết ân hạn tính từ bây giờ
+        ActiveSessionRegistry.ActiveSession active = ActiveSessionRegistry.ActiveSession.of(session);
+        active.acceptReading(LocalDateTime.now(), 36.0);
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(active));
+
+        timerService.onSessionStarted(event());
+        advance();
+        advance();
+
+        verify(sessionService).notifyTargetReached(1L);
+        verify(sessionService, never()).applyOvertimePenalty(any());
+    }
+
+    @Test
+    void testFire_OvertimeIsAppliedAfterGraceFromTargetNotice() throws Exception {
+        // Đã gửi thông báo đạt mức pin 10 phút trước (ví dụ trước khi khởi động lại)
+        session.setTargetNotifiedAt(LocalDateTime.now().minusMinutes(10));
+        ActiveSessionRegistry.ActiveSession active = ActiveSessionRegistry.ActiveSession.of(session);
+        active.acceptReading(LocalDateTime.now().minusMinutes(10), 36.0);
+        when(activeSessionRegistry.find(1L)).thenReturn(Optional.of(active));
+
+        timerService.onSessionStarted(event());
+        advance();
+        advance();
+
+        verify(sessionService).applyOvertimePenalty(1L);
+    }
+
+    private void advance() throws InterruptedException {
+        Thread.sleep(5);
+        timerService.advance();
+    }
+
+    private SessionStartedEvent event() {
+        return SessionStartedEvent.of(session.getOrder());
+    }
+
+    private Session chargingSession() {
+        User user = new User();
+        user.setUserId(7L);
+
+        ConnectorType connectorType = new ConnectorType();
+        connectorType.setPowerOutput(60);
+        connectorType.setPricePerKWh(3500);
+        ChargingPoint point = new ChargingPoint();
+        point.setConnectorType(connectorType);
+
+        CarModel carModel = new CarModel();
+        carModel.setCapacity(60);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setCarModel(carModel);
+
+        Order order = new Order();
+        order.setOrderId(1L);
+        order.setUser(user);
+        order.setChargingPoint(point);
+        order.setVehicle(vehicle);
+        order.setStartedBattery(20.0);
+        order.setExpectedBattery(80.0);
+
+        Session session = new Session();
+        session.setSessionId(1L);
+        session.setOrder(order);
+        session.setStartTime(LocalDateTime.now().minusHours(2));
+        session.setPowerConsumed(0.0);
+        session.setBaseCost(0.0);
+        return session;
+    }
+}
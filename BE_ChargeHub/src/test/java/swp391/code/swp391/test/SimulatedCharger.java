@@ -0,0 +1,54 @@
+package swp391.code.swp391.test;
+
+import swp391.code.swp391.dto.MeterValuesRequestDTO;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trụ sạc giả lập thay cho trụ thật trong test: sạc ở công suất cố định
+ * và gửi giá trị đồng hồ cộng dồn theo chu kỳ như OCPP MeterValues.
+ */
+public class SimulatedCharger {
+
+    private final double powerKw;
+    private final double capacityKwh;
+    private final Duration interval;
+    private LocalDateTime clock;
+    private double energyKwh;
+    private double socPercent;
+
+    public SimulatedCharger(double powerKw, double capacityKwh, double startSoc, LocalDateTime start, Duration interval) {
+        this.powerKw = powerKw;
+        this.capacityKwh = capacityKwh;
+        this.socPercent = startSoc;
+        this.clock = start;
+        this.interval = interval;
+    }
+
+    /**
+     * Sạc thêm count chu kỳ và trả về các giá trị đồng hồ tương ứng
+     */
+    public MeterValuesRequestDTO next(int count) {
+        List<MeterValuesRequestDTO.Sample> samples = new ArrayList<>(count);
+        double hours = interval.toMillis() / 3_600_000.0;
+        for (int i = 0; i < count; i++) {
+            clock = clock.plus(interval);
+            energyKwh += powerKw * hours;
+            socPercent = Math.min(100, socPercent + powerKw * hours / capacityKwh * 100);
+            samples.add(MeterValuesRequestDTO.Sample.builder()
+                    .timestamp(clock)
+                    .energyKwh(energyKwh)
+                    .powerKw(powerKw)
+                    .socPercent(socPercent)
+                    .build());
+        }
+        return MeterValuesRequestDTO.builder().samples(samples).build();
+    }
+
+    public double getEnergyKwh() {
+        return energyKwh;
+    }
+}
@@ -0,0 +1,145 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import swp391.code.swp391.dto.SlotHoldRequestDTO;
+import swp391.code.swp391.entity.ChargingPoint;
+import swp391.code.swp391.entity.SlotHold;
+import swp391.code.swp391.repository.ChargingPointRepository;
+import swp391.code.swp391.repository.SlotHoldRepository;
+import swp391.code.swp391.repository.UserRepository;
+import swp391.code.swp391.service.PointLockRegistry;
+import swp391.code.swp391.service.ReservationTimelineIndex;
+import swp391.code.swp391.service.SlotHoldService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+public class SlotHoldServiceTest {
+
+    private static final Long POINT_ID = 5L;
+    private static final Long HOLDER_ID = 1L;
+    private static final Long OTHER_USER_ID = 2L;
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private SlotHoldRepository holdRepository;
+    @Mock
+    private ChargingPointRepository chargingPointRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ReservationTimelineIndex timelineIndex;
+    @Mock
+    private PointLockRegistry pointLockRegistry;
+
+    @InjectMocks
+    private SlotHoldService slotHoldService;
+
+    private final LocalDateTime start = LocalDate.now().plusDays(1).atTime(10, 0);
+    private final LocalDateTime end = start.plusHours(1);
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(slotHoldService, "ttlSeconds", 120L);
+
+        ChargingPoint point = new ChargingPoint();
+        point.setChargingPointId(POINT_ID);
+        when(chargingPointRepository.findById(POINT_ID)).thenReturn(Optional.of(point));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(timelineIndex.isFree(eq(POINT_ID), any(), any())).thenReturn(true);
+        AtomicLong holdIds = new AtomicLong();
+        when(holdRepository.save(any(SlotHold.class))).thenAnswer(invocation -> {
+            SlotHold hold = invocation.getArgument(0);
+            hold.setHoldId(holdIds.incrementAndGet());
+            return hold;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        mocks.close();
+    }
+
+    @Test
+    void testCreateHold_RolledBackHoldIsNotRemembered() {
+        List<TransactionSynchronization> transaction = createHoldInTransaction();
+
+        complete(transaction, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertFalse(isHiddenFromOthers());
+    }
+
+    @Test
+    void testCreateHold_CommittedHoldIsHiddenFromOthers() {
+        List<TransactionSynchronization> transaction = createHoldInTransaction();
+        assertFalse(isHiddenFromOthers());
+
+        complete(transaction, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(isHiddenFromOthers());
+    }
+
+    @Test
+    void testSyncHolds_KeepsHoldCommittedAfterDatabaseRead() {
+        // Hold được tạo trước khi đồng bộ bắt đầu nhưng commit sau khi đồng bộ đã đọc DB
+        List<TransactionSynchronization> transaction = createHoldInTransaction();
+        when(holdRepository.findByExpiresAtAfter(any())).thenAnswer(invocation -> {
+            complete(transaction, TransactionSynchronization.STATUS_COMMITTED);
+            return List.of();
+        });
+
+        slotHoldService.syncHolds();
+
+        assertTrue(isHiddenFromOthers());
+    }
+
+    /**
+     * Tạo hold trong một transaction chưa kết thúc, trả về các synchronization của transaction đó
+     */
+    private List<TransactionSynchronization> createHoldInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        slotHoldService.createHold(SlotHoldRequestDTO.builder()
+                .userId(HOLDER_ID)
+                .chargingPointId(POINT_ID)
+                .startTime(start)
+                .endTime(end)
+                .build());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        return synchronizations;
+    }
+
+    private void complete(List<TransactionSynchronization> synchronizations, int status) {
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
+    private boolean isHiddenFromOthers() {
+        List<ReservationTimelineIndex.FreeGap> gaps = slotHoldService.excludeHeld(POINT_ID, OTHER_USER_ID,
+                List.of(new ReservationTimelineIndex.FreeGap(start, end, 60)));
+        return gaps.isEmpty();
+    }
+}
@@ -0,0 +1,197 @@
+package swp391.code.swp391.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import swp391.code.swp391.dto.AvailableTimeSlotDTO;
+import swp391.code.swp391.dto.ChargingPointAvailabilityDTO;
+import swp391.code.swp391.dto.OrderRequestDTO.PlacementPolicy;
+import swp391.code.swp391.dto.RankedSlotDTO;
+import swp391.code.swp391.entity.ChargingPoint;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.repository.ChargingPointRepository;
+import swp391.code.swp391.repository.PriceFactorRepository;
+import swp391.code.swp391.repository.SubscriptionRepository;
+import swp391.code.swp391.service.ReservationTimelineIndex;
+import swp391.code.swp391.service.SlotPlacementService;
+import swp391.code.swp391.service.SlotRankingService;
+import swp391.code.swp391.util.GapKernel;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SlotPlacementServiceTest {
+
+    private static final Long STATION_ID = 100L;
+    private static final Long POINT_ID = 1L;
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private ChargingPointRepository chargingPointRepository;
+    @Mock
+    private ReservationTimelineIndex timelineIndex;
+    @Mock
+    private PriceFactorRepository priceFactorRepository;
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SlotPlacementService slotPlacementService;
+    private SlotRankingService.PricingContext pricing;
+
+    private final LocalDate day = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        slotPlacementService = new SlotPlacementService(chargingPointRepository, timelineIndex, meterRegistry);
+        ReflectionTestUtils.setField(slotPlacementService, "minUsefulMinutes", 30);
+        when(priceFactorRepository.findByStationStationId(STATION_ID)).thenReturn(List.of());
+        pricing = new SlotRankingService(priceFactorRepository, subscriptionRepository).pricingFor(STATION_ID, null);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testApplyPlacement_BestFitPrefersNoFragmentThenSmallestLeftover() {
+        ChargingPointAvailabilityDTO point = point(
+                slot(day.atTime(13, 0), day.atTime(15, 0)),   // còn 60 phút, dùng được
+                slot(day.atTime(15, 0), day.atTime(16, 20)),  // còn 20 phút, phân mảnh
+                slot(day.atTime(20, 30), day.atTime(21, 30))); // vừa khít
+
+        slotPlacementService.applyPlacement(point, PlacementPolicy.BEST_FIT, pricing, 50);
+
+        List<AvailableTimeSlotDTO> slots = point.getAvailableSlots();
+        assertEquals(List.of(day.atTime(20, 30), day.atTime(13, 0), day.atTime(15, 0)),
+                slots.stream().map(AvailableTimeSlotDTO::getProposedStart).toList());
+        assertEquals(List.of(0, 60, 20), slots.stream().map(AvailableTimeSlotDTO::getLeftoverMinutes).toList());
+        assertEquals(List.of(0, 0, 20), slots.stream().map(AvailableTimeSlotDTO::getFragmentedMinutes).toList());
+    }
+
+    @Test
+    void testApplyPlacement_TightestGapPrefersShortestGap() {
+        ChargingPointAvailabilityDTO point = point(
+                slot(day.atTime(13, 0), day.atTime(15, 0)),
+                slot(day.atTime(15, 0), day.atTime(16, 20)),
+                slot(day.atTime(20, 30), day.atTime(21, 30)));
+
+        slotPlacementService.applyPlacement(point, PlacementPolicy.TIGHTEST_GAP, pricing, 50);
+
+        assertEquals(List.of(60, 80, 120), point.getAvailableSlots().stream()
+                .map(AvailableTimeSlotDTO::getAvailableMinutes).toList());
+    }
+
+    @Test
+    void testApplyPlacement_FlushesToCheaperEndOfGap() {
+        // Đầu khoảng nằm trong giờ cao điểm (×1.5), cuối khoảng thì không: đặt sát cuối
+        ChargingPointAvailabilityDTO point = point(slot(day.atTime(10, 30), day.atTime(13, 0)));
+
+        slotPlacementService.applyPlacement(point, PlacementPolicy.BEST_FIT, pricing, 50);
+
+        AvailableTimeSlotDTO slot = point.getAvailableSlots().get(0);
+        assertEquals(day.atTime(12, 0), slot.getProposedStart());
+        assertEquals(50 * 3000.0, slot.getEstimatedCost(), 1e-6);
+        assertEquals(90, slot.getLeftoverMinutes());
+    }
+
+    @Test
+    void testRankingOrder_BestFit() {
+        RankedSlotDTO loose = ranked(60, 60, 0, 100);
+        RankedSlotDTO fragmenting = ranked(60, 20, 20, 50);
+        RankedSlotDTO exact = ranked(60, 0, 0, 300);
+        RankedSlotDTO exactCheaper = ranked(30, 0, 0, 200);
+
+        List<RankedSlotDTO> slots = new ArrayList<>(List.of(loose, fragmenting, exact, exactCheaper));
+        slots.sort(slotPlacementService.rankingOrder(PlacementPolicy.BEST_FIT));
+
+        assertEquals(List.of(exactCheaper, exact, loose, fragmenting), slots);
+    }
+
+    @Test
+    void testRankingOrder_TightestGap() {
+        RankedSlotDTO loose = ranked(60, 60, 0, 100);       // khoảng 120 phút
+        RankedSlotDTO fragmenting = ranked(60, 20, 20, 50); // khoảng 80 phút
+        RankedSlotDTO exact = ranked(60, 0, 0, 300);        // khoảng 60 phút
+        RankedSlotDTO shortCheaper = ranked(30, 30, 0, 200); // khoảng 60 phút, điểm tốt hơn
+
+        List<RankedSlotDTO> slots = new ArrayList<>(List.of(loose, fragmenting, exact, shortCheaper));
+        slots.sort(slotPlacementService.rankingOrder(PlacementPolicy.TIGHTEST_GAP));
+
+        assertEquals(List.of(shortCheaper, exact, fragmenting, loose), slots);
+        assertNull(slotPlacementService.rankingOrder(null));
+    }
+
+    @Test
+    void testSampleFragmentation_CountsOnlyGapsBetweenBookings() {
+        ChargingStation station = new ChargingStation();
+        station.setStationId(STATION_ID);
+        station.setStatus(ChargingStation.ChargingStationStatus.ACTIVE);
+        // Mở cửa quanh ngày (đóng = mở) để khung đang mở luôn dài ~23 giờ bất kể lúc chạy test
+        LocalDateTime now = LocalDateTime.now();
+        station.setOpeningTime(now.minusHours(1).toLocalTime().withSecond(0).withNano(0));
+        station.setClosingTime(station.getOpeningTime());
+        ChargingPoint point = new ChargingPoint();
+        point.setChargingPointId(POINT_ID);
+        point.setStation(station);
+        when(chargingPointRepository.findAll()).thenReturn(List.of(point));
+
+        // Khung đầu tiên (chứa bây giờ): trống 10' ngay đầu, các mảnh 10', 60', 15' giữa các đơn, trống 5' sát giờ đóng
+        doAnswer(invocation -> {
+            long from = ReservationTimelineIndex.toEpochMinute(invocation.getArgument(1));
+            long to = ReservationTimelineIndex.toEpochMinute(invocation.getArgument(2));
+            GapKernel.Buffer out = invocation.getArgument(4);
+            out.add(from, from + 10);
+            out.add(from + 40, from + 50);
+            out.add(from + 100, from + 160);
+            out.add(from + 200, from + 215);
+            out.add(to - 5, to);
+            return null;
+        }).doNothing().when(timelineIndex).collectFreeGaps(eq(POINT_ID), any(), any(), eq(0L), any());
+
+        slotPlacementService.sampleFragmentation();
+
+        assertEquals(25.0, meterRegistry.get("charging.point.fragmented.minutes")
+                .tag("chargingPointId", String.valueOf(POINT_ID)).gauge().value());
+    }
+
+    private AvailableTimeSlotDTO slot(LocalDateTime from, LocalDateTime to) {
+        return AvailableTimeSlotDTO.builder()
+                .freeFrom(from)
+                .freeTo(to)
+                .availableMinutes((int) Duration.between(from, to).toMinutes())
+                .build();
+    }
+
+    private ChargingPointAvailabilityDTO point(AvailableTimeSlotDTO... slots) {
+        return ChargingPointAvailabilityDTO.builder()
+                .chargingPointId(POINT_ID)
+                .pricePerKwh(3000.0)
+                .requiredMinutes(60)
+                .availableSlots(new ArrayList<>(List.of(slots)))
+                .build();
+    }
+
+    private RankedSlotDTO ranked(int requiredMinutes, int leftoverMinutes, int fragmentedMinutes, double score) {
+        return RankedSlotDTO.builder()
+                .requiredMinutes(requiredMinutes)
+                .leftoverMinutes(leftoverMinutes)
+                .fragmentedMinutes(fragmentedMinutes)
+                .score(score)
+                .build();
+    }
+}
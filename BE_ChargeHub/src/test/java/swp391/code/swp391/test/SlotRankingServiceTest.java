@@ -0,0 +1,143 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import swp391.code.swp391.dto.AvailableTimeSlotDTO;
+import swp391.code.swp391.dto.ChargingPointAvailabilityDTO;
+import swp391.code.swp391.dto.RankedSlotDTO;
+import swp391.code.swp391.entity.PriceFactor;
+import swp391.code.swp391.repository.PriceFactorRepository;
+import swp391.code.swp391.repository.SubscriptionRepository;
+import swp391.code.swp391.service.SlotRankingService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SlotRankingServiceTest {
+
+    private static final Long STATION_ID = 100L;
+    private static final double ENERGY_KWH = 50;
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private PriceFactorRepository priceFactorRepository;
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @InjectMocks
+    private SlotRankingService slotRankingService;
+
+    private final LocalDate day = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(slotRankingService, "waitValuePerMinute", 300.0);
+        ReflectionTestUtils.setField(slotRankingService, "durationValuePerMinute", 500.0);
+        when(priceFactorRepository.findByStationStationId(STATION_ID)).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testRankTopK_StartRightAfterPeakBeatsEarlierPeakStart() {
+        // Khoảng trống 10:30-14:00 nằm trong giờ cao điểm 10:00-12:00: chờ tới 12:00 rẻ hơn
+        ChargingPointAvailabilityDTO point = point(1L, 3000, gap(day.atTime(10, 30), day.atTime(14, 0)));
+
+        List<RankedSlotDTO> ranked = slotRankingService.rankTopK(List.of(point), pricing(), ENERGY_KWH, 5);
+
+        assertEquals(1, ranked.size());
+        assertEquals(day.atTime(12, 0), ranked.get(0).getStartTime());
+        assertEquals(1.0, ranked.get(0).getPriceFactor());
+        assertEquals(ENERGY_KWH * 3000, ranked.get(0).getEstimatedCost(), 1e-6);
+    }
+
+    @Test
+    void testRankTopK_StartAfterPriceFactorWindowBeatsEarlierExpensiveStart() {
+        // Phụ phí ×2 trong 13:00-15:00: bắt đầu lúc 15:00 rẻ hơn bắt đầu ngay lúc 13:30
+        PriceFactor surcharge = new PriceFactor();
+        surcharge.setFactor(2.0);
+        surcharge.setStartTime(day.atTime(13, 0));
+        surcharge.setEndTime(day.atTime(15, 0));
+        when(priceFactorRepository.findByStationStationId(STATION_ID)).thenReturn(List.of(surcharge));
+        ChargingPointAvailabilityDTO point = point(1L, 3000, gap(day.atTime(13, 30), day.atTime(16, 30)));
+
+        List<RankedSlotDTO> ranked = slotRankingService.rankTopK(List.of(point), pricing(), ENERGY_KWH, 5);
+
+        assertEquals(day.atTime(15, 0), ranked.get(0).getStartTime());
+        assertEquals(1.0, ranked.get(0).getPriceFactor());
+    }
+
+    @Test
+    void testRankTopK_BoundaryTooLateForGapIsNotProposed() {
+        // Giờ cao điểm kết thúc 12:00 nhưng khoảng trống chỉ cho bắt đầu muộn nhất lúc 11:00
+        ChargingPointAvailabilityDTO point = point(1L, 3000, gap(day.atTime(10, 30), day.atTime(12, 0)));
+
+        List<RankedSlotDTO> ranked = slotRankingService.rankTopK(List.of(point), pricing(), ENERGY_KWH, 5);
+
+        assertEquals(day.atTime(10, 30), ranked.get(0).getStartTime());
+        assertEquals(1.5, ranked.get(0).getPriceFactor());
+    }
+
+    @Test
+    void testRankTopK_KeepsExactlyKSlotsInScoreOrder() {
+        // Cùng khung giờ ngoài cao điểm, chỉ khác giá: thêm theo thứ tự xấu dần rồi tốt dần để đi qua heap
+        List<ChargingPointAvailabilityDTO> points = List.of(
+                point(1L, 5000, gap(day.atTime(14, 0), day.atTime(16, 0))),
+                point(2L, 3000, gap(day.atTime(14, 0), day.atTime(16, 0))),
+                point(3L, 6000, gap(day.atTime(14, 0), day.atTime(16, 0))),
+                point(4L, 2000, gap(day.atTime(14, 0), day.atTime(16, 0))),
+                point(5L, 4000, gap(day.atTime(14, 0), day.atTime(16, 0))));
+
+        List<RankedSlotDTO> ranked = slotRankingService.rankTopK(points, pricing(), ENERGY_KWH, 3);
+
+        assertEquals(List.of(4L, 2L, 5L), ranked.stream().map(RankedSlotDTO::getChargingPointId).toList());
+        for (int i = 1; i < ranked.size(); i++) {
+            assertTrue(ranked.get(i - 1).getScore() <= ranked.get(i).getScore());
+        }
+    }
+
+    @Test
+    void testRankTopK_FewerCandidatesThanKReturnsAll() {
+        List<ChargingPointAvailabilityDTO> points = List.of(
+                point(1L, 5000, gap(day.atTime(14, 0), day.atTime(16, 0))),
+                point(2L, 3000, gap(day.atTime(14, 0), day.atTime(16, 0))));
+
+        List<RankedSlotDTO> ranked = slotRankingService.rankTopK(points, pricing(), ENERGY_KWH, 5);
+
+        assertEquals(List.of(2L, 1L), ranked.stream().map(RankedSlotDTO::getChargingPointId).toList());
+    }
+
+    private SlotRankingService.PricingContext pricing() {
+        return slotRankingService.pricingFor(STATION_ID, null);
+    }
+
+    private AvailableTimeSlotDTO gap(LocalDateTime from, LocalDateTime to) {
+        return AvailableTimeSlotDTO.builder()
+                .freeFrom(from)
+                .freeTo(to)
+                .build();
+    }
+
+    private ChargingPointAvailabilityDTO point(Long id, double pricePerKwh, AvailableTimeSlotDTO gap) {
+        return ChargingPointAvailabilityDTO.builder()
+                .chargingPointId(id)
+                .pricePerKwh(pricePerKwh)
+                .requiredMinutes(60)
+                .availableSlots(List.of(gap))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import swp391.code.swp391.dto.NearbyStationDTO;
+import swp391.code.swp391.entity.ChargingStation;
+import swp391.code.swp391.event.StationChangedEvent;
+import swp391.code.swp391.repository.ChargingStationRepository;
+import swp391.code.swp391.service.StationGeoIndex;
+import swp391.code.swp391.util.GeoUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+public class StationGeoIndexTest {
+
+    private AutoCloseable mocks;
+
+    @Mock
+    private ChargingStationRepository stationRepository;
+
+    @InjectMocks
+    private StationGeoIndex geoIndex;
+
+    private final List<ChargingStation> stations = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        // Trạm ngẫu nhiên quanh TP.HCM
+        Random random = new Random(42);
+        for (long id = 1; id <= 2000; id++) {
+            stations.add(station(id, 10.5 + random.nextDouble(), 106.3 + random.nextDouble()));
+        }
+        when(stationRepository.findAll()).thenReturn(stations);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testFindNearest_MatchesBruteForce() {
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            double lat = 10.4 + random.nextDouble() * 1.2;
+            double lng = 106.2 + random.nextDouble() * 1.2;
+
+            List<NearbyStationDTO> nearest = geoIndex.findNearest(lat, lng, 10, null);
+
+            List<Long> expected = stations.stream()
+                    .sorted(Comparator.comparingDouble(s -> GeoUtil.distanceKm(lat, lng, s.getLatitude(), s.getLongitude())))
+                    .limit(10)
+                    .map(ChargingStation::getStationId)
+                    .toList();
+            assertEquals(expected, nearest.stream().map(NearbyStationDTO::getStationId).toList());
+        }
+    }
+
+    @Test
+    void testFindWithinRadius_MatchesBruteForce() {
+        double lat = 10.8;
+        double lng = 106.7;
+
+        List<NearbyStationDTO> nearby = geoIndex.findWithinRadius(lat, lng, 8, null);
+
+        long expected = stations.stream()
+                .filter(s -> GeoUtil.distanceKm(lat, lng, s.getLatitude(), s.getLongitude()) <= 8)
+                .count();
+        assertEquals(expected, nearby.size());
+        for (int i = 1; i < nearby.size(); i++) {
+            assertTrue(nearby.get(i - 1).getDistanceKm() <= nearby.get(i).getDistanceKm());
+        }
+    }
+
+    @Test
+    void testStationChanged_MovesAndRemovesStation() {
+        geoIndex.findNearest(10.8, 106.7, 1, null);
+
+        ChargingStation moved = station(1L, 21.03, 105.85);
+        geoIndex.onStationChanged(StationChangedEvent.upserted(moved));
+        assertEquals(1L, geoIndex.findNearest(21.03, 105.85, 1, null).get(0).getStationId());
+
+        geoIndex.onStationChanged(StationChangedEvent.deleted(1L));
+        assertTrue(geoIndex.findWithinRadius(21.03, 105.85, 50, null).isEmpty());
+    }
+
+    @Test
+    void testRefresh_PicksUpStationsChangedWithoutEvents() {
+        geoIndex.findNearest(10.8, 106.7, 1, null);
+
+        // Trạm được sửa thẳng trong DB (không có StationChangedEvent): lần dựng lại định kỳ thay lưới mới
+        List<ChargingStation> changed = new ArrayList<>(stations.subList(1, stations.size()));
+        changed.add(station(1L, 21.03, 105.85));
+        when(stationRepository.findAll()).thenReturn(changed);
+        assertTrue(geoIndex.findWithinRadius(21.03, 105.85, 50, null).isEmpty());
+
+        geoIndex.refresh();
+
+        assertEquals(1L, geoIndex.findNearest(21.03, 105.85, 1, null).get(0).getStationId());
+        assertEquals(stations.size(), geoIndex.findWithinRadius(16, 106, 2000, null).size());
+    }
+
+    private ChargingStation station(Long id, double lat, double lng) {
+        ChargingStation station = new ChargingStation();
+        station.setStationId(id);
+        station.setStationName("Station " + id);
+        station.setLatitude(lat);
+        station.setLongitude(lng);
+        return station;
+    }
+}
@@ -0,0 +1,138 @@
+package swp391.code.swp391.test;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.exception.ApiRequestException;
+import swp391.code.swp391.service.OccupancyService;
+import swp391.code.swp391.service.StationPowerBudgetService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Kiểm tra giới hạn công suất trạm trên DB thật: tải được đọc từ bitmap point_occupancy dưới khóa dòng station.
+ * Dữ liệu được commit trước (không chạy trong transaction của test) để dòng bitmap dựng từ orders
+ * trong transaction riêng nhìn thấy đơn đã có.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:budget;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StationPowerBudgetService.class, OccupancyService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StationPowerBudgetServiceTest {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    @Autowired
+    private StationPowerBudgetService powerBudgetService;
+    @Autowired
+    private OccupancyService occupancyService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final LocalDateTime bookedStart = LocalDate.now().plusDays(1).atTime(10, 0);
+    private final LocalDateTime bookedEnd = bookedStart.plusHours(1);
+
+    private ChargingStation station;
+    private ChargingPoint busyPoint;
+    private ChargingPoint freePoint;
+
+    @BeforeEach
+    void setUp() {
+        long seq = SEQUENCE.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Trạm 100 kW, hai trụ 60 kW: chỉ một trụ được sạc tại một thời điểm
+            station = new ChargingStation();
+            station.setStationName("Station " + seq);
+            station.setAddress("1 Test Street");
+            station.setChargingPointNumber(2);
+            station.setPowerBudgetKw(100.0);
+            entityManager.persist(station);
+
+            ConnectorType connectorType = new ConnectorType();
+            connectorType.setTypeName("CCS2");
+            connectorType.setPowerOutput(60);
+            connectorType.setPricePerKWh(3500);
+            entityManager.persist(connectorType);
+
+            busyPoint = new ChargingPoint();
+            busyPoint.setStation(station);
+            busyPoint.setConnectorType(connectorType);
+            entityManager.persist(busyPoint);
+
+            freePoint = new ChargingPoint();
+            freePoint.setStation(station);
+            freePoint.setConnectorType(connectorType);
+            entityManager.persist(freePoint);
+
+            CarModel carModel = new CarModel();
+            carModel.setBrand("VinFast");
+            carModel.setModel("VF8");
+            carModel.setCapacity(60);
+            entityManager.persist(carModel);
+
+            User driver = new User();
+            driver.setFullName("Driver");
+            driver.setEmail("driver" + seq + "@test.com");
+            entityManager.persist(driver);
+
+            Vehicle vehicle = new Vehicle();
+            vehicle.setPlateNumber("51A-" + seq);
+            vehicle.setCarModel(carModel);
+            vehicle.setUser(driver);
+            entityManager.persist(vehicle);
+
+            Order order = new Order();
+            order.setUser(driver);
+            order.setVehicle(vehicle);
+            order.setChargingPoint(busyPoint);
+            order.setStartTime(bookedStart);
+            order.setEndTime(bookedEnd);
+            order.setStatus(Order.Status.BOOKED);
+            entityManager.persist(order);
+        });
+    }
+
+    @Test
+    void testCheckAdmission_RejectsBookingOverBudget() {
+        // Chồng 30 phút lên đơn của trụ kia: 60 + 60 kW > 100 kW
+        assertThrows(ApiRequestException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                powerBudgetService.checkAdmission(station, freePoint, bookedStart.plusMinutes(30), bookedEnd.plusMinutes(30))));
+    }
+
+    @Test
+    void testCheckAdmission_AcceptsBookingAfterPeak() {
+        assertDoesNotThrow(() -> transactionTemplate.executeWithoutResult(status ->
+                powerBudgetService.checkAdmission(station, freePoint, bookedEnd, bookedEnd.plusHours(1))));
+    }
+
+    @Test
+    void testCheckAdmission_SeesOccupancyCommittedByAnotherBooking() {
+        LocalDateTime start = bookedEnd.plusHours(2);
+        transactionTemplate.executeWithoutResult(status ->
+                powerBudgetService.checkAdmission(station, busyPoint, start, start.plusHours(1)));
+
+        // Một đơn khác (có thể trên node khác) vừa chốt khung giờ trên trụ kia
+        transactionTemplate.executeWithoutResult(status ->
+                assertTrue(occupancyService.tryOccupy(busyPoint.getChargingPointId(), start, start.plusHours(1))));
+
+        assertThrows(ApiRequestException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                powerBudgetService.checkAdmission(station, freePoint, start, start.plusHours(1))));
+    }
+}
@@ -0,0 +1,48 @@
+package swp391.code.swp391.test;
+
+import org.junit.jupiter.api.Test;
+import swp391.code.swp391.util.TimingWheel;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    @Test
+    void testAdvance_FiresOnlyDueTimersInDeadlineOrder() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 0);
+        wheel.schedule("b", 3_000);
+        wheel.schedule("a", 1_500);
+        wheel.schedule("c", 20_000); // Hơn hai vòng wheel, cùng ô với tick 4
+
+        assertEquals(List.of(), wheel.advance(1_000));
+        assertEquals(List.of("a", "b"), wheel.advance(4_000));
+        assertEquals(List.of(), wheel.advance(12_000));
+        assertEquals(List.of("c"), wheel.advance(20_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancel_RemovesTimerOnce() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 0);
+        TimingWheel.Timeout<String> first = wheel.schedule("first", 2_000);
+        wheel.schedule("second", 2_000);
+
+        assertTrue(wheel.cancel(first));
+        assertFalse(wheel.cancel(first));
+        assertEquals(List.of("second"), wheel.advance(2_000));
+    }
+
+    @Test
+    void testAdvance_CatchesUpAfterMissingManyRounds() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1000, 8, 0);
+        for (int i = 1; i <= 100; i++) {
+            wheel.schedule(i, i * 1000L);
+        }
+        wheel.schedule(0, -5_000); // Hạn đã qua: đến hạn ở tick kế tiếp
+
+        assertEquals(101, wheel.advance(1_000_000).size());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,235 @@
+package swp391.code.swp391.test;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import swp391.code.swp391.dto.SlotHoldRequestDTO;
+import swp391.code.swp391.dto.SlotHoldResponseDTO;
+import swp391.code.swp391.dto.WaitlistRequestDTO;
+import swp391.code.swp391.dto.WaitlistResponseDTO;
+import swp391.code.swp391.entity.*;
+import swp391.code.swp391.event.HoldConsumedEvent;
+import swp391.code.swp391.event.ReservationChangedEvent;
+import swp391.code.swp391.repository.WaitlistEntryRepository;
+import swp391.code.swp391.service.NotificationService;
+import swp391.code.swp391.service.OrderService;
+import swp391.code.swp391.service.ReservationTimelineIndex;
+import swp391.code.swp391.service.SlotHoldService;
+import swp391.code.swp391.service.WaitlistService;
+import swp391.code.swp391.util.ChargeCurve;
+import swp391.code.swp391.util.ChargingTimeUtil;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Vòng đời lời mời của danh sách chờ (mời -> xác nhận / hết hạn -> maintain) trên DB thật.
+ * Không chạy trong transaction của test vì việc ghép người chờ chạy trên luồng promoter.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:waitlist;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.booking.waitlist-sync-ms=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(WaitlistService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class WaitlistServiceTest {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    @Autowired
+    private WaitlistService waitlistService;
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private ReservationTimelineIndex timelineIndex;
+    @MockitoBean
+    private SlotHoldService slotHoldService;
+    @MockitoBean
+    private OrderService orderService;
+    @MockitoBean
+    private NotificationService notificationService;
+
+    private final LocalDateTime gapStart = LocalDate.now().plusDays(1).atTime(10, 0);
+    private final LocalDateTime gapEnd = gapStart.plusHours(2);
+
+    private User driver;
+    private Vehicle vehicle;
+    private ChargingStation station;
+    private ConnectorType connectorType;
+    private ChargingPoint point;
+
+    @BeforeEach
+    void setUp() {
+        long seq = SEQUENCE.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            station = new ChargingStation();
+            station.setStationName("Station " + seq);
+            station.setAddress("1 Test Street");
+            station.setChargingPointNumber(1);
+            entityManager.persist(station);
+
+            connectorType = new ConnectorType();
+            connectorType.setTypeName("CCS2");
+            connectorType.setPowerOutput(60);
+            connectorType.setPricePerKWh(3500);
+            entityManager.persist(connectorType);
+
+            point = new ChargingPoint();
+            point.setStation(station);
+            point.setConnectorType(connectorType);
+            entityManager.persist(point);
+
+            CarModel carModel = new CarModel();
+            carModel.setBrand("VinFast");
+            carModel.setModel("VF8");
+            carModel.setCapacity(60);
+            carModel.setConnectorTypes(List.of(connectorType));
+            entityManager.persist(carModel);
+
+            driver = new User();
+            driver.setFullName("Driver");
+            driver.setEmail("driver" + seq + "@test.com");
+            entityManager.persist(driver);
+
+            vehicle = new Vehicle();
+            vehicle.setPlateNumber("51A-" + seq);
+            vehicle.setCarModel(carModel);
+            vehicle.setUser(driver);
+            entityManager.persist(vehicle);
+        });
+
+        reset(timelineIndex, slotHoldService);
+        when(timelineIndex.findFreeGaps(eq(point.getChargingPointId()), any(), any()))
+                .thenReturn(List.of(new ReservationTimelineIndex.FreeGap(gapStart, gapEnd, 120)));
+        when(slotHoldService.excludeHeld(eq(point.getChargingPointId()), isNull(), anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(2));
+        AtomicLong holdIds = new AtomicLong(seq * 100);
+        when(slotHoldService.createHold(any())).thenAnswer(invocation -> SlotHoldResponseDTO.builder()
+                .holdId(holdIds.incrementAndGet())
+                .chargingPointId(point.getChargingPointId())
+                .expiresAt(LocalDateTime.now().plusMinutes(2))
+                .build());
+    }
+
+    @Test
+    void testOfferThenConfirm_MarksBookedAndIsNotOfferedAgain() throws InterruptedException {
+        Long waitlistId = join();
+
+        release();
+        WaitlistEntry offered = awaitStatus(waitlistId, WaitlistEntry.Status.OFFERED);
+        assertNotNull(offered.getHoldId());
+
+        // Driver xác nhận đặt chỗ bằng hold được mời (confirmOrder phát sự kiện trong transaction của order)
+        transactionTemplate.executeWithoutResult(status -> waitlistService.onHoldConsumed(
+                new HoldConsumedEvent(offered.getHoldId(), driver.getUserId(), 500L)));
+
+        // Lời mời quá hạn sau đó không đưa đăng ký về trạng thái chờ
+        expireOffer(waitlistId);
+        waitlistService.maintain();
+
+        WaitlistEntry booked = waitlistRepository.findById(waitlistId).orElseThrow();
+        assertEquals(WaitlistEntry.Status.BOOKED, booked.getStatus());
+        assertEquals(500L, booked.getOrderId());
+
+        // Khoảng trống mới không được mời lại cho người đã đặt
+        release();
+        verify(slotHoldService, times(1)).createHold(any());
+    }
+
+    @Test
+    void testOfferExpires_ReturnsToWaitingAndIsOfferedAgain() throws InterruptedException {
+        Long waitlistId = join();
+
+        release();
+        Long firstHold = awaitStatus(waitlistId, WaitlistEntry.Status.OFFERED).getHoldId();
+
+        expireOffer(waitlistId);
+        waitlistService.maintain();
+        assertEquals(WaitlistEntry.Status.WAITING, waitlistRepository.findById(waitlistId).orElseThrow().getStatus());
+
+        release();
+        WaitlistEntry reoffered = awaitStatus(waitlistId, WaitlistEntry.Status.OFFERED);
+        assertNotEquals(firstHold, reoffered.getHoldId());
+        verify(slotHoldService, times(2)).createHold(any());
+    }
+
+    @Test
+    void testOffer_WindowFollowsChargeCurve() throws InterruptedException {
+        // 20% -> 100%: phần trên 80% sạc chậm hơn nên ước tính theo công suất cố định là quá ngắn
+        Long waitlistId = join(100.0);
+
+        release();
+        awaitStatus(waitlistId, WaitlistEntry.Status.OFFERED);
+
+        ArgumentCaptor<SlotHoldRequestDTO> hold = ArgumentCaptor.forClass(SlotHoldRequestDTO.class);
+        verify(slotHoldService).createHold(hold.capture());
+        long minutes = Duration.between(hold.getValue().getStartTime(), hold.getValue().getEndTime()).toMinutes();
+        assertEquals(ChargeCurve.of(60, 60, null, null).minutes(20, 100), minutes);
+        assertTrue(minutes > ChargingTimeUtil.estimateMinutes(48, 60));
+    }
+
+    private Long join() {
+        return join(80.0);
+    }
+
+    private Long join(double targetBattery) {
+        WaitlistResponseDTO response = waitlistService.join(WaitlistRequestDTO.builder()
+                .userId(driver.getUserId())
+                .vehicleId(vehicle.getId())
+                .stationId(station.getStationId())
+                .connectorTypeId(connectorType.getConnectorTypeId())
+                .earliestStart(gapStart.minusHours(1))
+                .latestEnd(gapEnd.plusHours(2))
+                .currentBattery(20.0)
+                .targetBattery(targetBattery)
+                .autoBook(false)
+                .build());
+        return response.getWaitlistId();
+    }
+
+    private void release() {
+        waitlistService.onReservationChanged(new ReservationChangedEvent(ReservationChangedEvent.Type.RELEASED,
+                1L, point.getChargingPointId(), station.getStationId(), gapStart, gapEnd));
+    }
+
+    private void expireOffer(Long waitlistId) {
+        WaitlistEntry entry = waitlistRepository.findById(waitlistId).orElseThrow();
+        entry.setOfferExpiresAt(LocalDateTime.now().minusSeconds(1));
+        waitlistRepository.save(entry);
+    }
+
+    private WaitlistEntry awaitStatus(Long waitlistId, WaitlistEntry.Status status) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            WaitlistEntry entry = waitlistRepository.findById(waitlistId).orElseThrow();
+            if (entry.getStatus() == status) {
+                return entry;
+            }
+            Thread.sleep(50);
+        }
+        fail("Waitlist entry " + waitlistId + " did not reach " + status);
+        return null;
+    }
+}